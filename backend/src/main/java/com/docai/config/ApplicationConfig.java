@@ -1,5 +1,7 @@
 package com.docai.config;
 
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
@@ -14,6 +16,12 @@ public class ApplicationConfig implements WebMvcConfigurer {
         return new RestTemplate();
     }
     
+    // Generated property accessors instead of reflection; Spring Boot registers Module beans on its ObjectMapper
+    @Bean
+    public Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+    
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**")
@@ -1,17 +1,131 @@
 package com.docai.config;
 
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.mongodb.config.AbstractMongoClientConfiguration;
 import org.springframework.data.mongodb.config.EnableMongoAuditing;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the MongoClient from {@code document.mongo} (pool sizing, timeouts, wire compression)
+ * and then applies {@code spring.data.mongodb.uri}, so any option given in the URI wins.
+ * Reads default to the primary; analytics reads opt into secondaries through {@link MongoReadRouting}.
+ */
 @Configuration
 @EnableMongoRepositories(basePackages = "com.docai.repositories")
 @EnableMongoAuditing
 public class MongoConfig extends AbstractMongoClientConfiguration {
     
+    private static final Logger logger = LoggerFactory.getLogger(MongoConfig.class);
+    
+    @Autowired
+    private MongoPoolMetrics poolMetrics;
+    
+    @Value("${spring.data.mongodb.uri:mongodb://localhost:27017/documentintelligence}")
+    private String uri;
+    
+    @Value("${spring.data.mongodb.database:documentintelligence}")
+    private String database;
+    
+    @Value("${document.mongo.application-name:document-intelligence-platform}")
+    private String applicationName;
+    
+    @Value("${document.mongo.pool.min-size:5}")
+    private int minPoolSize;
+    
+    @Value("${document.mongo.pool.max-size:100}")
+    private int maxPoolSize;
+    
+    @Value("${document.mongo.pool.max-connecting:2}")
+    private int maxConnecting;
+    
+    @Value("${document.mongo.pool.max-wait:2s}")
+    private Duration maxWait;
+    
+    @Value("${document.mongo.pool.max-idle:5m}")
+    private Duration maxIdle;
+    
+    @Value("${document.mongo.pool.max-life:30m}")
+    private Duration maxLife;
+    
+    @Value("${document.mongo.connect-timeout:5s}")
+    private Duration connectTimeout;
+    
+    @Value("${document.mongo.read-timeout:2m}")
+    private Duration readTimeout;
+    
+    @Value("${document.mongo.server-selection-timeout:10s}")
+    private Duration serverSelectionTimeout;
+    
+    @Value("${document.mongo.compressors:zstd,zlib}")
+    private List<String> compressors;
+    
     @Override
     protected String getDatabaseName() {
-        return "documentintelligence";
+        return database;
+    }
+    
+    @Override
+    protected void configureClientSettings(MongoClientSettings.Builder builder) {
+        builder.applicationName(applicationName)
+                .compressorList(compressors())
+                .applyToConnectionPoolSettings(pool -> pool
+                        .minSize(minPoolSize)
+                        .maxSize(maxPoolSize)
+                        .maxConnecting(maxConnecting)
+                        .maxWaitTime(maxWait.toMillis(), TimeUnit.MILLISECONDS)
+                        .maxConnectionIdleTime(maxIdle.toMillis(), TimeUnit.MILLISECONDS)
+                        .maxConnectionLifeTime(maxLife.toMillis(), TimeUnit.MILLISECONDS)
+                        .addConnectionPoolListener(poolMetrics))
+                .applyToSocketSettings(socket -> socket
+                        .connectTimeout((int) connectTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                        .readTimeout((int) readTimeout.toMillis(), TimeUnit.MILLISECONDS))
+                .applyToClusterSettings(cluster -> cluster
+                        .serverSelectionTimeout(serverSelectionTimeout.toMillis(), TimeUnit.MILLISECONDS))
+                .applyConnectionString(new ConnectionString(uri));
+    }
+    
+    /**
+     * The configured compressors in preference order; the server picks the first it also supports.
+     * Snappy needs snappy-java, which is not bundled, so it is skipped unless it is on the classpath.
+     */
+    private List<MongoCompressor> compressors() {
+        List<MongoCompressor> list = new ArrayList<>();
+        for (String name : compressors) {
+            switch (name.trim().toLowerCase()) {
+                case "zstd" -> list.add(MongoCompressor.createZstdCompressor());
+                case "zlib" -> list.add(MongoCompressor.createZlibCompressor());
+                case "snappy" -> {
+                    if (isPresent("org.xerial.snappy.Snappy")) {
+                        list.add(MongoCompressor.createSnappyCompressor());
+                    } else {
+                        logger.warn("snappy compression requested but snappy-java is not on the classpath; skipping");
+                    }
+                }
+                case "", "none" -> { }
+                default -> throw new IllegalArgumentException("Unknown MongoDB compressor: " + name);
+            }
+        }
+        return list;
+    }
+    
+    private static boolean isPresent(String className) {
+        try {
+            Class.forName(className, false, MongoConfig.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
     }
-}
\ No newline at end of file
+}
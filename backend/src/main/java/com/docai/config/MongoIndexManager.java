@@ -0,0 +1,330 @@
+package com.docai.config;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.index.TextIndexDefinition;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Declares the indexes behind every repository query shape and creates them on startup.
+ * Model {@code @Indexed} annotations are not applied (auto index creation is off), so this is the
+ * single source of truth. Each query shape is then checked with {@code explain()}; a shape that
+ * still resolves to a collection scan is logged, or fails startup when
+ * {@code document.indexes.fail-on-collscan} is set (intended for CI).
+ */
+@Component
+public class MongoIndexManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(MongoIndexManager.class);
+
+    static final String DOCUMENTS = "documents";
+    static final String ANALYSES = "document_analyses";
+    static final String ANALYSIS_HISTORY = "document_analysis_history";
+    static final String DICTIONARIES = "compression_dictionaries";
+    static final String EXTRACTION_CACHE = "extraction_cache";
+    static final String BACKFILL_JOBS = "backfill_jobs";
+    static final String DOCUMENT_EMBEDDINGS = "document_embeddings";
+    static final String DOCUMENT_SIGNATURES = "document_signatures";
+    static final String ANALYSIS_LEASES = "analysis_leases";
+    static final String ENTITY_POSTINGS = "entity_postings";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${document.indexes.verify:true}")
+    private boolean verify;
+
+    @Value("${document.indexes.fail-on-collscan:false}")
+    private boolean failOnCollectionScan;
+
+    @Value("${document.indexes.failed-analysis-ttl:30d}")
+    private Duration failedAnalysisTtl;
+
+    @Value("${document.analysis.history.max-age:180d}")
+    private Duration historyTtl;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        ensureIndexes();
+        if (verify) {
+            verifyQueryShapes();
+        }
+    }
+
+    public void ensureIndexes() {
+        for (IndexSpec spec : indexSpecs()) {
+            try {
+                String name = mongoTemplate.indexOps(spec.collection()).ensureIndex(spec.definition());
+                logger.debug("Index ensured: {}.{}", spec.collection(), name);
+            } catch (Exception e) {
+                // An equivalent index under another name (e.g. from @Indexed) is left in place
+                logger.warn("Could not ensure index on {}: {}", spec.collection(), e.getMessage());
+            }
+        }
+    }
+
+    public List<String> verifyQueryShapes() {
+        List<String> collectionScans = new ArrayList<>();
+        for (QueryShape shape : queryShapes()) {
+            if (containsStage(winningPlan(shape), "COLLSCAN")) {
+                collectionScans.add(shape.name());
+                logger.warn("Query shape {} on {} resolves to a COLLSCAN: {}",
+                        shape.name(), shape.collection(), shape.filter().toJson());
+            }
+        }
+
+        if (collectionScans.isEmpty()) {
+            logger.info("All {} declared query shapes use an index", queryShapes().size());
+        } else if (failOnCollectionScan) {
+            throw new IllegalStateException("Query shapes without a usable index: " + collectionScans);
+        }
+        return collectionScans;
+    }
+
+    Object winningPlan(QueryShape shape) {
+        Document explain = mongoTemplate.getDb().runCommand(new Document("explain",
+                new Document("find", shape.collection()).append("filter", shape.filter()))
+                .append("verbosity", "queryPlanner"));
+        return ((Document) explain.get("queryPlanner")).get("winningPlan");
+    }
+
+    List<IndexSpec> indexSpecs() {
+        return List.of(
+            // document_analyses
+            new IndexSpec(ANALYSES, new Index()
+                    .on("document_id", Sort.Direction.ASC)
+                    .on("analysis_type", Sort.Direction.ASC)
+                    .unique()
+                    .named("document_type_unique")),
+            new IndexSpec(ANALYSES, new Index()
+                    .on("analysis_type", Sort.Direction.ASC)
+                    .on("created_at", Sort.Direction.DESC)
+                    .named("type_created")),
+            new IndexSpec(ANALYSES, new Index().on("status", Sort.Direction.ASC).named("status")),
+            new IndexSpec(ANALYSES, new Index().on("created_at", Sort.Direction.ASC).named("created_at")),
+            new IndexSpec(ANALYSES, new Index()
+                    .on("confidence", Sort.Direction.ASC)
+                    .partial(PartialIndexFilter.of(Criteria.where("confidence").exists(true)))
+                    .named("confidence_present")),
+            new IndexSpec(ANALYSES, new Index()
+                    .on("processing_time", Sort.Direction.ASC)
+                    .partial(PartialIndexFilter.of(Criteria.where("processing_time").exists(true)))
+                    .named("processing_time_present")),
+            new IndexSpec(ANALYSES, new Index()
+                    .on("entities.type", Sort.Direction.ASC)
+                    .partial(PartialIndexFilter.of(Criteria.where("entities.type").exists(true)))
+                    .named("entity_type_present")),
+            new IndexSpec(ANALYSES, new Index()
+                    .on("updated_at", Sort.Direction.ASC)
+                    .expire(failedAnalysisTtl)
+                    .partial(PartialIndexFilter.of(Criteria.where("status").is("FAILED")))
+                    .named("failed_ttl")),
+            new IndexSpec(ANALYSES, new Index()
+                    .on("updated_at", Sort.Direction.ASC)
+                    .on("document_id", Sort.Direction.ASC)
+                    .named("updated_document")),
+
+            // document_analysis_history
+            new IndexSpec(ANALYSIS_HISTORY, new Index()
+                    .on("document_id", Sort.Direction.ASC)
+                    .on("analysis_type", Sort.Direction.ASC)
+                    .on("archived_at", Sort.Direction.DESC)
+                    .named("document_type_archived")),
+            new IndexSpec(ANALYSIS_HISTORY, new Index()
+                    .on("archived_at", Sort.Direction.ASC)
+                    .expire(historyTtl)
+                    .named("archived_ttl")),
+
+            // compression_dictionaries
+            new IndexSpec(DICTIONARIES, new Index().on("dict_id", Sort.Direction.ASC).unique().named("dict_id_unique")),
+            new IndexSpec(DICTIONARIES, new Index()
+                    .on("content_type", Sort.Direction.ASC)
+                    .on("created_at", Sort.Direction.DESC)
+                    .named("content_type_created")),
+
+            // extraction_cache (looked up by _id)
+            new IndexSpec(EXTRACTION_CACHE, new Index()
+                    .on("content_type", Sort.Direction.ASC)
+                    .on("parser_version", Sort.Direction.ASC)
+                    .named("content_type_version")),
+
+            // backfill_jobs
+            new IndexSpec(BACKFILL_JOBS, new Index()
+                    .on("status", Sort.Direction.ASC)
+                    .on("heartbeat_at", Sort.Direction.ASC)
+                    .named("status_heartbeat")),
+            new IndexSpec(BACKFILL_JOBS, new Index().on("created_at", Sort.Direction.DESC).named("created_at")),
+
+            // analysis_leases (looked up by _id); expired leases are also taken over before the TTL monitor runs
+            new IndexSpec(ANALYSIS_LEASES, new Index()
+                    .on("expires_at", Sort.Direction.ASC)
+                    .expire(Duration.ZERO)
+                    .named("expires_ttl")),
+
+            // document_embeddings
+            new IndexSpec(DOCUMENT_EMBEDDINGS, new Index().on("updated_at", Sort.Direction.ASC).named("updated_at")),
+
+            // document_signatures: multikey over LSH band keys
+            new IndexSpec(DOCUMENT_SIGNATURES, new Index().on("bands", Sort.Direction.ASC).named("bands")),
+
+            // entity_postings: (type, value) lookups return document ids from the index alone
+            new IndexSpec(ENTITY_POSTINGS, new Index()
+                    .on("type", Sort.Direction.ASC)
+                    .on("value", Sort.Direction.ASC)
+                    .on("document_id", Sort.Direction.ASC)
+                    .named("type_value_document")),
+            new IndexSpec(ENTITY_POSTINGS, new Index().on("document_id", Sort.Direction.ASC).named("document_id")),
+
+            // documents
+            new IndexSpec(DOCUMENTS, new Index().on("filename", Sort.Direction.ASC).named("filename")),
+            new IndexSpec(DOCUMENTS, new Index()
+                    .on("content_type", Sort.Direction.ASC)
+                    .on("_id", Sort.Direction.ASC)
+                    .named("content_type_id")),
+            new IndexSpec(DOCUMENTS, new Index()
+                    .on("classification", Sort.Direction.ASC)
+                    .on("_id", Sort.Direction.ASC)
+                    .named("classification_id")),
+            new IndexSpec(DOCUMENTS, new Index()
+                    .on("processing_status", Sort.Direction.ASC)
+                    .on("_id", Sort.Direction.ASC)
+                    .named("processing_status_id")),
+            new IndexSpec(DOCUMENTS, new Index()
+                    .on("duplicate_of", Sort.Direction.ASC)
+                    .on("_id", Sort.Direction.ASC)
+                    .partial(PartialIndexFilter.of(Criteria.where("duplicate_of").exists(true)))
+                    .named("duplicate_of_id")),
+            new IndexSpec(DOCUMENTS, new Index()
+                    .on("version_group_id", Sort.Direction.ASC)
+                    .on("version_number", Sort.Direction.ASC)
+                    .partial(PartialIndexFilter.of(Criteria.where("version_group_id").exists(true)))
+                    .named("version_group_number")),
+            new IndexSpec(DOCUMENTS, new Index().on("processed", Sort.Direction.ASC).named("processed")),
+            new IndexSpec(DOCUMENTS, new Index().on("tags", Sort.Direction.ASC).named("tags")),
+            new IndexSpec(DOCUMENTS, new Index()
+                    .on("uploaded_by", Sort.Direction.ASC)
+                    .on("created_at", Sort.Direction.DESC)
+                    .named("uploader_created")),
+            new IndexSpec(DOCUMENTS, new Index().on("created_at", Sort.Direction.ASC).named("created_at")),
+            new IndexSpec(DOCUMENTS, new Index().on("updated_at", Sort.Direction.ASC).named("updated_at")),
+            new IndexSpec(DOCUMENTS, new Index().on("file_size", Sort.Direction.ASC).named("file_size")),
+            new IndexSpec(DOCUMENTS, new Index()
+                    .on("entities.type", Sort.Direction.ASC)
+                    .partial(PartialIndexFilter.of(Criteria.where("entities.type").exists(true)))
+                    .named("entity_type_present")),
+            new IndexSpec(DOCUMENTS, new Index()
+                    .on("tier_checked_at", Sort.Direction.ASC)
+                    .on("created_at", Sort.Direction.ASC)
+                    .named("tier_candidates")),
+            new IndexSpec(DOCUMENTS, new TextIndexDefinition.TextIndexDefinitionBuilder()
+                    .onField("extracted_text")
+                    .named("extracted_text_search")
+                    .build())
+        );
+    }
+
+    /**
+     * Filters mirroring the repository {@code @Query} methods, with stored field names.
+     * Unanchored case-insensitive {@code $regex} searches cannot use an index and are not listed.
+     */
+    List<QueryShape> queryShapes() {
+        Date now = new Date();
+        Date dayAgo = new Date(now.getTime() - Duration.ofDays(1).toMillis());
+        return List.of(
+            new QueryShape("analyses.byDocumentId", ANALYSES, new Document("document_id", "x")),
+            new QueryShape("analyses.byAnalysisType", ANALYSES, new Document("analysis_type", "x")),
+            new QueryShape("analyses.byConfidence", ANALYSES,
+                    new Document("confidence", new Document("$gte", 0.5))),
+            new QueryShape("analyses.byCreatedAt", ANALYSES,
+                    new Document("created_at", new Document(Map.of("$gte", dayAgo, "$lte", now)))),
+            new QueryShape("analyses.byProcessingTime", ANALYSES,
+                    new Document("processing_time", new Document(Map.of("$gte", 0L, "$lte", 1000L)))),
+            new QueryShape("analyses.byStatus", ANALYSES, new Document("status", "x")),
+            new QueryShape("analyses.byEntityType", ANALYSES, new Document("entities.type", "x")),
+            new QueryShape("analyses.byDocumentAndType", ANALYSES,
+                    new Document("document_id", "x").append("analysis_type", "y")),
+            new QueryShape("analyses.updatedSince", ANALYSES,
+                    new Document("updated_at", new Document("$gt", now))),
+            new QueryShape("history.byDocumentAndType", ANALYSIS_HISTORY,
+                    new Document("document_id", "x").append("analysis_type", "y")),
+            new QueryShape("dictionaries.byDictId", DICTIONARIES, new Document("dict_id", 1L)),
+            new QueryShape("dictionaries.byContentType", DICTIONARIES, new Document("content_type", "x")),
+
+            new QueryShape("extractionCache.byContentTypeAndVersion", EXTRACTION_CACHE,
+                    new Document("content_type", "x").append("parser_version", "y")),
+
+            new QueryShape("backfills.orphaned", BACKFILL_JOBS, new Document("status", "RUNNING")
+                    .append("heartbeat_at", new Document("$lt", now))),
+
+            new QueryShape("embeddings.updatedSince", DOCUMENT_EMBEDDINGS,
+                    new Document("updated_at", new Document("$gt", now))),
+
+            new QueryShape("signatures.byBands", DOCUMENT_SIGNATURES,
+                    new Document("bands", new Document("$in", List.of("0:x", "1:y")))),
+
+            new QueryShape("entityPostings.byEntity", ENTITY_POSTINGS,
+                    new Document("type", "PERSON").append("value", "x")),
+            new QueryShape("entityPostings.byDocument", ENTITY_POSTINGS, new Document("document_id", "x")),
+
+            new QueryShape("documents.byFilename", DOCUMENTS, new Document("filename", "x")),
+            new QueryShape("documents.byContentType", DOCUMENTS, new Document("content_type", "x")),
+            new QueryShape("documents.byClassification", DOCUMENTS, new Document("classification", "x")),
+            new QueryShape("documents.byUploadedBy", DOCUMENTS, new Document("uploaded_by", "x")),
+            new QueryShape("documents.byProcessed", DOCUMENTS, new Document("processed", false)),
+            new QueryShape("documents.byDuplicateOf", DOCUMENTS, new Document("duplicate_of", "x")),
+            new QueryShape("documents.byVersionGroup", DOCUMENTS, new Document("version_group_id", "x")),
+            new QueryShape("documents.byProcessingStatus", DOCUMENTS, new Document("processing_status", "x")),
+            new QueryShape("documents.byEntityType", DOCUMENTS, new Document("entities.type", "x")),
+            new QueryShape("documents.byTags", DOCUMENTS,
+                    new Document("tags", new Document("$in", List.of("x")))),
+            new QueryShape("documents.byCreatedAt", DOCUMENTS,
+                    new Document("created_at", new Document(Map.of("$gte", dayAgo, "$lte", now)))),
+            new QueryShape("documents.updatedSince", DOCUMENTS,
+                    new Document("updated_at", new Document("$gt", now))),
+            new QueryShape("documents.byFileSize", DOCUMENTS,
+                    new Document("file_size", new Document(Map.of("$gte", 0L, "$lte", 1024L)))),
+            new QueryShape("documents.tierCandidates", DOCUMENTS,
+                    new Document("tier_checked_at", null).append("created_at", new Document("$lt", now))
+                            .append("$or", List.of(new Document("tier_retry_at", null),
+                                    new Document("tier_retry_at", new Document("$lte", now))))),
+            new QueryShape("documents.byTextSearch", DOCUMENTS,
+                    new Document("$text", new Document("$search", "x")))
+        );
+    }
+
+    static boolean containsStage(Object node, String stage) {
+        if (node instanceof Document document) {
+            if (stage.equals(document.get("stage"))) {
+                return true;
+            }
+            return document.values().stream().anyMatch(value -> containsStage(value, stage));
+        }
+        if (node instanceof List<?> list) {
+            return list.stream().anyMatch(value -> containsStage(value, stage));
+        }
+        return false;
+    }
+
+    record IndexSpec(String collection, IndexDefinition definition) {
+    }
+
+    record QueryShape(String name, String collection, Document filter) {
+    }
+}
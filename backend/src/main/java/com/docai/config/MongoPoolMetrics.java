@@ -0,0 +1,106 @@
+package com.docai.config;
+
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckOutStartedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionClosedEvent;
+import com.mongodb.event.ConnectionCreatedEvent;
+import com.mongodb.event.ConnectionPoolClearedEvent;
+import com.mongodb.event.ConnectionPoolListener;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Connection pool listener registered on the MongoClient: counts checkouts and records how long
+ * each one waited for a connection. A growing wait or timeouts mean the pool is too small for
+ * the request concurrency (or queries hold connections too long).
+ */
+@Component
+public class MongoPoolMetrics implements ConnectionPoolListener {
+
+    private static final long MAX_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final LongAdder checkoutsStarted = new LongAdder();
+    private final LongAdder checkedOut = new LongAdder();
+    private final LongAdder checkedIn = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder closed = new LongAdder();
+    private final LongAdder cleared = new LongAdder();
+    private final Map<ConnectionCheckOutFailedEvent.Reason, LongAdder> failures =
+            new EnumMap<>(ConnectionCheckOutFailedEvent.Reason.class);
+    private final Histogram checkoutWait = new ConcurrentHistogram(MAX_TRACKABLE_MICROS, 3);
+
+    public MongoPoolMetrics() {
+        for (ConnectionCheckOutFailedEvent.Reason reason : ConnectionCheckOutFailedEvent.Reason.values()) {
+            failures.put(reason, new LongAdder());
+        }
+    }
+
+    @Override
+    public void connectionCheckOutStarted(ConnectionCheckOutStartedEvent event) {
+        checkoutsStarted.increment();
+    }
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+        checkedOut.increment();
+        checkoutWait.recordValue(Math.min(event.getElapsedTime(TimeUnit.MICROSECONDS), MAX_TRACKABLE_MICROS));
+    }
+
+    @Override
+    public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+        failures.get(event.getReason()).increment();
+    }
+
+    @Override
+    public void connectionCheckedIn(ConnectionCheckedInEvent event) {
+        checkedIn.increment();
+    }
+
+    @Override
+    public void connectionCreated(ConnectionCreatedEvent event) {
+        created.increment();
+    }
+
+    @Override
+    public void connectionClosed(ConnectionClosedEvent event) {
+        closed.increment();
+    }
+
+    @Override
+    public void connectionPoolCleared(ConnectionPoolClearedEvent event) {
+        cleared.increment();
+    }
+
+    /**
+     * Time between asking the pool for a connection and getting one, in microseconds.
+     */
+    public Histogram getCheckoutWait() {
+        return checkoutWait;
+    }
+
+    public Map<String, Object> getStatus() {
+        long failed = failures.values().stream().mapToLong(LongAdder::sum).sum();
+        Map<String, Object> failedByReason = new LinkedHashMap<>();
+        failures.forEach((reason, count) -> failedByReason.put(reason.name().toLowerCase(), count.sum()));
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("connections", created.sum() - closed.sum());
+        status.put("inUse", checkedOut.sum() - checkedIn.sum());
+        status.put("waiting", Math.max(checkoutsStarted.sum() - checkedOut.sum() - failed, 0));
+        status.put("checkouts", checkedOut.sum());
+        status.put("checkoutFailures", failedByReason);
+        status.put("connectionsCreated", created.sum());
+        status.put("connectionsClosed", closed.sum());
+        status.put("poolsCleared", cleared.sum());
+        return status;
+    }
+}
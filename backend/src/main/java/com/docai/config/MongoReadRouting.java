@@ -0,0 +1,66 @@
+package com.docai.config;
+
+import com.mongodb.ReadPreference;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read preference for heavy analytics and search reads (statistics rebuilds, exports, text and
+ * entity searches). They go to a secondary no more than {@code max-staleness} behind the primary,
+ * falling back to the primary when none qualifies. Everything else, and every write, keeps the
+ * client default (primary), so ingestion and read-your-writes paths are unaffected.
+ */
+@Component
+public class MongoReadRouting {
+
+    // The server rejects anything lower (heartbeat interval + idle write period)
+    private static final Duration MIN_STALENESS = Duration.ofSeconds(90);
+
+    @Value("${document.mongo.analytics-reads.read-preference:secondaryPreferred}")
+    private String mode;
+
+    @Value("${document.mongo.analytics-reads.max-staleness:90s}")
+    private Duration maxStaleness;
+
+    private ReadPreference analytics;
+
+    @PostConstruct
+    public void init() {
+        if (ReadPreference.primary().getName().equalsIgnoreCase(mode)) {
+            analytics = ReadPreference.primary();
+            return;
+        }
+        if (maxStaleness.compareTo(MIN_STALENESS) < 0) {
+            throw new IllegalArgumentException("document.mongo.analytics-reads.max-staleness must be at least "
+                    + MIN_STALENESS.toSeconds() + "s");
+        }
+        analytics = ReadPreference.valueOf(mode, List.of(), maxStaleness.toSeconds(), TimeUnit.SECONDS);
+    }
+
+    public ReadPreference analytics() {
+        return analytics;
+    }
+
+    /**
+     * Routes {@code query} to the analytics read preference.
+     */
+    public <T extends Query> T analytics(T query) {
+        query.withReadPreference(analytics);
+        return query;
+    }
+
+    /**
+     * Routes {@code aggregation} to the analytics read preference.
+     */
+    public Aggregation analytics(Aggregation aggregation) {
+        return aggregation.withOptions(AggregationOptions.builder().readPreference(analytics).build());
+    }
+}
@@ -0,0 +1,286 @@
+package com.docai.controllers;
+
+import com.docai.config.MongoPoolMetrics;
+import com.docai.models.BackfillJob;
+import com.docai.services.analysis.AnalysisCoalescer;
+import com.docai.services.backfill.BackfillService;
+import com.docai.services.cache.DocumentReadCache;
+import com.docai.services.duplicates.DuplicateDetectionService;
+import com.docai.services.extraction.ExtractionCacheService;
+import com.docai.services.facets.FacetSearchService;
+import com.docai.services.llm.ModelRouter;
+import com.docai.services.normalization.TextNormalizer;
+import com.docai.services.persistence.WriteCoalescer;
+import com.docai.services.semantic.SemanticIndexService;
+import com.docai.services.stats.DocumentStatisticsService;
+import com.docai.services.storage.StorageTierMigrator;
+import com.docai.services.views.ResponseViews;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin")
+@CrossOrigin(origins = "*")
+public class AdminController {
+
+    @Autowired
+    private StorageTierMigrator tierMigrator;
+
+    @Autowired
+    private ExtractionCacheService extractionCache;
+
+    @Autowired
+    private BackfillService backfillService;
+
+    @Autowired
+    private SemanticIndexService semanticIndex;
+
+    @Autowired
+    private DuplicateDetectionService duplicateDetection;
+
+    @Autowired
+    private ModelRouter modelRouter;
+
+    @Autowired
+    private TextNormalizer textNormalizer;
+
+    @Autowired
+    private AnalysisCoalescer analysisCoalescer;
+
+    @Autowired
+    private FacetSearchService facetSearch;
+
+    @Autowired
+    private WriteCoalescer writeCoalescer;
+
+    @Autowired
+    private MongoPoolMetrics mongoPoolMetrics;
+
+    @Autowired
+    private DocumentReadCache readCache;
+
+    @Autowired
+    private ResponseViews responseViews;
+
+    @Autowired
+    private DocumentStatisticsService statisticsService;
+
+    /**
+     * Get documents and bytes per storage tier, including space saved by compression
+     */
+    @GetMapping("/storage")
+    public ResponseEntity<?> getStorageReport() {
+        try {
+            return ResponseEntity.ok(tierMigrator.getReport());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to build storage report: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Run one cold tier migration batch now
+     */
+    @PostMapping("/storage/migrate")
+    public ResponseEntity<?> migrateColdTier() {
+        try {
+            return ResponseEntity.ok(tierMigrator.migrateBatch());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Cold tier migration failed: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Get extraction cache statistics
+     */
+    @GetMapping("/extraction")
+    public ResponseEntity<?> getExtractionStatus() {
+        try {
+            return ResponseEntity.ok(extractionCache.getStatus());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to read extraction status: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Re-extract every document not yet extracted with the current parser version (runs as a backfill)
+     */
+    @PostMapping("/extraction/reprocess")
+    public ResponseEntity<?> reprocessExtraction(
+            @RequestParam(required = false) String contentType,
+            @RequestParam(defaultValue = "false") boolean force) {
+        try {
+            BackfillJob.Filter filter = new BackfillJob.Filter();
+            filter.setContentType(contentType);
+            BackfillJob job = backfillService.create(BackfillJob.KIND_EXTRACTION, null, filter, !force, null, null);
+            return ResponseEntity.accepted().body(backfillService.progress(job));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to start reprocessing: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Drop cached extractions for a content type so its documents are parsed again
+     */
+    @PostMapping("/extraction/invalidate")
+    public ResponseEntity<?> invalidateExtraction(@RequestParam String contentType) {
+        try {
+            return ResponseEntity.ok(Map.of("contentType", contentType, "removed", extractionCache.invalidate(contentType)));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Cache invalidation failed: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Get embedding provider, index file and delta status
+     */
+    @GetMapping("/semantic")
+    public ResponseEntity<?> getSemanticStatus() {
+        try {
+            return ResponseEntity.ok(semanticIndex.getStatus());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to read semantic index status: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Rebuild the vector index file from stored embeddings in the background
+     */
+    @PostMapping("/semantic/rebuild")
+    public ResponseEntity<?> rebuildSemanticIndex() {
+        if (!semanticIndex.rebuild()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "Semantic index is disabled or already building"));
+        }
+        return ResponseEntity.accepted().body(semanticIndex.getStatus());
+    }
+
+    /**
+     * Embed documents that have no embedding for the current provider and model (runs as a backfill)
+     */
+    @PostMapping("/semantic/reembed")
+    public ResponseEntity<?> reembedDocuments(@RequestParam(defaultValue = "false") boolean force) {
+        try {
+            BackfillJob.Filter filter = new BackfillJob.Filter();
+            filter.setProcessingStatus("COMPLETED");
+            BackfillJob job = backfillService.create(BackfillJob.KIND_EMBEDDING, null, filter, !force, null, null);
+            return ResponseEntity.accepted().body(backfillService.progress(job));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to start embedding: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Get near-duplicate detection counters
+     */
+    @GetMapping("/duplicates")
+    public ResponseEntity<?> getDuplicateStatus() {
+        return ResponseEntity.ok(duplicateDetection.getStatus());
+    }
+
+    /**
+     * Get LLM routes with per-model latency, token usage, cost and failover state
+     */
+    @GetMapping("/llm")
+    public ResponseEntity<?> getLlmRouting() {
+        try {
+            return ResponseEntity.ok(modelRouter.getStatus());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to read LLM routing status: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Get characters removed from LLM prompts by text normalization
+     */
+    @GetMapping("/normalization")
+    public ResponseEntity<?> getNormalizationStatus() {
+        return ResponseEntity.ok(textNormalizer.getStatus());
+    }
+
+    /**
+     * Measure the normalization reduction on a random sample of stored documents
+     */
+    @PostMapping("/normalization/sample")
+    public ResponseEntity<?> measureNormalization(@RequestParam(defaultValue = "50") int size) {
+        if (size <= 0) {
+            return ResponseEntity.badRequest().body(Map.of("error", "size must be positive"));
+        }
+        try {
+            return ResponseEntity.ok(textNormalizer.measureSample(size));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to measure normalization: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Get in-flight analyses, leases held and how many requests were coalesced
+     */
+    @GetMapping("/coalescing")
+    public ResponseEntity<?> getCoalescingStatus() {
+        return ResponseEntity.ok(analysisCoalescer.getStatus());
+    }
+
+    /**
+     * Get facet index size, memory and last build time
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<?> getFacetStatus() {
+        return ResponseEntity.ok(facetSearch.getStatus());
+    }
+
+    /**
+     * Rebuild the facet index from the documents collection
+     */
+    @PostMapping("/facets/rebuild")
+    public ResponseEntity<?> rebuildFacets() {
+        facetSearch.rebuild();
+        return ResponseEntity.ok(facetSearch.getStatus());
+    }
+
+    /**
+     * Get buffered write counts, batch sizes and flush latency
+     */
+    @GetMapping("/write-buffer")
+    public ResponseEntity<?> getWriteBufferStatus() {
+        return ResponseEntity.ok(writeCoalescer.getStatus());
+    }
+
+    /**
+     * Get MongoDB connection pool usage, checkout failures and checkout wait time
+     */
+    @GetMapping("/mongo")
+    public ResponseEntity<?> getMongoPoolStatus() {
+        Map<String, Object> status = mongoPoolMetrics.getStatus();
+        status.put("checkoutWaitMicros", statisticsService.percentiles(mongoPoolMetrics.getCheckoutWait()));
+        return ResponseEntity.ok(status);
+    }
+
+    /**
+     * Get read cache size, hit rate and change stream state
+     */
+    @GetMapping("/read-cache")
+    public ResponseEntity<?> getReadCacheStatus() {
+        return ResponseEntity.ok(readCache.getStatus());
+    }
+
+    /**
+     * Get serialization time and response size per response view
+     */
+    @GetMapping("/serialization")
+    public ResponseEntity<?> getSerializationStatus() {
+        return ResponseEntity.ok(responseViews.getStatus());
+    }
+}
@@ -1,12 +1,19 @@
 package com.docai.controllers;
 
+import com.docai.models.AnalysisHistoryEntry;
 import com.docai.models.DocumentAnalysis;
 import com.docai.services.DocumentAnalysisService;
+import com.docai.services.cache.DocumentReadCache;
+import com.docai.services.views.ResponseViews;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -18,6 +25,9 @@ public class AnalyticsController {
     @Autowired
     private DocumentAnalysisService analysisService;
     
+    @Autowired
+    private ResponseViews responseViews;
+    
     @PostMapping("/documents/{documentId}/analyze")
     public ResponseEntity<?> analyzeDocument(
             @PathVariable String documentId,
@@ -37,15 +47,46 @@ public class AnalyticsController {
     }
     
     @GetMapping("/documents/{documentId}/analyses")
-    public ResponseEntity<List<DocumentAnalysis>> getDocumentAnalyses(@PathVariable String documentId) {
+    public ResponseEntity<?> getDocumentAnalyses(
+            @PathVariable String documentId,
+            @RequestParam(required = false) String view,
+            @RequestParam(required = false) String fields,
+            ServletWebRequest webRequest) throws IOException {
         List<DocumentAnalysis> analyses = analysisService.getAnalysesByDocument(documentId);
-        return ResponseEntity.ok(analyses);
+        String etag = DocumentReadCache.etag(analyses);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        try {
+            return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(responseViews.write(analyses, DocumentAnalysis.class, view, fields));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/documents/{documentId}/analyses/history")
+    public ResponseEntity<List<AnalysisHistoryEntry>> getDocumentAnalysisHistory(
+            @PathVariable String documentId,
+            @RequestParam(required = false) String type) {
+        List<AnalysisHistoryEntry> history = analysisService.getAnalysisHistory(documentId, type);
+        return ResponseEntity.ok(history);
     }
     
     @GetMapping("/analyses")
-    public ResponseEntity<List<DocumentAnalysis>> getAnalysesByType(@RequestParam String type) {
+    public ResponseEntity<?> getAnalysesByType(
+            @RequestParam String type,
+            @RequestParam(required = false) String view,
+            @RequestParam(required = false) String fields) throws IOException {
         List<DocumentAnalysis> analyses = analysisService.getAnalysesByType(type);
-        return ResponseEntity.ok(analyses);
+        try {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(responseViews.write(analyses, DocumentAnalysis.class, view, fields));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
     
     @GetMapping("/status")
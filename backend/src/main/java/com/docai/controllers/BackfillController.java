@@ -0,0 +1,115 @@
+package com.docai.controllers;
+
+import com.docai.models.BackfillJob;
+import com.docai.services.backfill.BackfillService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/admin/backfills")
+@CrossOrigin(origins = "*")
+public class BackfillController {
+
+    @Autowired
+    private BackfillService backfillService;
+
+    /**
+     * Start a backfill. Body: kind (EXTRACTION, ANALYSIS, EMBEDDING, DUPLICATES or ENTITY_INDEX), analysisType, classification,
+     * processingStatus, contentType, createdFrom, createdTo, skipUpToDate, concurrency, ratePerSecond
+     */
+    @PostMapping
+    public ResponseEntity<?> createBackfill(@RequestBody Map<String, Object> request) {
+        try {
+            BackfillJob.Filter filter = new BackfillJob.Filter();
+            filter.setClassification(string(request, "classification"));
+            filter.setProcessingStatus(string(request, "processingStatus"));
+            filter.setContentType(string(request, "contentType"));
+            filter.setCreatedFrom(dateTime(string(request, "createdFrom"), false));
+            filter.setCreatedTo(dateTime(string(request, "createdTo"), true));
+
+            String kind = Optional.ofNullable(string(request, "kind")).orElse(BackfillJob.KIND_EXTRACTION).toUpperCase();
+            boolean skipUpToDate = !"false".equalsIgnoreCase(string(request, "skipUpToDate"));
+            Integer concurrency = request.get("concurrency") instanceof Number n ? n.intValue() : null;
+            Double rate = request.get("ratePerSecond") instanceof Number n ? n.doubleValue() : null;
+
+            BackfillJob job = backfillService.create(kind, string(request, "analysisType"), filter,
+                    skipUpToDate, concurrency, rate);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(backfillService.progress(job));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to start backfill: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * List recent backfills with progress
+     */
+    @GetMapping
+    public ResponseEntity<?> getBackfills() {
+        return ResponseEntity.ok(backfillService.getJobs().stream().map(backfillService::progress).toList());
+    }
+
+    /**
+     * Get progress, throughput and ETA for one backfill
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getBackfill(@PathVariable String id) {
+        return backfillService.getJob(id)
+                .<ResponseEntity<?>>map(job -> ResponseEntity.ok(backfillService.progress(job)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Pause a running backfill after its current page
+     */
+    @PostMapping("/{id}/pause")
+    public ResponseEntity<?> pauseBackfill(@PathVariable String id) {
+        return respond(backfillService.pause(id), "Backfill is not running");
+    }
+
+    /**
+     * Resume a paused backfill from its last checkpoint
+     */
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<?> resumeBackfill(@PathVariable String id) {
+        return respond(backfillService.resume(id), "Backfill is not paused");
+    }
+
+    /**
+     * Cancel a running or paused backfill
+     */
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<?> cancelBackfill(@PathVariable String id) {
+        return respond(backfillService.cancel(id), "Backfill is not running or paused");
+    }
+
+    private ResponseEntity<?> respond(Optional<BackfillJob> job, String conflictMessage) {
+        return job.<ResponseEntity<?>>map(value -> ResponseEntity.ok(backfillService.progress(value)))
+                .orElse(ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", conflictMessage)));
+    }
+
+    private String string(Map<String, Object> request, String key) {
+        Object value = request.get(key);
+        return value != null && !value.toString().isBlank() ? value.toString() : null;
+    }
+
+    private LocalDateTime dateTime(String value, boolean endOfDay) {
+        if (value == null) {
+            return null;
+        }
+        if (value.length() == 10) {
+            LocalDate date = LocalDate.parse(value);
+            return endOfDay ? date.atTime(23, 59, 59) : date.atStartOfDay();
+        }
+        return LocalDateTime.parse(value);
+    }
+}
@@ -0,0 +1,52 @@
+package com.docai.controllers;
+
+import com.docai.services.stats.DocumentStatisticsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/dashboard")
+@CrossOrigin(origins = "*")
+public class DashboardController {
+
+    @Autowired
+    private DocumentStatisticsService statisticsService;
+
+    /**
+     * Get dashboard summary served from the in-memory statistics
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<?> getDashboardStats(@RequestParam(defaultValue = "7") int days) {
+        try {
+            List<Map<String, Object>> history = statisticsService.dailySeries(DocumentStatisticsService.SERIES_UPLOADED, days);
+
+            List<Map<String, Object>> documentTypes = new ArrayList<>();
+            statisticsService.snapshot(DocumentStatisticsService.CONTENT_TYPE)
+                    .forEach((type, count) -> documentTypes.add(Map.of("type", type, "count", count)));
+
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("totalDocuments", statisticsService.count(DocumentStatisticsService.TOTALS, "documents"));
+            stats.put("documentsProcessedToday", todayCount(DocumentStatisticsService.SERIES_PROCESSED));
+            stats.put("entitiesExtracted", statisticsService.total(DocumentStatisticsService.ENTITY_TYPE));
+            stats.put("averageProcessingTime", Math.round(statisticsService.getAnalysisTimeHistogram().getMean()));
+            stats.put("processingHistory", history);
+            stats.put("documentTypes", documentTypes);
+            return ResponseEntity.ok(stats);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to retrieve dashboard statistics: " + e.getMessage()));
+        }
+    }
+
+    private long todayCount(String series) {
+        List<Map<String, Object>> today = statisticsService.dailySeries(series, 1);
+        return today.isEmpty() ? 0L : (Long) today.get(0).get("count");
+    }
+}
@@ -5,35 +5,89 @@ import com.docai.models.DocumentAnalysis;
 import com.docai.models.Entity;
 import com.docai.services.DocumentService;
 import com.docai.services.DocumentAnalysisService;
+import com.docai.services.DocumentDownloadService;
+import com.docai.services.cache.DocumentReadCache;
+import com.docai.services.duplicates.DuplicateDetectionService;
+import com.docai.services.export.DocumentExportService;
+import com.docai.services.facets.FacetIndex;
+import com.docai.services.facets.FacetSearchService;
+import com.docai.services.semantic.SemanticSearchService;
+import com.docai.services.versions.DocumentVersionService;
+import com.docai.services.views.ResponseViews;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/documents")
 @CrossOrigin(origins = "*", maxAge = 3600)
 public class DocumentController {
 
+    private static final Logger logger = LoggerFactory.getLogger(DocumentController.class);
+
     @Autowired
     private DocumentService documentService;
 
     @Autowired
     private DocumentAnalysisService analysisService;
 
+    @Autowired
+    private DocumentDownloadService downloadService;
+
+    @Autowired
+    private SemanticSearchService semanticSearchService;
+
+    @Autowired
+    private DuplicateDetectionService duplicateDetection;
+
+    @Autowired
+    private DocumentVersionService versionService;
+
+    @Autowired
+    private DocumentExportService exportService;
+
+    @Autowired
+    private FacetSearchService facetSearch;
+
+    @Autowired
+    private ResponseViews responseViews;
+
+    @Value("${document.analysis.stream-timeout:300000}")
+    private long streamTimeout;
+
     /**
-     * Upload and process a document
+     * Upload and process a document, optionally as a new version of an existing one
      */
     @PostMapping("/upload")
-    public ResponseEntity<?> uploadDocument(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<?> uploadDocument(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(required = false) String previousVersionId) {
         try {
-            Document document = documentService.processDocument(file);
+            Document document = documentService.processDocument(file, previousVersionId);
             return ResponseEntity.ok(document);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "Document processing failed: " + e.getMessage()));
@@ -41,23 +95,51 @@ public class DocumentController {
     }
 
     /**
-     * Get document by ID
+     * Get document by ID, optionally as a view (summary, detail, full) or fields=a,b,c (supports If-None-Match)
      */
     @GetMapping("/{id}")
-    public ResponseEntity<?> getDocument(@PathVariable String id) {
+    public ResponseEntity<?> getDocument(
+            @PathVariable String id,
+            @RequestParam(required = false) String view,
+            @RequestParam(required = false) String fields,
+            ServletWebRequest webRequest) {
         try {
             Optional<Document> document = documentService.getDocument(id);
             if (document.isPresent()) {
-                return ResponseEntity.ok(document.get());
+                String etag = DocumentReadCache.etag(document.get());
+                if (webRequest.checkNotModified(etag)) {
+                    return null;
+                }
+                return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(responseViews.write(document.get(), Document.class, view, fields));
             } else {
                 return ResponseEntity.notFound().build();
             }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "Failed to retrieve document: " + e.getMessage()));
         }
     }
 
+    /**
+     * Download the original file (supports Range and conditional requests)
+     */
+    @GetMapping("/{id}/download")
+    public ResponseEntity<?> downloadDocument(@PathVariable String id, ServletWebRequest webRequest) {
+        return serveDocument(id, false, webRequest);
+    }
+
+    /**
+     * Display the original file inline (supports Range and conditional requests)
+     */
+    @GetMapping("/{id}/preview")
+    public ResponseEntity<?> previewDocument(@PathVariable String id, ServletWebRequest webRequest) {
+        return serveDocument(id, true, webRequest);
+    }
+
     /**
      * Analyze document content
      */
@@ -76,13 +158,43 @@ public class DocumentController {
     }
 
     /**
-     * Get extracted entities from document
+     * Stream a document summary as server-sent events while the model writes it
+     */
+    @GetMapping("/{id}/summary/stream")
+    public ResponseEntity<?> streamSummary(@PathVariable String id) {
+        SseEmitter emitter = new SseEmitter(streamTimeout);
+        try {
+            analysisService.streamSummary(id, token -> sendEvent(emitter, "token", Map.of("text", token)))
+                    .whenComplete((analysis, error) -> {
+                        if (error != null) {
+                            sendEvent(emitter, "error", Map.of("error", "Summary failed: " + error.getMessage()));
+                        } else if ("FAILED".equals(analysis.getStatus())) {
+                            sendEvent(emitter, "error", Map.of("error", "Summary failed: " + analysis.getErrorMessage()));
+                        } else {
+                            sendEvent(emitter, "analysis", analysis);
+                        }
+                        emitter.complete();
+                    });
+            // Keeps proxies from buffering the stream
+            return ResponseEntity.ok().header("X-Accel-Buffering", "no").body(emitter);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Summary failed: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Get extracted entities from document (supports If-None-Match)
      */
     @GetMapping("/{id}/entities")
-    public ResponseEntity<?> getDocumentEntities(@PathVariable String id) {
+    public ResponseEntity<?> getDocumentEntities(@PathVariable String id, ServletWebRequest webRequest) {
         try {
+            String etag = analysisService.getEntitiesETag(id);
+            if (webRequest.checkNotModified(etag)) {
+                return null;
+            }
             List<Entity> entities = analysisService.getEntities(id);
-            return ResponseEntity.ok(Map.of("entities", entities));
+            return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(Map.of("entities", entities));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "Failed to retrieve entities: " + e.getMessage()));
@@ -110,23 +222,186 @@ public class DocumentController {
     }
 
     /**
-     * Search documents
+     * List every version of the document's revision chain, oldest first
+     */
+    @GetMapping("/{id}/versions")
+    public ResponseEntity<?> getVersions(@PathVariable String id) {
+        try {
+            Optional<Document> document = documentService.getDocument(id);
+            if (document.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(Map.of("documentId", id, "versions", versionService.getVersions(document.get())));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to retrieve versions: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Mark an existing document as the next version of another one
+     */
+    @PostMapping("/{id}/versions/link")
+    public ResponseEntity<?> linkVersion(@PathVariable String id, @RequestParam String previousVersionId) {
+        try {
+            Document document = versionService.linkExisting(id, previousVersionId);
+            return ResponseEntity.ok(Map.of(
+                    "documentId", id,
+                    "previousVersionId", document.getPreviousVersionId(),
+                    "versionNumber", document.getVersionNumber()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to link version: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Paragraph-level diff against the previous version
+     */
+    @GetMapping("/{id}/diff")
+    public ResponseEntity<?> getVersionDiff(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "500") int excerptChars) {
+        try {
+            Optional<Document> document = documentService.getDocument(id);
+            if (document.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            return versionService.diff(document.get(), excerptChars)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.status(HttpStatus.CONFLICT)
+                            .body(Map.of("error", "Document has no previous version with extracted text")));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to diff versions: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Get the near-duplicate group of a document (rescans, re-exports and lightly edited versions)
+     */
+    @GetMapping("/{id}/duplicates")
+    public ResponseEntity<?> getDuplicates(@PathVariable String id) {
+        try {
+            Optional<Document> document = documentService.getDocument(id);
+            if (document.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            List<Document> group = duplicateDetection.findGroup(document.get());
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("documentId", id);
+            response.put("duplicateOf", document.get().getDuplicateOf());
+            response.put("similarity", document.get().getDuplicateSimilarity());
+            response.put("group", group.stream().filter(member -> !member.getId().equals(id)).toList());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to retrieve duplicates: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Find documents whose content is semantically closest to this one
+     */
+    @GetMapping("/{id}/similar")
+    public ResponseEntity<?> getSimilarDocuments(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "10") int limit) {
+        try {
+            if (documentService.getDocument(id).isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            Optional<List<SemanticSearchService.ScoredDocument>> similar = semanticSearchService.similar(id, limit);
+            if (similar.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(Map.of("error", "Document has not been embedded yet"));
+            }
+            return ResponseEntity.ok(Map.of("documentId", id, "similar", similar.get()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Similarity search failed: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Search documents by keyword (default), embedding similarity (mode=semantic) or both (mode=hybrid),
+     * optionally returning a view (summary, detail, full) or fields=a,b,c of each document
      */
     @GetMapping("/search")
     public ResponseEntity<?> searchDocuments(
             @RequestParam(required = false) String query,
             @RequestParam(required = false) String type,
+            @RequestParam(defaultValue = "keyword") String mode,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String view,
+            @RequestParam(required = false) String fields) {
         try {
+            boolean hasQuery = query != null && !query.isBlank();
+            String classification = type != null && !type.isBlank() ? type : null;
+            if (hasQuery && (SemanticSearchService.MODE_SEMANTIC.equals(mode) || SemanticSearchService.MODE_HYBRID.equals(mode))) {
+                List<SemanticSearchService.ScoredDocument> results =
+                        semanticSearchService.search(query, classification, mode, page, size);
+                return json(Map.of(
+                        "documents", results.stream().map(SemanticSearchService.ScoredDocument::document).toList(),
+                        "scores", results.stream().map(SemanticSearchService.ScoredDocument::score).toList(),
+                        "mode", mode), view, fields);
+            }
             List<Document> documents = documentService.searchDocuments(query, type, page, size);
-            return ResponseEntity.ok(Map.of("documents", documents));
+            return json(Map.of("documents", documents), view, fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Search failed: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Faceted search: {"query": "...", "filters": {"classification": ["INVOICE"], ...} or {"and"|"or"|"not": ...},
+     * "view": "summary"|"detail"|"full", "fields": "a,b,c"}
+     */
+    @PostMapping("/search")
+    public ResponseEntity<?> facetSearch(@RequestBody Map<String, Object> request) {
+        try {
+            Object query = request.get("query");
+            Map<String, List<String>> fieldFilters = facetSearch.parseFieldFilters(request.get("filters"));
+            FacetIndex.Filter filter = fieldFilters == null ? facetSearch.parseFilter(request.get("filters")) : null;
+            int page = request.get("page") instanceof Number number ? number.intValue() : 0;
+            int size = request.get("size") instanceof Number number ? number.intValue() : 10;
+            if (page < 0 || size <= 0 || size > 100) {
+                return ResponseEntity.badRequest().body(Map.of("error", "page must be >= 0 and size between 1 and 100"));
+            }
+            FacetSearchService.FacetResult result = facetSearch.search(query != null ? query.toString() : null,
+                    fieldFilters, filter, page, size);
+            return json(result, string(request.get("view")), fieldList(request.get("fields")));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "Search failed: " + e.getMessage()));
         }
     }
 
+    /**
+     * Value counts of every facet over all documents
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<?> getFacets() {
+        try {
+            return ResponseEntity.ok(facetSearch.counts());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to retrieve facets: " + e.getMessage()));
+        }
+    }
+
     /**
      * Get document statistics
      */
@@ -141,6 +416,99 @@ public class DocumentController {
         }
     }
 
+    /**
+     * Stream documents or analyses as CSV, JSON Lines or spreadsheet CSV; resume with after=<last id received>
+     */
+    @GetMapping("/export/{format}")
+    public ResponseEntity<?> exportDocuments(
+            @PathVariable String format,
+            @RequestParam(defaultValue = DocumentExportService.DATASET_DOCUMENTS) String dataset,
+            @RequestParam(required = false) String classification,
+            @RequestParam(required = false) String analysisType,
+            @RequestParam(required = false) String entityType,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Long limit,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) {
+        Query query;
+        try {
+            if (!DocumentExportService.isSupportedFormat(format)) {
+                throw new IllegalArgumentException("Unsupported export format: " + format);
+            }
+            query = exportService.buildQuery(dataset, new DocumentExportService.ExportFilter(
+                    blankToNull(classification), blankToNull(analysisType), blankToNull(entityType),
+                    blankToNull(from), blankToNull(to), blankToNull(after), limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        // Written on the request thread, so no async request timeout cuts a long export short
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        response.setContentType(DocumentExportService.contentType(format) + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(dataset + "." + DocumentExportService.fileExtension(format)).build().toString());
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        try {
+            OutputStream out = gzip ? new GZIPOutputStream(response.getOutputStream(), 64 * 1024) : response.getOutputStream();
+            exportService.export(dataset, format, query, out);
+            if (out instanceof GZIPOutputStream gzipOut) {
+                gzipOut.finish();
+            }
+            out.flush();
+        } catch (IOException e) {
+            // The client went away; it can resume after the last id it received
+            logger.info("Export of {} as {} aborted: {}", dataset, format, e.getMessage());
+        } catch (Exception e) {
+            if (!response.isCommitted()) {
+                response.reset();
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body(Map.of("error", "Export failed: " + e.getMessage()));
+            }
+            // Headers are gone; the truncated body is the only signal the client gets
+            logger.error("Export of {} as {} failed mid-stream", dataset, format, e);
+        }
+        return null;
+    }
+
+    private ResponseEntity<?> json(Object body, String view, String fields) throws IOException {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(responseViews.write(body, Document.class, view, fields));
+    }
+
+    private static String string(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    // "fields" may be sent as "a,b" or ["a", "b"]
+    private static String fieldList(Object value) {
+        return value instanceof List<?> list
+                ? String.join(",", list.stream().map(String::valueOf).toList())
+                : string(value);
+    }
+
+    private static String blankToNull(String value) {
+        return value != null && !value.isBlank() ? value : null;
+    }
+
+    private ResponseEntity<?> serveDocument(String id, boolean inline, ServletWebRequest webRequest) {
+        try {
+            Optional<Document> document = documentService.getDocument(id);
+            if (document.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            return downloadService.serve(document.get(), inline, webRequest);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to read document file: " + e.getMessage()));
+        }
+    }
+
     /**
      * Health check endpoint
      */
@@ -151,4 +519,12 @@ public class DocumentController {
                 "timestamp", System.currentTimeMillis()
         ));
     }
-}
\ No newline at end of file
+
+    private void sendEvent(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+        } catch (Exception e) {
+            // The client went away; the analysis still completes and is stored
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.docai.controllers;
+
+import com.docai.services.entities.EntityIndexService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/entities")
+@CrossOrigin(origins = "*")
+public class EntityController {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    @Autowired
+    private EntityIndexService entityIndex;
+
+    /**
+     * Find every document mentioning an entity, e.g. type=ORGANIZATION&value=Acme Corp
+     */
+    @GetMapping("/documents")
+    public ResponseEntity<?> findDocuments(
+            @RequestParam String type,
+            @RequestParam String value,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        return find(List.of(new EntityIndexService.Term(type, value)), page, size);
+    }
+
+    /**
+     * Find documents mentioning all of the given entities. Body: {"entities": [{"type": ..., "value": ...}], "page", "size"}
+     */
+    @PostMapping("/cooccurrence")
+    public ResponseEntity<?> findCooccurrences(@RequestBody Map<String, Object> request) {
+        if (!(request.get("entities") instanceof List<?> entities)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "entities must be a list of {type, value}"));
+        }
+        List<EntityIndexService.Term> terms = new ArrayList<>();
+        for (Object entity : entities) {
+            if (!(entity instanceof Map<?, ?> term)) {
+                return ResponseEntity.badRequest().body(Map.of("error", "entities must be a list of {type, value}"));
+            }
+            terms.add(new EntityIndexService.Term(string(term.get("type")), string(term.get("value"))));
+        }
+        int page = request.get("page") instanceof Number number ? number.intValue() : 0;
+        int size = request.get("size") instanceof Number number ? number.intValue() : 20;
+        return find(terms, page, size);
+    }
+
+    /**
+     * Get the entities mentioned by the most documents, optionally of one type
+     */
+    @GetMapping("/top")
+    public ResponseEntity<?> getTopEntities(
+            @RequestParam(required = false) String type,
+            @RequestParam(defaultValue = "20") int limit) {
+        if (limit <= 0 || limit > 1000) {
+            return ResponseEntity.badRequest().body(Map.of("error", "limit must be between 1 and 1000"));
+        }
+        return ResponseEntity.ok(Map.of("entities", entityIndex.top(type, limit)));
+    }
+
+    /**
+     * Get posting and sketch counts
+     */
+    @GetMapping("/status")
+    public ResponseEntity<Map<String, Object>> getStatus() {
+        return ResponseEntity.ok(entityIndex.getStatus());
+    }
+
+    private ResponseEntity<?> find(List<EntityIndexService.Term> terms, int page, int size) {
+        if (page < 0 || size <= 0 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "page must be >= 0 and size between 1 and " + MAX_PAGE_SIZE));
+        }
+        try {
+            return ResponseEntity.ok(entityIndex.findDocuments(terms, page, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Entity search failed: " + e.getMessage()));
+        }
+    }
+
+    private static String string(Object value) {
+        return value != null ? value.toString() : null;
+    }
+}
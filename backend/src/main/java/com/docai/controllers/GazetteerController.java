@@ -0,0 +1,39 @@
+package com.docai.controllers;
+
+import com.docai.services.gazetteer.GazetteerService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/gazetteer")
+@CrossOrigin(origins = "*")
+public class GazetteerController {
+
+    @Autowired
+    private GazetteerService gazetteerService;
+
+    /**
+     * Get the currently loaded dictionaries
+     */
+    @GetMapping("/status")
+    public ResponseEntity<Map<String, Object>> getStatus() {
+        return ResponseEntity.ok(gazetteerService.getStatus());
+    }
+
+    /**
+     * Rebuild the automaton from the dictionary directory
+     */
+    @PostMapping("/reload")
+    public ResponseEntity<?> reload() {
+        try {
+            return ResponseEntity.ok(gazetteerService.reload());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Gazetteer reload failed: " + e.getMessage()));
+        }
+    }
+}
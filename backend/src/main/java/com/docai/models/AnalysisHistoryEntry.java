@@ -0,0 +1,59 @@
+package com.docai.models;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+@Document(collection = "document_analysis_history")
+public class AnalysisHistoryEntry {
+    
+    @Id
+    private String id;
+    
+    @Field("document_id")
+    private String documentId;
+    
+    @Field("analysis_type")
+    private String analysisType;
+    
+    @Field("analysis_id")
+    private String analysisId;
+    
+    @Field("analysis")
+    private DocumentAnalysis analysis;
+    
+    @Field("archived_at")
+    private LocalDateTime archivedAt;
+    
+    // Constructors
+    public AnalysisHistoryEntry() {}
+    
+    public AnalysisHistoryEntry(DocumentAnalysis analysis) {
+        this.documentId = analysis.getDocumentId();
+        this.analysisType = analysis.getAnalysisType();
+        this.analysisId = analysis.getId();
+        this.analysis = analysis;
+        this.archivedAt = LocalDateTime.now();
+    }
+    
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    
+    public String getDocumentId() { return documentId; }
+    public void setDocumentId(String documentId) { this.documentId = documentId; }
+    
+    public String getAnalysisType() { return analysisType; }
+    public void setAnalysisType(String analysisType) { this.analysisType = analysisType; }
+    
+    public String getAnalysisId() { return analysisId; }
+    public void setAnalysisId(String analysisId) { this.analysisId = analysisId; }
+    
+    public DocumentAnalysis getAnalysis() { return analysis; }
+    public void setAnalysis(DocumentAnalysis analysis) { this.analysis = analysis; }
+    
+    public LocalDateTime getArchivedAt() { return archivedAt; }
+    public void setArchivedAt(LocalDateTime archivedAt) { this.archivedAt = archivedAt; }
+}
@@ -0,0 +1,47 @@
+package com.docai.models;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+@Document(collection = "analysis_leases")
+public class AnalysisLease {
+    
+    // documentId + ":" + analysisType + ":" + text checksum
+    @Id
+    private String id;
+    
+    @Field("owner")
+    private String owner;
+    
+    // Changes with every acquisition, so a waiter can tell a new holder from the one it waited on
+    @Field("token")
+    private String token;
+    
+    @Field("acquired_at")
+    private LocalDateTime acquiredAt;
+    
+    @Field("expires_at")
+    private LocalDateTime expiresAt;
+    
+    // Constructors
+    public AnalysisLease() {}
+    
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    
+    public String getOwner() { return owner; }
+    public void setOwner(String owner) { this.owner = owner; }
+    
+    public String getToken() { return token; }
+    public void setToken(String token) { this.token = token; }
+    
+    public LocalDateTime getAcquiredAt() { return acquiredAt; }
+    public void setAcquiredAt(LocalDateTime acquiredAt) { this.acquiredAt = acquiredAt; }
+    
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
+}
@@ -0,0 +1,191 @@
+package com.docai.models;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Document(collection = "backfill_jobs")
+public class BackfillJob {
+    
+    public static final String KIND_EXTRACTION = "EXTRACTION";
+    public static final String KIND_ANALYSIS = "ANALYSIS";
+    public static final String KIND_EMBEDDING = "EMBEDDING";
+    public static final String KIND_DUPLICATES = "DUPLICATES";
+    public static final String KIND_ENTITY_INDEX = "ENTITY_INDEX";
+    
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_PAUSED = "PAUSED";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_CANCELLED = "CANCELLED";
+    public static final String STATUS_FAILED = "FAILED";
+    
+    @Id
+    private String id;
+    
+    @Field("kind")
+    private String kind;
+    
+    @Field("analysis_type")
+    private String analysisType;
+    
+    @Field("filter")
+    private Filter filter;
+    
+    @Field("skip_up_to_date")
+    private Boolean skipUpToDate = true;
+    
+    @Field("concurrency")
+    private Integer concurrency;
+    
+    @Field("rate_per_second")
+    private Double ratePerSecond;
+    
+    @Field("status")
+    private String status;
+    
+    // Last _id whose page was fully processed; the job resumes after it
+    @Field("cursor")
+    private String cursor;
+    
+    @Field("total_estimate")
+    private Long totalEstimate;
+    
+    @Field("scanned")
+    private Long scanned = 0L;
+    
+    @Field("processed")
+    private Long processed = 0L;
+    
+    @Field("skipped")
+    private Long skipped = 0L;
+    
+    @Field("failed")
+    private Long failed = 0L;
+    
+    @Field("recent_errors")
+    private List<String> recentErrors = new ArrayList<>();
+    
+    @Field("owner")
+    private String owner;
+    
+    @Field("heartbeat_at")
+    private LocalDateTime heartbeatAt;
+    
+    @Field("created_at")
+    private LocalDateTime createdAt;
+    
+    @Field("started_at")
+    private LocalDateTime startedAt;
+    
+    @Field("completed_at")
+    private LocalDateTime completedAt;
+    
+    @Field("error_message")
+    private String errorMessage;
+    
+    // Constructors
+    public BackfillJob() {}
+    
+    public BackfillJob(String kind, String analysisType, Filter filter) {
+        this.kind = kind;
+        this.analysisType = analysisType;
+        this.filter = filter != null ? filter : new Filter();
+        this.status = STATUS_RUNNING;
+        this.createdAt = LocalDateTime.now();
+    }
+    
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    
+    public String getKind() { return kind; }
+    public void setKind(String kind) { this.kind = kind; }
+    
+    public String getAnalysisType() { return analysisType; }
+    public void setAnalysisType(String analysisType) { this.analysisType = analysisType; }
+    
+    public Filter getFilter() { return filter; }
+    public void setFilter(Filter filter) { this.filter = filter; }
+    
+    public Boolean getSkipUpToDate() { return skipUpToDate; }
+    public void setSkipUpToDate(Boolean skipUpToDate) { this.skipUpToDate = skipUpToDate; }
+    
+    public Integer getConcurrency() { return concurrency; }
+    public void setConcurrency(Integer concurrency) { this.concurrency = concurrency; }
+    
+    public Double getRatePerSecond() { return ratePerSecond; }
+    public void setRatePerSecond(Double ratePerSecond) { this.ratePerSecond = ratePerSecond; }
+    
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    
+    public String getCursor() { return cursor; }
+    public void setCursor(String cursor) { this.cursor = cursor; }
+    
+    public Long getTotalEstimate() { return totalEstimate; }
+    public void setTotalEstimate(Long totalEstimate) { this.totalEstimate = totalEstimate; }
+    
+    public Long getScanned() { return scanned; }
+    public void setScanned(Long scanned) { this.scanned = scanned; }
+    
+    public Long getProcessed() { return processed; }
+    public void setProcessed(Long processed) { this.processed = processed; }
+    
+    public Long getSkipped() { return skipped; }
+    public void setSkipped(Long skipped) { this.skipped = skipped; }
+    
+    public Long getFailed() { return failed; }
+    public void setFailed(Long failed) { this.failed = failed; }
+    
+    public List<String> getRecentErrors() { return recentErrors; }
+    public void setRecentErrors(List<String> recentErrors) { this.recentErrors = recentErrors; }
+    
+    public String getOwner() { return owner; }
+    public void setOwner(String owner) { this.owner = owner; }
+    
+    public LocalDateTime getHeartbeatAt() { return heartbeatAt; }
+    public void setHeartbeatAt(LocalDateTime heartbeatAt) { this.heartbeatAt = heartbeatAt; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+    
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+    
+    public String getErrorMessage() { return errorMessage; }
+    public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+    
+    // Inner classes
+    public static class Filter {
+        private String classification;
+        private String processingStatus;
+        private String contentType;
+        private LocalDateTime createdFrom;
+        private LocalDateTime createdTo;
+        
+        public Filter() {}
+        
+        // Getters and Setters
+        public String getClassification() { return classification; }
+        public void setClassification(String classification) { this.classification = classification; }
+        
+        public String getProcessingStatus() { return processingStatus; }
+        public void setProcessingStatus(String processingStatus) { this.processingStatus = processingStatus; }
+        
+        public String getContentType() { return contentType; }
+        public void setContentType(String contentType) { this.contentType = contentType; }
+        
+        public LocalDateTime getCreatedFrom() { return createdFrom; }
+        public void setCreatedFrom(LocalDateTime createdFrom) { this.createdFrom = createdFrom; }
+        
+        public LocalDateTime getCreatedTo() { return createdTo; }
+        public void setCreatedTo(LocalDateTime createdTo) { this.createdTo = createdTo; }
+    }
+}
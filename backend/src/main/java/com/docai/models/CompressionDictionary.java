@@ -0,0 +1,64 @@
+package com.docai.models;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+@Document(collection = "compression_dictionaries")
+public class CompressionDictionary {
+    
+    @Id
+    private String id;
+    
+    @Field("dict_id")
+    private Long dictId;
+    
+    @Field("content_type")
+    private String contentType;
+    
+    @Field("dictionary")
+    private byte[] dictionary;
+    
+    @Field("sample_count")
+    private Integer sampleCount;
+    
+    @Field("sample_bytes")
+    private Long sampleBytes;
+    
+    @Field("created_at")
+    private LocalDateTime createdAt;
+    
+    // Constructors
+    public CompressionDictionary() {}
+    
+    public CompressionDictionary(Long dictId, String contentType, byte[] dictionary) {
+        this.dictId = dictId;
+        this.contentType = contentType;
+        this.dictionary = dictionary;
+        this.createdAt = LocalDateTime.now();
+    }
+    
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    
+    public Long getDictId() { return dictId; }
+    public void setDictId(Long dictId) { this.dictId = dictId; }
+    
+    public String getContentType() { return contentType; }
+    public void setContentType(String contentType) { this.contentType = contentType; }
+    
+    public byte[] getDictionary() { return dictionary; }
+    public void setDictionary(byte[] dictionary) { this.dictionary = dictionary; }
+    
+    public Integer getSampleCount() { return sampleCount; }
+    public void setSampleCount(Integer sampleCount) { this.sampleCount = sampleCount; }
+    
+    public Long getSampleBytes() { return sampleBytes; }
+    public void setSampleBytes(Long sampleBytes) { this.sampleBytes = sampleBytes; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
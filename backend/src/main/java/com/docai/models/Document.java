@@ -3,7 +3,6 @@ package com.docai.models;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
-import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.index.TextIndexed;
@@ -12,7 +11,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
-@Document(collection = "documents")
+@org.springframework.data.mongodb.core.mapping.Document(collection = "documents")
 public class Document {
     
     @Id
@@ -76,6 +75,48 @@ public class Document {
     @Field("checksum")
     private String checksum;
     
+    @Field("extraction_version")
+    private String extractionVersion;
+    
+    @Field("storage_tier")
+    private String storageTier;
+    
+    @Field("stored_size")
+    private Long storedSize;
+    
+    @Field("tier_checked_at")
+    private LocalDateTime tierCheckedAt;
+    
+    // Failed cold tier migrations; the document is not picked again before tierRetryAt
+    @Field("tier_attempts")
+    private Integer tierAttempts;
+    
+    @Field("tier_retry_at")
+    private LocalDateTime tierRetryAt;
+    
+    @Field("embedding_version")
+    private String embeddingVersion;
+    
+    // Earliest near-duplicate this document was linked to
+    @Field("duplicate_of")
+    private String duplicateOf;
+    
+    @Field("duplicate_similarity")
+    private Double duplicateSimilarity;
+    
+    @Field("signature_version")
+    private String signatureVersion;
+    
+    @Field("previous_version_id")
+    private String previousVersionId;
+    
+    // Id of the first version; shared by every revision of the document
+    @Field("version_group_id")
+    private String versionGroupId;
+    
+    @Field("version_number")
+    private Integer versionNumber;
+    
     @CreatedDate
     @Field("created_at")
     private LocalDateTime createdAt;
@@ -151,6 +192,45 @@ public class Document {
     public String getChecksum() { return checksum; }
     public void setChecksum(String checksum) { this.checksum = checksum; }
     
+    public String getExtractionVersion() { return extractionVersion; }
+    public void setExtractionVersion(String extractionVersion) { this.extractionVersion = extractionVersion; }
+    
+    public String getStorageTier() { return storageTier; }
+    public void setStorageTier(String storageTier) { this.storageTier = storageTier; }
+    
+    public Long getStoredSize() { return storedSize; }
+    public void setStoredSize(Long storedSize) { this.storedSize = storedSize; }
+    
+    public LocalDateTime getTierCheckedAt() { return tierCheckedAt; }
+    public void setTierCheckedAt(LocalDateTime tierCheckedAt) { this.tierCheckedAt = tierCheckedAt; }
+    
+    public Integer getTierAttempts() { return tierAttempts; }
+    public void setTierAttempts(Integer tierAttempts) { this.tierAttempts = tierAttempts; }
+    
+    public LocalDateTime getTierRetryAt() { return tierRetryAt; }
+    public void setTierRetryAt(LocalDateTime tierRetryAt) { this.tierRetryAt = tierRetryAt; }
+    
+    public String getEmbeddingVersion() { return embeddingVersion; }
+    public void setEmbeddingVersion(String embeddingVersion) { this.embeddingVersion = embeddingVersion; }
+    
+    public String getDuplicateOf() { return duplicateOf; }
+    public void setDuplicateOf(String duplicateOf) { this.duplicateOf = duplicateOf; }
+    
+    public Double getDuplicateSimilarity() { return duplicateSimilarity; }
+    public void setDuplicateSimilarity(Double duplicateSimilarity) { this.duplicateSimilarity = duplicateSimilarity; }
+    
+    public String getSignatureVersion() { return signatureVersion; }
+    public void setSignatureVersion(String signatureVersion) { this.signatureVersion = signatureVersion; }
+    
+    public String getPreviousVersionId() { return previousVersionId; }
+    public void setPreviousVersionId(String previousVersionId) { this.previousVersionId = previousVersionId; }
+    
+    public String getVersionGroupId() { return versionGroupId; }
+    public void setVersionGroupId(String versionGroupId) { this.versionGroupId = versionGroupId; }
+    
+    public Integer getVersionNumber() { return versionNumber; }
+    public void setVersionNumber(Integer versionNumber) { this.versionNumber = versionNumber; }
+    
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     
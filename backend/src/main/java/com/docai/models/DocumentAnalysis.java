@@ -65,6 +65,13 @@ public class DocumentAnalysis {
     @Field("analytics_data")
     private Map<String, Object> analyticsData;
     
+    @Field("last_failure")
+    private Failure lastFailure;
+    
+    // SHA-256 of the extracted text the result was computed from
+    @Field("text_checksum")
+    private String textChecksum;
+    
     @CreatedDate
     @Field("created_at")
     private LocalDateTime createdAt;
@@ -131,6 +138,12 @@ public class DocumentAnalysis {
     public Map<String, Object> getAnalyticsData() { return analyticsData; }
     public void setAnalyticsData(Map<String, Object> analyticsData) { this.analyticsData = analyticsData; }
     
+    public Failure getLastFailure() { return lastFailure; }
+    public void setLastFailure(Failure lastFailure) { this.lastFailure = lastFailure; }
+    
+    public String getTextChecksum() { return textChecksum; }
+    public void setTextChecksum(String textChecksum) { this.textChecksum = textChecksum; }
+    
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     
@@ -197,6 +210,33 @@ public class DocumentAnalysis {
         public void setTags(List<String> tags) { this.tags = tags; }
     }
     
+    /**
+     * The most recent failed re-run of a completed analysis, which left the completed result current.
+     */
+    public static class Failure {
+        private String errorMessage;
+        private LocalDateTime failedAt;
+        private Long processingTime;
+        
+        public Failure() {}
+        
+        public Failure(String errorMessage, LocalDateTime failedAt, Long processingTime) {
+            this.errorMessage = errorMessage;
+            this.failedAt = failedAt;
+            this.processingTime = processingTime;
+        }
+        
+        // Getters and Setters
+        public String getErrorMessage() { return errorMessage; }
+        public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+        
+        public LocalDateTime getFailedAt() { return failedAt; }
+        public void setFailedAt(LocalDateTime failedAt) { this.failedAt = failedAt; }
+        
+        public Long getProcessingTime() { return processingTime; }
+        public void setProcessingTime(Long processingTime) { this.processingTime = processingTime; }
+    }
+    
     public static class Topic {
         private String name;
         private Double relevance;
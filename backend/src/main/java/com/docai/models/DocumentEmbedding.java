@@ -0,0 +1,102 @@
+package com.docai.models;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Document(collection = "document_embeddings")
+public class DocumentEmbedding {
+    
+    public static final String KIND_TEXT = "TEXT";
+    public static final String KIND_ENTITIES = "ENTITIES";
+    
+    // Same id as the document
+    @Id
+    private String id;
+    
+    // provider:model:dimensions:chunking
+    @Field("version")
+    private String version;
+    
+    @Field("dimensions")
+    private Integer dimensions;
+    
+    @Field("chunks")
+    private List<Chunk> chunks = new ArrayList<>();
+    
+    @Field("updated_at")
+    private LocalDateTime updatedAt;
+    
+    // Set on the tombstone left by a deleted document so every instance drops it from its index
+    @Field("deleted_at")
+    private LocalDateTime deletedAt;
+    
+    // Constructors
+    public DocumentEmbedding() {}
+    
+    public DocumentEmbedding(String documentId, String version, int dimensions) {
+        this.id = documentId;
+        this.version = version;
+        this.dimensions = dimensions;
+        this.updatedAt = LocalDateTime.now();
+    }
+    
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    
+    public String getVersion() { return version; }
+    public void setVersion(String version) { this.version = version; }
+    
+    public Integer getDimensions() { return dimensions; }
+    public void setDimensions(Integer dimensions) { this.dimensions = dimensions; }
+    
+    public List<Chunk> getChunks() { return chunks; }
+    public void setChunks(List<Chunk> chunks) { this.chunks = chunks; }
+    
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    
+    public LocalDateTime getDeletedAt() { return deletedAt; }
+    public void setDeletedAt(LocalDateTime deletedAt) { this.deletedAt = deletedAt; }
+    
+    /**
+     * One embedded span of the document (or its entity list), int8-quantized: value = code * scale.
+     */
+    public static class Chunk {
+        private String kind;
+        private Integer start;
+        private Integer end;
+        private Float scale;
+        private byte[] vector;
+        
+        public Chunk() {}
+        
+        public Chunk(String kind, int start, int end, float scale, byte[] vector) {
+            this.kind = kind;
+            this.start = start;
+            this.end = end;
+            this.scale = scale;
+            this.vector = vector;
+        }
+        
+        public String getKind() { return kind; }
+        public void setKind(String kind) { this.kind = kind; }
+        
+        public Integer getStart() { return start; }
+        public void setStart(Integer start) { this.start = start; }
+        
+        public Integer getEnd() { return end; }
+        public void setEnd(Integer end) { this.end = end; }
+        
+        public Float getScale() { return scale; }
+        public void setScale(Float scale) { this.scale = scale; }
+        
+        public byte[] getVector() { return vector; }
+        public void setVector(byte[] vector) { this.vector = vector; }
+    }
+}
@@ -0,0 +1,63 @@
+package com.docai.models;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Document(collection = "document_signatures")
+public class DocumentSignature {
+    
+    // Same id as the document
+    @Id
+    private String id;
+    
+    @Field("version")
+    private String version;
+    
+    @Field("minhash")
+    private int[] minhash;
+    
+    // "<band>:<hash>" keys; documents sharing any key are near-duplicate candidates
+    @Field("bands")
+    private List<String> bands;
+    
+    @Field("shingle_count")
+    private Integer shingleCount;
+    
+    @Field("created_at")
+    private LocalDateTime createdAt;
+    
+    // Constructors
+    public DocumentSignature() {}
+    
+    public DocumentSignature(String documentId, String version, int[] minhash, List<String> bands, int shingleCount) {
+        this.id = documentId;
+        this.version = version;
+        this.minhash = minhash;
+        this.bands = bands;
+        this.shingleCount = shingleCount;
+        this.createdAt = LocalDateTime.now();
+    }
+    
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    
+    public String getVersion() { return version; }
+    public void setVersion(String version) { this.version = version; }
+    
+    public int[] getMinhash() { return minhash; }
+    public void setMinhash(int[] minhash) { this.minhash = minhash; }
+    
+    public List<String> getBands() { return bands; }
+    public void setBands(List<String> bands) { this.bands = bands; }
+    
+    public Integer getShingleCount() { return shingleCount; }
+    public void setShingleCount(Integer shingleCount) { this.shingleCount = shingleCount; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -0,0 +1,104 @@
+package com.docai.models;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One entry of the entity inverted index: a (type, normalized value) mentioned in a document,
+ * with the offsets of every mention across the document's current analyses.
+ */
+@Document(collection = "entity_postings")
+public class EntityPosting {
+    
+    // "<documentId>:<type>:<value hash>", so re-indexing a document overwrites its postings
+    @Id
+    private String id;
+    
+    @Field("type")
+    private String type;
+    
+    // Lower-cased, whitespace-collapsed normalized value (or text when the extractor gave none)
+    @Field("value")
+    private String value;
+    
+    // Surface form of the first mention
+    @Field("text")
+    private String text;
+    
+    @Field("document_id")
+    private String documentId;
+    
+    @Field("mentions")
+    private List<Mention> mentions = new ArrayList<>();
+    
+    @Field("updated_at")
+    private LocalDateTime updatedAt;
+    
+    // Constructors
+    public EntityPosting() {}
+    
+    public EntityPosting(String id, String type, String value, String text, String documentId) {
+        this.id = id;
+        this.type = type;
+        this.value = value;
+        this.text = text;
+        this.documentId = documentId;
+        this.updatedAt = LocalDateTime.now();
+    }
+    
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+    
+    public String getValue() { return value; }
+    public void setValue(String value) { this.value = value; }
+    
+    public String getText() { return text; }
+    public void setText(String text) { this.text = text; }
+    
+    public String getDocumentId() { return documentId; }
+    public void setDocumentId(String documentId) { this.documentId = documentId; }
+    
+    public List<Mention> getMentions() { return mentions; }
+    public void setMentions(List<Mention> mentions) { this.mentions = mentions; }
+    
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    
+    public static class Mention {
+        @Field("start_offset")
+        private Integer startOffset;
+        
+        @Field("end_offset")
+        private Integer endOffset;
+        
+        @Field("analysis_type")
+        private String analysisType;
+        
+        public Mention() {}
+        
+        public Mention(Integer startOffset, Integer endOffset, String analysisType) {
+            this.startOffset = startOffset;
+            this.endOffset = endOffset;
+            this.analysisType = analysisType;
+        }
+        
+        // Getters and Setters
+        public Integer getStartOffset() { return startOffset; }
+        public void setStartOffset(Integer startOffset) { this.startOffset = startOffset; }
+        
+        public Integer getEndOffset() { return endOffset; }
+        public void setEndOffset(Integer endOffset) { this.endOffset = endOffset; }
+        
+        public String getAnalysisType() { return analysisType; }
+        public void setAnalysisType(String analysisType) { this.analysisType = analysisType; }
+    }
+}
@@ -0,0 +1,81 @@
+package com.docai.models;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Document(collection = "extraction_cache")
+public class ExtractionCacheEntry {
+    
+    // checksum + ":" + parser version
+    @Id
+    private String id;
+    
+    @Field("checksum")
+    private String checksum;
+    
+    @Field("content_type")
+    private String contentType;
+    
+    @Field("parser_version")
+    private String parserVersion;
+    
+    // Zstd-compressed UTF-8 text
+    @Field("text")
+    private byte[] text;
+    
+    @Field("text_length")
+    private Integer textLength;
+    
+    @Field("metadata")
+    private Map<String, String> metadata;
+    
+    @Field("created_at")
+    private LocalDateTime createdAt;
+    
+    @Field("last_used_at")
+    private LocalDateTime lastUsedAt;
+    
+    // Constructors
+    public ExtractionCacheEntry() {}
+    
+    public ExtractionCacheEntry(String checksum, String contentType, String parserVersion) {
+        this.id = checksum + ":" + parserVersion;
+        this.checksum = checksum;
+        this.contentType = contentType;
+        this.parserVersion = parserVersion;
+        this.createdAt = LocalDateTime.now();
+        this.lastUsedAt = this.createdAt;
+    }
+    
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    
+    public String getChecksum() { return checksum; }
+    public void setChecksum(String checksum) { this.checksum = checksum; }
+    
+    public String getContentType() { return contentType; }
+    public void setContentType(String contentType) { this.contentType = contentType; }
+    
+    public String getParserVersion() { return parserVersion; }
+    public void setParserVersion(String parserVersion) { this.parserVersion = parserVersion; }
+    
+    public byte[] getText() { return text; }
+    public void setText(byte[] text) { this.text = text; }
+    
+    public Integer getTextLength() { return textLength; }
+    public void setTextLength(Integer textLength) { this.textLength = textLength; }
+    
+    public Map<String, String> getMetadata() { return metadata; }
+    public void setMetadata(Map<String, String> metadata) { this.metadata = metadata; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    
+    public LocalDateTime getLastUsedAt() { return lastUsedAt; }
+    public void setLastUsedAt(LocalDateTime lastUsedAt) { this.lastUsedAt = lastUsedAt; }
+}
@@ -0,0 +1,18 @@
+package com.docai.repositories;
+
+import com.docai.models.AnalysisHistoryEntry;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface AnalysisHistoryRepository extends MongoRepository<AnalysisHistoryEntry, String> {
+    
+    @Query(value = "{ 'documentId': ?0 }", sort = "{ 'archivedAt': -1 }")
+    List<AnalysisHistoryEntry> findByDocumentId(String documentId);
+    
+    @Query(value = "{ 'documentId': ?0, 'analysisType': ?1 }", sort = "{ 'archivedAt': -1 }")
+    List<AnalysisHistoryEntry> findByDocumentIdAndAnalysisType(String documentId, String analysisType);
+}
@@ -3,12 +3,18 @@ package com.docai.repositories;
 import com.docai.models.DocumentAnalysis;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReadPreference;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Scans over many analyses read from a secondary when one is available. Repository annotations can
+ * only name the mode, so unlike {@link com.docai.config.MongoReadRouting} they carry no staleness bound;
+ * keep them to reads that tolerate replication lag.
+ */
 @Repository
 public interface AnalyticsRepository extends MongoRepository<DocumentAnalysis, String> {
     
@@ -16,24 +22,31 @@ public interface AnalyticsRepository extends MongoRepository<DocumentAnalysis, S
     List<DocumentAnalysis> findByDocumentId(String documentId);
     
     @Query("{ 'analysisType': ?0 }")
+    @ReadPreference("secondaryPreferred")
     List<DocumentAnalysis> findByAnalysisType(String analysisType);
     
     @Query("{ 'confidence': { $gte: ?0 } }")
+    @ReadPreference("secondaryPreferred")
     List<DocumentAnalysis> findByConfidenceGreaterThanEqual(Double confidence);
     
     @Query("{ 'createdAt': { $gte: ?0, $lte: ?1 } }")
+    @ReadPreference("secondaryPreferred")
     List<DocumentAnalysis> findByCreatedAtBetween(LocalDateTime startDate, LocalDateTime endDate);
     
     @Query("{ 'processingTime': { $gte: ?0, $lte: ?1 } }")
+    @ReadPreference("secondaryPreferred")
     List<DocumentAnalysis> findByProcessingTimeBetween(Long minTime, Long maxTime);
     
     @Query("{ 'status': ?0 }")
+    @ReadPreference("secondaryPreferred")
     List<DocumentAnalysis> findByStatus(String status);
     
     @Query("{ 'entities.type': ?0 }")
+    @ReadPreference("secondaryPreferred")
     List<DocumentAnalysis> findByEntityType(String entityType);
     
     @Query("{ 'summary': { $regex: ?0, $options: 'i' } }")
+    @ReadPreference("secondaryPreferred")
     List<DocumentAnalysis> findBySummaryContaining(String searchTerm);
     
     @Query("{ 'documentId': ?0, 'analysisType': ?1 }")
@@ -0,0 +1,19 @@
+package com.docai.repositories;
+
+import com.docai.models.CompressionDictionary;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CompressionDictionaryRepository extends MongoRepository<CompressionDictionary, String> {
+    
+    @Query("{ 'dictId': ?0 }")
+    Optional<CompressionDictionary> findByDictId(Long dictId);
+    
+    @Query(value = "{ 'contentType': ?0 }", sort = "{ 'createdAt': -1 }")
+    List<CompressionDictionary> findByContentType(String contentType);
+}
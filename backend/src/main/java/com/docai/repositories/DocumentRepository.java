@@ -1,13 +1,18 @@
 package com.docai.repositories;
 
 import com.docai.models.Document;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReadPreference;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Text and range scans go to secondaries, with the same caveat as {@link AnalyticsRepository}.
+ */
 @Repository
 public interface DocumentRepository extends MongoRepository<Document, String> {
     
@@ -20,12 +25,18 @@ public interface DocumentRepository extends MongoRepository<Document, String> {
     @Query("{ 'classification': ?0 }")
     List<Document> findByClassification(String classification);
     
+    @Query("{ 'classification': ?0 }")
+    List<Document> findByClassification(String classification, Pageable pageable);
+    
     @Query("{ 'uploadedBy': ?0 }")
     List<Document> findByUploadedBy(String uploadedBy);
     
     @Query("{ 'processed': ?0 }")
     List<Document> findByProcessed(Boolean processed);
     
+    @Query("{ 'processed': ?0 }")
+    List<Document> findByProcessed(Boolean processed, Pageable pageable);
+    
     @Query("{ 'entities.type': ?0 }")
     List<Document> findByEntityType(String entityType);
     
@@ -33,14 +44,26 @@ public interface DocumentRepository extends MongoRepository<Document, String> {
     List<Document> findByTagsIn(List<String> tags);
     
     @Query("{ 'extractedText': { $regex: ?0, $options: 'i' } }")
+    @ReadPreference("secondaryPreferred")
     List<Document> findByExtractedTextContaining(String searchTerm);
     
+    @Query("{ 'extractedText': { $regex: ?0, $options: 'i' } }")
+    @ReadPreference("secondaryPreferred")
+    List<Document> findByExtractedTextContaining(String searchTerm, Pageable pageable);
+    
+    @Query("{ 'extractedText': { $regex: ?0, $options: 'i' }, 'classification': ?1 }")
+    @ReadPreference("secondaryPreferred")
+    List<Document> findByExtractedTextContainingAndClassification(String searchTerm, String classification, Pageable pageable);
+    
     @Query("{ 'createdAt': { $gte: ?0, $lte: ?1 } }")
+    @ReadPreference("secondaryPreferred")
     List<Document> findByCreatedAtBetween(java.time.LocalDateTime startDate, java.time.LocalDateTime endDate);
     
     @Query("{ 'fileSize': { $gte: ?0, $lte: ?1 } }")
+    @ReadPreference("secondaryPreferred")
     List<Document> findByFileSizeBetween(Long minSize, Long maxSize);
     
     @Query("{ $text: { $search: ?0 } }")
+    @ReadPreference("secondaryPreferred")
     List<Document> findByTextSearch(String searchTerm);
 }
\ No newline at end of file
@@ -1,19 +1,45 @@
 package com.docai.services;
 
+import com.docai.models.AnalysisHistoryEntry;
 import com.docai.models.Document;
 import com.docai.models.DocumentAnalysis;
 import com.docai.models.Entity;
+import com.docai.repositories.AnalysisHistoryRepository;
 import com.docai.repositories.AnalyticsRepository;
 import com.docai.repositories.DocumentRepository;
+import com.docai.services.analysis.AnalysisCoalescer;
+import com.docai.services.analysis.AnalysisStore;
+import com.docai.services.cache.DocumentReadCache;
+import com.docai.services.duplicates.DuplicateDetectionService;
+import com.docai.services.entities.EntityIndexService;
+import com.docai.services.extraction.PatternEntityExtractor;
+import com.docai.services.facets.FacetSearchService;
+import com.docai.services.gazetteer.GazetteerService;
+import com.docai.services.normalization.NormalizedText;
+import com.docai.services.normalization.TextNormalizer;
+import com.docai.services.persistence.WriteCoalescer;
+import com.docai.services.semantic.SemanticIndexService;
+import com.docai.services.versions.DocumentVersionService;
+import com.docai.services.versions.VersionDelta;
+import com.docai.services.stats.DocumentStatisticsService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 @Service
 public class DocumentAnalysisService {
@@ -26,12 +52,64 @@ public class DocumentAnalysisService {
     @Autowired
     private AnalyticsRepository analyticsRepository;
     
+    @Autowired
+    private AnalysisStore analysisStore;
+    
+    @Autowired
+    private AnalysisCoalescer coalescer;
+    
+    @Autowired
+    private AnalysisHistoryRepository historyRepository;
+    
     @Autowired
     private OpenAIService openAIService;
     
+    @Autowired
+    private PatternEntityExtractor patternEntityExtractor;
+    
+    @Autowired
+    private GazetteerService gazetteerService;
+    
+    @Autowired
+    private DocumentStatisticsService statisticsService;
+    
+    @Autowired
+    private SemanticIndexService semanticIndex;
+    
+    @Autowired
+    private DuplicateDetectionService duplicateDetection;
+    
+    @Autowired
+    private DocumentVersionService versionService;
+    
+    @Autowired
+    private TextNormalizer normalizer;
+    
+    @Autowired
+    private FacetSearchService facetSearch;
+    
+    @Autowired
+    private EntityIndexService entityIndex;
+    
+    @Autowired
+    private DocumentReadCache readCache;
+    
+    @Autowired
+    private WriteCoalescer writeCoalescer;
+    
+    @Value("${document.analysis.partial-entities-every:50}")
+    private int partialEntitiesEvery;
+    
+    @Value("${document.versions.reanalyze-fraction:0.3}")
+    private double reanalyzeFraction;
+    
+    @Value("${document.versions.summary-change-chars:12000}")
+    private int summaryChangeChars;
+    
     public DocumentAnalysis analyzeDocument(String documentId, String analysisType) {
         logger.info("Starting document analysis: {} - {}", documentId, analysisType);
         
+        writeCoalescer.flush(Document.class, documentId);
         Optional<Document> documentOpt = documentRepository.findById(documentId);
         if (documentOpt.isEmpty()) {
             throw new RuntimeException("Document not found: " + documentId);
@@ -42,31 +120,57 @@ public class DocumentAnalysisService {
             throw new RuntimeException("Document text not available for analysis");
         }
         
+        // Concurrent requests for the same analysis of the same text share one run
+        return coalescer.execute(documentId, analysisType, document.getExtractedText(),
+            () -> runAnalysis(document, analysisType));
+    }
+    
+    private DocumentAnalysis runAnalysis(Document document, String analysisType) {
+        String documentId = document.getId();
+        
+        // One current row per (document, type); the previous result is archived when replaced
+        DocumentAnalysis previous = analysisStore.findCurrent(documentId, analysisType).orElse(null);
+        analysisStore.markProcessing(documentId, analysisType);
+        
         DocumentAnalysis analysis = new DocumentAnalysis(documentId, analysisType);
+        analysis.setTextChecksum(AnalysisCoalescer.textChecksum(document.getExtractedText()));
         analysis.setStatus("PROCESSING");
-        analysis = analyticsRepository.save(analysis);
         
         try {
             long startTime = System.currentTimeMillis();
             
-            switch (analysisType.toLowerCase()) {
-                case "entity_extraction":
-                    performEntityExtraction(analysis, document.getExtractedText());
-                    break;
-                case "classification":
-                    performClassification(analysis, document.getExtractedText());
-                    break;
-                case "summarization":
-                    performSummarization(analysis, document.getExtractedText());
-                    break;
-                case "sentiment_analysis":
-                    performSentimentAnalysis(analysis, document.getExtractedText());
-                    break;
-                case "comprehensive":
-                    performComprehensiveAnalysis(analysis, document.getExtractedText());
-                    break;
-                default:
-                    throw new RuntimeException("Unknown analysis type: " + analysisType);
+            // A near-identical earlier document already has this result; copy it instead of calling the model
+            Optional<DocumentAnalysis> reusable = duplicateDetection.findReusableAnalysis(document, analysisType);
+            // A revision only sends its changed paragraphs to the model
+            Optional<VersionDelta> delta = reusable.isPresent()
+                ? Optional.empty()
+                : versionService.prepareIncremental(document, analysisType);
+            if (reusable.isPresent()) {
+                copyResults(reusable.get(), analysis, document.getDuplicateSimilarity());
+            } else if (delta.isPresent()) {
+                performIncrementalAnalysis(analysis, document.getExtractedText(), delta.get());
+            } else {
+                // Prompts get the normalized text; entity offsets are mapped back to the extracted text
+                NormalizedText text = normalizer.normalize(document.getExtractedText());
+                switch (analysisType.toLowerCase()) {
+                    case "entity_extraction":
+                        performEntityExtraction(analysis, text);
+                        break;
+                    case "classification":
+                        performClassification(analysis, text);
+                        break;
+                    case "summarization":
+                        performSummarization(analysis, text);
+                        break;
+                    case "sentiment_analysis":
+                        performSentimentAnalysis(analysis, text);
+                        break;
+                    case "comprehensive":
+                        performComprehensiveAnalysis(analysis, text);
+                        break;
+                    default:
+                        throw new RuntimeException("Unknown analysis type: " + analysisType);
+                }
             }
             
             long endTime = System.currentTimeMillis();
@@ -81,84 +185,315 @@ public class DocumentAnalysisService {
             analysis.setErrorMessage(e.getMessage());
         }
         
-        return analyticsRepository.save(analysis);
+        return storeResult(document, analysis, previous);
+    }
+    
+    /**
+     * Summarizes the document with a streamed completion, passing text to {@code onToken} as the
+     * model writes it. The returned future completes with the stored analysis once the stream ends,
+     * so the time to the first token rather than the whole generation is what a reader waits for.
+     */
+    public CompletableFuture<DocumentAnalysis> streamSummary(String documentId, Consumer<String> onToken) {
+        String analysisType = "summarization";
+        writeCoalescer.flush(Document.class, documentId);
+        Document document = documentRepository.findById(documentId)
+            .orElseThrow(() -> new RuntimeException("Document not found: " + documentId));
+        if (document.getExtractedText() == null || document.getExtractedText().isEmpty()) {
+            throw new RuntimeException("Document text not available for analysis");
+        }
+        
+        // A summary already being produced here is shared; the viewer gets it as one token when it is ready
+        String key = AnalysisCoalescer.key(documentId, analysisType, document.getExtractedText());
+        Optional<CompletableFuture<DocumentAnalysis>> running = coalescer.findInFlight(key);
+        if (running.isPresent()) {
+            return attachToRunning(running.get(), onToken);
+        }
+        
+        DocumentAnalysis previous = analysisStore.findCurrent(documentId, analysisType).orElse(null);
+        analysisStore.markProcessing(documentId, analysisType);
+        
+        DocumentAnalysis analysis = new DocumentAnalysis(documentId, analysisType);
+        analysis.setTextChecksum(AnalysisCoalescer.textChecksum(document.getExtractedText()));
+        analysis.setStatus("PROCESSING");
+        long startTime = System.currentTimeMillis();
+        AtomicLong firstTokenTime = new AtomicLong();
+        Consumer<String> timedOnToken = token -> {
+            firstTokenTime.compareAndSet(0, System.currentTimeMillis());
+            onToken.accept(token);
+        };
+        
+        CompletableFuture<String> summary;
+        Optional<DocumentAnalysis> reusable = duplicateDetection.findReusableAnalysis(document, analysisType);
+        Optional<VersionDelta> delta = reusable.isPresent()
+            ? Optional.empty()
+            : versionService.prepareIncremental(document, analysisType);
+        if (reusable.isPresent()) {
+            copyResults(reusable.get(), analysis, document.getDuplicateSimilarity());
+            summary = CompletableFuture.completedFuture(analysis.getSummary());
+        } else if (delta.isPresent()) {
+            DocumentAnalysis previousVersion = delta.get().getPreviousAnalysis();
+            analysis.setConfidence(previousVersion.getConfidence());
+            if (delta.get().getChangedParagraphs() == 0 && delta.get().getRemovedParagraphs() == 0) {
+                analysis.setMetadata(incrementalMetadata(delta.get(), 0));
+                summary = CompletableFuture.completedFuture(previousVersion.getSummary());
+            } else {
+                String changes = normalizer.normalize(delta.get().describeChanges(summaryChangeChars)).getText();
+                analysis.setMetadata(incrementalMetadata(delta.get(), changes.length()));
+                summary = openAIService.streamSummaryUpdate(previousVersion.getSummary(), changes, timedOnToken);
+            }
+        } else {
+            analysis.setConfidence(0.90); // Default confidence for summarization
+            summary = openAIService.streamSummary(normalizer.normalize(document.getExtractedText()).getText(), timedOnToken);
+        }
+        if (summary.isDone() && summary.join() != null) {
+            // Stored summaries arrive as a single token
+            timedOnToken.accept(summary.join());
+        }
+        
+        CompletableFuture<DocumentAnalysis> result = summary.handle((text, error) -> {
+            if (error == null) {
+                analysis.setSummary(text);
+                analysis.setStatus("COMPLETED");
+                Map<String, Object> metadata = analysis.getMetadata() != null ? new HashMap<>(analysis.getMetadata()) : new HashMap<>();
+                metadata.put("streamed", true);
+                if (firstTokenTime.get() > 0) {
+                    metadata.put("timeToFirstToken", firstTokenTime.get() - startTime);
+                }
+                analysis.setMetadata(metadata);
+                logger.info("Streamed summary completed: {}", documentId);
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                logger.error("Error during streamed summary: {}", documentId, cause);
+                analysis.setStatus("FAILED");
+                analysis.setErrorMessage(cause.getMessage());
+            }
+            analysis.setProcessingTime(System.currentTimeMillis() - startTime);
+            return storeResult(document, analysis, previous);
+        });
+        // Two streams that raced past the lookup above both run; only the first is shared
+        coalescer.track(key, result);
+        return result;
+    }
+    
+    private CompletableFuture<DocumentAnalysis> attachToRunning(CompletableFuture<DocumentAnalysis> running,
+                                                                Consumer<String> onToken) {
+        return running.thenApply(analysis -> {
+            if (analysis.getSummary() != null) {
+                onToken.accept(analysis.getSummary());
+            }
+            return analysis;
+        });
+    }
+    
+    private DocumentAnalysis storeResult(Document document, DocumentAnalysis analysis, DocumentAnalysis previous) {
+        if ("FAILED".equals(analysis.getStatus()) && previous != null && "COMPLETED".equals(previous.getStatus())) {
+            // The last completed result stays current; callers still see this run's failure
+            analysisStore.recordFailure(analysis, previous);
+            readCache.evictAnalyses(previous.getDocumentId());
+            return analysis;
+        }
+        DocumentAnalysis savedAnalysis = analysisStore.replaceCurrent(analysis, previous);
+        updateDocumentClassification(document, savedAnalysis);
+        updateEntityEmbedding(savedAnalysis);
+        statisticsService.onAnalysisCompleted(savedAnalysis, previous);
+        facetSearch.onAnalysisSaved(savedAnalysis);
+        entityIndex.onAnalysisSaved(savedAnalysis);
+        readCache.evictAnalyses(savedAnalysis.getDocumentId());
+        return savedAnalysis;
     }
     
     public String classifyDocument(String text) {
         logger.info("Classifying document text");
-        return openAIService.classifyDocument(text);
+        return openAIService.classifyDocument(normalizer.normalize(text).getText()).getType();
     }
     
     public List<DocumentAnalysis> getAnalysesByDocument(String documentId) {
-        return analyticsRepository.findByDocumentId(documentId);
+        return readCache.getAnalyses(documentId);
+    }
+    
+    public List<AnalysisHistoryEntry> getAnalysisHistory(String documentId, String analysisType) {
+        if (analysisType == null || analysisType.isBlank()) {
+            return historyRepository.findByDocumentId(documentId);
+        }
+        return historyRepository.findByDocumentIdAndAnalysisType(documentId, analysisType);
     }
     
     public List<DocumentAnalysis> getAnalysesByType(String analysisType) {
         return analyticsRepository.findByAnalysisType(analysisType);
     }
     
-    private void performEntityExtraction(DocumentAnalysis analysis, String text) {
+    public List<Entity> getEntities(String documentId) {
+        Optional<List<Entity>> analyzed = readCache.getAnalyses(documentId).stream()
+            .filter(analysis -> "COMPLETED".equals(analysis.getStatus()) && analysis.getEntities() != null)
+            .max(Comparator.comparing(DocumentAnalysis::getUpdatedAt, Comparator.nullsFirst(Comparator.naturalOrder())))
+            .map(DocumentAnalysis::getEntities);
+        if (analyzed.isPresent()) {
+            return analyzed.get();
+        }
+        
+        return readCache.getDocument(documentId)
+            .map(Document::getEntities)
+            .orElse(List.of());
+    }
+    
+    /**
+     * Validator for {@link #getEntities}: the document's analyses and the record it falls back to.
+     */
+    public String getEntitiesETag(String documentId) {
+        return DocumentReadCache.etag(readCache.getDocument(documentId).orElse(null), readCache.getAnalyses(documentId));
+    }
+    
+    private void performEntityExtraction(DocumentAnalysis analysis, NormalizedText text) {
         logger.info("Performing entity extraction");
         
-        Map<String, Object> result = openAIService.extractEntities(text);
+        List<Entity> localEntities = extractLocalEntities(text.getOriginal());
+        // Entities decoded so far are published on the in-progress row while the model is still responding
+        List<Entity> received = new ArrayList<>();
+        List<Entity> llmEntities = openAIService.extractEntities(text.getText(), entity -> {
+            // Every returned entity passes through here once, so this is the only place offsets are mapped
+            text.restoreOffsets(entity);
+            received.add(entity);
+            if (partialEntitiesEvery > 0 && received.size() % partialEntitiesEvery == 0) {
+                savePartialEntities(analysis, patternEntityExtractor.merge(localEntities, received));
+            }
+        });
         
-        if (result.containsKey("entities")) {
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> entityMaps = (List<Map<String, Object>>) result.get("entities");
-            
-            List<Entity> entities = entityMaps.stream()
-                .map(this::mapToEntity)
+        List<Entity> entities = patternEntityExtractor.merge(localEntities, llmEntities);
+        analysis.setEntities(entities);
+        analysis.setConfidence(calculateAverageConfidence(entities));
+    }
+    
+    /**
+     * Structured types and dictionary names come from local matchers; the LLM only supplies named entities
+     */
+    private List<Entity> mergeEntities(String text, List<Entity> llmEntities) {
+        return patternEntityExtractor.merge(extractLocalEntities(text), llmEntities);
+    }
+    
+    private List<Entity> extractLocalEntities(String text) {
+        List<Entity> localEntities = new ArrayList<>(patternEntityExtractor.extract(text));
+        localEntities.addAll(gazetteerService.match(text));
+        return localEntities;
+    }
+    
+    private void savePartialEntities(DocumentAnalysis analysis, List<Entity> entities) {
+        try {
+            analysisStore.savePartialEntities(analysis.getDocumentId(), analysis.getAnalysisType(), entities);
+        } catch (Exception e) {
+            logger.warn("Error saving partial entities for document {}: {}", analysis.getDocumentId(), e.getMessage());
+        }
+    }
+    
+    /**
+     * Derives the analysis of a revision from the previous version's result. Local matchers rerun on
+     * the full text (they are cheap); LLM entities are kept for unchanged paragraphs with rebased
+     * offsets and requested only for changed spans; the summary is rewritten from the previous
+     * summary and the changed passages. Classification and sentiment are reused unless a large
+     * share of the text changed.
+     */
+    private void performIncrementalAnalysis(DocumentAnalysis analysis, String text, VersionDelta delta) {
+        DocumentAnalysis previous = delta.getPreviousAnalysis();
+        String type = analysis.getAnalysisType().toLowerCase();
+        boolean comprehensive = "comprehensive".equals(type);
+        List<VersionDelta.Span> changedSpans = delta.getChangedSpans();
+        long llmChars = 0;
+        
+        logger.info("Performing incremental {} from version {}: {} of {} paragraphs changed",
+            type, delta.getPreviousVersionId(), delta.getChangedParagraphs(), delta.getTotalParagraphs());
+        
+        if (comprehensive || "entity_extraction".equals(type)) {
+            List<Entity> previousLlmEntities = previous.getEntities() == null ? List.of() : previous.getEntities().stream()
+                .filter(entity -> entity.getMetadata() == null || entity.getMetadata().get("source") == null)
                 .toList();
-            
+            List<Entity> llmEntities = new ArrayList<>(delta.rebaseEntities(previousLlmEntities));
+            for (VersionDelta.Span span : changedSpans) {
+                NormalizedText spanText = normalizer.normalize(span.text());
+                llmChars += spanText.getText().length();
+                for (Entity entity : openAIService.extractEntities(spanText.getText(), spanText::restoreOffsets)) {
+                    if (entity.getStartOffset() != null && entity.getEndOffset() != null) {
+                        entity.setStartOffset(entity.getStartOffset() + span.start());
+                        entity.setEndOffset(entity.getEndOffset() + span.start());
+                    }
+                    llmEntities.add(entity);
+                }
+            }
+            List<Entity> entities = mergeEntities(text, llmEntities);
             analysis.setEntities(entities);
             analysis.setConfidence(calculateAverageConfidence(entities));
         }
+        
+        if (comprehensive || "summarization".equals(type)) {
+            if (delta.getChangedParagraphs() == 0 && delta.getRemovedParagraphs() == 0) {
+                analysis.setSummary(previous.getSummary());
+            } else {
+                String changes = normalizer.normalize(delta.describeChanges(summaryChangeChars)).getText();
+                llmChars += changes.length();
+                analysis.setSummary(openAIService.updateSummary(previous.getSummary(), changes));
+            }
+            if (!comprehensive) {
+                analysis.setConfidence(previous.getConfidence());
+            }
+        }
+        
+        if (comprehensive) {
+            if (delta.getChangedFraction() < reanalyzeFraction && previous.getClassification() != null
+                    && previous.getSentiment() != null) {
+                analysis.setClassification(previous.getClassification());
+                analysis.setSentiment(previous.getSentiment());
+            } else {
+                NormalizedText normalized = normalizer.normalize(text);
+                llmChars += 2L * normalized.getText().length();
+                performClassification(analysis, normalized);
+                performSentimentAnalysis(analysis, normalized);
+            }
+            analysis.setConfidence(calculateOverallConfidence(analysis));
+        }
+        
+        analysis.setMetadata(incrementalMetadata(delta, llmChars));
     }
     
-    private void performClassification(DocumentAnalysis analysis, String text) {
+    private Map<String, Object> incrementalMetadata(VersionDelta delta, long llmChars) {
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("incrementalFrom", delta.getPreviousVersionId());
+        metadata.put("changedParagraphs", delta.getChangedParagraphs());
+        metadata.put("removedParagraphs", delta.getRemovedParagraphs());
+        metadata.put("totalParagraphs", delta.getTotalParagraphs());
+        metadata.put("changedFraction", delta.getChangedFraction());
+        metadata.put("llmInputChars", llmChars);
+        return metadata;
+    }
+    
+    private void performClassification(DocumentAnalysis analysis, NormalizedText text) {
         logger.info("Performing document classification");
         
-        String classification = openAIService.classifyDocument(text);
-        
-        DocumentAnalysis.Classification classificationResult = new DocumentAnalysis.Classification();
-        classificationResult.setType(classification);
-        classificationResult.setConfidence(0.85); // Default confidence
+        DocumentAnalysis.Classification classificationResult = openAIService.classifyDocument(text.getText());
+        if (classificationResult.getConfidence() == null) {
+            classificationResult.setConfidence(0.85); // Default confidence
+        }
         
         analysis.setClassification(classificationResult);
-        analysis.setConfidence(0.85);
+        analysis.setConfidence(classificationResult.getConfidence());
     }
     
-    private void performSummarization(DocumentAnalysis analysis, String text) {
+    private void performSummarization(DocumentAnalysis analysis, NormalizedText text) {
         logger.info("Performing document summarization");
         
-        String summary = openAIService.summarizeDocument(text);
+        String summary = openAIService.summarizeDocument(text.getText());
         
         analysis.setSummary(summary);
         analysis.setConfidence(0.90); // Default confidence for summarization
     }
     
-    private void performSentimentAnalysis(DocumentAnalysis analysis, String text) {
+    private void performSentimentAnalysis(DocumentAnalysis analysis, NormalizedText text) {
         logger.info("Performing sentiment analysis");
         
-        Map<String, Object> sentimentResult = openAIService.analyzeSentiment(text);
-        
-        DocumentAnalysis.Sentiment sentiment = new DocumentAnalysis.Sentiment();
-        sentiment.setLabel((String) sentimentResult.get("sentiment"));
-        sentiment.setScore(((Number) sentimentResult.get("confidence")).doubleValue());
-        
-        if (sentimentResult.containsKey("scores")) {
-            @SuppressWarnings("unchecked")
-            Map<String, Object> scores = (Map<String, Object>) sentimentResult.get("scores");
-            sentiment.setPositiveScore(((Number) scores.get("positive")).doubleValue());
-            sentiment.setNegativeScore(((Number) scores.get("negative")).doubleValue());
-            sentiment.setNeutralScore(((Number) scores.get("neutral")).doubleValue());
-        }
+        DocumentAnalysis.Sentiment sentiment = openAIService.analyzeSentiment(text.getText());
         
         analysis.setSentiment(sentiment);
         analysis.setConfidence(sentiment.getScore());
     }
     
-    private void performComprehensiveAnalysis(DocumentAnalysis analysis, String text) {
+    private void performComprehensiveAnalysis(DocumentAnalysis analysis, NormalizedText text) {
         logger.info("Performing comprehensive analysis");
         
         // Perform all analysis types
@@ -172,24 +507,50 @@ public class DocumentAnalysisService {
         analysis.setConfidence(overallConfidence);
     }
     
-    private Entity mapToEntity(Map<String, Object> entityMap) {
-        Entity entity = new Entity();
-        entity.setType((String) entityMap.get("type"));
-        entity.setText((String) entityMap.get("text"));
-        
-        if (entityMap.containsKey("confidence")) {
-            entity.setConfidence(((Number) entityMap.get("confidence")).doubleValue());
+    private void updateDocumentClassification(Document document, DocumentAnalysis analysis) {
+        if (!"COMPLETED".equals(analysis.getStatus()) || analysis.getClassification() == null) {
+            return;
         }
         
-        if (entityMap.containsKey("startOffset")) {
-            entity.setStartOffset(((Number) entityMap.get("startOffset")).intValue());
-        }
+        String previousClassification = document.getClassification();
+        document.setClassification(analysis.getClassification().getType());
+        document.setConfidenceScore(analysis.getClassification().getConfidence());
+        document.setUpdatedAt(LocalDateTime.now());
+        writeCoalescer.update(Document.class, document.getId(), new Update()
+            .set("classification", document.getClassification())
+            .set("confidenceScore", document.getConfidenceScore())
+            .set("updatedAt", document.getUpdatedAt()), WriteCoalescer.Durability.COMMIT);
+        statisticsService.onClassificationChanged(previousClassification, document.getClassification());
+        facetSearch.onDocumentSaved(document);
+        readCache.evictDocument(document.getId());
+    }
+    
+    private void copyResults(DocumentAnalysis source, DocumentAnalysis analysis, Double similarity) {
+        analysis.setConfidence(source.getConfidence());
+        analysis.setSummary(source.getSummary());
+        analysis.setKeyPhrases(source.getKeyPhrases());
+        analysis.setEntities(source.getEntities());
+        analysis.setSentiment(source.getSentiment());
+        analysis.setClassification(source.getClassification());
+        analysis.setTopics(source.getTopics());
+        analysis.setLanguage(source.getLanguage());
         
-        if (entityMap.containsKey("endOffset")) {
-            entity.setEndOffset(((Number) entityMap.get("endOffset")).intValue());
+        Map<String, Object> metadata = source.getMetadata() != null ? new HashMap<>(source.getMetadata()) : new HashMap<>();
+        metadata.put("reusedFrom", source.getDocumentId());
+        metadata.put("reusedSimilarity", similarity);
+        analysis.setMetadata(metadata);
+    }
+    
+    private void updateEntityEmbedding(DocumentAnalysis analysis) {
+        if (!"COMPLETED".equals(analysis.getStatus()) || analysis.getEntities() == null || analysis.getEntities().isEmpty()) {
+            return;
         }
         
-        return entity;
+        try {
+            semanticIndex.updateEntities(analysis.getDocumentId(), analysis.getEntities());
+        } catch (Exception e) {
+            logger.warn("Error embedding entities for document {}: {}", analysis.getDocumentId(), e.getMessage());
+        }
     }
     
     private double calculateAverageConfidence(List<Entity> entities) {
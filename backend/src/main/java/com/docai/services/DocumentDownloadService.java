@@ -0,0 +1,217 @@
+package com.docai.services;
+
+import com.docai.models.Document;
+import com.docai.services.storage.BlobStore;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Serves stored originals without buffering them on the heap. For local blobs, single-range and
+ * full responses go through Tomcat sendfile when the connector supports it, otherwise through
+ * {@link FileChannel#transferTo}; multi-range requests are answered with a 200 carrying the file as
+ * a Resource, which Spring turns into a 206 multipart/byteranges response of resource regions.
+ * Remote blobs are streamed with ranged reads from their store.
+ * Responses carry a strong ETag derived from the document checksum so clients and nginx can revalidate.
+ */
+@Service
+public class DocumentDownloadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentDownloadService.class);
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Autowired
+    private StorageService storageService;
+
+    @Value("${document.download.cache-control:public, max-age=3600, must-revalidate}")
+    private String cacheControl;
+
+    @Value("${document.download.sendfile:true}")
+    private boolean sendfileEnabled;
+
+    public ResponseEntity<?> serve(Document document, boolean inline, ServletWebRequest webRequest) throws IOException {
+        String locator = document.getFilePath();
+        BlobStore.BlobInfo blob;
+        try {
+            blob = storageService.stat(locator);
+        } catch (NoSuchFileException e) {
+            logger.warn("Stored file missing for document: {}", document.getId());
+            return ResponseEntity.notFound().build();
+        }
+        // Local blobs go out via sendfile/transferTo, remote ones are streamed from the store
+        Path path = storageService.resolvePath(locator);
+
+        long length = blob.size();
+        long lastModified = blob.lastModified();
+        String etag = document.getChecksum() != null ? "\"" + document.getChecksum() + "\"" : null;
+
+        boolean notModified = etag != null
+                ? webRequest.checkNotModified(etag, lastModified)
+                : webRequest.checkNotModified(lastModified);
+        if (notModified) {
+            return null;
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(mediaType(document));
+        headers.setContentDisposition((inline ? ContentDisposition.inline() : ContentDisposition.attachment())
+                .filename(displayName(document), StandardCharsets.UTF_8)
+                .build());
+        headers.setCacheControl(cacheControl);
+        headers.setLastModified(lastModified);
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (etag != null) {
+            headers.setETag(etag);
+        }
+
+        HttpServletRequest request = webRequest.getRequest();
+        List<HttpRange> ranges;
+        try {
+            ranges = requestedRanges(request, etag, lastModified);
+        } catch (IllegalArgumentException e) {
+            return unsatisfiable(length);
+        }
+
+        if (ranges.size() > 1) {
+            if (path != null) {
+                // multipart/byteranges is rare. Spring only splits a Resource body into regions on a 200:
+                // it re-reads the Range header, switches to 206 and streams each region with a fixed-size buffer
+                return ResponseEntity.ok()
+                        .headers(headers)
+                        .body(new FileSystemResource(path));
+            }
+            // Remote blobs ignore multi-range requests and send the full body, as RFC 9110 allows
+            ranges = List.of();
+        }
+
+        long start = 0;
+        long end = length - 1;
+        HttpStatus status = HttpStatus.OK;
+        if (ranges.size() == 1) {
+            HttpRange range = ranges.get(0);
+            if (length == 0 || range.getRangeStart(length) >= length) {
+                return unsatisfiable(length);
+            }
+            start = range.getRangeStart(length);
+            end = range.getRangeEnd(length);
+            status = HttpStatus.PARTIAL_CONTENT;
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+
+        long count = length == 0 ? 0 : end - start + 1;
+        headers.setContentLength(count);
+
+        if (path == null) {
+            long offset = start;
+            StreamingResponseBody body = outputStream -> {
+                try (InputStream content = storageService.openFile(locator, offset, count)) {
+                    content.transferTo(outputStream);
+                }
+            };
+            return ResponseEntity.status(status).headers(headers).body(body);
+        }
+
+        if (sendfileEnabled && count > 0 && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // The connector copies file -> socket in the kernel after the headers are committed
+            request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return ResponseEntity.status(status).headers(headers).build();
+        }
+
+        long position = start;
+        StreamingResponseBody body = outputStream -> transfer(path, position, count, outputStream);
+        return ResponseEntity.status(status).headers(headers).body(body);
+    }
+
+    /**
+     * Ranges to honour for {@code request}: none without a Range header or when If-Range no longer
+     * matches. A malformed header throws {@link IllegalArgumentException}.
+     */
+    static List<HttpRange> requestedRanges(HttpServletRequest request, String etag, long lastModified) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || rangeHeader.isBlank()) {
+            return List.of();
+        }
+
+        // If-Range: only honour the range when the client's validator still matches
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.isBlank()) {
+            boolean matches;
+            if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+                matches = ifRange.equals(etag);
+            } else {
+                long ifRangeDate = request.getDateHeader(HttpHeaders.IF_RANGE);
+                matches = ifRangeDate != -1 && lastModified / 1000 <= ifRangeDate / 1000;
+            }
+            if (!matches) {
+                return List.of();
+            }
+        }
+        return HttpRange.parseRanges(rangeHeader);
+    }
+
+    static void transfer(Path path, long position, long count, OutputStream outputStream) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(outputStream);
+            long offset = position;
+            long remaining = count;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(offset, remaining, target);
+                if (transferred <= 0) {
+                    break;
+                }
+                offset += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
+
+    private ResponseEntity<?> unsatisfiable(long length) {
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length)
+                .build();
+    }
+
+    private MediaType mediaType(Document document) {
+        try {
+            return document.getContentType() != null
+                    ? MediaType.parseMediaType(document.getContentType())
+                    : MediaType.APPLICATION_OCTET_STREAM;
+        } catch (IllegalArgumentException e) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+    }
+
+    private String displayName(Document document) {
+        return document.getOriginalFilename() != null ? document.getOriginalFilename() : document.getFilename();
+    }
+}
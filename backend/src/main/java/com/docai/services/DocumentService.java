@@ -2,26 +2,43 @@ package com.docai.services;
 
 import com.docai.models.Document;
 import com.docai.repositories.DocumentRepository;
+import com.docai.services.cache.DocumentReadCache;
+import com.docai.services.duplicates.DuplicateDetectionService;
+import com.docai.services.entities.EntityIndexService;
+import com.docai.services.extraction.ExtractionCacheService;
+import com.docai.services.facets.FacetSearchService;
+import com.docai.services.persistence.WriteCoalescer;
+import com.docai.services.semantic.SemanticIndexService;
+import com.docai.services.versions.DocumentVersionService;
+import com.docai.services.stats.DocumentStatisticsService;
 import org.apache.tika.Tika;
 import org.apache.tika.exception.TikaException;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.regex.Pattern;
 
 @Service
 public class DocumentService {
@@ -34,35 +51,75 @@ public class DocumentService {
     @Autowired
     private StorageService storageService;
     
+    @Autowired
+    private DocumentStatisticsService statisticsService;
+    
+    @Autowired
+    private ExtractionCacheService extractionCache;
+    
+    @Autowired
+    private SemanticIndexService semanticIndex;
+    
+    @Autowired
+    private DuplicateDetectionService duplicateDetection;
+    
+    @Autowired
+    private DocumentVersionService versionService;
+    
+    @Autowired
+    private FacetSearchService facetSearch;
+    
+    @Autowired
+    private EntityIndexService entityIndex;
+    
+    @Autowired
+    private DocumentReadCache readCache;
+    
+    @Autowired
+    private WriteCoalescer writeCoalescer;
+    
     @Value("${document.storage.path:/tmp/documents}")
     private String storagePath;
     
     private final Tika tika = new Tika();
     
     public Document uploadDocument(MultipartFile file, String uploadedBy) throws IOException {
+        return uploadDocument(file, uploadedBy, null);
+    }
+    
+    public Document uploadDocument(MultipartFile file, String uploadedBy, String previousVersionId) throws IOException {
         logger.info("Uploading document: {}", file.getOriginalFilename());
         
+        Document document = new Document();
+        if (previousVersionId != null && !previousVersionId.isBlank()) {
+            // Validate before storing anything
+            versionService.link(document, previousVersionId);
+        }
+        
         // Generate unique filename
         String filename = generateUniqueFilename(file.getOriginalFilename());
         
-        // Store file
-        String filePath = storageService.storeFile(file, filename);
+        // Checksum first: it selects the storage shard
+        String checksum = calculateChecksum(file);
         
-        // Create document entity
-        Document document = new Document(
-            filename,
-            file.getContentType(),
-            file.getSize(),
-            filePath
-        );
+        // Store file
+        String filePath = storageService.storeFile(file, filename, checksum);
         
+        // Fill in document entity
+        document.setFilename(filename);
+        document.setContentType(file.getContentType());
+        document.setFileSize(file.getSize());
+        document.setFilePath(filePath);
         document.setOriginalFilename(file.getOriginalFilename());
         document.setUploadedBy(uploadedBy);
-        document.setChecksum(calculateChecksum(file.getBytes()));
+        document.setChecksum(checksum);
         document.setProcessingStatus("UPLOADED");
         
         // Save to database
         Document savedDocument = documentRepository.save(document);
+        statisticsService.onDocumentUploaded(savedDocument);
+        facetSearch.onDocumentSaved(savedDocument);
+        readCache.evictDocument(savedDocument.getId());
         
         // Start async processing
         processDocumentAsync(savedDocument);
@@ -71,10 +128,30 @@ public class DocumentService {
         return savedDocument;
     }
     
+    public Document processDocument(MultipartFile file) throws IOException {
+        return uploadDocument(file, "anonymous");
+    }
+    
+    public Document processDocument(MultipartFile file, String previousVersionId) throws IOException {
+        return uploadDocument(file, "anonymous", previousVersionId);
+    }
+    
     public Optional<Document> getDocumentById(String id) {
+        // Reads through the API see pipeline updates still buffered
+        writeCoalescer.flush(Document.class, id);
         return documentRepository.findById(id);
     }
     
+    /**
+     * API read of one document, served from the read cache.
+     */
+    public Optional<Document> getDocument(String id) {
+        if (writeCoalescer.flush(Document.class, id)) {
+            readCache.evictDocument(id);
+        }
+        return readCache.getDocument(id);
+    }
+    
     public List<Document> getAllDocuments() {
         return documentRepository.findAll();
     }
@@ -95,13 +172,44 @@ public class DocumentService {
         return documentRepository.findByExtractedTextContaining(searchTerm);
     }
     
-    public List<Document> getUnprocessedDocuments() {
-        return documentRepository.findByProcessed(false);
+    public List<Document> searchDocuments(String query, String type, int page, int size) {
+        Pageable pageable = PageRequest.of(page, size);
+        boolean hasQuery = query != null && !query.isBlank();
+        boolean hasType = type != null && !type.isBlank();
+        
+        if (hasQuery && hasType) {
+            return documentRepository.findByExtractedTextContainingAndClassification(Pattern.quote(query), type, pageable);
+        } else if (hasQuery) {
+            return documentRepository.findByExtractedTextContaining(Pattern.quote(query), pageable);
+        } else if (hasType) {
+            return documentRepository.findByClassification(type, pageable);
+        }
+        return documentRepository.findAll(pageable).getContent();
+    }
+    
+    public Map<String, Object> getDocumentStats() {
+        Map<String, Object> stats = new HashMap<>(statisticsService.getStats());
+        // Documents are flagged processed exactly when extraction completes
+        long processed = statisticsService.count(DocumentStatisticsService.STATUS, "COMPLETED");
+        stats.put("processedDocuments", processed);
+        stats.put("unprocessedDocuments",
+            statisticsService.count(DocumentStatisticsService.TOTALS, "documents") - processed);
+        stats.put("timeSeries", statisticsService.getTimeSeries(30, 48));
+        return stats;
+    }
+    
+    public List<Document> getUnprocessedDocuments(int page, int size) {
+        return documentRepository.findByProcessed(false, PageRequest.of(page, size));
     }
     
     public Document updateDocument(Document document) {
         document.setUpdatedAt(LocalDateTime.now());
-        return documentRepository.save(document);
+        // A buffered update flushed after this save would overwrite it
+        writeCoalescer.flush(Document.class, document.getId());
+        Document savedDocument = documentRepository.save(document);
+        facetSearch.onDocumentSaved(savedDocument);
+        readCache.evictDocument(savedDocument.getId());
+        return savedDocument;
     }
     
     public void deleteDocument(String id) {
@@ -111,19 +219,27 @@ public class DocumentService {
             storageService.deleteFile(document.get().getFilePath());
             // Delete from database
             documentRepository.deleteById(id);
+            semanticIndex.remove(id);
+            duplicateDetection.remove(id);
+            facetSearch.onDocumentDeleted(id);
+            readCache.evictDocument(id);
+            entityIndex.removeDocument(id);
+            statisticsService.onDocumentDeleted(document.get());
             logger.info("Document deleted: {}", id);
         }
     }
     
     public String extractText(String filePath) throws IOException, TikaException {
+        return extractText(filePath, new Metadata());
+    }
+    
+    public String extractText(String filePath, Metadata metadata) throws IOException, TikaException {
         logger.info("Extracting text from: {}", filePath);
         
-        File file = new File(filePath);
-        if (!file.exists()) {
-            throw new IOException("File not found: " + filePath);
-        }
+        metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, Paths.get(filePath).getFileName().toString());
         
-        String extractedText = tika.parseToString(file);
+        // Streams from whichever blob store holds the file; Tika closes the stream
+        String extractedText = tika.parseToString(storageService.openFile(filePath), metadata);
         logger.info("Text extracted successfully, length: {}", extractedText.length());
         
         return extractedText;
@@ -132,13 +248,35 @@ public class DocumentService {
     public void processDocument(Document document) {
         logger.info("Processing document: {}", document.getId());
         
+        long startTime = System.currentTimeMillis();
+        
         try {
+            String previousStatus = document.getProcessingStatus();
             document.setProcessingStatus("PROCESSING");
-            document = documentRepository.save(document);
+            document.setUpdatedAt(LocalDateTime.now());
+            writeCoalescer.update(Document.class, document.getId(), new Update()
+                .set("processingStatus", "PROCESSING")
+                .set("updatedAt", document.getUpdatedAt()), WriteCoalescer.Durability.BATCHED);
+            statisticsService.onDocumentStatusChanged(previousStatus, "PROCESSING", null);
+            facetSearch.onDocumentSaved(document);
+            readCache.evictDocument(document.getId());
             
-            // Extract text
-            String extractedText = extractText(document.getFilePath());
+            // Extract text, reusing a previous parse of identical bytes with the same parser version
+            String extractedText;
+            Optional<ExtractionCacheService.CachedExtraction> cached =
+                extractionCache.lookup(document.getChecksum(), document.getContentType());
+            if (cached.isPresent()) {
+                extractedText = cached.get().text();
+                mergeMetadata(document, cached.get().metadata());
+            } else {
+                Metadata metadata = new Metadata();
+                extractedText = extractText(document.getFilePath(), metadata);
+                Map<String, String> extractedMetadata = toMetadataMap(metadata);
+                extractionCache.store(document.getChecksum(), document.getContentType(), extractedText, extractedMetadata);
+                mergeMetadata(document, extractedMetadata);
+            }
             document.setExtractedText(extractedText);
+            document.setExtractionVersion(extractionCache.parserVersion(document.getContentType()));
             
             // Detect language
             String language = detectLanguage(extractedText);
@@ -151,17 +289,81 @@ public class DocumentService {
             // Mark as processed
             document.setProcessed(true);
             document.setProcessingStatus("COMPLETED");
+            document.setUpdatedAt(LocalDateTime.now());
             
-            documentRepository.save(document);
+            // Merges with the PROCESSING update when extraction finished within the flush window
+            writeCoalescer.update(Document.class, document.getId(), new Update()
+                .set("extractedText", extractedText)
+                .set("extractionVersion", document.getExtractionVersion())
+                .set("metadata", document.getMetadata())
+                .set("language", language)
+                .set("pageCount", pageCount)
+                .set("processed", true)
+                .set("processingStatus", "COMPLETED")
+                .set("updatedAt", document.getUpdatedAt()), WriteCoalescer.Durability.BATCHED);
+            statisticsService.onDocumentStatusChanged("PROCESSING", "COMPLETED", System.currentTimeMillis() - startTime);
+            facetSearch.onDocumentSaved(document);
+            readCache.evictDocument(document.getId());
+            
+            try {
+                duplicateDetection.detect(document);
+                versionService.linkNearDuplicate(document);
+            } catch (Exception e) {
+                logger.warn("Error checking document {} for near-duplicates: {}", document.getId(), e.getMessage());
+            }
+            
+            // Embedding failures leave the document searchable by keyword; an embedding backfill retries it
+            try {
+                semanticIndex.indexDocument(document);
+            } catch (Exception e) {
+                logger.warn("Error embedding document {}: {}", document.getId(), e.getMessage());
+            }
             
             logger.info("Document processed successfully: {}", document.getId());
             
         } catch (Exception e) {
             logger.error("Error processing document: {}", document.getId(), e);
+            String previousStatus = document.getProcessingStatus();
             document.setProcessingStatus("FAILED");
             document.setProcessed(false);
-            documentRepository.save(document);
+            document.setUpdatedAt(LocalDateTime.now());
+            writeCoalescer.update(Document.class, document.getId(), new Update()
+                .set("processingStatus", "FAILED")
+                .set("processed", false)
+                .set("updatedAt", document.getUpdatedAt()), WriteCoalescer.Durability.BATCHED);
+            statisticsService.onDocumentStatusChanged(previousStatus, "FAILED", null);
+            facetSearch.onDocumentSaved(document);
+            readCache.evictDocument(document.getId());
+        }
+    }
+    
+    /**
+     * Whether the document was extracted with the current parser version for its content type.
+     */
+    public boolean isExtractionCurrent(Document document) {
+        return "COMPLETED".equals(document.getProcessingStatus())
+            && extractionCache.parserVersion(document.getContentType()).equals(document.getExtractionVersion());
+    }
+    
+    private Map<String, String> toMetadataMap(Metadata metadata) {
+        Map<String, String> values = new HashMap<>();
+        for (String name : metadata.names()) {
+            String value = metadata.get(name);
+            if (value != null && !value.isBlank()) {
+                // Mongo field names may not contain '.' or start with '$'
+                values.put(name.replace('.', '_').replace('$', '_'), value);
+            }
         }
+        return values;
+    }
+    
+    private void mergeMetadata(Document document, Map<String, String> extracted) {
+        if (extracted.isEmpty()) {
+            return;
+        }
+        Map<String, Object> metadata = document.getMetadata() != null ? new HashMap<>(document.getMetadata()) : new HashMap<>();
+        metadata.put("extraction", extracted);
+        document.setMetadata(metadata);
     }
     
     private void processDocumentAsync(Document document) {
@@ -178,10 +380,15 @@ public class DocumentService {
         return UUID.randomUUID().toString() + extension;
     }
     
-    private String calculateChecksum(byte[] data) {
-        try {
+    private String calculateChecksum(MultipartFile file) throws IOException {
+        try (InputStream content = file.getInputStream()) {
             MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] hash = md.digest(data);
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = content.read(buffer)) != -1) {
+                md.update(buffer, 0, read);
+            }
+            byte[] hash = md.digest();
             StringBuilder sb = new StringBuilder();
             for (byte b : hash) {
                 sb.append(String.format("%02x", b));
@@ -1,30 +1,58 @@
 package com.docai.services;
 
+import com.docai.models.DocumentAnalysis;
+import com.docai.models.Entity;
+import com.docai.services.llm.EntityStreamDecoder;
+import com.docai.services.llm.LlmResponseDecoder;
+import com.docai.services.llm.ModelRouter;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 @Service
 public class OpenAIService {
     
     private static final Logger logger = LoggerFactory.getLogger(OpenAIService.class);
     
-    @Value("${openai.api.key}")
-    private String apiKey;
+    // Streamed completions let entities be decoded and stored while the model is still writing
+    @Value("${openai.api.stream:true}")
+    private boolean stream;
     
-    @Value("${openai.api.url:https://api.openai.com/v1/chat/completions}")
-    private String apiUrl;
+    // Time allowed until the response headers arrive; for an unstreamed completion that is the whole answer
+    @Value("${openai.api.timeout:60s}")
+    private Duration timeout;
     
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    private LlmResponseDecoder responseDecoder;
+    
+    @Autowired
+    private ModelRouter modelRouter;
+    
+    private final HttpClient httpClient = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(Duration.ofSeconds(10))
+        .build();
     private final ObjectMapper objectMapper = new ObjectMapper();
     
     public String analyzeDocument(String text, String analysisType) {
@@ -33,49 +61,28 @@ public class OpenAIService {
         String prompt = buildPrompt(text, analysisType);
         
         try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(apiKey);
-            
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("model", "gpt-4o");
-            requestBody.put("messages", List.of(
-                Map.of("role", "user", "content", prompt)
-            ));
-            requestBody.put("max_tokens", 2000);
-            requestBody.put("temperature", 0.3);
-            
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-            
-            ResponseEntity<String> response = restTemplate.exchange(
-                apiUrl,
-                HttpMethod.POST,
-                entity,
-                String.class
-            );
-            
-            if (response.getStatusCode() == HttpStatus.OK) {
-                JsonNode responseJson = objectMapper.readTree(response.getBody());
-                String result = responseJson.path("choices").get(0).path("message").path("content").asText();
-                logger.info("OpenAI analysis completed successfully");
-                return result;
-            } else {
-                logger.error("OpenAI API request failed with status: {}", response.getStatusCode());
-                return "Analysis failed";
-            }
-            
+            String result = complete(analysisType, prompt, text.length(), 2000, 0.3);
+            logger.info("OpenAI analysis completed successfully");
+            return result;
         } catch (Exception e) {
             logger.error("Error calling OpenAI API", e);
             return "Analysis failed: " + e.getMessage();
         }
     }
     
-    public Map<String, Object> extractEntities(String text) {
+    public List<Entity> extractEntities(String text) {
+        return extractEntities(text, null);
+    }
+    
+    /**
+     * Extracts entities, passing each one to {@code onEntity} as soon as it is decoded from the response.
+     */
+    public List<Entity> extractEntities(String text, Consumer<Entity> onEntity) {
         logger.info("Extracting entities with OpenAI");
         
         String prompt = """
             Extract named entities from the following text and return them in JSON format.
-            Include the following entity types: PERSON, ORGANIZATION, LOCATION, DATE, MONEY, PERCENTAGE, EMAIL, PHONE.
+            Include only the following entity types: PERSON, ORGANIZATION, LOCATION.
             
             Format the response as:
             {
@@ -91,16 +98,22 @@ public class OpenAIService {
             Text: %s
             """.formatted(text);
         
+        EntityStreamDecoder decoder = new EntityStreamDecoder(onEntity);
         try {
-            String response = analyzeDocument(text, "entity_extraction");
-            return objectMapper.readValue(response, Map.class);
+            if (stream) {
+                streamCompletion("entity_extraction", buildPrompt(text, "entity_extraction"), text.length(), 2000, 0.3,
+                    decoder::feed);
+            } else {
+                decoder.feed(analyzeDocument(text, "entity_extraction"));
+            }
         } catch (Exception e) {
-            logger.error("Error extracting entities", e);
-            return Map.of("entities", List.of());
+            // Entities decoded before the failure are kept
+            logger.error("Error extracting entities after {} entities", decoder.getEntityCount(), e);
         }
+        return decoder.finish();
     }
     
-    public String classifyDocument(String text) {
+    public DocumentAnalysis.Classification classifyDocument(String text) {
         logger.info("Classifying document with OpenAI");
         
         String prompt = """
@@ -121,40 +134,13 @@ public class OpenAIService {
             """.formatted(text.substring(0, Math.min(text.length(), 2000)));
         
         try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(apiKey);
-            
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("model", "gpt-4o");
-            requestBody.put("messages", List.of(
-                Map.of("role", "user", "content", prompt)
-            ));
-            requestBody.put("max_tokens", 50);
-            requestBody.put("temperature", 0.1);
-            
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-            
-            ResponseEntity<String> response = restTemplate.exchange(
-                apiUrl,
-                HttpMethod.POST,
-                entity,
-                String.class
-            );
-            
-            if (response.getStatusCode() == HttpStatus.OK) {
-                JsonNode responseJson = objectMapper.readTree(response.getBody());
-                String result = responseJson.path("choices").get(0).path("message").path("content").asText().trim();
-                logger.info("Document classified as: {}", result);
-                return result;
-            } else {
-                logger.error("OpenAI classification failed with status: {}", response.getStatusCode());
-                return "OTHER";
-            }
-            
+            String result = complete("classification", prompt, text.length(), 50, 0.1);
+            DocumentAnalysis.Classification classification = responseDecoder.decodeClassification(result);
+            logger.info("Document classified as: {}", classification.getType());
+            return classification;
         } catch (Exception e) {
             logger.error("Error classifying document", e);
-            return "OTHER";
+            return responseDecoder.decodeClassification(null);
         }
     }
     
@@ -171,7 +157,25 @@ public class OpenAIService {
         return analyzeDocument(text, "summarization");
     }
     
-    public Map<String, Object> analyzeSentiment(String text) {
+    /**
+     * Rewrites the summary of a previous version from the passages that changed in the new one.
+     */
+    public String updateSummary(String previousSummary, String changes) {
+        logger.info("Updating document summary with OpenAI");
+        
+        return analyzeDocument(summaryUpdateText(previousSummary, changes), "summary_update");
+    }
+    
+    private String summaryUpdateText(String previousSummary, String changes) {
+        return """
+            Summary of the previous version:
+            %s
+            
+            %s
+            """.formatted(previousSummary, changes);
+    }
+    
+    public DocumentAnalysis.Sentiment analyzeSentiment(String text) {
         logger.info("Analyzing sentiment with OpenAI");
         
         String prompt = """
@@ -189,24 +193,246 @@ public class OpenAIService {
             Text: %s
             """.formatted(text);
         
+        String response = analyzeDocument(text, "sentiment_analysis");
+        return responseDecoder.decodeSentiment(response).orElseGet(() -> {
+            logger.error("Could not decode sentiment from response: {}",
+                response.substring(0, Math.min(response.length(), 200)));
+            DocumentAnalysis.Sentiment neutral = new DocumentAnalysis.Sentiment();
+            neutral.setLabel("NEUTRAL");
+            neutral.setScore(0.5);
+            neutral.setPositiveScore(0.33);
+            neutral.setNegativeScore(0.33);
+            neutral.setNeutralScore(0.34);
+            return neutral;
+        });
+    }
+    
+    /**
+     * Streams a summary of the document, passing text to {@code onToken} as the model writes it.
+     */
+    public CompletableFuture<String> streamSummary(String text, Consumer<String> onToken) {
+        logger.info("Streaming document summary with OpenAI");
+        return streamCompletionAsync("summarization", buildPrompt(text, "summarization"), text.length(), 2000, 0.3, onToken);
+    }
+    
+    /**
+     * Streaming counterpart of {@link #updateSummary}.
+     */
+    public CompletableFuture<String> streamSummaryUpdate(String previousSummary, String changes, Consumer<String> onToken) {
+        logger.info("Streaming document summary update with OpenAI");
+        String text = summaryUpdateText(previousSummary, changes);
+        return streamCompletionAsync("summary_update", buildPrompt(text, "summary_update"), text.length(), 2000, 0.3, onToken);
+    }
+    
+    /**
+     * Runs a chat completion on the model routed for this analysis type and text size, moving on to
+     * the route's fallback model when a call fails.
+     */
+    private String complete(String analysisType, String prompt, int textChars, int maxTokens, double temperature)
+            throws Exception {
+        ModelRouter.Route route = modelRouter.route(analysisType, textChars);
+        Exception failure = null;
+        for (ModelRouter.Target target : modelRouter.targets(route)) {
+            long start = System.currentTimeMillis();
+            try {
+                HttpResponse<String> response = httpClient.send(buildRequest(target, prompt, maxTokens, temperature, false),
+                    HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+                if (response.statusCode() != HttpStatus.OK.value()) {
+                    throw new IllegalStateException(failureMessage(response.statusCode(), response.body()));
+                }
+                JsonNode responseJson = objectMapper.readTree(response.body());
+                String result = responseJson.path("choices").path(0).path("message").path("content").asText();
+                modelRouter.recordSuccess(route, target, System.currentTimeMillis() - start,
+                    usage(responseJson.path("usage"), prompt, result));
+                return result;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw e;
+            } catch (Exception e) {
+                modelRouter.recordFailure(route, target, System.currentTimeMillis() - start);
+                logger.warn("{} completion failed on model {}: {}", analysisType, target.name(), e.getMessage());
+                failure = e;
+            }
+        }
+        throw failure;
+    }
+    
+    private String streamCompletion(String analysisType, String prompt, int textChars, int maxTokens, double temperature,
+                                    Consumer<String> onDelta) {
         try {
-            String response = analyzeDocument(text, "sentiment_analysis");
-            return objectMapper.readValue(response, Map.class);
+            return streamCompletionAsync(analysisType, prompt, textChars, maxTokens, temperature, onDelta).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+    
+    /**
+     * Runs a routed chat completion with {@code stream: true} on the non-blocking HTTP client. Each
+     * content delta is passed to {@code onDelta} as its server-sent event arrives, on the client's
+     * threads, and the future completes with the whole content when the stream ends.
+     */
+    private CompletableFuture<String> streamCompletionAsync(String analysisType, String prompt, int textChars,
+                                                            int maxTokens, double temperature, Consumer<String> onDelta) {
+        ModelRouter.Route route = modelRouter.route(analysisType, textChars);
+        return streamAttempt(route, modelRouter.targets(route), 0, prompt, maxTokens, temperature, onDelta);
+    }
+    
+    private CompletableFuture<String> streamAttempt(ModelRouter.Route route, List<ModelRouter.Target> targets, int attempt,
+                                                    String prompt, int maxTokens, double temperature,
+                                                    Consumer<String> onDelta) {
+        ModelRouter.Target target = targets.get(attempt);
+        long start = System.currentTimeMillis();
+        CompletionEventSubscriber subscriber = new CompletionEventSubscriber(onDelta);
+        HttpRequest request;
+        try {
+            request = buildRequest(target, prompt, maxTokens, temperature, true);
         } catch (Exception e) {
-            logger.error("Error analyzing sentiment", e);
-            return Map.of(
-                "sentiment", "NEUTRAL",
-                "confidence", 0.5,
-                "scores", Map.of("positive", 0.33, "negative", 0.33, "neutral", 0.34)
-            );
+            return CompletableFuture.failedFuture(e);
+        }
+        
+        return httpClient.sendAsync(request, info -> info.statusCode() == HttpStatus.OK.value()
+                ? HttpResponse.BodySubscribers.fromLineSubscriber(subscriber, CompletionEventSubscriber::getContent,
+                    StandardCharsets.UTF_8, null)
+                : HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8))
+            .thenApply(response -> {
+                if (response.statusCode() != HttpStatus.OK.value()) {
+                    throw new IllegalStateException(failureMessage(response.statusCode(), response.body()));
+                }
+                return response.body();
+            })
+            .handle((content, error) -> {
+                if (error == null) {
+                    // A stream's latency is the wait for its first token
+                    long firstToken = subscriber.firstTokenAt > 0 ? subscriber.firstTokenAt : System.currentTimeMillis();
+                    modelRouter.recordSuccess(route, target, firstToken - start,
+                        subscriber.usage != null ? subscriber.usage : ModelRouter.TokenUsage.estimate(prompt, content));
+                    return CompletableFuture.completedFuture(content);
+                }
+                modelRouter.recordFailure(route, target, System.currentTimeMillis() - start);
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                // Tokens already passed on cannot be taken back, so only a stream that produced nothing fails over
+                if (subscriber.firstTokenAt == 0 && attempt + 1 < targets.size()) {
+                    logger.warn("Streamed completion failed on model {}, retrying on {}: {}", target.name(),
+                        targets.get(attempt + 1).name(), cause.getMessage());
+                    return streamAttempt(route, targets, attempt + 1, prompt, maxTokens, temperature, onDelta);
+                }
+                return CompletableFuture.<String>failedFuture(cause);
+            })
+            .thenCompose(Function.identity());
+    }
+    
+    private HttpRequest buildRequest(ModelRouter.Target target, String prompt, int maxTokens, double temperature,
+                                     boolean stream) throws JsonProcessingException {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", target.model());
+        requestBody.put("messages", List.of(
+            Map.of("role", "user", "content", prompt)
+        ));
+        requestBody.put("max_tokens", maxTokens);
+        requestBody.put("temperature", temperature);
+        if (stream) {
+            requestBody.put("stream", true);
+            if (target.streamUsage()) {
+                requestBody.put("stream_options", Map.of("include_usage", true));
+            }
+        }
+        
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(target.url()))
+            .timeout(timeout)
+            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+            .header(HttpHeaders.ACCEPT, stream ? MediaType.TEXT_EVENT_STREAM_VALUE : MediaType.APPLICATION_JSON_VALUE);
+        if (target.apiKey() != null && !target.apiKey().isBlank()) {
+            builder.header(HttpHeaders.AUTHORIZATION, "Bearer " + target.apiKey());
+        }
+        return builder.POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(requestBody))).build();
+    }
+    
+    private ModelRouter.TokenUsage usage(JsonNode usage, String prompt, String completion) {
+        if (usage.has("prompt_tokens")) {
+            return new ModelRouter.TokenUsage(usage.path("prompt_tokens").asLong(), usage.path("completion_tokens").asLong(), false);
+        }
+        return ModelRouter.TokenUsage.estimate(prompt, completion);
+    }
+    
+    private String failureMessage(int status, String body) {
+        String text = body != null ? body : "";
+        return "OpenAI API request failed with status " + status + ": " + text.substring(0, Math.min(text.length(), 200));
+    }
+    
+    /**
+     * Reads the {@code data:} lines of a streamed chat completion and collects the content deltas.
+     */
+    private class CompletionEventSubscriber implements Flow.Subscriber<String> {
+        
+        private final Consumer<String> onDelta;
+        private final StringBuilder content = new StringBuilder();
+        private boolean done;
+        private volatile long firstTokenAt;
+        private volatile ModelRouter.TokenUsage usage;
+        
+        CompletionEventSubscriber(Consumer<String> onDelta) {
+            this.onDelta = onDelta;
+        }
+        
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+        
+        @Override
+        public void onNext(String line) {
+            if (done || !line.startsWith("data:")) {
+                return;
+            }
+            String data = line.substring(5).trim();
+            if ("[DONE]".equals(data)) {
+                done = true;
+                return;
+            }
+            JsonNode event;
+            try {
+                event = objectMapper.readTree(data);
+            } catch (Exception e) {
+                logger.debug("Skipping malformed completion event: {}", e.getMessage());
+                return;
+            }
+            // With include_usage the last event carries the token counts and no choices
+            if (event.path("usage").has("prompt_tokens")) {
+                usage = usage(event.path("usage"), "", "");
+            }
+            String delta = event.path("choices").path(0).path("delta").path("content").asText("");
+            if (!delta.isEmpty()) {
+                if (firstTokenAt == 0) {
+                    firstTokenAt = System.currentTimeMillis();
+                }
+                content.append(delta);
+                if (onDelta != null) {
+                    onDelta.accept(delta);
+                }
+            }
+        }
+        
+        @Override
+        public void onError(Throwable throwable) {
+            logger.warn("Completion stream failed after {} chars: {}", content.length(), throwable.getMessage());
+        }
+        
+        @Override
+        public void onComplete() {
+        }
+        
+        String getContent() {
+            return content.toString();
         }
     }
     
     private String buildPrompt(String text, String analysisType) {
         return switch (analysisType) {
-            case "entity_extraction" -> "Extract named entities from this text: " + text;
+            case "entity_extraction" -> "Extract PERSON, ORGANIZATION and LOCATION entities from this text: " + text;
             case "classification" -> "Classify this document: " + text;
             case "summarization" -> "Summarize this document: " + text;
+            case "summary_update" -> "Below are the summary of an earlier version of a document and the passages "
+                + "removed and added in its new version. Write the summary of the new version in the same style: " + text;
             case "sentiment_analysis" -> "Analyze the sentiment of this text: " + text;
             default -> "Analyze this document: " + text;
         };
@@ -1,66 +1,101 @@
 package com.docai.services;
 
+import com.docai.services.storage.BlobStore;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.util.List;
 
+/**
+ * Entry point for original files. New files go to the {@link BlobStore} selected by
+ * {@code document.storage.backend}; reads and deletes are routed by locator to whichever
+ * configured store wrote them, so switching backends does not strand existing documents.
+ */
 @Service
 public class StorageService {
     
     private static final Logger logger = LoggerFactory.getLogger(StorageService.class);
     
-    @Value("${document.storage.path:/tmp/documents}")
-    private String storagePath;
+    @Autowired
+    private List<BlobStore> blobStores;
+    
+    @Value("${document.storage.backend:local}")
+    private String backend;
+    
+    private BlobStore primaryStore;
+    
+    @PostConstruct
+    public void initializeStorage() {
+        primaryStore = blobStores.stream()
+            .filter(store -> store.name().equalsIgnoreCase(backend))
+            .findFirst()
+            .orElseThrow(() -> new IllegalStateException("Storage backend not configured: " + backend));
+        logger.info("Storing new documents in the {} blob store", primaryStore.name());
+    }
     
     public String storeFile(MultipartFile file, String filename) throws IOException {
+        return storeFile(file, filename, null);
+    }
+    
+    public String storeFile(MultipartFile file, String filename, String checksum) throws IOException {
         logger.info("Storing file: {}", filename);
         
-        // Create directory structure based on current date
-        String dateFolder = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy/MM/dd"));
-        Path targetDir = Paths.get(storagePath, dateFolder);
-        
-        // Create directories if they don't exist
-        Files.createDirectories(targetDir);
-        
-        // Store file
-        Path targetPath = targetDir.resolve(filename);
-        Files.copy(file.getInputStream(), targetPath, StandardCopyOption.REPLACE_EXISTING);
-        
-        String filePath = targetPath.toString();
-        logger.info("File stored successfully: {}", filePath);
-        
-        return filePath;
+        try (InputStream content = file.getInputStream()) {
+            String locator = primaryStore.put(checksum, filename, content, file.getSize(), file.getContentType());
+            logger.info("File stored successfully: {}", locator);
+            return locator;
+        }
+    }
+    
+    public InputStream openFile(String filePath) throws IOException {
+        return storeFor(filePath).open(filePath);
+    }
+    
+    public InputStream openFile(String filePath, long offset, long length) throws IOException {
+        return storeFor(filePath).open(filePath, offset, length);
+    }
+    
+    public BlobStore.BlobInfo stat(String filePath) throws IOException {
+        return storeFor(filePath).stat(filePath);
     }
     
     public byte[] retrieveFile(String filePath) throws IOException {
         logger.info("Retrieving file: {}", filePath);
         
-        Path path = Paths.get(filePath);
-        if (!Files.exists(path)) {
-            throw new IOException("File not found: " + filePath);
+        try (InputStream content = openFile(filePath)) {
+            return content.readAllBytes();
         }
-        
-        return Files.readAllBytes(path);
+    }
+    
+    /**
+     * Resolves a stored file to a local path for zero-copy transfers; returns null for remote blobs.
+     */
+    public Path resolvePath(String filePath) {
+        if (filePath == null || filePath.isBlank()) {
+            return null;
+        }
+        return blobStores.stream()
+            .filter(store -> store.supports(filePath))
+            .findFirst()
+            .flatMap(store -> store.localPath(filePath))
+            .orElse(null);
     }
     
     public void deleteFile(String filePath) {
         logger.info("Deleting file: {}", filePath);
         
         try {
-            Path path = Paths.get(filePath);
-            if (Files.exists(path)) {
-                Files.delete(path);
+            if (storeFor(filePath).delete(filePath)) {
                 logger.info("File deleted successfully: {}", filePath);
             } else {
                 logger.warn("File not found for deletion: {}", filePath);
@@ -71,34 +106,37 @@ public class StorageService {
     }
     
     public boolean fileExists(String filePath) {
-        return Files.exists(Paths.get(filePath));
+        try {
+            stat(filePath);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
     }
     
     public long getFileSize(String filePath) throws IOException {
-        Path path = Paths.get(filePath);
-        if (!Files.exists(path)) {
-            throw new IOException("File not found: " + filePath);
-        }
-        return Files.size(path);
+        return stat(filePath).size();
     }
     
     public String getFileContentType(String filePath) throws IOException {
-        Path path = Paths.get(filePath);
-        if (!Files.exists(path)) {
+        Path path = resolvePath(filePath);
+        if (path == null || !Files.exists(path)) {
             throw new IOException("File not found: " + filePath);
         }
         return Files.probeContentType(path);
     }
     
-    public void initializeStorage() {
-        try {
-            Path storageDir = Paths.get(storagePath);
-            if (!Files.exists(storageDir)) {
-                Files.createDirectories(storageDir);
-                logger.info("Storage directory created: {}", storagePath);
-            }
-        } catch (IOException e) {
-            logger.error("Error initializing storage directory: {}", storagePath, e);
+    public List<BlobStore> getBlobStores() {
+        return blobStores;
+    }
+    
+    private BlobStore storeFor(String filePath) throws IOException {
+        if (filePath == null || filePath.isBlank()) {
+            throw new NoSuchFileException("<none>");
         }
+        return blobStores.stream()
+            .filter(store -> store.supports(filePath))
+            .findFirst()
+            .orElseThrow(() -> new IOException("No blob store configured for: " + filePath));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,306 @@
+package com.docai.services.analysis;
+
+import com.docai.models.AnalysisLease;
+import com.docai.models.DocumentAnalysis;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs each (documentId, analysisType, text checksum) analysis once however many callers ask for
+ * it at the same time. Callers on this instance attach to the in-flight future. Across instances the
+ * work is guarded by a lease in {@code analysis_leases}: the holder heartbeats it while the model
+ * runs, and other instances poll until it is released, then return the stored result. A lease
+ * whose holder stopped heartbeating for {@code lease-timeout} is taken over by the next caller.
+ */
+@Service
+public class AnalysisCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisCoalescer.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private AnalysisStore analysisStore;
+
+    @Value("${document.analysis.coalescing.enabled:true}")
+    private boolean enabled;
+
+    @Value("${document.analysis.coalescing.distributed:true}")
+    private boolean distributed;
+
+    @Value("${document.analysis.coalescing.lease-timeout:2m}")
+    private Duration leaseTimeout;
+
+    @Value("${document.analysis.coalescing.poll-interval:500ms}")
+    private Duration pollInterval;
+
+    @Value("${document.analysis.coalescing.max-wait:10m}")
+    private Duration maxWait;
+
+    private final String instanceId = instanceName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+
+    private final Map<String, CompletableFuture<DocumentAnalysis>> inFlight = new ConcurrentHashMap<>();
+    // Lease key -> token of the leases this instance holds
+    private final Map<String, String> heldLeases = new ConcurrentHashMap<>();
+
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder coalescedLocal = new LongAdder();
+    private final LongAdder coalescedRemote = new LongAdder();
+    private final LongAdder leaseWaits = new LongAdder();
+
+    public static String key(String documentId, String analysisType, String text) {
+        return leaseKey(documentId, analysisType, textChecksum(text));
+    }
+
+    /**
+     * The checksum stored on an analysis as {@code textChecksum}, so a waiter can tell whether the
+     * current result was computed from the text it asked about.
+     */
+    public static String textChecksum(String text) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String leaseKey(String documentId, String analysisType, String checksum) {
+        return documentId + ":" + analysisType.toLowerCase(Locale.ROOT) + ":" + checksum;
+    }
+
+    /**
+     * Runs {@code work} unless the same analysis is already running here or on another instance,
+     * in which case that run's result is returned.
+     */
+    public DocumentAnalysis execute(String documentId, String analysisType, String text, Supplier<DocumentAnalysis> work) {
+        if (!enabled) {
+            return work.get();
+        }
+        String checksum = textChecksum(text);
+        String key = leaseKey(documentId, analysisType, checksum);
+        CompletableFuture<DocumentAnalysis> mine = new CompletableFuture<>();
+        CompletableFuture<DocumentAnalysis> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalescedLocal.increment();
+            logger.debug("Attaching to in-flight analysis {}", key);
+            return join(running);
+        }
+
+        try {
+            DocumentAnalysis result = distributed ? executeUnderLease(key, documentId, analysisType, checksum, work) : run(work);
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * The future of a run in progress on this instance, e.g. for a stream to attach to.
+     */
+    public Optional<CompletableFuture<DocumentAnalysis>> findInFlight(String key) {
+        return enabled ? Optional.ofNullable(inFlight.get(key)) : Optional.empty();
+    }
+
+    /**
+     * Registers an asynchronous run so later callers attach to it, unless one is already registered under the key.
+     */
+    public void track(String key, CompletableFuture<DocumentAnalysis> future) {
+        if (enabled && inFlight.putIfAbsent(key, future) == null) {
+            executed.increment();
+            future.whenComplete((result, error) -> inFlight.remove(key, future));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${document.analysis.coalescing.heartbeat-interval:20000}")
+    public void heartbeat() {
+        heldLeases.forEach((key, token) -> {
+            try {
+                mongoTemplate.updateFirst(new Query(Criteria.where("id").is(key).and("token").is(token)),
+                        new Update().set("expiresAt", LocalDateTime.now().plus(leaseTimeout)), AnalysisLease.class);
+            } catch (Exception e) {
+                logger.warn("Error extending analysis lease {}: {}", key, e.getMessage());
+            }
+        });
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("distributed", distributed);
+        status.put("instance", instanceId);
+        status.put("inFlight", inFlight.size());
+        status.put("leasesHeld", heldLeases.size());
+        status.put("executed", executed.sum());
+        status.put("coalescedLocal", coalescedLocal.sum());
+        status.put("coalescedRemote", coalescedRemote.sum());
+        status.put("leaseWaits", leaseWaits.sum());
+        return status;
+    }
+
+    private DocumentAnalysis executeUnderLease(String key, String documentId, String analysisType, String checksum,
+                                               Supplier<DocumentAnalysis> work) {
+        long deadline = System.currentTimeMillis() + maxWait.toMillis();
+        String waitedOn = null;
+        while (true) {
+            String token = UUID.randomUUID().toString();
+            if (tryAcquire(key, token)) {
+                heldLeases.put(key, token);
+                try {
+                    return run(work);
+                } finally {
+                    heldLeases.remove(key);
+                    release(key, token);
+                }
+            }
+
+            AnalysisLease lease = mongoTemplate.findById(key, AnalysisLease.class);
+            if (lease == null) {
+                // Released between the two calls; the result may already be stored
+                Optional<DocumentAnalysis> result = waitedOn != null
+                        ? finishedResult(documentId, analysisType, checksum)
+                        : Optional.empty();
+                if (result.isPresent()) {
+                    coalescedRemote.increment();
+                    return result.get();
+                }
+                continue;
+            }
+            if (waitedOn == null) {
+                leaseWaits.increment();
+                logger.info("Analysis {} - {} is running on {}, waiting for its result", documentId, analysisType,
+                        lease.getOwner());
+            }
+            waitedOn = lease.getToken();
+
+            while (true) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IllegalStateException("Timed out waiting for analysis " + analysisType + " of document "
+                            + documentId + " running on " + lease.getOwner());
+                }
+                sleep();
+                AnalysisLease current = mongoTemplate.findById(key, AnalysisLease.class);
+                if (current == null || !waitedOn.equals(current.getToken())) {
+                    // The holder released its lease, or it expired and someone else took it over
+                    Optional<DocumentAnalysis> result = current == null
+                            ? finishedResult(documentId, analysisType, checksum)
+                            : Optional.empty();
+                    if (result.isPresent()) {
+                        coalescedRemote.increment();
+                        return result.get();
+                    }
+                    break;
+                }
+                if (current.getExpiresAt() != null && current.getExpiresAt().isBefore(LocalDateTime.now())) {
+                    logger.warn("Analysis lease {} held by {} expired, taking over", key, current.getOwner());
+                    break;
+                }
+            }
+        }
+    }
+
+    private DocumentAnalysis run(Supplier<DocumentAnalysis> work) {
+        executed.increment();
+        return work.get();
+    }
+
+    /**
+     * Inserts the lease, or takes it over when expired; a live lease makes the upsert's insert collide.
+     */
+    private boolean tryAcquire(String key, String token) {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = new Query(Criteria.where("id").is(key).and("expiresAt").lt(now));
+        Update update = new Update()
+                .set("owner", instanceId)
+                .set("token", token)
+                .set("acquiredAt", now)
+                .set("expiresAt", now.plus(leaseTimeout));
+        try {
+            return mongoTemplate.findAndModify(query, update,
+                    FindAndModifyOptions.options().upsert(true).returnNew(true), AnalysisLease.class) != null;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    private void release(String key, String token) {
+        try {
+            mongoTemplate.remove(new Query(Criteria.where("id").is(key).and("token").is(token)), AnalysisLease.class);
+        } catch (Exception e) {
+            // The lease expires on its own
+            logger.warn("Error releasing analysis lease {}: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * The stored result of the run waited on. The current row may be from a run on other text, e.g.
+     * one that finished before the document was re-extracted, or a completed result kept after this
+     * run failed; the waiter then takes the lease and runs the analysis itself.
+     */
+    private Optional<DocumentAnalysis> finishedResult(String documentId, String analysisType, String checksum) {
+        return analysisStore.findCurrent(documentId, analysisType)
+                .filter(analysis -> !"PROCESSING".equals(analysis.getStatus()))
+                .filter(analysis -> checksum.equals(analysis.getTextChecksum()));
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(pollInterval.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an analysis lease", e);
+        }
+    }
+
+    private static DocumentAnalysis join(CompletableFuture<DocumentAnalysis> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static String instanceName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "analysis";
+        }
+    }
+}
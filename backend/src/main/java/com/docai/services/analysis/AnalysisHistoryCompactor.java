@@ -0,0 +1,122 @@
+package com.docai.services.analysis;
+
+import com.docai.models.AnalysisHistoryEntry;
+import com.docai.models.DocumentAnalysis;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Background maintenance for analysis storage: collapses duplicate current rows left over from
+ * before upserts (so the unique index can be built) and trims each history to the newest versions.
+ */
+@Service
+public class AnalysisHistoryCompactor {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisHistoryCompactor.class);
+
+    private static final String ANALYSES = "document_analyses";
+    private static final String HISTORY = "document_analysis_history";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${document.analysis.history.max-versions:5}")
+    private int maxVersions;
+
+    // Runs before MongoIndexManager builds the unique (document_id, analysis_type) index
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onApplicationReady() {
+        try {
+            deduplicateCurrent();
+        } catch (Exception e) {
+            logger.error("Error deduplicating current analyses", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${document.analysis.history.compaction-interval:3600000}",
+            initialDelayString = "${document.analysis.history.compaction-interval:3600000}")
+    public void compact() {
+        try {
+            int archived = deduplicateCurrent();
+            long removed = trimHistory();
+            if (archived > 0 || removed > 0) {
+                logger.info("Analysis compaction archived {} duplicates and removed {} old versions", archived, removed);
+            }
+        } catch (Exception e) {
+            logger.error("Error compacting analysis history", e);
+        }
+    }
+
+    public int deduplicateCurrent() {
+        int archived = 0;
+        for (Document group : duplicateGroups(ANALYSES, 1)) {
+            @SuppressWarnings("unchecked")
+            List<Object> ids = (List<Object>) group.get("ids");
+            List<DocumentAnalysis> rows = mongoTemplate.find(
+                    new Query(Criteria.where("_id").in(ids)), DocumentAnalysis.class);
+            rows.sort(Comparator.comparing(this::lastModified, Comparator.nullsFirst(Comparator.naturalOrder())).reversed());
+
+            // Keep the most recent row as current, move the rest into history
+            for (DocumentAnalysis stale : rows.subList(1, rows.size())) {
+                mongoTemplate.insert(new AnalysisHistoryEntry(stale));
+                mongoTemplate.remove(new Query(Criteria.where("_id").is(stale.getId())), DocumentAnalysis.class);
+                archived++;
+            }
+        }
+        return archived;
+    }
+
+    public long trimHistory() {
+        long removed = 0;
+        for (Document group : duplicateGroups(HISTORY, maxVersions)) {
+            Document key = (Document) group.get("_id");
+            Query stale = new Query(Criteria.where("documentId").is(key.getString("document_id"))
+                    .and("analysisType").is(key.getString("analysis_type")))
+                    .with(Sort.by(Sort.Direction.DESC, "archivedAt"))
+                    .skip(maxVersions);
+            stale.fields().include("_id");
+
+            // Queried through the entity so its property names map to the stored field names
+            List<String> staleIds = mongoTemplate.find(stale, AnalysisHistoryEntry.class).stream()
+                    .map(AnalysisHistoryEntry::getId)
+                    .toList();
+            if (!staleIds.isEmpty()) {
+                removed += mongoTemplate.remove(new Query(Criteria.where("_id").in(staleIds)), AnalysisHistoryEntry.class)
+                        .getDeletedCount();
+            }
+        }
+        return removed;
+    }
+
+    private List<Document> duplicateGroups(String collection, int maxPerGroup) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.group("document_id", "analysis_type").count().as("count").push("_id").as("ids"),
+                Aggregation.match(Criteria.where("count").gt(maxPerGroup)));
+        return mongoTemplate.aggregate(aggregation.withOptions(
+                        Aggregation.newAggregationOptions().allowDiskUse(true).build()), collection, Document.class)
+                .getMappedResults();
+    }
+
+    private LocalDateTime lastModified(DocumentAnalysis analysis) {
+        return analysis.getUpdatedAt() != null ? analysis.getUpdatedAt() : analysis.getCreatedAt();
+    }
+}
@@ -0,0 +1,122 @@
+package com.docai.services.analysis;
+
+import com.docai.models.AnalysisHistoryEntry;
+import com.docai.models.DocumentAnalysis;
+import com.docai.models.Entity;
+import com.docai.repositories.AnalysisHistoryRepository;
+import com.docai.repositories.AnalyticsRepository;
+import com.docai.services.persistence.WriteCoalescer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keeps exactly one current {@link DocumentAnalysis} per (documentId, analysisType).
+ * A new result replaces the current row in place (latest wins) and the superseded version
+ * is archived to the history collection, which {@link AnalysisHistoryCompactor} keeps bounded.
+ * A failed re-run does not replace a completed result; it is recorded on that row instead.
+ */
+@Service
+public class AnalysisStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisStore.class);
+
+    @Autowired
+    private AnalyticsRepository analyticsRepository;
+
+    @Autowired
+    private AnalysisHistoryRepository historyRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private WriteCoalescer writeCoalescer;
+
+    public Optional<DocumentAnalysis> findCurrent(String documentId, String analysisType) {
+        return analyticsRepository.findByDocumentIdAndAnalysisType(documentId, analysisType);
+    }
+
+    /**
+     * Flags the current row as in progress without discarding its previous results.
+     */
+    public void markProcessing(String documentId, String analysisType) {
+        Query query = new Query(Criteria.where("documentId").is(documentId).and("analysisType").is(analysisType));
+        Update update = new Update()
+                .set("status", "PROCESSING")
+                .set("updatedAt", LocalDateTime.now())
+                .setOnInsert("createdAt", LocalDateTime.now());
+        try {
+            mongoTemplate.upsert(query, update, DocumentAnalysis.class);
+        } catch (DuplicateKeyException e) {
+            // A concurrent upsert created the row first; a second attempt updates it
+            mongoTemplate.upsert(query, update, DocumentAnalysis.class);
+        }
+    }
+
+    /**
+     * Publishes the entities found so far on the in-progress row; the completed result replaces them.
+     */
+    public void savePartialEntities(String documentId, String analysisType, List<Entity> entities) {
+        Query query = new Query(Criteria.where("documentId").is(documentId)
+                .and("analysisType").is(analysisType)
+                .and("status").is("PROCESSING"));
+        // Successive partial results within a flush window collapse into one write
+        writeCoalescer.update(DocumentAnalysis.class, query, new Update()
+                .set("entities", entities)
+                .set("metadata.partial", true)
+                .set("updatedAt", LocalDateTime.now()), false, WriteCoalescer.Durability.BATCHED);
+    }
+
+    /**
+     * Keeps {@code completed} as the current result after a re-run failed, noting the failure on it.
+     * The row is written back whole, so entities published by the failed run are discarded too.
+     */
+    public DocumentAnalysis recordFailure(DocumentAnalysis failed, DocumentAnalysis completed) {
+        // Buffered partial results must not land after the restored row
+        writeCoalescer.flush();
+        completed.setLastFailure(new DocumentAnalysis.Failure(failed.getErrorMessage(), LocalDateTime.now(),
+                failed.getProcessingTime()));
+        return analyticsRepository.save(completed);
+    }
+
+    /**
+     * Stores {@code analysis} as the current result and archives {@code previous}, the version it replaces.
+     */
+    public DocumentAnalysis replaceCurrent(DocumentAnalysis analysis, DocumentAnalysis previous) {
+        // Buffered partial results must not land after the final one
+        writeCoalescer.flush();
+        for (int attempt = 0; ; attempt++) {
+            Optional<DocumentAnalysis> current = findCurrent(analysis.getDocumentId(), analysis.getAnalysisType());
+            current.ifPresent(row -> {
+                analysis.setId(row.getId());
+                analysis.setCreatedAt(row.getCreatedAt());
+            });
+
+            try {
+                DocumentAnalysis saved = analyticsRepository.save(analysis);
+                if (previous != null && previous.getStatus() != null && !"PROCESSING".equals(previous.getStatus())) {
+                    historyRepository.save(new AnalysisHistoryEntry(previous));
+                }
+                return saved;
+            } catch (DuplicateKeyException e) {
+                if (attempt >= 2) {
+                    throw e;
+                }
+                logger.debug("Concurrent insert for {} - {}, retrying as update",
+                        analysis.getDocumentId(), analysis.getAnalysisType());
+                analysis.setId(null);
+            }
+        }
+    }
+}
@@ -0,0 +1,540 @@
+package com.docai.services.backfill;
+
+import com.docai.models.BackfillJob;
+import com.docai.models.Document;
+import com.docai.models.DocumentAnalysis;
+import com.docai.services.DocumentAnalysisService;
+import com.docai.services.DocumentService;
+import com.docai.services.analysis.AnalysisStore;
+import com.docai.services.duplicates.DuplicateDetectionService;
+import com.docai.services.entities.EntityIndexService;
+import com.docai.services.semantic.SemanticIndexService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs extraction, a named analysis, embedding or duplicate detection over existing documents. Each job walks {@code documents}
+ * in {@code _id} order one page at a time and checkpoints its cursor and counters after every
+ * page, so a restarted or failed-over instance resumes where the last page ended (a partially
+ * processed page is repeated). Jobs are leased to one instance through a heartbeat; a job whose
+ * heartbeat is older than {@code lease-timeout} is claimed by the next instance to look.
+ * All jobs share one worker pool and one rate limit on top of their own caps.
+ */
+@Service
+public class BackfillService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BackfillService.class);
+
+    private static final int MAX_RECENT_ERRORS = 20;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private DocumentAnalysisService analysisService;
+
+    @Autowired
+    private AnalysisStore analysisStore;
+
+    @Autowired
+    private SemanticIndexService semanticIndex;
+
+    @Autowired
+    private DuplicateDetectionService duplicateDetection;
+
+    @Autowired
+    private EntityIndexService entityIndex;
+
+    @Value("${document.backfill.max-concurrency:8}")
+    private int maxConcurrency;
+
+    @Value("${document.backfill.max-rate:20}")
+    private double maxRate;
+
+    @Value("${document.backfill.page-size:200}")
+    private int pageSize;
+
+    @Value("${document.backfill.lease-timeout:2m}")
+    private Duration leaseTimeout;
+
+    private final String instanceId = instanceName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+
+    private final Map<String, Runner> runners = new ConcurrentHashMap<>();
+
+    private Semaphore globalSlots;
+    private RateLimiter globalRate;
+    private ExecutorService workers;
+
+    @PostConstruct
+    public void initialize() {
+        globalSlots = new Semaphore(maxConcurrency);
+        globalRate = new RateLimiter(maxRate);
+        AtomicInteger threads = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(maxConcurrency, runnable -> {
+            Thread thread = new Thread(runnable, "backfill-worker-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Jobs stay RUNNING in Mongo; their lease expires and they resume from the last checkpoint
+        runners.values().forEach(Runner::stop);
+        workers.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        claimOrphanedJobs();
+    }
+
+    public BackfillJob create(String kind, String analysisType, BackfillJob.Filter filter, boolean skipUpToDate,
+                              Integer concurrency, Double ratePerSecond) {
+        if (!BackfillJob.KIND_EXTRACTION.equals(kind) && !BackfillJob.KIND_ANALYSIS.equals(kind)
+                && !BackfillJob.KIND_EMBEDDING.equals(kind) && !BackfillJob.KIND_DUPLICATES.equals(kind)
+                && !BackfillJob.KIND_ENTITY_INDEX.equals(kind)) {
+            throw new IllegalArgumentException("Unknown backfill kind: " + kind);
+        }
+        if (BackfillJob.KIND_ANALYSIS.equals(kind) && (analysisType == null || analysisType.isBlank())) {
+            throw new IllegalArgumentException("analysisType is required for analysis backfills");
+        }
+
+        BackfillJob job = new BackfillJob(kind, analysisType, filter);
+        job.setSkipUpToDate(skipUpToDate);
+        job.setConcurrency(concurrency);
+        job.setRatePerSecond(ratePerSecond);
+        job.setTotalEstimate(mongoTemplate.count(pageQuery(job, null), Document.class));
+        job.setOwner(instanceId);
+        job.setHeartbeatAt(LocalDateTime.now());
+        job.setStartedAt(LocalDateTime.now());
+        BackfillJob saved = mongoTemplate.insert(job);
+
+        logger.info("Backfill {} created: {} {} over ~{} documents", saved.getId(), kind,
+                analysisType != null ? analysisType : "", saved.getTotalEstimate());
+        launch(saved);
+        return saved;
+    }
+
+    public List<BackfillJob> getJobs() {
+        Query query = new Query().with(Sort.by(Sort.Direction.DESC, "createdAt")).limit(50);
+        return mongoTemplate.find(query, BackfillJob.class);
+    }
+
+    public Optional<BackfillJob> getJob(String id) {
+        return Optional.ofNullable(mongoTemplate.findById(id, BackfillJob.class));
+    }
+
+    public Optional<BackfillJob> pause(String id) {
+        return transition(id, BackfillJob.STATUS_RUNNING, new Update().set("status", BackfillJob.STATUS_PAUSED));
+    }
+
+    public Optional<BackfillJob> cancel(String id) {
+        Query query = new Query(Criteria.where("id").is(id)
+                .and("status").in(BackfillJob.STATUS_RUNNING, BackfillJob.STATUS_PAUSED));
+        BackfillJob job = mongoTemplate.findAndModify(query,
+                new Update().set("status", BackfillJob.STATUS_CANCELLED).set("completedAt", LocalDateTime.now()),
+                FindAndModifyOptions.options().returnNew(true), BackfillJob.class);
+        return Optional.ofNullable(job);
+    }
+
+    public Optional<BackfillJob> resume(String id) {
+        Optional<BackfillJob> job = transition(id, BackfillJob.STATUS_PAUSED, new Update()
+                .set("status", BackfillJob.STATUS_RUNNING)
+                .set("owner", instanceId)
+                .set("heartbeatAt", LocalDateTime.now()));
+        job.ifPresent(this::launch);
+        return job;
+    }
+
+    /**
+     * Job state with throughput and ETA; counters come from the live runner when it is on this instance.
+     */
+    public Map<String, Object> progress(BackfillJob job) {
+        Runner runner = runners.get(job.getId());
+        long scanned = runner != null ? runner.scanned.get() : job.getScanned();
+        long processed = runner != null ? runner.processed.get() : job.getProcessed();
+        long skipped = runner != null ? runner.skipped.get() : job.getSkipped();
+        long failed = runner != null ? runner.failed.get() : job.getFailed();
+
+        Double throughput = null;
+        if (runner != null) {
+            double seconds = Duration.between(runner.runStartedAt, LocalDateTime.now()).toMillis() / 1000.0;
+            throughput = seconds > 0 ? (scanned - runner.scannedAtStart) / seconds : null;
+        } else if (job.getStartedAt() != null && job.getHeartbeatAt() != null) {
+            double seconds = Duration.between(job.getStartedAt(), job.getHeartbeatAt()).toMillis() / 1000.0;
+            throughput = seconds > 0 ? scanned / seconds : null;
+        }
+
+        Long total = job.getTotalEstimate();
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("id", job.getId());
+        progress.put("kind", job.getKind());
+        progress.put("analysisType", job.getAnalysisType());
+        progress.put("filter", job.getFilter());
+        progress.put("status", job.getStatus());
+        progress.put("totalEstimate", total);
+        progress.put("scanned", scanned);
+        progress.put("processed", processed);
+        progress.put("skipped", skipped);
+        progress.put("failed", failed);
+        progress.put("percentComplete", total != null && total > 0 ? Math.min(100.0, 100.0 * scanned / total) : null);
+        progress.put("documentsPerSecond", throughput);
+        progress.put("etaSeconds", BackfillJob.STATUS_RUNNING.equals(job.getStatus()) && throughput != null
+                && throughput > 0 && total != null ? (long) (Math.max(0, total - scanned) / throughput) : null);
+        progress.put("owner", job.getOwner());
+        progress.put("heartbeatAt", job.getHeartbeatAt());
+        progress.put("createdAt", job.getCreatedAt());
+        progress.put("startedAt", job.getStartedAt());
+        progress.put("completedAt", job.getCompletedAt());
+        progress.put("errorMessage", job.getErrorMessage());
+        progress.put("recentErrors", runner != null ? List.copyOf(runner.recentErrors) : job.getRecentErrors());
+        return progress;
+    }
+
+    @Scheduled(fixedDelayString = "${document.backfill.heartbeat-interval:15000}")
+    public void heartbeat() {
+        for (String jobId : runners.keySet()) {
+            mongoTemplate.updateFirst(new Query(Criteria.where("id").is(jobId).and("owner").is(instanceId)),
+                    new Update().set("heartbeatAt", LocalDateTime.now()), BackfillJob.class);
+        }
+    }
+
+    /**
+     * Takes over RUNNING jobs whose owner stopped heartbeating, including this instance before a restart.
+     */
+    @Scheduled(fixedDelayString = "${document.backfill.claim-interval:30000}", initialDelay = 30000)
+    public void claimOrphanedJobs() {
+        while (true) {
+            Query query = new Query(Criteria.where("status").is(BackfillJob.STATUS_RUNNING)
+                    .and("heartbeatAt").lt(LocalDateTime.now().minus(leaseTimeout)));
+            BackfillJob job = mongoTemplate.findAndModify(query,
+                    new Update().set("owner", instanceId).set("heartbeatAt", LocalDateTime.now()),
+                    FindAndModifyOptions.options().returnNew(true), BackfillJob.class);
+            if (job == null) {
+                return;
+            }
+            logger.info("Resuming backfill {} from cursor {}", job.getId(), job.getCursor());
+            launch(job);
+        }
+    }
+
+    private Optional<BackfillJob> transition(String id, String fromStatus, Update update) {
+        Query query = new Query(Criteria.where("id").is(id).and("status").is(fromStatus));
+        return Optional.ofNullable(mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), BackfillJob.class));
+    }
+
+    private void launch(BackfillJob job) {
+        Runner runner = new Runner(job);
+        if (runners.putIfAbsent(job.getId(), runner) != null) {
+            return;
+        }
+        Thread thread = new Thread(runner, "backfill-" + job.getId());
+        thread.setDaemon(true);
+        runner.thread = thread;
+        thread.start();
+    }
+
+    private Query pageQuery(BackfillJob job, String cursor) {
+        BackfillJob.Filter filter = job.getFilter() != null ? job.getFilter() : new BackfillJob.Filter();
+        Query query = new Query();
+
+        // Date filters become _id bounds: ObjectIds start with their creation second, and _id is the walk order
+        Criteria id = null;
+        if (cursor != null) {
+            id = Criteria.where("id").gt(ObjectId.isValid(cursor) ? new ObjectId(cursor) : cursor);
+        } else if (filter.getCreatedFrom() != null) {
+            id = Criteria.where("id").gte(objectIdAt(filter.getCreatedFrom()));
+        }
+        if (filter.getCreatedTo() != null) {
+            ObjectId upper = objectIdAt(filter.getCreatedTo().plusSeconds(1));
+            id = id != null ? id.lt(upper) : Criteria.where("id").lt(upper);
+        }
+        if (id != null) {
+            query.addCriteria(id);
+        }
+
+        if (filter.getClassification() != null) {
+            query.addCriteria(Criteria.where("classification").is(filter.getClassification()));
+        }
+        if (filter.getProcessingStatus() != null) {
+            query.addCriteria(Criteria.where("processingStatus").is(filter.getProcessingStatus()));
+        }
+        if (filter.getContentType() != null) {
+            query.addCriteria(Criteria.where("contentType").is(filter.getContentType()));
+        }
+        return query;
+    }
+
+    private static ObjectId objectIdAt(LocalDateTime time) {
+        long seconds = time.atZone(ZoneId.systemDefault()).toEpochSecond();
+        return new ObjectId(String.format("%08x", seconds) + "0000000000000000");
+    }
+
+    private static String instanceName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "backfill";
+        }
+    }
+
+    private final class Runner implements Runnable {
+
+        private final String jobId;
+        private final String kind;
+        private final String analysisType;
+        private final boolean skipUpToDate;
+        private final Semaphore jobSlots;
+        private final RateLimiter jobRate;
+        private final AtomicLong scanned;
+        private final AtomicLong processed;
+        private final AtomicLong skipped;
+        private final AtomicLong failed;
+        private final ConcurrentLinkedDeque<String> recentErrors;
+        private final long scannedAtStart;
+        private final LocalDateTime runStartedAt = LocalDateTime.now();
+        private volatile Thread thread;
+        private String cursor;
+
+        Runner(BackfillJob job) {
+            this.jobId = job.getId();
+            this.kind = job.getKind();
+            this.analysisType = job.getAnalysisType();
+            this.skipUpToDate = !Boolean.FALSE.equals(job.getSkipUpToDate());
+            int concurrency = job.getConcurrency() != null && job.getConcurrency() > 0
+                    ? Math.min(job.getConcurrency(), maxConcurrency)
+                    : maxConcurrency;
+            this.jobSlots = new Semaphore(concurrency);
+            this.jobRate = new RateLimiter(job.getRatePerSecond() != null ? Math.min(job.getRatePerSecond(), maxRate) : 0);
+            this.scanned = new AtomicLong(job.getScanned());
+            this.processed = new AtomicLong(job.getProcessed());
+            this.skipped = new AtomicLong(job.getSkipped());
+            this.failed = new AtomicLong(job.getFailed());
+            this.recentErrors = new ConcurrentLinkedDeque<>(job.getRecentErrors() != null ? job.getRecentErrors() : List.of());
+            this.scannedAtStart = job.getScanned();
+            this.cursor = job.getCursor();
+        }
+
+        void stop() {
+            Thread current = thread;
+            if (current != null) {
+                current.interrupt();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    BackfillJob job = mongoTemplate.findById(jobId, BackfillJob.class);
+                    if (job == null || !BackfillJob.STATUS_RUNNING.equals(job.getStatus()) || !instanceId.equals(job.getOwner())) {
+                        break;
+                    }
+
+                    Query query = pageQuery(job, cursor).with(Sort.by(Sort.Direction.ASC, "id")).limit(pageSize);
+                    query.fields().include("contentType", "processingStatus", "extractionVersion", "embeddingVersion",
+                            "signatureVersion");
+                    List<Document> page = mongoTemplate.find(query, Document.class);
+                    if (page.isEmpty()) {
+                        finish(BackfillJob.STATUS_COMPLETED, null);
+                        break;
+                    }
+
+                    processPage(page);
+                    cursor = page.get(page.size() - 1).getId();
+                    if (!checkpoint()) {
+                        logger.warn("Backfill {} lease lost, stopping on this instance", jobId);
+                        break;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                logger.error("Backfill {} failed", jobId, e);
+                finish(BackfillJob.STATUS_FAILED, e.getMessage());
+            } finally {
+                runners.remove(jobId);
+            }
+        }
+
+        private void processPage(List<Document> page) throws InterruptedException {
+            List<Future<?>> tasks = new ArrayList<>(page.size());
+            try {
+                for (Document summary : page) {
+                    scanned.incrementAndGet();
+                    if (skipUpToDate && isUpToDate(summary)) {
+                        skipped.incrementAndGet();
+                        continue;
+                    }
+
+                    jobRate.acquire();
+                    globalRate.acquire();
+                    jobSlots.acquire();
+                    try {
+                        globalSlots.acquire();
+                    } catch (InterruptedException e) {
+                        jobSlots.release();
+                        throw e;
+                    }
+                    tasks.add(workers.submit(() -> {
+                        try {
+                            if (processOne(summary.getId())) {
+                                processed.incrementAndGet();
+                            } else {
+                                failed.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            failed.incrementAndGet();
+                            recordError(summary.getId() + ": " + e.getMessage());
+                        } finally {
+                            globalSlots.release();
+                            jobSlots.release();
+                        }
+                    }));
+                }
+            } finally {
+                // The cursor only moves past a page once all of its documents are done
+                for (Future<?> task : tasks) {
+                    try {
+                        task.get();
+                    } catch (ExecutionException e) {
+                        logger.debug("Backfill task failed", e.getCause());
+                    }
+                }
+            }
+        }
+
+        private boolean isUpToDate(Document summary) {
+            if (BackfillJob.KIND_EXTRACTION.equals(kind)) {
+                return documentService.isExtractionCurrent(summary);
+            }
+            if (BackfillJob.KIND_EMBEDDING.equals(kind)) {
+                return semanticIndex.isCurrent(summary);
+            }
+            if (BackfillJob.KIND_DUPLICATES.equals(kind)) {
+                return duplicateDetection.isCurrent(summary);
+            }
+            if (BackfillJob.KIND_ENTITY_INDEX.equals(kind)) {
+                return entityIndex.isIndexed(summary);
+            }
+            return analysisStore.findCurrent(summary.getId(), analysisType)
+                    .map(analysis -> "COMPLETED".equals(analysis.getStatus()))
+                    .orElse(false);
+        }
+
+        private boolean processOne(String documentId) {
+            if (BackfillJob.KIND_EXTRACTION.equals(kind)) {
+                Document document = mongoTemplate.findById(documentId, Document.class);
+                if (document == null) {
+                    return true;
+                }
+                documentService.processDocument(document);
+                if ("FAILED".equals(document.getProcessingStatus())) {
+                    recordError(documentId + ": extraction failed");
+                    return false;
+                }
+                return true;
+            }
+            if (BackfillJob.KIND_EMBEDDING.equals(kind)) {
+                Document document = mongoTemplate.findById(documentId, Document.class);
+                if (document != null && "COMPLETED".equals(document.getProcessingStatus())) {
+                    semanticIndex.indexDocument(document);
+                }
+                return true;
+            }
+            if (BackfillJob.KIND_DUPLICATES.equals(kind)) {
+                Document document = mongoTemplate.findById(documentId, Document.class);
+                if (document != null && "COMPLETED".equals(document.getProcessingStatus())) {
+                    duplicateDetection.detect(document);
+                }
+                return true;
+            }
+            if (BackfillJob.KIND_ENTITY_INDEX.equals(kind)) {
+                entityIndex.indexDocument(documentId);
+                return true;
+            }
+
+            DocumentAnalysis analysis = analysisService.analyzeDocument(documentId, analysisType);
+            if (!"COMPLETED".equals(analysis.getStatus())) {
+                recordError(documentId + ": " + analysis.getErrorMessage());
+                return false;
+            }
+            return true;
+        }
+
+        private void recordError(String error) {
+            recentErrors.addLast(error);
+            while (recentErrors.size() > MAX_RECENT_ERRORS) {
+                recentErrors.pollFirst();
+            }
+        }
+
+        private boolean checkpoint() {
+            Query query = new Query(Criteria.where("id").is(jobId).and("owner").is(instanceId));
+            return mongoTemplate.updateFirst(query, counters().set("cursor", cursor), BackfillJob.class)
+                    .getModifiedCount() > 0;
+        }
+
+        private void finish(String status, String errorMessage) {
+            Query query = new Query(Criteria.where("id").is(jobId).and("owner").is(instanceId)
+                    .and("status").is(BackfillJob.STATUS_RUNNING));
+            mongoTemplate.updateFirst(query, counters()
+                    .set("cursor", cursor)
+                    .set("status", status)
+                    .set("errorMessage", errorMessage)
+                    .set("completedAt", LocalDateTime.now()), BackfillJob.class);
+            logger.info("Backfill {} {}: {} scanned, {} processed, {} skipped, {} failed",
+                    jobId, status.toLowerCase(), scanned.get(), processed.get(), skipped.get(), failed.get());
+        }
+
+        private Update counters() {
+            return new Update()
+                    .set("scanned", scanned.get())
+                    .set("processed", processed.get())
+                    .set("skipped", skipped.get())
+                    .set("failed", failed.get())
+                    .set("recentErrors", List.copyOf(recentErrors))
+                    .set("heartbeatAt", LocalDateTime.now());
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.docai.services.backfill;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket handing out permits at a fixed rate with up to one second of burst.
+ * A rate of zero or less disables limiting.
+ */
+class RateLimiter {
+
+    private final double permitsPerSecond;
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+
+    RateLimiter(double permitsPerSecond) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.tokens = Math.max(1, permitsPerSecond);
+    }
+
+    void acquire() throws InterruptedException {
+        if (permitsPerSecond <= 0) {
+            return;
+        }
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            tokens = Math.min(Math.max(1, permitsPerSecond), tokens + (now - lastRefill) * permitsPerSecond / 1e9);
+            lastRefill = now;
+            tokens -= 1;
+            waitNanos = tokens < 0 ? (long) (-tokens * 1e9 / permitsPerSecond) : 0;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
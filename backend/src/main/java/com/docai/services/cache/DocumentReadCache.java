@@ -0,0 +1,315 @@
+package com.docai.services.cache;
+
+import com.docai.models.Document;
+import com.docai.models.DocumentAnalysis;
+import com.docai.models.Entity;
+import com.docai.repositories.AnalyticsRepository;
+import com.docai.repositories.DocumentRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.BsonValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read-through cache of document records and their current analyses for the detail endpoints.
+ * Entries are bounded by estimated heap size rather than count, since extracted text ranges from
+ * nothing to megabytes. Invalidation follows a MongoDB change stream on both collections, so a
+ * write made through any replica evicts the entry everywhere; local writes also evict directly.
+ * While the change stream is not open (standalone server, failover) reads bypass the cache.
+ */
+@Service
+public class DocumentReadCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentReadCache.class);
+
+    private static final String DOCUMENTS = "documents";
+    private static final String ANALYSES = "document_analyses";
+    private static final int ENTRY_OVERHEAD = 256;
+    private static final int ITEM_OVERHEAD = 64;
+
+    private enum Kind { DOCUMENT, ANALYSES }
+
+    private record Key(Kind kind, String documentId) {
+    }
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private AnalyticsRepository analyticsRepository;
+
+    @Value("${document.read-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${document.read-cache.max-weight:128MB}")
+    private DataSize maxWeight;
+
+    @Value("${document.read-cache.ttl:10m}")
+    private Duration ttl;
+
+    @Value("${document.read-cache.watch-retry:10s}")
+    private Duration watchRetry;
+
+    private Cache<Key, Object> cache;
+    private ExecutorService watcher;
+    private volatile boolean running;
+    // Entries are only trusted while the change stream is open
+    private volatile boolean watching;
+    private volatile LocalDateTime lastEventAt;
+
+    private final LongAdder bypassed = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder watchFailures = new LongAdder();
+
+    @PostConstruct
+    public void initialize() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeight.toBytes())
+                .weigher((Key key, Object value) -> value instanceof Document document
+                        ? weigh(document)
+                        : weigh((List<?>) value))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        watcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "document-read-cache-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watcher.submit(this::watch);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (watcher != null) {
+            watcher.shutdownNow();
+        }
+    }
+
+    public Optional<Document> getDocument(String id) {
+        if (!watching) {
+            bypassed.increment();
+            return documentRepository.findById(id);
+        }
+        return Optional.ofNullable((Document) cache.get(new Key(Kind.DOCUMENT, id),
+                key -> documentRepository.findById(id).orElse(null)));
+    }
+
+    /**
+     * Every current analysis of the document (one per type), as an unmodifiable list.
+     */
+    @SuppressWarnings("unchecked")
+    public List<DocumentAnalysis> getAnalyses(String documentId) {
+        if (!watching) {
+            bypassed.increment();
+            return List.copyOf(analyticsRepository.findByDocumentId(documentId));
+        }
+        return (List<DocumentAnalysis>) cache.get(new Key(Kind.ANALYSES, documentId),
+                key -> List.copyOf(analyticsRepository.findByDocumentId(documentId)));
+    }
+
+    public void evictDocument(String id) {
+        cache.invalidate(new Key(Kind.DOCUMENT, id));
+    }
+
+    public void evictAnalyses(String documentId) {
+        cache.invalidate(new Key(Kind.ANALYSES, documentId));
+    }
+
+    /**
+     * Weak validator for a document response; every user-visible write sets {@code updatedAt}.
+     */
+    public static String etag(Document document) {
+        return "W/\"" + millis(document.getUpdatedAt()) + "\"";
+    }
+
+    /**
+     * Weak validator for a list of analyses: changes when one is added, replaced or removed.
+     */
+    public static String etag(Collection<DocumentAnalysis> analyses) {
+        return "W/\"" + version(analyses) + "\"";
+    }
+
+    /**
+     * Weak validator for a response built from a document (possibly missing) and its analyses.
+     */
+    public static String etag(Document document, Collection<DocumentAnalysis> analyses) {
+        return "W/\"" + version(analyses) + "-" + (document != null ? millis(document.getUpdatedAt()) : 0) + "\"";
+    }
+
+    public Map<String, Object> getStatus() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("watching", watching);
+        status.put("lastEventAt", lastEventAt);
+        status.put("entries", cache.estimatedSize());
+        status.put("weightBytes", cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L));
+        status.put("maxWeightBytes", maxWeight.toBytes());
+        status.put("hits", stats.hitCount());
+        status.put("misses", stats.missCount());
+        status.put("hitRate", stats.hitRate());
+        status.put("evictions", stats.evictionCount());
+        status.put("invalidations", invalidations.sum());
+        status.put("bypassed", bypassed.sum());
+        status.put("watchFailures", watchFailures.sum());
+        return status;
+    }
+
+    private void watch() {
+        while (running) {
+            try (MongoChangeStreamCursor<ChangeStreamDocument<org.bson.Document>> cursor = mongoTemplate.getDb()
+                    .watch(List.of(
+                            Aggregates.match(Filters.in("ns.coll", DOCUMENTS, ANALYSES)),
+                            Aggregates.project(Projections.include(
+                                    "operationType", "ns", "documentKey", "fullDocument.document_id"))))
+                    .fullDocument(FullDocument.UPDATE_LOOKUP)
+                    .maxAwaitTime(1, TimeUnit.SECONDS)
+                    .cursor()) {
+                // Anything cached before the stream opened may have missed its event
+                cache.invalidateAll();
+                watching = true;
+                logger.info("Document read cache following changes to {} and {}", DOCUMENTS, ANALYSES);
+                while (running) {
+                    ChangeStreamDocument<org.bson.Document> event = cursor.tryNext();
+                    if (event != null) {
+                        apply(event);
+                    }
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                watchFailures.increment();
+                logger.warn("Document read cache change stream unavailable, reading through until it reopens: {}",
+                        e.getMessage());
+            } finally {
+                watching = false;
+                cache.invalidateAll();
+            }
+            try {
+                Thread.sleep(watchRetry.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void apply(ChangeStreamDocument<org.bson.Document> event) {
+        lastEventAt = LocalDateTime.now();
+        invalidations.increment();
+        String collection = event.getNamespace() != null ? event.getNamespace().getCollectionName() : null;
+        BsonValue key = event.getDocumentKey() != null ? event.getDocumentKey().get("_id") : null;
+        if (DOCUMENTS.equals(collection) && key != null) {
+            evictDocument(id(key));
+            return;
+        }
+        if (ANALYSES.equals(collection) && event.getFullDocument() != null
+                && event.getFullDocument().getString("document_id") != null) {
+            evictAnalyses(event.getFullDocument().getString("document_id"));
+            return;
+        }
+        if (ANALYSES.equals(collection) && key != null) {
+            // Deletes carry no post-image, so the owning document is unknown
+            cache.asMap().keySet().removeIf(cached -> cached.kind() == Kind.ANALYSES);
+            return;
+        }
+        // drop, rename, dropDatabase or invalidate
+        cache.invalidateAll();
+    }
+
+    private static String id(BsonValue key) {
+        if (key.isObjectId()) {
+            return key.asObjectId().getValue().toHexString();
+        }
+        return key.isString() ? key.asString().getValue() : key.toString();
+    }
+
+    private static int weigh(Document document) {
+        long bytes = ENTRY_OVERHEAD + chars(document.getExtractedText()) + chars(document.getFilename())
+                + chars(document.getOriginalFilename()) + chars(document.getFilePath())
+                + weighEntities(document.getEntities()) + items(document.getMetadata()) + items(document.getTags());
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    private static int weigh(List<?> analyses) {
+        long bytes = ENTRY_OVERHEAD;
+        for (Object item : analyses) {
+            DocumentAnalysis analysis = (DocumentAnalysis) item;
+            bytes += ENTRY_OVERHEAD + chars(analysis.getSummary()) + items(analysis.getKeyPhrases())
+                    + weighEntities(analysis.getEntities()) + items(analysis.getTopics())
+                    + items(analysis.getMetadata());
+        }
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    private static long weighEntities(List<Entity> entities) {
+        if (entities == null) {
+            return 0;
+        }
+        long bytes = 0;
+        for (Entity entity : entities) {
+            bytes += ITEM_OVERHEAD + chars(entity.getText()) + chars(entity.getNormalizedValue());
+        }
+        return bytes;
+    }
+
+    // Two bytes per char; compact Latin-1 strings take half, so this errs on the large side
+    private static long chars(String value) {
+        return value != null ? 2L * value.length() : 0;
+    }
+
+    private static long items(Collection<?> values) {
+        return values != null ? (long) ITEM_OVERHEAD * values.size() : 0;
+    }
+
+    private static long items(Map<?, ?> values) {
+        return values != null ? (long) ITEM_OVERHEAD * values.size() : 0;
+    }
+
+    private static String version(Collection<DocumentAnalysis> analyses) {
+        long latest = analyses.stream().mapToLong(analysis -> millis(analysis.getUpdatedAt())).max().orElse(0);
+        return analyses.size() + "-" + latest;
+    }
+
+    private static long millis(LocalDateTime time) {
+        return time != null ? time.toInstant(ZoneOffset.UTC).toEpochMilli() : 0;
+    }
+}
@@ -0,0 +1,188 @@
+package com.docai.services.duplicates;
+
+import com.docai.models.Document;
+import com.docai.models.DocumentAnalysis;
+import com.docai.models.DocumentSignature;
+import com.docai.services.analysis.AnalysisStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Links documents whose extracted text is nearly identical to an earlier one. After extraction a
+ * {@link MinHasher} signature is stored in {@code document_signatures}, whose multikey index on the
+ * LSH band keys returns only documents sharing a band, so a lookup touches a handful of candidates
+ * regardless of corpus size. Candidates are verified on the full signature; the document is then
+ * linked through {@code duplicateOf} to the group's earliest document, and analyses of very close
+ * duplicates can be copied from it instead of calling the model again.
+ */
+@Service
+public class DuplicateDetectionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DuplicateDetectionService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private AnalysisStore analysisStore;
+
+    @Value("${document.duplicates.enabled:true}")
+    private boolean enabled;
+
+    @Value("${document.duplicates.threshold:0.85}")
+    private double threshold;
+
+    @Value("${document.duplicates.max-candidates:200}")
+    private int maxCandidates;
+
+    @Value("${document.duplicates.reuse-analyses:true}")
+    private boolean reuseAnalyses;
+
+    @Value("${document.duplicates.reuse-threshold:0.95}")
+    private double reuseThreshold;
+
+    // Entity offsets do not carry over between versions, so entity extraction is not reused by default
+    @Value("${document.duplicates.reuse-types:classification,summarization,sentiment_analysis}")
+    private Set<String> reuseTypes;
+
+    private final AtomicLong checked = new AtomicLong();
+    private final AtomicLong linked = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+
+    public boolean isCurrent(Document document) {
+        return MinHasher.VERSION.equals(document.getSignatureVersion());
+    }
+
+    /**
+     * Signs the document and links it to its earliest near-duplicate, if any.
+     */
+    public void detect(Document document) {
+        if (!enabled || document.getExtractedText() == null) {
+            return;
+        }
+        MinHasher.Signature signature = MinHasher.sign(document.getExtractedText());
+        if (signature == null) {
+            return;
+        }
+        checked.incrementAndGet();
+
+        Query candidatesQuery = new Query(Criteria.where("bands").in(signature.bands()).and("_id").ne(document.getId()))
+                .limit(maxCandidates);
+        candidatesQuery.fields().include("minhash", "version");
+        String bestId = null;
+        double bestSimilarity = 0;
+        for (DocumentSignature candidate : mongoTemplate.find(candidatesQuery, DocumentSignature.class)) {
+            if (!MinHasher.VERSION.equals(candidate.getVersion())) {
+                continue;
+            }
+            double similarity = MinHasher.similarity(signature.minhash(), candidate.getMinhash());
+            // Ties go to the older document so groups converge on one root
+            if (similarity > bestSimilarity || (similarity == bestSimilarity && bestId != null
+                    && candidate.getId().compareTo(bestId) < 0)) {
+                bestSimilarity = similarity;
+                bestId = candidate.getId();
+            }
+        }
+
+        mongoTemplate.save(new DocumentSignature(document.getId(), MinHasher.VERSION,
+                signature.minhash(), signature.bands(), signature.shingleCount()));
+
+        // updatedAt moves with the duplicate fields so cached responses revalidate
+        document.setUpdatedAt(LocalDateTime.now());
+        Update update = new Update().set("signatureVersion", MinHasher.VERSION).set("updatedAt", document.getUpdatedAt());
+        if (bestId != null && bestSimilarity >= threshold) {
+            String root = root(bestId);
+            update.set("duplicateOf", root).set("duplicateSimilarity", bestSimilarity);
+            document.setDuplicateOf(root);
+            document.setDuplicateSimilarity(bestSimilarity);
+            linked.incrementAndGet();
+            logger.info("Document {} is a near-duplicate of {} (similarity {})", document.getId(), root,
+                    String.format("%.2f", bestSimilarity));
+        } else {
+            update.unset("duplicateOf").unset("duplicateSimilarity");
+            document.setDuplicateOf(null);
+            document.setDuplicateSimilarity(null);
+        }
+        document.setSignatureVersion(MinHasher.VERSION);
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(document.getId())), update, Document.class);
+    }
+
+    /**
+     * The document's group: its root first, then the other members in upload order.
+     */
+    public List<Document> findGroup(Document document) {
+        String root = document.getDuplicateOf() != null ? document.getDuplicateOf() : document.getId();
+        Query query = new Query(new Criteria().orOperator(Criteria.where("_id").is(root), Criteria.where("duplicateOf").is(root)))
+                .with(Sort.by(Sort.Direction.ASC, "id"));
+        query.fields().exclude("extractedText");
+        return mongoTemplate.find(query, Document.class);
+    }
+
+    /**
+     * A completed analysis of the document's root that can stand in for analyzing this document.
+     */
+    public Optional<DocumentAnalysis> findReusableAnalysis(Document document, String analysisType) {
+        if (!enabled || !reuseAnalyses || document.getDuplicateOf() == null || document.getDuplicateSimilarity() == null
+                || document.getDuplicateSimilarity() < reuseThreshold || !reuseTypes.contains(analysisType.toLowerCase())) {
+            return Optional.empty();
+        }
+        Optional<DocumentAnalysis> analysis = analysisStore.findCurrent(document.getDuplicateOf(), analysisType)
+                .filter(source -> "COMPLETED".equals(source.getStatus()));
+        analysis.ifPresent(source -> reused.incrementAndGet());
+        return analysis;
+    }
+
+    /**
+     * Drops the document's signature; if it was a group root, the next oldest member takes over.
+     */
+    public void remove(String documentId) {
+        mongoTemplate.remove(new Query(Criteria.where("_id").is(documentId)), DocumentSignature.class);
+
+        Query members = new Query(Criteria.where("duplicateOf").is(documentId)).with(Sort.by(Sort.Direction.ASC, "id"));
+        members.fields().include("id");
+        List<Document> group = mongoTemplate.find(members, Document.class);
+        if (group.isEmpty()) {
+            return;
+        }
+        String newRoot = group.get(0).getId();
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(newRoot)),
+                new Update().unset("duplicateOf").unset("duplicateSimilarity").set("updatedAt", LocalDateTime.now()),
+                Document.class);
+        mongoTemplate.updateMulti(new Query(Criteria.where("duplicateOf").is(documentId)),
+                new Update().set("duplicateOf", newRoot).set("updatedAt", LocalDateTime.now()), Document.class);
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("signatureVersion", MinHasher.VERSION);
+        status.put("threshold", threshold);
+        status.put("checked", checked.get());
+        status.put("linked", linked.get());
+        status.put("analysesReused", reused.get());
+        return status;
+    }
+
+    private String root(String documentId) {
+        Query query = new Query(Criteria.where("_id").is(documentId));
+        query.fields().include("duplicateOf");
+        Document candidate = mongoTemplate.findOne(query, Document.class);
+        return candidate != null && candidate.getDuplicateOf() != null ? candidate.getDuplicateOf() : documentId;
+    }
+}
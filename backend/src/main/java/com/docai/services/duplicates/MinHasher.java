@@ -0,0 +1,113 @@
+package com.docai.services.duplicates;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * MinHash signatures over word 5-shingles. Text is lowercased and reduced to letter/digit tokens
+ * first, so rescans and re-exports that differ only in whitespace, punctuation or layout produce
+ * the same shingles. The 128 values are grouped into 16 bands of 8 for LSH: two documents with
+ * Jaccard similarity 0.8 share at least one band with probability ~0.95, at 0.5 only ~0.06.
+ */
+final class MinHasher {
+
+    static final String VERSION = "minhash-w5-h128-b16";
+
+    static final int SHINGLE_WORDS = 5;
+    static final int HASHES = 128;
+    static final int BANDS = 16;
+    static final int ROWS = HASHES / BANDS;
+
+    private static final Pattern TOKEN = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    private static final long[] SEEDS = new SplittableRandom(0x6d696e68L).longs(HASHES).toArray();
+
+    private MinHasher() {
+    }
+
+    record Signature(int[] minhash, List<String> bands, int shingleCount) {
+    }
+
+    static Signature sign(String text) {
+        List<Long> tokens = new ArrayList<>();
+        Matcher matcher = TOKEN.matcher(text.toLowerCase(Locale.ROOT));
+        while (matcher.find()) {
+            tokens.add(hash(matcher.group()));
+        }
+        if (tokens.isEmpty()) {
+            return null;
+        }
+
+        long[] minimums = new long[HASHES];
+        Arrays.fill(minimums, Long.MAX_VALUE);
+        int shingles = Math.max(1, tokens.size() - SHINGLE_WORDS + 1);
+        for (int start = 0; start < shingles; start++) {
+            long shingle = 0;
+            for (int k = start; k < Math.min(tokens.size(), start + SHINGLE_WORDS); k++) {
+                shingle = shingle * 0x100000001b3L + tokens.get(k);
+            }
+            for (int i = 0; i < HASHES; i++) {
+                long value = mix(shingle ^ SEEDS[i]);
+                if (value < minimums[i]) {
+                    minimums[i] = value;
+                }
+            }
+        }
+
+        int[] minhash = new int[HASHES];
+        for (int i = 0; i < HASHES; i++) {
+            minhash[i] = (int) (minimums[i] >>> 32);
+        }
+        return new Signature(minhash, bands(minhash), shingles);
+    }
+
+    /**
+     * Estimated Jaccard similarity: the fraction of positions where both minimums agree.
+     */
+    static double similarity(int[] left, int[] right) {
+        if (left == null || right == null || left.length != right.length) {
+            return 0;
+        }
+        int equal = 0;
+        for (int i = 0; i < left.length; i++) {
+            if (left[i] == right[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / left.length;
+    }
+
+    private static List<String> bands(int[] minhash) {
+        List<String> bands = new ArrayList<>(BANDS);
+        for (int band = 0; band < BANDS; band++) {
+            long hash = band;
+            for (int row = 0; row < ROWS; row++) {
+                hash = mix(hash * 31 + minhash[band * ROWS + row]);
+            }
+            bands.add(band + ":" + Long.toHexString(hash));
+        }
+        return bands;
+    }
+
+    private static long hash(String token) {
+        // FNV-1a
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < token.length(); i++) {
+            hash ^= token.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long mix(long value) {
+        // splitmix64 finalizer
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+}
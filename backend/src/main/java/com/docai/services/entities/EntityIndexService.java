@@ -0,0 +1,364 @@
+package com.docai.services.entities;
+
+import com.docai.config.MongoReadRouting;
+import com.docai.models.Document;
+import com.docai.models.DocumentAnalysis;
+import com.docai.models.Entity;
+import com.docai.models.EntityPosting;
+import com.docai.repositories.AnalyticsRepository;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Inverted index from (entity type, normalized value) to the documents mentioning it, stored in
+ * {@code entity_postings} with one row per (document, type, value) holding every mention offset.
+ * A document's postings are rewritten from its current analyses whenever one of them is stored.
+ * Co-occurrence queries intersect posting lists smallest first. Top entities come from per-type
+ * Space-Saving sketches fed as postings are created, and rebuilt periodically from a single
+ * streamed pass over the postings, so no request scans them.
+ */
+@Service
+public class EntityIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EntityIndexService.class);
+
+    public static final int MAX_TERMS = 10;
+
+    // Sketch key of the one counting entities of every type
+    private static final String ALL_TYPES = "*";
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MongoReadRouting readRouting;
+
+    @Autowired
+    private AnalyticsRepository analyticsRepository;
+
+    @Value("${document.entity-index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${document.entity-index.sketch-capacity:1000}")
+    private int sketchCapacity;
+
+    @Value("${document.entity-index.max-candidates:50000}")
+    private int maxCandidates;
+
+    private volatile Map<String, SpaceSavingSketch> sketches = new ConcurrentHashMap<>();
+    private final AtomicBoolean rebuildingSketches = new AtomicBoolean();
+    private volatile Long lastSketchBuildMillis;
+
+    public record Term(String type, String value) {
+    }
+
+    /**
+     * A document matching every term, with the mentions of each term keyed by {@code TYPE:value}.
+     */
+    public record DocumentMentions(String documentId, String filename, String classification,
+                                   Map<String, List<EntityPosting.Mention>> mentions) {
+    }
+
+    /**
+     * {@code truncated} when the rarest term matched more than {@code max-candidates} documents
+     * and only the first of them (by id) were intersected.
+     */
+    public record MentionPage(List<DocumentMentions> documents, long total, boolean truncated) {
+    }
+
+    public record TopEntity(String type, String value, long documents, long error) {
+    }
+
+    public static String normalizeType(String type) {
+        return type.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * The lookup key of an entity value: compatibility-normalized, whitespace-collapsed and lower-cased,
+     * so "ACME  Corp" and "Acme Corp" share a posting list.
+     */
+    public static String normalizeValue(String value) {
+        String normalized = Normalizer.normalize(value, Normalizer.Form.NFKC);
+        return WHITESPACE.matcher(normalized).replaceAll(" ").trim().toLowerCase(Locale.ROOT);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            rebuildSketches();
+        }
+    }
+
+    public void onAnalysisSaved(DocumentAnalysis analysis) {
+        if (!enabled || analysis.getDocumentId() == null) {
+            return;
+        }
+        // A failed update leaves the previous postings; an ENTITY_INDEX backfill rewrites them
+        try {
+            indexDocument(analysis.getDocumentId());
+        } catch (Exception e) {
+            logger.warn("Error indexing entities of document {}: {}", analysis.getDocumentId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Rewrites the document's postings from the entities of its current analyses.
+     */
+    public void indexDocument(String documentId) {
+        Map<String, EntityPosting> postings = new LinkedHashMap<>();
+        for (DocumentAnalysis analysis : analyticsRepository.findByDocumentId(documentId)) {
+            if (analysis.getEntities() == null) {
+                continue;
+            }
+            for (Entity entity : analysis.getEntities()) {
+                String raw = entity.getNormalizedValue() != null ? entity.getNormalizedValue() : entity.getText();
+                if (entity.getType() == null || entity.getType().isBlank() || raw == null) {
+                    continue;
+                }
+                String type = normalizeType(entity.getType());
+                String value = normalizeValue(raw);
+                if (value.isEmpty()) {
+                    continue;
+                }
+                String id = postingId(documentId, type, value);
+                postings.computeIfAbsent(id, key -> new EntityPosting(key, type, value, entity.getText(), documentId))
+                        .getMentions()
+                        .add(new EntityPosting.Mention(entity.getStartOffset(), entity.getEndOffset(),
+                                analysis.getAnalysisType()));
+            }
+        }
+
+        List<EntityPosting> rows = new ArrayList<>(postings.values());
+        if (!rows.isEmpty()) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, EntityPosting.class);
+            for (EntityPosting row : rows) {
+                bulk.replaceOne(new Query(Criteria.where("_id").is(row.getId())), row,
+                        FindAndReplaceOptions.options().upsert());
+            }
+            BulkWriteResult result = bulk.execute();
+            // Only postings new to the document count towards how many documents mention an entity
+            for (BulkWriteUpsert upsert : result.getUpserts()) {
+                EntityPosting created = rows.get(upsert.getIndex());
+                sketch(created.getType()).offer(created.getValue());
+                sketch(ALL_TYPES).offer(created.getType() + ":" + created.getValue());
+            }
+        }
+        mongoTemplate.remove(new Query(Criteria.where("documentId").is(documentId)
+                .and("_id").nin(postings.keySet())), EntityPosting.class);
+    }
+
+    public void removeDocument(String documentId) {
+        if (enabled) {
+            mongoTemplate.remove(new Query(Criteria.where("documentId").is(documentId)), EntityPosting.class);
+        }
+    }
+
+    /**
+     * Whether the document has postings, for backfills skipping indexed documents.
+     */
+    public boolean isIndexed(Document document) {
+        return mongoTemplate.exists(new Query(Criteria.where("documentId").is(document.getId())), EntityPosting.class);
+    }
+
+    /**
+     * Documents mentioning every one of {@code terms}, by document id.
+     */
+    public MentionPage findDocuments(List<Term> terms, int page, int size) {
+        if (terms.isEmpty() || terms.size() > MAX_TERMS) {
+            throw new IllegalArgumentException("Between 1 and " + MAX_TERMS + " entities are required");
+        }
+        List<Term> normalized = new ArrayList<>();
+        for (Term term : terms) {
+            if (term.type() == null || term.type().isBlank() || term.value() == null || term.value().isBlank()) {
+                throw new IllegalArgumentException("Every entity needs a type and a value");
+            }
+            normalized.add(new Term(normalizeType(term.type()), normalizeValue(term.value())));
+        }
+
+        // Intersect from the shortest posting list so every step narrows the candidates the most
+        Map<Term, Long> lengths = new HashMap<>();
+        for (Term term : normalized) {
+            long length = mongoTemplate.count(readRouting.analytics(termQuery(term)), EntityPosting.class);
+            if (length == 0) {
+                return new MentionPage(List.of(), 0, false);
+            }
+            lengths.put(term, length);
+        }
+        normalized.sort(Comparator.comparing(lengths::get));
+
+        boolean truncated = lengths.get(normalized.get(0)) > maxCandidates;
+        Set<String> candidates = null;
+        for (Term term : normalized) {
+            Query query = termQuery(term);
+            if (candidates == null) {
+                query.with(Sort.by(Sort.Direction.ASC, "documentId")).limit(maxCandidates);
+            } else {
+                query.addCriteria(Criteria.where("documentId").in(candidates));
+            }
+            query.fields().include("documentId").exclude("_id");
+            Set<String> matched = new TreeSet<>();
+            try (Stream<EntityPosting> rows = mongoTemplate.stream(readRouting.analytics(query), EntityPosting.class)) {
+                rows.forEach(row -> matched.add(row.getDocumentId()));
+            }
+            candidates = matched;
+            if (candidates.isEmpty()) {
+                break;
+            }
+        }
+
+        List<String> pageIds = candidates.stream().skip((long) page * size).limit(size).toList();
+        return new MentionPage(mentions(pageIds, normalized), candidates.size(), truncated);
+    }
+
+    /**
+     * The most frequently mentioned entities (by number of documents), of one type or of all types.
+     */
+    public List<TopEntity> top(String type, int limit) {
+        String key = type == null || type.isBlank() ? ALL_TYPES : normalizeType(type);
+        SpaceSavingSketch sketch = sketches.get(key);
+        if (sketch == null) {
+            return List.of();
+        }
+        return sketch.top(limit).stream().map(estimate -> {
+            if (ALL_TYPES.equals(key)) {
+                int separator = estimate.item().indexOf(':');
+                return new TopEntity(estimate.item().substring(0, separator), estimate.item().substring(separator + 1),
+                        estimate.count(), estimate.error());
+            }
+            return new TopEntity(key, estimate.item(), estimate.count(), estimate.error());
+        }).toList();
+    }
+
+    /**
+     * Recounts the sketches from the postings, dropping counts of documents deleted or re-analysed since.
+     */
+    @Scheduled(fixedDelayString = "${document.entity-index.sketch-rebuild-interval:21600000}",
+            initialDelayString = "${document.entity-index.sketch-rebuild-interval:21600000}")
+    public void rebuildSketches() {
+        if (!enabled || !rebuildingSketches.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long startTime = System.currentTimeMillis();
+            Map<String, SpaceSavingSketch> rebuilt = new ConcurrentHashMap<>();
+            Query query = new Query();
+            query.fields().include("type", "value").exclude("_id");
+            try (Stream<EntityPosting> rows = mongoTemplate.stream(readRouting.analytics(query), EntityPosting.class)) {
+                rows.forEach(row -> {
+                    rebuilt.computeIfAbsent(row.getType(), key -> new SpaceSavingSketch(sketchCapacity)).offer(row.getValue());
+                    rebuilt.computeIfAbsent(ALL_TYPES, key -> new SpaceSavingSketch(sketchCapacity))
+                            .offer(row.getType() + ":" + row.getValue());
+                });
+            }
+            sketches = rebuilt;
+            lastSketchBuildMillis = System.currentTimeMillis() - startTime;
+            SpaceSavingSketch all = rebuilt.get(ALL_TYPES);
+            logger.info("Entity sketches rebuilt from {} postings in {} ms", all != null ? all.total() : 0,
+                    lastSketchBuildMillis);
+        } catch (Exception e) {
+            logger.error("Error rebuilding entity sketches", e);
+        } finally {
+            rebuildingSketches.set(false);
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("postings", mongoTemplate.estimatedCount(EntityPosting.class));
+        Map<String, Object> types = new LinkedHashMap<>();
+        sketches.entrySet().stream()
+                .filter(entry -> !ALL_TYPES.equals(entry.getKey()))
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> types.put(entry.getKey(), Map.of(
+                        "documentMentions", entry.getValue().total(),
+                        "tracked", entry.getValue().size())));
+        status.put("sketches", types);
+        status.put("sketchCapacity", sketchCapacity);
+        status.put("lastSketchBuildMillis", lastSketchBuildMillis);
+        return status;
+    }
+
+    private List<DocumentMentions> mentions(List<String> documentIds, List<Term> terms) {
+        if (documentIds.isEmpty()) {
+            return List.of();
+        }
+        List<Criteria> termCriteria = terms.stream()
+                .map(term -> Criteria.where("type").is(term.type()).and("value").is(term.value()))
+                .toList();
+        Query postingsQuery = new Query(Criteria.where("documentId").in(documentIds)
+                .orOperator(termCriteria.toArray(new Criteria[0])));
+        Map<String, Map<String, List<EntityPosting.Mention>>> byDocument = new HashMap<>();
+        for (EntityPosting posting : mongoTemplate.find(readRouting.analytics(postingsQuery), EntityPosting.class)) {
+            byDocument.computeIfAbsent(posting.getDocumentId(), id -> new LinkedHashMap<>())
+                    .put(posting.getType() + ":" + posting.getValue(), posting.getMentions());
+        }
+
+        Query documentsQuery = new Query(Criteria.where("_id").in(documentIds));
+        documentsQuery.fields().include("filename", "classification");
+        Map<String, Document> documents = new HashMap<>();
+        mongoTemplate.find(readRouting.analytics(documentsQuery), Document.class).forEach(document -> documents.put(document.getId(), document));
+
+        List<DocumentMentions> result = new ArrayList<>();
+        for (String id : documentIds) {
+            Document document = documents.get(id);
+            result.add(new DocumentMentions(id,
+                    document != null ? document.getFilename() : null,
+                    document != null ? document.getClassification() : null,
+                    byDocument.getOrDefault(id, Map.of())));
+        }
+        return result;
+    }
+
+    private SpaceSavingSketch sketch(String key) {
+        return sketches.computeIfAbsent(key, ignored -> new SpaceSavingSketch(sketchCapacity));
+    }
+
+    private static Query termQuery(Term term) {
+        return new Query(Criteria.where("type").is(term.type()).and("value").is(term.value()));
+    }
+
+    private static String postingId(String documentId, String type, String value) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return documentId + ":" + type + ":" + HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.docai.services.entities;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Space-Saving heavy-hitter sketch (Metwally et al.): tracks at most {@code capacity} items and
+ * reports every item seen more than {@code total / capacity} times, each with an overestimate of
+ * at most {@code error}. When full, a new item replaces the least counted one and inherits its
+ * count as error. Counters are kept in count buckets, so each offer is O(log capacity).
+ */
+public class SpaceSavingSketch {
+
+    private final int capacity;
+    private final Map<String, Counter> counters = new HashMap<>();
+    private final TreeMap<Long, Set<String>> buckets = new TreeMap<>();
+    private long total;
+
+    public record Estimate(String item, long count, long error) {
+    }
+
+    private static final class Counter {
+        private long count;
+        private final long error;
+
+        private Counter(long count, long error) {
+            this.count = count;
+            this.error = error;
+        }
+    }
+
+    public SpaceSavingSketch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    public synchronized void offer(String item) {
+        total++;
+        Counter counter = counters.get(item);
+        if (counter != null) {
+            moveBucket(item, counter.count, counter.count + 1);
+            counter.count++;
+            return;
+        }
+        if (counters.size() < capacity) {
+            counters.put(item, new Counter(1, 0));
+            buckets.computeIfAbsent(1L, key -> new LinkedHashSet<>()).add(item);
+            return;
+        }
+        Map.Entry<Long, Set<String>> smallest = buckets.firstEntry();
+        Iterator<String> evicted = smallest.getValue().iterator();
+        counters.remove(evicted.next());
+        evicted.remove();
+        if (smallest.getValue().isEmpty()) {
+            buckets.remove(smallest.getKey());
+        }
+        long count = smallest.getKey() + 1;
+        counters.put(item, new Counter(count, smallest.getKey()));
+        buckets.computeIfAbsent(count, key -> new LinkedHashSet<>()).add(item);
+    }
+
+    /**
+     * The {@code limit} most counted items, highest first.
+     */
+    public synchronized List<Estimate> top(int limit) {
+        List<Estimate> top = new ArrayList<>(Math.min(limit, counters.size()));
+        for (Map.Entry<Long, Set<String>> bucket : buckets.descendingMap().entrySet()) {
+            for (String item : bucket.getValue()) {
+                if (top.size() == limit) {
+                    return top;
+                }
+                top.add(new Estimate(item, bucket.getKey(), counters.get(item).error));
+            }
+        }
+        return top;
+    }
+
+    public synchronized long total() {
+        return total;
+    }
+
+    public synchronized int size() {
+        return counters.size();
+    }
+
+    private void moveBucket(String item, long from, long to) {
+        Set<String> bucket = buckets.get(from);
+        bucket.remove(item);
+        if (bucket.isEmpty()) {
+            buckets.remove(from);
+        }
+        buckets.computeIfAbsent(to, key -> new LinkedHashSet<>()).add(item);
+    }
+}
@@ -0,0 +1,408 @@
+package com.docai.services.export;
+
+import com.docai.config.MongoReadRouting;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Streams documents or analyses to an {@link OutputStream} as CSV or JSON Lines straight from a
+ * Mongo cursor: only the exported fields are projected, rows are written as they arrive and nothing
+ * is collected, so memory stays flat however many rows match. Rows come in {@code _id} order and
+ * every row starts with its id; passing the last id received as {@code after} resumes an
+ * interrupted export where it stopped.
+ */
+@Service
+public class DocumentExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentExportService.class);
+
+    public static final String DATASET_DOCUMENTS = "documents";
+    public static final String DATASET_ANALYSES = "analyses";
+
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_JSON = "json";
+    public static final String FORMAT_JSONL = "jsonl";
+    // CSV with a byte order mark and formula-safe cells, for opening directly in a spreadsheet
+    public static final String FORMAT_EXCEL = "excel";
+
+    private static final String DOCUMENTS = "documents";
+    private static final String ANALYSES = "document_analyses";
+
+    private static final List<Column> DOCUMENT_COLUMNS = List.of(
+            new Column("id", "_id"),
+            new Column("filename", "filename"),
+            new Column("originalFilename", "original_filename"),
+            new Column("contentType", "content_type"),
+            new Column("fileSize", "file_size"),
+            new Column("classification", "classification"),
+            new Column("confidenceScore", "confidence_score"),
+            new Column("processingStatus", "processing_status"),
+            new Column("language", "language"),
+            new Column("pageCount", "page_count"),
+            new Column("tags", "tags"),
+            new Column("uploadedBy", "uploaded_by"),
+            new Column("entityCount", "entities.type"),
+            new Column("entityTypes", "entities.type"),
+            new Column("duplicateOf", "duplicate_of"),
+            new Column("versionGroupId", "version_group_id"),
+            new Column("versionNumber", "version_number"),
+            new Column("createdAt", "created_at"),
+            new Column("updatedAt", "updated_at"));
+
+    private static final List<Column> ANALYSIS_COLUMNS = List.of(
+            new Column("id", "_id"),
+            new Column("documentId", "document_id"),
+            new Column("analysisType", "analysis_type"),
+            new Column("status", "status"),
+            new Column("confidence", "confidence"),
+            new Column("processingTime", "processing_time"),
+            new Column("classification", "classification.type"),
+            new Column("sentiment", "sentiment.label"),
+            new Column("sentimentScore", "sentiment.score"),
+            new Column("entityCount", "entities.type"),
+            new Column("entityTypes", "entities.type"),
+            new Column("summary", "summary"),
+            new Column("errorMessage", "error_message"),
+            new Column("createdAt", "created_at"),
+            new Column("updatedAt", "updated_at"));
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MongoReadRouting readRouting;
+
+    @Value("${document.export.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${document.export.buffer-size:65536}")
+    private int bufferSize;
+
+    /**
+     * What to export; null fields do not filter. {@code from} and {@code to} bound {@code createdAt}
+     * and take an ISO date or date-time.
+     */
+    public record ExportFilter(String classification, String analysisType, String entityType, String from, String to,
+                               String after, Long limit) {
+    }
+
+    private record Column(String name, String field) {
+    }
+
+    public static boolean isSupportedFormat(String format) {
+        return FORMAT_CSV.equals(format) || FORMAT_JSON.equals(format) || FORMAT_JSONL.equals(format)
+                || FORMAT_EXCEL.equals(format);
+    }
+
+    public static String contentType(String format) {
+        return FORMAT_JSON.equals(format) || FORMAT_JSONL.equals(format) ? "application/x-ndjson" : "text/csv";
+    }
+
+    public static String fileExtension(String format) {
+        return FORMAT_JSON.equals(format) || FORMAT_JSONL.equals(format) ? "jsonl" : "csv";
+    }
+
+    /**
+     * Builds the cursor query; invalid filters fail here, before anything is written to the response.
+     */
+    public Query buildQuery(String dataset, ExportFilter filter) {
+        if (!DATASET_DOCUMENTS.equals(dataset) && !DATASET_ANALYSES.equals(dataset)) {
+            throw new IllegalArgumentException("Unknown export dataset: " + dataset);
+        }
+        boolean documents = DATASET_DOCUMENTS.equals(dataset);
+        List<Criteria> criteria = new ArrayList<>();
+        if (filter.classification() != null) {
+            criteria.add(Criteria.where(documents ? "classification" : "classification.type").is(filter.classification()));
+        }
+        if (filter.analysisType() != null) {
+            if (documents) {
+                throw new IllegalArgumentException("analysisType only applies to the analyses dataset");
+            }
+            criteria.add(Criteria.where("analysis_type").is(filter.analysisType()));
+        }
+        if (filter.entityType() != null) {
+            criteria.add(Criteria.where("entities.type").is(filter.entityType().toUpperCase(Locale.ROOT)));
+        }
+        Date from = filter.from() != null ? parseDate(filter.from(), false) : null;
+        Date to = filter.to() != null ? parseDate(filter.to(), true) : null;
+        if (from != null && to != null) {
+            criteria.add(Criteria.where("created_at").gte(from).lt(to));
+        } else if (from != null) {
+            criteria.add(Criteria.where("created_at").gte(from));
+        } else if (to != null) {
+            criteria.add(Criteria.where("created_at").lt(to));
+        }
+        if (filter.after() != null) {
+            // Ids are ObjectIds unless a document was stored with its own string id
+            Object after = ObjectId.isValid(filter.after()) ? new ObjectId(filter.after()) : filter.after();
+            criteria.add(Criteria.where("_id").gt(after));
+        }
+        if (filter.limit() != null && filter.limit() <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+
+        Query query = criteria.isEmpty() ? new Query() : new Query(new Criteria().andOperator(criteria));
+        for (Column column : documents ? DOCUMENT_COLUMNS : ANALYSIS_COLUMNS) {
+            query.fields().include(column.field());
+        }
+        query.with(Sort.by(Sort.Direction.ASC, "_id")).cursorBatchSize(batchSize);
+        if (filter.limit() != null) {
+            query.limit((int) Math.min(filter.limit(), Integer.MAX_VALUE));
+        }
+        return query;
+    }
+
+    /**
+     * Writes the rows matched by {@code query} and returns how many were written.
+     */
+    public long export(String dataset, String format, Query query, OutputStream out) throws IOException {
+        if (!isSupportedFormat(format)) {
+            throw new IllegalArgumentException("Unsupported export format: " + format);
+        }
+        List<Column> columns = DATASET_DOCUMENTS.equals(dataset) ? DOCUMENT_COLUMNS : ANALYSIS_COLUMNS;
+        String collection = DATASET_DOCUMENTS.equals(dataset) ? DOCUMENTS : ANALYSES;
+        long startTime = System.currentTimeMillis();
+        long rows = 0;
+        try (RowWriter writer = FORMAT_CSV.equals(format) || FORMAT_EXCEL.equals(format)
+                ? new CsvRowWriter(out, columns, FORMAT_EXCEL.equals(format))
+                : new JsonLinesRowWriter(out, columns);
+             Stream<Document> cursor = mongoTemplate.stream(readRouting.analytics(query), Document.class, collection)) {
+            var iterator = cursor.iterator();
+            while (iterator.hasNext()) {
+                Document row = iterator.next();
+                writer.write(row);
+                rows++;
+            }
+        }
+        logger.info("Exported {} {} rows as {} in {} ms", rows, dataset, format, System.currentTimeMillis() - startTime);
+        return rows;
+    }
+
+    private static Date parseDate(String value, boolean endOfRange) {
+        try {
+            if (value.length() == 10) {
+                // A bare date as the upper bound includes that whole day
+                LocalDate date = LocalDate.parse(value);
+                return toDate((endOfRange ? date.plusDays(1) : date).atStartOfDay());
+            }
+            return toDate(LocalDateTime.parse(value));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date: " + value);
+        }
+    }
+
+    private static Date toDate(LocalDateTime dateTime) {
+        // Spring Data stores LocalDateTime in the system zone
+        return Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    /**
+     * The value of a column in a projected row; entity columns are derived from the projected types.
+     */
+    private static Object value(Document row, Column column) {
+        if ("entityCount".equals(column.name()) || "entityTypes".equals(column.name())) {
+            List<?> entities = row.get("entities", List.class);
+            if (entities == null) {
+                return "entityCount".equals(column.name()) ? 0 : null;
+            }
+            if ("entityCount".equals(column.name())) {
+                return entities.size();
+            }
+            Set<String> types = new LinkedHashSet<>();
+            for (Object entity : entities) {
+                if (entity instanceof Document document && document.getString("type") != null) {
+                    types.add(document.getString("type"));
+                }
+            }
+            return List.copyOf(types);
+        }
+        Object value = row;
+        for (String part : column.field().split("\\.")) {
+            if (!(value instanceof Document document)) {
+                return null;
+            }
+            value = document.get(part);
+        }
+        return value instanceof ObjectId id ? id.toHexString() : value;
+    }
+
+    private interface RowWriter extends AutoCloseable {
+
+        void write(Document row) throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private final class CsvRowWriter implements RowWriter {
+
+        private final Writer writer;
+        private final List<Column> columns;
+        private final boolean spreadsheet;
+
+        CsvRowWriter(OutputStream out, List<Column> columns, boolean spreadsheet) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), bufferSize);
+            this.columns = columns;
+            this.spreadsheet = spreadsheet;
+            if (spreadsheet) {
+                // Lets Excel detect UTF-8
+                writer.write('\uFEFF');
+            }
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(columns.get(i).name());
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void write(Document row) throws IOException {
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                Object value = value(row, columns.get(i));
+                if (value instanceof Number || value instanceof Boolean) {
+                    writer.write(value.toString());
+                } else if (value != null) {
+                    writeText(format(value));
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        private String format(Object value) {
+            if (value instanceof Date date) {
+                return date.toInstant().toString();
+            }
+            if (value instanceof List<?> list) {
+                StringBuilder joined = new StringBuilder();
+                for (Object item : list) {
+                    if (!joined.isEmpty()) {
+                        joined.append(';');
+                    }
+                    joined.append(item);
+                }
+                return joined.toString();
+            }
+            return value.toString();
+        }
+
+        private void writeText(String text) throws IOException {
+            if (spreadsheet && !text.isEmpty() && "=+-@\t\r".indexOf(text.charAt(0)) >= 0) {
+                // A leading quote keeps spreadsheets from evaluating the cell as a formula
+                text = "'" + text;
+            }
+            boolean quote = false;
+            for (int i = 0; i < text.length() && !quote; i++) {
+                char c = text.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                writer.write(text);
+                return;
+            }
+            writer.write('"');
+            writer.write(text.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+    }
+
+    private final class JsonLinesRowWriter implements RowWriter {
+
+        private final JsonGenerator generator;
+        private final List<Column> columns;
+        private boolean written;
+
+        JsonLinesRowWriter(OutputStream out, List<Column> columns) throws IOException {
+            this.generator = new JsonFactory().createGenerator(out, JsonEncoding.UTF8);
+            // One object per line
+            this.generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+            this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            this.columns = columns;
+        }
+
+        @Override
+        public void write(Document row) throws IOException {
+            written = true;
+            generator.writeStartObject();
+            for (Column column : columns) {
+                Object value = value(row, column);
+                if (value == null) {
+                    continue;
+                }
+                generator.writeFieldName(column.name());
+                writeValue(value);
+            }
+            generator.writeEndObject();
+        }
+
+        private void writeValue(Object value) throws IOException {
+            if (value instanceof Date date) {
+                generator.writeString(date.toInstant().toString());
+            } else if (value instanceof Integer number) {
+                generator.writeNumber(number);
+            } else if (value instanceof Long number) {
+                generator.writeNumber(number);
+            } else if (value instanceof Double number) {
+                generator.writeNumber(number);
+            } else if (value instanceof Boolean flag) {
+                generator.writeBoolean(flag);
+            } else if (value instanceof List<?> list) {
+                generator.writeStartArray();
+                for (Object item : list) {
+                    writeValue(item);
+                }
+                generator.writeEndArray();
+            } else {
+                generator.writeString(value.toString());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (written) {
+                generator.writeRaw('\n');
+            }
+            generator.flush();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.docai.services.extraction;
+
+import com.docai.models.ExtractionCacheEntry;
+import com.github.luben.zstd.Zstd;
+import jakarta.annotation.PostConstruct;
+import org.apache.tika.Tika;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistent cache of Tika output keyed by (file checksum, parser version). The parser version
+ * combines the Tika release, {@code document.extraction.config-version} and an optional
+ * per-content-type revision from {@code document.extraction.parser-revisions}, so bumping the
+ * revision for one type invalidates only that type's entries. Text is stored Zstd-compressed.
+ */
+@Service
+public class ExtractionCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExtractionCacheService.class);
+
+    private static final String TIKA_VERSION = new Tika().toString().replace("Apache Tika ", "tika-");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${document.extraction.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${document.extraction.cache.level:3}")
+    private int level;
+
+    @Value("${document.extraction.config-version:1}")
+    private String configVersion;
+
+    // e.g. "application/pdf=2,text/html=3"
+    @Value("${document.extraction.parser-revisions:}")
+    private String parserRevisions;
+
+    private final Map<String, String> revisions = new HashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong stores = new AtomicLong();
+
+    @PostConstruct
+    public void initialize() {
+        for (String entry : parserRevisions.split(",")) {
+            int equals = entry.indexOf('=');
+            if (equals > 0) {
+                revisions.put(entry.substring(0, equals).trim().toLowerCase(), entry.substring(equals + 1).trim());
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            purgeStale();
+        } catch (Exception e) {
+            logger.error("Error purging stale extraction cache entries", e);
+        }
+    }
+
+    /**
+     * Version string recorded on documents and cache entries extracted with the current parser setup.
+     */
+    public String parserVersion(String contentType) {
+        String type = contentType != null ? contentType.toLowerCase() : "";
+        return TIKA_VERSION + "/" + configVersion + "/" + revisions.getOrDefault(type, "0");
+    }
+
+    public Optional<CachedExtraction> lookup(String checksum, String contentType) {
+        if (!enabled || checksum == null) {
+            return Optional.empty();
+        }
+
+        String id = checksum + ":" + parserVersion(contentType);
+        ExtractionCacheEntry entry = mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(id)),
+                new Update().set("lastUsedAt", LocalDateTime.now()),
+                ExtractionCacheEntry.class);
+        if (entry == null || entry.getText() == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        // store() always writes the content size into the frame header; negative means unknown or corrupt
+        long size = Zstd.getFrameContentSize(entry.getText());
+        if (size < 0 || size > Integer.MAX_VALUE) {
+            logger.warn("Extraction cache entry {} has no readable frame size, ignoring it", id);
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+
+        hits.incrementAndGet();
+        byte[] text = Zstd.decompress(entry.getText(), (int) size);
+        return Optional.of(new CachedExtraction(new String(text, StandardCharsets.UTF_8),
+                entry.getMetadata() != null ? entry.getMetadata() : Map.of()));
+    }
+
+    public void store(String checksum, String contentType, String text, Map<String, String> metadata) {
+        if (!enabled || checksum == null || text == null) {
+            return;
+        }
+
+        ExtractionCacheEntry entry = new ExtractionCacheEntry(checksum, contentType, parserVersion(contentType));
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        entry.setText(Zstd.compress(utf8, level));
+        entry.setTextLength(text.length());
+        entry.setMetadata(metadata);
+        try {
+            mongoTemplate.save(entry);
+            stores.incrementAndGet();
+        } catch (DuplicateKeyException e) {
+            // Same file extracted concurrently; either copy is correct
+            logger.debug("Extraction cache entry already stored: {}", entry.getId());
+        }
+    }
+
+    /**
+     * Drops entries whose parser version is no longer current for their content type.
+     */
+    public long purgeStale() {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.group("content_type", "parser_version").count().as("count"));
+        long removed = 0;
+        for (org.bson.Document group : mongoTemplate.aggregate(aggregation, "extraction_cache", org.bson.Document.class)
+                .getMappedResults()) {
+            org.bson.Document key = (org.bson.Document) group.get("_id");
+            String contentType = key.getString("content_type");
+            String version = key.getString("parser_version");
+            if (!parserVersion(contentType).equals(version)) {
+                removed += mongoTemplate.remove(new Query(Criteria.where("contentType").is(contentType)
+                        .and("parserVersion").is(version)), ExtractionCacheEntry.class).getDeletedCount();
+            }
+        }
+        if (removed > 0) {
+            logger.info("Removed {} stale extraction cache entries", removed);
+        }
+        return removed;
+    }
+
+    /**
+     * Forces re-extraction of one content type: drops its entries and marks its documents out of date.
+     */
+    public long invalidate(String contentType) {
+        mongoTemplate.updateMulti(new Query(Criteria.where("contentType").is(contentType)),
+                new Update().unset("extractionVersion"), com.docai.models.Document.class);
+        return mongoTemplate.remove(new Query(Criteria.where("contentType").is(contentType)), ExtractionCacheEntry.class)
+                .getDeletedCount();
+    }
+
+    public Map<String, Object> getStatus() {
+        long lookups = hits.get() + misses.get();
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("tikaVersion", TIKA_VERSION);
+        status.put("configVersion", configVersion);
+        status.put("parserRevisions", revisions);
+        status.put("entries", mongoTemplate.estimatedCount(ExtractionCacheEntry.class));
+        status.put("hits", hits.get());
+        status.put("misses", misses.get());
+        status.put("stores", stores.get());
+        status.put("hitRate", lookups > 0 ? (double) hits.get() / lookups : null);
+        return status;
+    }
+
+    public record CachedExtraction(String text, Map<String, String> metadata) {
+    }
+}
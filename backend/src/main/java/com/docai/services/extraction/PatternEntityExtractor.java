@@ -0,0 +1,700 @@
+package com.docai.services.extraction;
+
+import com.docai.models.Entity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Extracts structured entities (EMAIL, PHONE, MONEY, PERCENTAGE, DATE) locally.
+ * Each entity grammar is compiled by hand into a deterministic recognizer that walks the text
+ * forward without backtracking or regex machinery; the scanner makes one pass over the text and
+ * only runs the recognizers at candidate token starts, in priority order (email, money,
+ * percentage, date, phone). Every match carries exact offsets into the scanned text plus a
+ * normalized value.
+ * <p>
+ * The grammars, matched case-insensitively:
+ * <pre>
+ * EMAIL      [A-Za-z0-9._%+-]+ @ [A-Za-z0-9.-]+ . [A-Za-z]{2,}
+ * MONEY      ( symbol | code \s? ) amount magnitude?
+ *            | amount magnitude? \s? ( code | dollars? | euros? | pounds? ) \b
+ * PERCENTAGE \d+(.\d+)? \s? ( % | percent\b | per cent\b )
+ * DATE       yyyy-m-d | m/d/yyyy (or d/m when m &gt; 12; '.' also separates)
+ *            | month .? d(st|nd|rd|th)? ,? yyyy | d(st|nd|rd|th)? (of)? month .? ,? yyyy
+ * PHONE      (+\d{1,3} sep?)? ( (\d{2,4}) | \d{2,4} ) sep \d{3,4} sep \d{3,4}
+ * </pre>
+ * where amount is {@code 1,234,567.89} or {@code 1234.5} and magnitude is
+ * {@code thousand|million|billion|k|m|b}.
+ */
+@Service
+public class PatternEntityExtractor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PatternEntityExtractor.class);
+
+    public static final String EMAIL = "EMAIL";
+    public static final String PHONE = "PHONE";
+    public static final String MONEY = "MONEY";
+    public static final String PERCENTAGE = "PERCENTAGE";
+    public static final String DATE = "DATE";
+
+    public static final Set<String> SUPPORTED_TYPES = Set.of(EMAIL, PHONE, MONEY, PERCENTAGE, DATE);
+
+    // Longest spelling first; the first three letters are distinct, so at most one month matches
+    private static final String[][] MONTHS = {
+            {"january", "jan"}, {"february", "feb"}, {"march", "mar"}, {"april", "apr"}, {"may"},
+            {"june", "jun"}, {"july", "jul"}, {"august", "aug"}, {"september", "sept", "sep"},
+            {"october", "oct"}, {"november", "nov"}, {"december", "dec"}};
+
+    private static final String[] CURRENCY_CODES = {"usd", "eur", "gbp", "jpy", "inr", "chf", "cad", "aud"};
+    private static final String[] CURRENCY_WORDS = {"dollars", "dollar", "euros", "euro", "pounds", "pound"};
+    private static final String[] MAGNITUDE_WORDS = {"thousand", "million", "billion"};
+    private static final String[] ORDINAL_SUFFIXES = {"st", "nd", "rd", "th"};
+    private static final String[] PERCENT_WORDS = {"percent", "per cent"};
+
+    private static final Map<String, String> CURRENCY_BY_WORD = Map.of(
+            "dollar", "USD", "dollars", "USD", "euro", "EUR", "euros", "EUR", "pound", "GBP", "pounds", "GBP");
+
+    private static final String[] MONTHS_AND_CODES = {
+            "jan", "feb", "mar", "apr", "may", "jun", "jul", "aug", "sep", "oct", "nov", "dec",
+            "usd", "eur", "gbp", "jpy", "inr", "chf", "cad", "aud"};
+
+    private static final Set<String> WORD_PREFIXES = Set.of(MONTHS_AND_CODES);
+
+    private static final int MAX_MATCH_LENGTH = 256;
+
+    private static final double CONFIDENCE = 0.99;
+
+    private record Match(String type, int end, String normalized) {
+    }
+
+    public List<Entity> extract(String text) {
+        List<Entity> entities = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return entities;
+        }
+
+        long startTime = System.nanoTime();
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            if ((i > 0 && Character.isLetterOrDigit(text.charAt(i - 1))) || !isCandidateStart(text, i)) {
+                i++;
+                continue;
+            }
+            Match match = match(text, i, Math.min(length, i + MAX_MATCH_LENGTH));
+            if (match != null && match.normalized() != null && isTokenBoundary(text, i, match.end())) {
+                entities.add(toEntity(text, i, match));
+                i = match.end();
+                continue;
+            }
+            i++;
+        }
+
+        if (logger.isDebugEnabled()) {
+            long elapsedMicros = Math.max(1, (System.nanoTime() - startTime) / 1_000);
+            logger.debug("Pattern extraction found {} entities in {} chars ({} chars/us)",
+                    entities.size(), text.length(), String.format("%.1f", text.length() / (double) elapsedMicros));
+        }
+        return entities;
+    }
+
+    /**
+     * Keeps LLM-provided entities only for types the pattern engine does not cover and for
+     * text not already tagged locally, so deterministic matches always take precedence.
+     */
+    public List<Entity> merge(List<Entity> localEntities, List<Entity> llmEntities) {
+        List<Entity> merged = new ArrayList<>(localEntities);
+        Set<String> localTexts = new HashSet<>();
+        for (Entity entity : localEntities) {
+            if (entity.getText() != null) {
+                localTexts.add(entity.getText().toLowerCase(Locale.ROOT));
+            }
+        }
+
+        for (Entity entity : llmEntities) {
+            if (entity.getType() == null || SUPPORTED_TYPES.contains(entity.getType().toUpperCase(Locale.ROOT))) {
+                continue;
+            }
+            if (entity.getText() != null && localTexts.contains(entity.getText().toLowerCase(Locale.ROOT))) {
+                continue;
+            }
+            merged.add(entity);
+        }
+        return merged;
+    }
+
+    private Entity toEntity(String text, int start, Match match) {
+        Entity entity = new Entity(match.type(), text.substring(start, match.end()), CONFIDENCE, start, match.end());
+        entity.setNormalizedValue(match.normalized());
+        entity.setMetadata(Map.of("source", "pattern"));
+        return entity;
+    }
+
+    /**
+     * The first grammar that matches at {@code start} wins, even if its match is later rejected
+     * (bad boundary, impossible date); {@code limit} bounds what a match may consume, while
+     * look-ahead checks see the whole text.
+     */
+    private Match match(String text, int start, int limit) {
+        Match match = email(text, start, limit);
+        if (match == null) {
+            match = money(text, start, limit);
+        }
+        if (match == null) {
+            match = percentage(text, start, limit);
+        }
+        if (match == null) {
+            match = date(text, start, limit);
+        }
+        if (match == null) {
+            match = phone(text, start, limit);
+        }
+        return match;
+    }
+
+    private Match email(String text, int start, int limit) {
+        int at = start;
+        while (at < limit && isLocalPartChar(text.charAt(at))) {
+            at++;
+        }
+        if (at == start || at >= limit || text.charAt(at) != '@') {
+            return null;
+        }
+        int domainEnd = at + 1;
+        while (domainEnd < limit && isDomainChar(text.charAt(domainEnd))) {
+            domainEnd++;
+        }
+        // The domain ends at its last dot that is followed by at least two letters
+        for (int dot = domainEnd - 1; dot >= at + 2; dot--) {
+            if (text.charAt(dot) != '.') {
+                continue;
+            }
+            int end = dot + 1;
+            while (end < limit && isLetter(text.charAt(end))) {
+                end++;
+            }
+            if (end - dot > 2) {
+                return new Match(EMAIL, end, text.substring(start, end).toLowerCase(Locale.ROOT));
+            }
+        }
+        return null;
+    }
+
+    private Match money(String text, int start, int limit) {
+        // Prefixed: $1,200 / EUR 3.5m
+        String currency = symbolCurrency(text.charAt(start));
+        int amountStart = start + 1;
+        if (currency == null && startsWithAny(text, start, limit, CURRENCY_CODES) != null) {
+            currency = text.substring(start, start + 3).toUpperCase(Locale.ROOT);
+            amountStart = start + 3;
+            if (amountStart < limit && isSpace(text.charAt(amountStart))) {
+                amountStart++;
+            }
+        }
+        if (currency != null) {
+            int amountEnd = amountEnd(text, amountStart, limit);
+            if (amountEnd >= 0) {
+                int end = magnitudeEnd(text, amountEnd, limit);
+                return new Match(MONEY, end, normalizeMoney(text, amountStart, amountEnd, end, currency));
+            }
+        }
+
+        // Suffixed: 1,200 USD / 3 million dollars
+        int amountEnd = amountEnd(text, start, limit);
+        if (amountEnd < 0) {
+            return null;
+        }
+        int wordEnd = amountEnd < limit && isSpace(text.charAt(amountEnd))
+                ? magnitudeWordEnd(text, amountEnd + 1, limit)
+                : magnitudeWordEnd(text, amountEnd, limit);
+        int[] magnitudeEnds = wordEnd >= 0 ? new int[] {wordEnd, amountEnd} : new int[] {amountEnd};
+        for (int magnitudeEnd : magnitudeEnds) {
+            int codeStart = magnitudeEnd;
+            if (codeStart < limit && isSpace(text.charAt(codeStart))) {
+                Match match = suffixedMoney(text, start, amountEnd, magnitudeEnd, codeStart + 1, limit);
+                if (match != null) {
+                    return match;
+                }
+            }
+            Match match = suffixedMoney(text, start, amountEnd, magnitudeEnd, codeStart, limit);
+            if (match != null) {
+                return match;
+            }
+        }
+        return null;
+    }
+
+    private Match suffixedMoney(String text, int start, int amountEnd, int magnitudeEnd, int codeStart, int limit) {
+        String code = startsWithAny(text, codeStart, limit, CURRENCY_CODES);
+        if (code == null || isWordChar(text, codeStart + code.length())) {
+            code = null;
+            for (String word : CURRENCY_WORDS) {
+                if (startsWith(text, codeStart, limit, word) && !isWordChar(text, codeStart + word.length())) {
+                    code = word;
+                    break;
+                }
+            }
+        }
+        if (code == null) {
+            return null;
+        }
+        int end = codeStart + code.length();
+        String matched = text.substring(codeStart, end).toLowerCase(Locale.ROOT);
+        String currency = CURRENCY_BY_WORD.getOrDefault(matched, matched.toUpperCase(Locale.ROOT));
+        return new Match(MONEY, end, normalizeMoney(text, start, amountEnd, magnitudeEnd, currency));
+    }
+
+    private Match percentage(String text, int start, int limit) {
+        int digits = digits(text, start, limit);
+        if (digits == 0) {
+            return null;
+        }
+        int numberEnd = fractionEnd(text, start + digits, limit);
+        int end = numberEnd < limit && isSpace(text.charAt(numberEnd)) ? percentSignEnd(text, numberEnd + 1, limit) : -1;
+        if (end < 0) {
+            end = percentSignEnd(text, numberEnd, limit);
+        }
+        if (end < 0) {
+            return null;
+        }
+        return new Match(PERCENTAGE, end,
+                new BigDecimal(text.substring(start, numberEnd)).stripTrailingZeros().toPlainString());
+    }
+
+    private int percentSignEnd(String text, int pos, int limit) {
+        if (pos < limit && text.charAt(pos) == '%') {
+            return pos + 1;
+        }
+        for (String word : PERCENT_WORDS) {
+            if (startsWith(text, pos, limit, word) && !isWordChar(text, pos + word.length())) {
+                return pos + word.length();
+            }
+        }
+        return -1;
+    }
+
+    private Match date(String text, int start, int limit) {
+        int digits = digits(text, start, limit);
+        if (digits == 0) {
+            return monthFirstDate(text, start, limit);
+        }
+
+        // 2024-03-01
+        if (digits == 4 && charAt(text, start + 4, limit) == '-') {
+            int month = start + 5;
+            int monthDigits = digits(text, month, limit);
+            if ((monthDigits == 1 || monthDigits == 2) && charAt(text, month + monthDigits, limit) == '-') {
+                int day = month + monthDigits + 1;
+                int dayDigits = digits(text, day, limit);
+                if ((dayDigits == 1 || dayDigits == 2) && !isDigitAt(text, day + dayDigits)) {
+                    return new Match(DATE, day + dayDigits, isoDate(number(text, start, 4),
+                            number(text, month, monthDigits), number(text, day, dayDigits)));
+                }
+            }
+        }
+
+        // 03/01/2024, 31.12.2024
+        if ((digits == 1 || digits == 2) && isDateSeparator(charAt(text, start + digits, limit))) {
+            int second = start + digits + 1;
+            int secondDigits = digits(text, second, limit);
+            if ((secondDigits == 1 || secondDigits == 2) && isDateSeparator(charAt(text, second + secondDigits, limit))) {
+                int year = second + secondDigits + 1;
+                if (digits(text, year, limit) >= 4 && !isDigitAt(text, year + 4)) {
+                    int a = number(text, start, digits);
+                    int b = number(text, second, secondDigits);
+                    // Month-first unless the first component cannot be a month
+                    return new Match(DATE, year + 4, a > 12
+                            ? isoDate(number(text, year, 4), b, a)
+                            : isoDate(number(text, year, 4), a, b));
+                }
+            }
+        }
+
+        // 1st of March, 2024
+        if (digits == 1 || digits == 2) {
+            int pos = ordinalEnd(text, start + digits, limit);
+            int spaces = spaces(text, pos, limit);
+            if (spaces > 0) {
+                pos += spaces;
+                if (startsWith(text, pos, limit, "of") && spaces(text, pos + 2, limit) > 0) {
+                    pos += 2 + spaces(text, pos + 2, limit);
+                }
+                int month = monthIndex(text, pos, limit);
+                if (month >= 0) {
+                    pos = optional(text, pos + monthLength(text, pos, limit, month), limit, '.');
+                    pos = optional(text, pos, limit, ',');
+                    int yearStart = pos + spaces(text, pos, limit);
+                    if (yearStart > pos && digits(text, yearStart, limit) >= 4) {
+                        return new Match(DATE, yearStart + 4,
+                                isoDate(number(text, yearStart, 4), month + 1, number(text, start, digits)));
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    // March 1st, 2024
+    private Match monthFirstDate(String text, int start, int limit) {
+        int month = monthIndex(text, start, limit);
+        if (month < 0) {
+            return null;
+        }
+        int pos = optional(text, start + monthLength(text, start, limit, month), limit, '.');
+        int spaces = spaces(text, pos, limit);
+        if (spaces == 0) {
+            return null;
+        }
+        int day = pos + spaces;
+        int dayDigits = digits(text, day, limit);
+        if (dayDigits != 1 && dayDigits != 2) {
+            return null;
+        }
+        pos = optional(text, ordinalEnd(text, day + dayDigits, limit), limit, ',');
+        int yearStart = pos + spaces(text, pos, limit);
+        if (yearStart == pos || digits(text, yearStart, limit) < 4) {
+            return null;
+        }
+        return new Match(DATE, yearStart + 4,
+                isoDate(number(text, yearStart, 4), month + 1, number(text, day, dayDigits)));
+    }
+
+    private Match phone(String text, int start, int limit) {
+        if (text.charAt(start) != '+') {
+            int end = phoneNumberEnd(text, start, limit);
+            return end >= 0 ? new Match(PHONE, end, normalizePhone(text.substring(start, end))) : null;
+        }
+        // The country code may borrow digits from the area code, so try the longest first
+        int digits = digits(text, start + 1, limit);
+        for (int codeDigits = Math.min(digits, 3); codeDigits >= 1; codeDigits--) {
+            int pos = start + 1 + codeDigits;
+            int end = isPhoneSeparator(charAt(text, pos, limit)) ? phoneNumberEnd(text, pos + 1, limit) : -1;
+            if (end < 0) {
+                end = phoneNumberEnd(text, pos, limit);
+            }
+            if (end >= 0) {
+                return new Match(PHONE, end, normalizePhone(text.substring(start, end)));
+            }
+        }
+        return null;
+    }
+
+    private int phoneNumberEnd(String text, int pos, int limit) {
+        if (charAt(text, pos, limit) == '(') {
+            int digits = digits(text, pos + 1, limit);
+            if (digits < 2 || digits > 4 || charAt(text, pos + 1 + digits, limit) != ')') {
+                return -1;
+            }
+            pos += digits + 2;
+        } else {
+            int digits = digits(text, pos, limit);
+            if (digits < 2 || digits > 4) {
+                return -1;
+            }
+            pos += digits;
+        }
+        if (!isPhoneSeparator(charAt(text, pos, limit))) {
+            return -1;
+        }
+        int exchange = digits(text, pos + 1, limit);
+        if (exchange < 3 || exchange > 4) {
+            return -1;
+        }
+        pos += exchange + 1;
+        if (!isPhoneSeparator(charAt(text, pos, limit))) {
+            return -1;
+        }
+        int line = digits(text, pos + 1, limit);
+        if (line < 3 || line > 4 || isDigitAt(text, pos + 1 + line)) {
+            return -1;
+        }
+        return pos + 1 + line;
+    }
+
+    /**
+     * End of {@code 1,234,567.89} or {@code 1234.5} at {@code pos}, or -1. Grouping is only
+     * taken when the leading group has one to three digits and is followed by full groups.
+     */
+    private int amountEnd(String text, int pos, int limit) {
+        int digits = digits(text, pos, limit);
+        if (digits == 0) {
+            return -1;
+        }
+        int end = pos + digits;
+        if (digits <= 3) {
+            while (charAt(text, end, limit) == ',' && digits(text, end + 1, limit) >= 3) {
+                end += 4;
+            }
+        }
+        return fractionEnd(text, end, limit);
+    }
+
+    private int fractionEnd(String text, int pos, int limit) {
+        if (charAt(text, pos, limit) == '.') {
+            int digits = digits(text, pos + 1, limit);
+            if (digits > 0) {
+                return pos + 1 + digits;
+            }
+        }
+        return pos;
+    }
+
+    private int magnitudeEnd(String text, int pos, int limit) {
+        if (pos < limit && isSpace(text.charAt(pos))) {
+            int end = magnitudeWordEnd(text, pos + 1, limit);
+            if (end >= 0) {
+                return end;
+            }
+        }
+        int end = magnitudeWordEnd(text, pos, limit);
+        return end >= 0 ? end : pos;
+    }
+
+    private int magnitudeWordEnd(String text, int pos, int limit) {
+        String word = startsWithAny(text, pos, limit, MAGNITUDE_WORDS);
+        if (word != null) {
+            return pos + word.length();
+        }
+        if (pos < limit && "kmb".indexOf(fold(text.charAt(pos))) >= 0
+                && !(pos + 1 < text.length() && isLetter(text.charAt(pos + 1)))) {
+            return pos + 1;
+        }
+        return -1;
+    }
+
+    private String normalizeMoney(String text, int amountStart, int amountEnd, int magnitudeEnd, String currency) {
+        BigDecimal value = new BigDecimal(text.substring(amountStart, amountEnd).replace(",", ""));
+        value = value.multiply(magnitudeMultiplier(text.substring(amountEnd, magnitudeEnd)));
+        return value.stripTrailingZeros().toPlainString() + " " + currency;
+    }
+
+    private BigDecimal magnitudeMultiplier(String magnitude) {
+        if (magnitude.isBlank()) {
+            return BigDecimal.ONE;
+        }
+        return switch (magnitude.trim().toLowerCase(Locale.ROOT)) {
+            case "k", "thousand" -> BigDecimal.valueOf(1_000L);
+            case "m", "million" -> BigDecimal.valueOf(1_000_000L);
+            case "b", "billion" -> BigDecimal.valueOf(1_000_000_000L);
+            default -> BigDecimal.ONE;
+        };
+    }
+
+    private String isoDate(int year, int month, int day) {
+        try {
+            return LocalDate.of(year, month, day).toString();
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    private String normalizePhone(String phone) {
+        StringBuilder digits = new StringBuilder(phone.length());
+        if (phone.startsWith("+")) {
+            digits.append('+');
+        }
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        int digitCount = digits.length() - (phone.startsWith("+") ? 1 : 0);
+        return digitCount >= 7 && digitCount <= 15 ? digits.toString() : null;
+    }
+
+    /**
+     * Zero-based month at {@code pos}, or -1.
+     */
+    private int monthIndex(String text, int pos, int limit) {
+        for (int month = 0; month < MONTHS.length; month++) {
+            if (startsWithAny(text, pos, limit, MONTHS[month]) != null) {
+                return month;
+            }
+        }
+        return -1;
+    }
+
+    private int monthLength(String text, int pos, int limit, int month) {
+        return startsWithAny(text, pos, limit, MONTHS[month]).length();
+    }
+
+    private int ordinalEnd(String text, int pos, int limit) {
+        return startsWithAny(text, pos, limit, ORDINAL_SUFFIXES) != null ? pos + 2 : pos;
+    }
+
+    /**
+     * Cheap first-character filter so the recognizers only run where an entity can start.
+     */
+    private boolean isCandidateStart(String text, int i) {
+        char c = text.charAt(i);
+        if ((c >= '0' && c <= '9') || c == '+' || c == '(' || symbolCurrency(c) != null) {
+            return true;
+        }
+        if (!Character.isLetter(c)) {
+            return false;
+        }
+        if (i + 3 <= text.length() && isWordPrefix(text, i)) {
+            return true;
+        }
+        // Email local parts: look ahead for '@' within the current whitespace-delimited token
+        int limit = Math.min(text.length(), i + MAX_MATCH_LENGTH);
+        for (int j = i + 1; j < limit; j++) {
+            char next = text.charAt(j);
+            if (next == '@') {
+                return true;
+            }
+            if (Character.isWhitespace(next)) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isWordPrefix(String text, int i) {
+        if (isAsciiLetter(text.charAt(i)) && isAsciiLetter(text.charAt(i + 1)) && isAsciiLetter(text.charAt(i + 2))) {
+            // Ordinary words skip the substring; the set only holds ASCII prefixes
+            return startsWithAny(text, i, i + 3, MONTHS_AND_CODES) != null;
+        }
+        return WORD_PREFIXES.contains(text.substring(i, i + 3).toLowerCase(Locale.ROOT));
+    }
+
+    private boolean isTokenBoundary(String text, int start, int end) {
+        boolean leftOk = start == 0 || !Character.isLetterOrDigit(text.charAt(start - 1));
+        boolean rightOk = end == text.length() || !Character.isLetterOrDigit(text.charAt(end));
+        return leftOk && rightOk;
+    }
+
+    private static String symbolCurrency(char c) {
+        return switch (c) {
+            case '$' -> "USD";
+            case '€' -> "EUR";
+            case '£' -> "GBP";
+            case '¥' -> "JPY";
+            case '₹' -> "INR";
+            default -> null;
+        };
+    }
+
+    private static String startsWithAny(String text, int pos, int limit, String[] words) {
+        for (String word : words) {
+            if (startsWith(text, pos, limit, word)) {
+                return word;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Case-insensitive match of a lower-case word, folding the text the way
+     * {@code Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE} does.
+     */
+    private static boolean startsWith(String text, int pos, int limit, String word) {
+        if (pos + word.length() > limit) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (fold(text.charAt(pos + i)) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    private static int digits(String text, int pos, int limit) {
+        int end = pos;
+        while (end < limit && isDigit(text.charAt(end))) {
+            end++;
+        }
+        return end - pos;
+    }
+
+    private static int spaces(String text, int pos, int limit) {
+        int end = pos;
+        while (end < limit && isSpace(text.charAt(end))) {
+            end++;
+        }
+        return end - pos;
+    }
+
+    private static int number(String text, int pos, int digits) {
+        return Integer.parseInt(text, pos, pos + digits, 10);
+    }
+
+    private static int optional(String text, int pos, int limit, char c) {
+        return charAt(text, pos, limit) == c ? pos + 1 : pos;
+    }
+
+    // NUL never takes part in a grammar, so it stands in for "past the limit"
+    private static char charAt(String text, int pos, int limit) {
+        return pos < limit ? text.charAt(pos) : '\0';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isDigitAt(String text, int pos) {
+        return pos < text.length() && isDigit(text.charAt(pos));
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean isDateSeparator(char c) {
+        return c == '/' || c == '.';
+    }
+
+    private static boolean isPhoneSeparator(char c) {
+        return c == '.' || c == '-' || isSpace(c);
+    }
+
+    /**
+     * ASCII letter under Unicode case folding, so the Kelvin sign counts as 'k'.
+     */
+    private static boolean isLetter(char c) {
+        if (isAsciiLetter(c)) {
+            return true;
+        }
+        char upper = Character.toUpperCase(c);
+        return isAsciiLetter(upper) || isAsciiLetter(Character.toLowerCase(upper));
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isLocalPartChar(char c) {
+        return isLetter(c) || isDigit(c) || c == '.' || c == '_' || c == '%' || c == '+' || c == '-';
+    }
+
+    private static boolean isDomainChar(char c) {
+        return isLetter(c) || isDigit(c) || c == '.' || c == '-';
+    }
+
+    /**
+     * Whether {@code pos} continues a word, for the {@code \b} after currency words and "percent".
+     */
+    private static boolean isWordChar(String text, int pos) {
+        if (pos >= text.length()) {
+            return false;
+        }
+        int c = text.codePointAt(pos);
+        return c == '_' || Character.isLetterOrDigit(c) || Character.getType(c) == Character.NON_SPACING_MARK;
+    }
+}
@@ -0,0 +1,347 @@
+package com.docai.services.facets;
+
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory facet postings: every document gets a dense integer ordinal and every (field, value)
+ * pair a compressed Roaring bitmap of the ordinals carrying it. Filters are evaluated as bitmap
+ * AND/OR/ANDNOT and counts as intersection cardinalities (or, for narrow matches, by walking the
+ * matched documents' values), so neither touches Mongo. Ordinals of removed documents are not
+ * reused; a rebuild compacts them. Safe for concurrent use.
+ */
+public class FacetIndex {
+
+    // Up to this many matches, one walk over the matches' own values is cheaper than one bitmap
+    // intersection per facet value; above it the word-parallel intersections win
+    private static final int SCAN_MAX_MATCHES = 1 << 16;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final List<String> ids = new ArrayList<>();
+    // Value ids carried by each ordinal, so an update can clear exactly the old postings
+    private final List<int[]> documentValues = new ArrayList<>();
+    private final RoaringBitmap live = new RoaringBitmap();
+
+    private final Map<String, Map<String, Integer>> valueIds = new HashMap<>();
+    private final List<String> valueFields = new ArrayList<>();
+    private final List<RoaringBitmap> postings = new ArrayList<>();
+
+    /**
+     * A boolean filter over facet values.
+     */
+    public sealed interface Filter permits Term, And, Or, Not {
+    }
+
+    /**
+     * Documents with any of {@code values} in {@code field}.
+     */
+    public record Term(String field, List<String> values) implements Filter {
+    }
+
+    public record And(List<Filter> filters) implements Filter {
+    }
+
+    public record Or(List<Filter> filters) implements Filter {
+    }
+
+    public record Not(Filter filter) implements Filter {
+    }
+
+    public record FacetCount(String value, int count) {
+    }
+
+    /**
+     * Adds the document or replaces the values of the fields in {@code values}; its other fields keep theirs.
+     */
+    public void put(String id, Map<String, ? extends Collection<String>> values) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.get(id);
+            List<Integer> carried = new ArrayList<>();
+            if (ordinal == null) {
+                ordinal = ids.size();
+                ordinals.put(id, ordinal);
+                ids.add(id);
+                documentValues.add(null);
+            } else {
+                for (int valueId : documentValues.get(ordinal)) {
+                    if (values.containsKey(valueFields.get(valueId))) {
+                        postings.get(valueId).remove(ordinal);
+                    } else {
+                        carried.add(valueId);
+                    }
+                }
+            }
+
+            for (Map.Entry<String, ? extends Collection<String>> field : values.entrySet()) {
+                for (String value : field.getValue()) {
+                    if (value == null || value.isBlank()) {
+                        continue;
+                    }
+                    int valueId = valueId(field.getKey(), value);
+                    if (postings.get(valueId).checkedAdd(ordinal)) {
+                        carried.add(valueId);
+                    }
+                }
+            }
+            documentValues.set(ordinal, carried.stream().mapToInt(Integer::intValue).toArray());
+            live.add(ordinal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the values of the fields in {@code values} if the document is indexed.
+     */
+    public boolean update(String id, Map<String, ? extends Collection<String>> values) {
+        lock.writeLock().lock();
+        try {
+            if (!ordinals.containsKey(id)) {
+                return false;
+            }
+            put(id, values);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(String id) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.remove(id);
+            if (ordinal == null) {
+                return false;
+            }
+            for (int valueId : documentValues.get(ordinal)) {
+                postings.get(valueId).remove(ordinal);
+            }
+            documentValues.set(ordinal, null);
+            ids.set(ordinal, null);
+            live.remove(ordinal);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return live.getCardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ordinals of the given document ids; unknown ids are skipped.
+     */
+    public RoaringBitmap ordinalsOf(Collection<String> documentIds) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap result = new RoaringBitmap();
+            for (String id : documentIds) {
+                Integer ordinal = ordinals.get(id);
+                if (ordinal != null) {
+                    result.add(ordinal);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Optional<Integer> ordinalOf(String documentId) {
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(ordinals.get(documentId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The documents matching {@code filter}, or all documents when it is null.
+     */
+    public RoaringBitmap match(Filter filter) {
+        lock.readLock().lock();
+        try {
+            return filter == null ? live.clone() : evaluate(filter);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Per-field value counts within {@code within}, most frequent first, at most {@code limit} per field.
+     */
+    public Map<String, List<FacetCount>> counts(RoaringBitmap within, Collection<String> fields, int limit) {
+        lock.readLock().lock();
+        try {
+            return countValues(fields, within, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Value counts of one field within {@code within}.
+     */
+    public List<FacetCount> fieldCounts(String field, RoaringBitmap within, int limit) {
+        lock.readLock().lock();
+        try {
+            return countValues(List.of(field), within, limit).get(field);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Document ids of a page of {@code matches}, highest (most recently indexed) ordinal first.
+     */
+    public List<String> page(RoaringBitmap matches, int offset, int size) {
+        lock.readLock().lock();
+        try {
+            List<String> page = new ArrayList<>(size);
+            IntIterator iterator = matches.getReverseIntIterator();
+            int skipped = 0;
+            while (iterator.hasNext() && page.size() < size) {
+                int ordinal = iterator.next();
+                if (skipped++ < offset) {
+                    continue;
+                }
+                String id = ordinal < ids.size() ? ids.get(ordinal) : null;
+                if (id != null) {
+                    page.add(id);
+                }
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Bytes held by the postings, for monitoring.
+     */
+    public long postingsBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = live.getLongSizeInBytes();
+            for (RoaringBitmap bitmap : postings) {
+                bytes += bitmap.getLongSizeInBytes();
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int valueCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Compresses runs (e.g. a value held by a contiguous block of documents) after a bulk load.
+     */
+    public void optimize() {
+        lock.writeLock().lock();
+        try {
+            postings.forEach(RoaringBitmap::runOptimize);
+            live.runOptimize();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private RoaringBitmap evaluate(Filter filter) {
+        if (filter instanceof Term term) {
+            Map<String, Integer> values = valueIds.getOrDefault(term.field(), Map.of());
+            List<RoaringBitmap> matching = new ArrayList<>();
+            for (String value : term.values()) {
+                Integer valueId = values.get(value);
+                if (valueId != null) {
+                    matching.add(postings.get(valueId));
+                }
+            }
+            return matching.isEmpty() ? new RoaringBitmap() : FastAggregation.or(matching.iterator());
+        }
+        if (filter instanceof And and) {
+            if (and.filters().isEmpty()) {
+                return live.clone();
+            }
+            RoaringBitmap[] parts = and.filters().stream().map(this::evaluate).toArray(RoaringBitmap[]::new);
+            // Smallest first keeps the intermediate results small
+            Arrays.sort(parts, Comparator.comparingInt(RoaringBitmap::getCardinality));
+            return FastAggregation.and(parts);
+        }
+        if (filter instanceof Or or) {
+            return FastAggregation.or(or.filters().stream().map(this::evaluate).toArray(RoaringBitmap[]::new));
+        }
+        Not not = (Not) filter;
+        return RoaringBitmap.andNot(live, evaluate(not.filter()));
+    }
+
+    private Map<String, List<FacetCount>> countValues(Collection<String> fields, RoaringBitmap within, int limit) {
+        int[] scanned = null;
+        if (within.getLongCardinality() <= SCAN_MAX_MATCHES) {
+            scanned = new int[postings.size()];
+            IntIterator iterator = within.getIntIterator();
+            while (iterator.hasNext()) {
+                int ordinal = iterator.next();
+                int[] carried = ordinal < documentValues.size() ? documentValues.get(ordinal) : null;
+                if (carried != null) {
+                    for (int valueId : carried) {
+                        scanned[valueId]++;
+                    }
+                }
+            }
+        }
+
+        Map<String, List<FacetCount>> result = new LinkedHashMap<>();
+        for (String field : fields) {
+            List<FacetCount> counts = new ArrayList<>();
+            for (Map.Entry<String, Integer> value : valueIds.getOrDefault(field, Map.of()).entrySet()) {
+                int valueId = value.getValue();
+                int count = scanned != null ? scanned[valueId] : RoaringBitmap.andCardinality(postings.get(valueId), within);
+                if (count > 0) {
+                    counts.add(new FacetCount(value.getKey(), count));
+                }
+            }
+            counts.sort(Comparator.comparingInt(FacetCount::count).reversed().thenComparing(FacetCount::value));
+            result.put(field, counts.size() > limit ? new ArrayList<>(counts.subList(0, limit)) : counts);
+        }
+        return result;
+    }
+
+    private int valueId(String field, String value) {
+        return valueIds.computeIfAbsent(field, key -> new HashMap<>()).computeIfAbsent(value, key -> {
+            valueFields.add(field);
+            postings.add(new RoaringBitmap());
+            return postings.size() - 1;
+        });
+    }
+}
@@ -0,0 +1,449 @@
+package com.docai.services.facets;
+
+import com.docai.config.MongoReadRouting;
+import com.docai.models.Document;
+import com.docai.models.DocumentAnalysis;
+import com.docai.models.Entity;
+import com.docai.repositories.DocumentRepository;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Faceted navigation over documents backed by a {@link FacetIndex}. The index is loaded from a
+ * projected cursor on startup, updated in place when this instance saves or deletes a document,
+ * refreshed from {@code updated_at} for writes made by other instances, and rebuilt periodically
+ * to drop documents deleted elsewhere and compact ordinals. Entity types come from the document's
+ * current analyses. Keyword queries are answered by the {@code extracted_text} text index and
+ * intersected with the facet filter.
+ */
+@Service
+public class FacetSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FacetSearchService.class);
+
+    public static final String CLASSIFICATION = "classification";
+    public static final String CONTENT_TYPE = "contentType";
+    public static final String LANGUAGE = "language";
+    public static final String TAGS = "tags";
+    public static final String UPLOADED_BY = "uploadedBy";
+    public static final String PROCESSING_STATUS = "processingStatus";
+    public static final String ENTITY_TYPE = "entityType";
+
+    public static final List<String> FIELDS = List.of(CLASSIFICATION, CONTENT_TYPE, LANGUAGE, TAGS, UPLOADED_BY,
+            PROCESSING_STATUS, ENTITY_TYPE);
+
+    // Writes landing just before a refresh started may not be visible to it yet
+    private static final long CLOCK_SKEW_SECONDS = 5;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MongoReadRouting readRouting;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Value("${document.facets.enabled:true}")
+    private boolean enabled;
+
+    @Value("${document.facets.limit:20}")
+    private int facetLimit;
+
+    @Value("${document.facets.max-keyword-matches:10000}")
+    private int maxKeywordMatches;
+
+    private volatile FacetIndex index = new FacetIndex();
+    private volatile boolean ready;
+    private volatile LocalDateTime watermark = LocalDateTime.MIN;
+    private volatile Long lastBuildMillis;
+    private final AtomicBoolean building = new AtomicBoolean();
+    // Writes made on this instance while a rebuild is loading, replayed onto the new index
+    private final List<Consumer<FacetIndex>> pendingDuringBuild = new ArrayList<>();
+
+    /**
+     * A facet search: documents matching {@code filter} (and {@code query}, when given), one page of
+     * them and the value counts of every facet.
+     */
+    public record FacetResult(List<Document> documents, long total, Map<String, List<FacetIndex.FacetCount>> facets,
+                              boolean truncated, long tookMicros) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    /**
+     * Indexes the document's current facet values.
+     */
+    public void onDocumentSaved(Document document) {
+        if (enabled && document.getId() != null) {
+            Map<String, List<String>> values = facetValues(document);
+            apply(current -> current.put(document.getId(), values));
+        }
+    }
+
+    public void onDocumentDeleted(String documentId) {
+        if (enabled) {
+            apply(current -> current.remove(documentId));
+        }
+    }
+
+    /**
+     * Re-reads the entity types of the analysed document.
+     */
+    public void onAnalysisSaved(DocumentAnalysis analysis) {
+        if (enabled && analysis.getDocumentId() != null) {
+            List<String> types = new ArrayList<>(entityTypes(List.of(analysis.getDocumentId()))
+                    .getOrDefault(analysis.getDocumentId(), Set.of()));
+            apply(current -> current.update(analysis.getDocumentId(), Map.of(ENTITY_TYPE, types)));
+        }
+    }
+
+    /**
+     * Runs a facet search. When {@code filter} is a plain field map, each field's counts ignore that
+     * field's own selection, so every facet still shows the alternatives to what is selected.
+     */
+    public FacetResult search(String query, Map<String, List<String>> fieldFilters, FacetIndex.Filter filter,
+                              int page, int size) {
+        if (!isReady()) {
+            throw new IllegalStateException("Facet index is not loaded yet");
+        }
+        long startNanos = System.nanoTime();
+        FacetIndex current = index;
+
+        List<String> keywordIds = null;
+        RoaringBitmap keywordMatches = null;
+        boolean truncated = false;
+        if (query != null && !query.isBlank()) {
+            keywordIds = keywordMatches(query);
+            truncated = keywordIds.size() >= maxKeywordMatches;
+            keywordMatches = current.ordinalsOf(keywordIds);
+        }
+
+        FacetIndex.Filter effective = filter != null ? filter : fieldFilter(fieldFilters, null);
+        RoaringBitmap matches = current.match(effective);
+        if (keywordMatches != null) {
+            matches.and(keywordMatches);
+        }
+
+        List<String> selected = filter == null ? FIELDS.stream().filter(fieldFilters::containsKey).toList() : List.of();
+        Map<String, List<FacetIndex.FacetCount>> counted = current.counts(matches,
+                FIELDS.stream().filter(field -> !selected.contains(field)).toList(), facetLimit);
+        for (String field : selected) {
+            RoaringBitmap others = current.match(fieldFilter(fieldFilters, field));
+            if (keywordMatches != null) {
+                others.and(keywordMatches);
+            }
+            counted.put(field, current.fieldCounts(field, others, facetLimit));
+        }
+        Map<String, List<FacetIndex.FacetCount>> facets = new LinkedHashMap<>();
+        FIELDS.forEach(field -> facets.put(field, counted.get(field)));
+
+        List<String> pageIds;
+        if (keywordIds != null) {
+            // Keyword results keep their text relevance order
+            pageIds = new ArrayList<>(size);
+            int skipped = 0;
+            for (String id : keywordIds) {
+                Optional<Integer> ordinal = current.ordinalOf(id);
+                if (ordinal.isEmpty() || !matches.contains(ordinal.get())) {
+                    continue;
+                }
+                if (skipped++ < page * size) {
+                    continue;
+                }
+                pageIds.add(id);
+                if (pageIds.size() == size) {
+                    break;
+                }
+            }
+        } else {
+            pageIds = current.page(matches, page * size, size);
+        }
+        long tookMicros = (System.nanoTime() - startNanos) / 1000;
+
+        Map<String, Document> loaded = new HashMap<>();
+        documentRepository.findAllById(pageIds).forEach(document -> loaded.put(document.getId(), document));
+        List<Document> documents = pageIds.stream().map(loaded::get).filter(document -> document != null).toList();
+        return new FacetResult(documents, matches.getLongCardinality(), facets, truncated, tookMicros);
+    }
+
+    /**
+     * Value counts over all documents, for dashboards.
+     */
+    public Map<String, List<FacetIndex.FacetCount>> counts() {
+        if (!isReady()) {
+            throw new IllegalStateException("Facet index is not loaded yet");
+        }
+        FacetIndex current = index;
+        return current.counts(current.match(null), FIELDS, facetLimit);
+    }
+
+    /**
+     * Parses a filter expression: {@code {"and": [...]}}, {@code {"or": [...]}}, {@code {"not": {...}}}
+     * or a field map such as {@code {"classification": ["CONTRACT"], "tags": "urgent"}}, whose fields
+     * are ANDed and whose values within a field are ORed.
+     */
+    public FacetIndex.Filter parseFilter(Object node) {
+        if (!(node instanceof Map<?, ?> map)) {
+            throw new IllegalArgumentException("Filter must be an object");
+        }
+        if (map.size() == 1 && map.containsKey("and")) {
+            return new FacetIndex.And(parseFilters(map.get("and")));
+        }
+        if (map.size() == 1 && map.containsKey("or")) {
+            return new FacetIndex.Or(parseFilters(map.get("or")));
+        }
+        if (map.size() == 1 && map.containsKey("not")) {
+            return new FacetIndex.Not(parseFilter(map.get("not")));
+        }
+        return fieldFilter(parseFieldFilters(map), null);
+    }
+
+    /**
+     * A field map's selections, or null when {@code node} is a boolean expression.
+     */
+    public Map<String, List<String>> parseFieldFilters(Object node) {
+        if (node == null) {
+            return Map.of();
+        }
+        if (!(node instanceof Map<?, ?> map)) {
+            throw new IllegalArgumentException("Filter must be an object");
+        }
+        if (map.containsKey("and") || map.containsKey("or") || map.containsKey("not")) {
+            return null;
+        }
+        Map<String, List<String>> filters = new LinkedHashMap<>();
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            String field = String.valueOf(entry.getKey());
+            if (!FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Unknown facet: " + field + " (facets: " + FIELDS + ")");
+            }
+            List<String> values = entry.getValue() instanceof Collection<?> collection
+                    ? collection.stream().map(String::valueOf).toList()
+                    : entry.getValue() == null ? List.of() : List.of(String.valueOf(entry.getValue()));
+            if (!values.isEmpty()) {
+                filters.put(field, values.stream().map(value -> normalizeValue(field, value)).toList());
+            }
+        }
+        return filters;
+    }
+
+    public Map<String, Object> getStatus() {
+        FacetIndex current = index;
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("ready", ready);
+        status.put("documents", current.size());
+        status.put("values", current.valueCount());
+        status.put("postingsBytes", current.postingsBytes());
+        status.put("watermark", watermark.equals(LocalDateTime.MIN) ? null : watermark.toString());
+        status.put("lastBuildMillis", lastBuildMillis);
+        return status;
+    }
+
+    /**
+     * Reloads every document's facet values into a new index and swaps it in.
+     */
+    @Scheduled(fixedDelayString = "${document.facets.rebuild-interval:3600000}",
+            initialDelayString = "${document.facets.rebuild-interval:3600000}")
+    public void rebuild() {
+        if (!enabled || !building.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long startTime = System.currentTimeMillis();
+            LocalDateTime buildWatermark = LocalDateTime.now();
+            FacetIndex built = new FacetIndex();
+            Query query = facetProjection(new Query()).with(Sort.by(Sort.Direction.ASC, "_id"));
+            try (Stream<Document> documents = mongoTemplate.stream(query, Document.class)) {
+                documents.forEach(document -> built.put(document.getId(), facetValues(document)));
+            }
+            entityTypes(null).forEach((id, types) -> built.update(id, Map.of(ENTITY_TYPE, new ArrayList<>(types))));
+            built.optimize();
+
+            synchronized (pendingDuringBuild) {
+                pendingDuringBuild.forEach(write -> write.accept(built));
+                pendingDuringBuild.clear();
+                index = built;
+                building.set(false);
+            }
+            watermark = buildWatermark;
+            ready = true;
+            lastBuildMillis = System.currentTimeMillis() - startTime;
+            logger.info("Facet index built: {} documents, {} values, {} KB of postings in {} ms", built.size(),
+                    built.valueCount(), built.postingsBytes() / 1024, lastBuildMillis);
+        } catch (Exception e) {
+            logger.error("Error building facet index", e);
+        } finally {
+            synchronized (pendingDuringBuild) {
+                pendingDuringBuild.clear();
+                building.set(false);
+            }
+        }
+    }
+
+    /**
+     * Applies documents saved by any instance since the last refresh.
+     */
+    @Scheduled(fixedDelayString = "${document.facets.refresh-interval:10000}",
+            initialDelayString = "${document.facets.refresh-interval:10000}")
+    public void refresh() {
+        if (!enabled || !ready || building.get()) {
+            return;
+        }
+        int pageSize = 500;
+        FacetIndex current = index;
+        LocalDateTime since = watermark.minusSeconds(CLOCK_SKEW_SECONDS);
+        while (true) {
+            Query query = facetProjection(new Query(Criteria.where("updatedAt")
+                    .gt(watermark.minusSeconds(CLOCK_SKEW_SECONDS))))
+                    .with(Sort.by(Sort.Direction.ASC, "updatedAt"))
+                    .limit(pageSize);
+            List<Document> page = mongoTemplate.find(query, Document.class);
+            LocalDateTime previous = watermark;
+            for (Document document : page) {
+                current.put(document.getId(), facetValues(document));
+                if (document.getUpdatedAt() != null && document.getUpdatedAt().isAfter(watermark)) {
+                    watermark = document.getUpdatedAt();
+                }
+            }
+            if (page.size() < pageSize || !watermark.isAfter(previous)) {
+                break;
+            }
+        }
+
+        Query analyses = new Query(Criteria.where("updatedAt").gt(since));
+        analyses.fields().include("documentId");
+        Set<String> analysed = new HashSet<>();
+        try (Stream<DocumentAnalysis> changed = mongoTemplate.stream(analyses, DocumentAnalysis.class)) {
+            changed.forEach(analysis -> analysed.add(analysis.getDocumentId()));
+        }
+        if (!analysed.isEmpty()) {
+            Map<String, Set<String>> types = entityTypes(analysed);
+            for (String id : analysed) {
+                current.update(id, Map.of(ENTITY_TYPE, new ArrayList<>(types.getOrDefault(id, Set.of()))));
+            }
+        }
+    }
+
+    static Map<String, List<String>> facetValues(Document document) {
+        Map<String, List<String>> values = new HashMap<>();
+        values.put(CLASSIFICATION, single(document.getClassification()));
+        values.put(CONTENT_TYPE, single(document.getContentType()));
+        values.put(LANGUAGE, single(document.getLanguage()));
+        values.put(TAGS, document.getTags() != null ? document.getTags() : List.of());
+        values.put(UPLOADED_BY, single(document.getUploadedBy()));
+        values.put(PROCESSING_STATUS, single(document.getProcessingStatus()));
+        return values;
+    }
+
+    /**
+     * Entity types found by the current analyses of {@code documentIds}, or of every document when null.
+     */
+    private Map<String, Set<String>> entityTypes(Collection<String> documentIds) {
+        Query query = documentIds == null ? new Query() : new Query(Criteria.where("documentId").in(documentIds));
+        query.fields().include("documentId", "entities.type");
+        Map<String, Set<String>> types = new HashMap<>();
+        try (Stream<DocumentAnalysis> analyses = mongoTemplate.stream(query, DocumentAnalysis.class)) {
+            analyses.forEach(analysis -> {
+                if (analysis.getEntities() == null) {
+                    return;
+                }
+                Set<String> documentTypes = types.computeIfAbsent(analysis.getDocumentId(), id -> new LinkedHashSet<>());
+                for (Entity entity : analysis.getEntities()) {
+                    if (entity.getType() != null) {
+                        documentTypes.add(entity.getType().toUpperCase(Locale.ROOT));
+                    }
+                }
+            });
+        }
+        return types;
+    }
+
+    private void apply(Consumer<FacetIndex> write) {
+        synchronized (pendingDuringBuild) {
+            if (building.get()) {
+                pendingDuringBuild.add(write);
+            }
+        }
+        write.accept(index);
+    }
+
+    private List<String> keywordMatches(String query) {
+        TextQuery textQuery = TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(query)).sortByScore();
+        textQuery.fields().include("_id");
+        textQuery.limit(maxKeywordMatches);
+        return mongoTemplate.find(readRouting.analytics(textQuery), Document.class).stream().map(Document::getId).toList();
+    }
+
+    /**
+     * The field map as an AND of per-field ORs, leaving out {@code skipField}.
+     */
+    private static FacetIndex.Filter fieldFilter(Map<String, List<String>> fieldFilters, String skipField) {
+        List<FacetIndex.Filter> terms = fieldFilters.entrySet().stream()
+                .filter(entry -> !entry.getKey().equals(skipField))
+                .map(entry -> (FacetIndex.Filter) new FacetIndex.Term(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+        return terms.isEmpty() ? null : new FacetIndex.And(terms);
+    }
+
+    private List<FacetIndex.Filter> parseFilters(Object node) {
+        if (!(node instanceof Collection<?> collection)) {
+            throw new IllegalArgumentException("and/or take a list of filters");
+        }
+        return collection.stream().map(this::parseFilter).toList();
+    }
+
+    private static String normalizeValue(String field, String value) {
+        return ENTITY_TYPE.equals(field) ? value.toUpperCase(Locale.ROOT) : value;
+    }
+
+    private static Query facetProjection(Query query) {
+        query.fields().include("classification", "contentType", "language", "tags", "uploadedBy",
+                "processingStatus", "updatedAt");
+        return query;
+    }
+
+    private static List<String> single(String value) {
+        return value != null ? List.of(value) : List.of();
+    }
+}
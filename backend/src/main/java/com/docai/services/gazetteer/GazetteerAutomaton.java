@@ -0,0 +1,291 @@
+package com.docai.services.gazetteer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable Aho-Corasick automaton over dictionary names, stored entirely in primitive arrays.
+ * Transitions use a CSR layout (per-node slice of sorted edge labels), so a 200k-name dictionary
+ * costs a few flat arrays instead of millions of small objects. Matching is case-insensitive,
+ * respects word boundaries and runs in time linear in the text plus the number of matches.
+ */
+public final class GazetteerAutomaton {
+
+    private static final int NONE = -1;
+
+    private final int[] edgeStart;
+    private final char[] edgeLabel;
+    private final int[] edgeTarget;
+    private final int[] fail;
+    private final int[] output;
+    private final int[] outputLink;
+
+    private final int[] patternLength;
+    private final GazetteerEntry[] entries;
+
+    private GazetteerAutomaton(int[] edgeStart, char[] edgeLabel, int[] edgeTarget, int[] fail,
+                               int[] output, int[] outputLink, int[] patternLength, GazetteerEntry[] entries) {
+        this.edgeStart = edgeStart;
+        this.edgeLabel = edgeLabel;
+        this.edgeTarget = edgeTarget;
+        this.fail = fail;
+        this.output = output;
+        this.outputLink = outputLink;
+        this.patternLength = patternLength;
+        this.entries = entries;
+    }
+
+    public static GazetteerAutomaton empty() {
+        return build(List.of());
+    }
+
+    public static GazetteerAutomaton build(List<GazetteerEntry> dictionary) {
+        Builder builder = new Builder(Math.max(16, dictionary.size() * 8));
+        List<GazetteerEntry> accepted = new ArrayList<>(dictionary.size());
+        List<Integer> lengths = new ArrayList<>(dictionary.size());
+
+        for (GazetteerEntry entry : dictionary) {
+            String key = normalizeKey(entry.name());
+            if (key.isEmpty()) {
+                continue;
+            }
+            if (builder.insert(key, accepted.size())) {
+                accepted.add(entry);
+                lengths.add(key.length());
+            }
+        }
+
+        int[] patternLength = lengths.stream().mapToInt(Integer::intValue).toArray();
+        return builder.compile(patternLength, accepted.toArray(new GazetteerEntry[0]));
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    public int nodeCount() {
+        return fail.length;
+    }
+
+    public List<Match> match(CharSequence text) {
+        List<Match> candidates = new ArrayList<>();
+        int state = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = normalize(text.charAt(i));
+            while (true) {
+                int next = child(state, c);
+                if (next != NONE) {
+                    state = next;
+                    break;
+                }
+                if (state == 0) {
+                    break;
+                }
+                state = fail[state];
+            }
+
+            int node = output[state] != NONE ? state : outputLink[state];
+            while (node != NONE) {
+                int patternId = output[node];
+                int end = i + 1;
+                int start = end - patternLength[patternId];
+                if (isWordBoundary(text, start, end)) {
+                    candidates.add(new Match(start, end, entries[patternId]));
+                }
+                node = outputLink[node];
+            }
+        }
+
+        return selectLeftmostLongest(candidates);
+    }
+
+    private int child(int node, char c) {
+        int lo = edgeStart[node];
+        int hi = edgeStart[node + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            char label = edgeLabel[mid];
+            if (label < c) {
+                lo = mid + 1;
+            } else if (label > c) {
+                hi = mid - 1;
+            } else {
+                return edgeTarget[mid];
+            }
+        }
+        return NONE;
+    }
+
+    private static List<Match> selectLeftmostLongest(List<Match> candidates) {
+        if (candidates.size() < 2) {
+            return candidates;
+        }
+        candidates.sort((a, b) -> a.start() != b.start() ? Integer.compare(a.start(), b.start())
+                : Integer.compare(b.end(), a.end()));
+
+        List<Match> selected = new ArrayList<>();
+        int lastEnd = -1;
+        for (Match candidate : candidates) {
+            if (candidate.start() >= lastEnd) {
+                selected.add(candidate);
+                lastEnd = candidate.end();
+            }
+        }
+        return selected;
+    }
+
+    private static boolean isWordBoundary(CharSequence text, int start, int end) {
+        boolean leftOk = start == 0 || !Character.isLetterOrDigit(text.charAt(start - 1));
+        boolean rightOk = end == text.length() || !Character.isLetterOrDigit(text.charAt(end));
+        return leftOk && rightOk;
+    }
+
+    // Length-preserving so that match offsets point straight into the original text
+    private static char normalize(char c) {
+        return Character.isWhitespace(c) ? ' ' : Character.toLowerCase(c);
+    }
+
+    private static String normalizeKey(String name) {
+        if (name == null) {
+            return "";
+        }
+        String trimmed = name.trim().replaceAll("\\s+", " ");
+        StringBuilder key = new StringBuilder(trimmed.length());
+        for (int i = 0; i < trimmed.length(); i++) {
+            key.append(normalize(trimmed.charAt(i)));
+        }
+        return key.toString();
+    }
+
+    public record Match(int start, int end, GazetteerEntry entry) {
+    }
+
+    /**
+     * Trie construction with first-child/next-sibling links, compiled into the CSR form above.
+     */
+    private static final class Builder {
+        private int[] firstChild;
+        private int[] nextSibling;
+        private char[] label;
+        private int[] output;
+        private int nodeCount = 1;
+
+        Builder(int capacity) {
+            firstChild = new int[capacity];
+            nextSibling = new int[capacity];
+            label = new char[capacity];
+            output = new int[capacity];
+            Arrays.fill(firstChild, NONE);
+            Arrays.fill(output, NONE);
+            nextSibling[0] = NONE;
+        }
+
+        boolean insert(String key, int patternId) {
+            int node = 0;
+            for (int i = 0; i < key.length(); i++) {
+                char c = key.charAt(i);
+                int child = firstChild[node];
+                while (child != NONE && label[child] != c) {
+                    child = nextSibling[child];
+                }
+                if (child == NONE) {
+                    child = newNode(c);
+                    nextSibling[child] = firstChild[node];
+                    firstChild[node] = child;
+                }
+                node = child;
+            }
+            if (output[node] != NONE) {
+                // Duplicate name: the first canonical record wins
+                return false;
+            }
+            output[node] = patternId;
+            return true;
+        }
+
+        private int newNode(char c) {
+            if (nodeCount == label.length) {
+                int capacity = label.length * 2;
+                firstChild = Arrays.copyOf(firstChild, capacity);
+                nextSibling = Arrays.copyOf(nextSibling, capacity);
+                label = Arrays.copyOf(label, capacity);
+                output = Arrays.copyOf(output, capacity);
+                Arrays.fill(firstChild, nodeCount, capacity, NONE);
+                Arrays.fill(output, nodeCount, capacity, NONE);
+            }
+            int node = nodeCount++;
+            label[node] = c;
+            return node;
+        }
+
+        GazetteerAutomaton compile(int[] patternLength, GazetteerEntry[] entries) {
+            int[] edgeStart = new int[nodeCount + 1];
+            for (int node = 0; node < nodeCount; node++) {
+                int count = 0;
+                for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+                    count++;
+                }
+                edgeStart[node + 1] = edgeStart[node] + count;
+            }
+
+            char[] edgeLabel = new char[nodeCount - 1];
+            int[] edgeTarget = new int[nodeCount - 1];
+            for (int node = 0; node < nodeCount; node++) {
+                int pos = edgeStart[node];
+                for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+                    // Insertion sort by label; sibling lists are short
+                    int j = pos++;
+                    while (j > edgeStart[node] && edgeLabel[j - 1] > label[child]) {
+                        edgeLabel[j] = edgeLabel[j - 1];
+                        edgeTarget[j] = edgeTarget[j - 1];
+                        j--;
+                    }
+                    edgeLabel[j] = label[child];
+                    edgeTarget[j] = child;
+                }
+            }
+
+            int[] nodeOutput = Arrays.copyOf(output, nodeCount);
+            int[] fail = new int[nodeCount];
+            int[] outputLink = new int[nodeCount];
+            outputLink[0] = NONE;
+
+            GazetteerAutomaton automaton = new GazetteerAutomaton(edgeStart, edgeLabel, edgeTarget, fail,
+                    nodeOutput, outputLink, patternLength, entries);
+
+            // Breadth-first so every failure target is resolved before its dependants
+            int[] queue = new int[nodeCount];
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = 0;
+            while (head < tail) {
+                int node = queue[head++];
+                for (int e = edgeStart[node]; e < edgeStart[node + 1]; e++) {
+                    int child = edgeTarget[e];
+                    char c = edgeLabel[e];
+                    int target = 0;
+                    if (node != 0) {
+                        int f = fail[node];
+                        while (true) {
+                            int next = automaton.child(f, c);
+                            if (next != NONE) {
+                                target = next;
+                                break;
+                            }
+                            if (f == 0) {
+                                break;
+                            }
+                            f = fail[f];
+                        }
+                    }
+                    fail[child] = target;
+                    outputLink[child] = nodeOutput[target] != NONE ? target : outputLink[target];
+                    queue[tail++] = child;
+                }
+            }
+            return automaton;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.docai.services.gazetteer;
+
+/**
+ * A single dictionary name together with the canonical record it resolves to.
+ */
+public record GazetteerEntry(String canonicalId, String name, String type, String category, String subcategory) {
+}
@@ -0,0 +1,207 @@
+package com.docai.services.gazetteer;
+
+import com.docai.models.Entity;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Tags dictionary names (vendors, contract parties, customers) in extracted text.
+ * Dictionaries are TSV/CSV files with columns {@code canonical_id, name[, type, category, subcategory]};
+ * the category defaults to the file name. Reloads build a new automaton off to the side and swap it in,
+ * so readers never wait on a rebuild.
+ */
+@Service
+public class GazetteerService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GazetteerService.class);
+
+    private static final String DEFAULT_TYPE = "ORGANIZATION";
+    private static final double CONFIDENCE = 0.97;
+
+    @Value("${document.gazetteer.path:}")
+    private String dictionaryPath;
+
+    private volatile Snapshot current = new Snapshot(GazetteerAutomaton.empty(), "", Instant.EPOCH);
+
+    private final Object reloadLock = new Object();
+
+    @PostConstruct
+    public void initialize() {
+        reload();
+    }
+
+    public List<Entity> match(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+
+        List<Entity> entities = new ArrayList<>();
+        for (GazetteerAutomaton.Match match : current.automaton().match(text)) {
+            GazetteerEntry entry = match.entry();
+            Entity entity = new Entity(entry.type(), text.substring(match.start(), match.end()), CONFIDENCE,
+                    match.start(), match.end());
+            entity.setCategory(entry.category());
+            entity.setSubcategory(entry.subcategory());
+            entity.setNormalizedValue(entry.canonicalId());
+            entity.setMetadata(Map.of("source", "gazetteer"));
+            entities.add(entity);
+        }
+        return entities;
+    }
+
+    @Scheduled(fixedDelayString = "${document.gazetteer.reload-interval:60000}")
+    public void reloadIfChanged() {
+        if (!fingerprint().equals(current.fingerprint())) {
+            reload();
+        }
+    }
+
+    public Map<String, Object> reload() {
+        synchronized (reloadLock) {
+            String fingerprint = fingerprint();
+            long startTime = System.currentTimeMillis();
+
+            try {
+                List<GazetteerEntry> entries = loadDictionaries();
+                GazetteerAutomaton automaton = GazetteerAutomaton.build(entries);
+                current = new Snapshot(automaton, fingerprint, Instant.now());
+                logger.info("Gazetteer loaded: {} names, {} nodes in {} ms",
+                        automaton.size(), automaton.nodeCount(), System.currentTimeMillis() - startTime);
+            } catch (IOException e) {
+                // Keep serving the previous automaton
+                logger.error("Error loading gazetteer dictionaries from: {}", dictionaryPath, e);
+            }
+            return getStatus();
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        Snapshot snapshot = current;
+        Map<String, Object> status = new HashMap<>();
+        status.put("path", dictionaryPath);
+        status.put("names", snapshot.automaton().size());
+        status.put("nodes", snapshot.automaton().nodeCount());
+        status.put("loadedAt", snapshot.loadedAt().toString());
+        return status;
+    }
+
+    private List<GazetteerEntry> loadDictionaries() throws IOException {
+        List<GazetteerEntry> entries = new ArrayList<>();
+        for (Path file : dictionaryFiles()) {
+            String defaultCategory = baseName(file);
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                boolean csv = file.getFileName().toString().endsWith(".csv");
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank() || line.startsWith("#")) {
+                        continue;
+                    }
+                    List<String> columns = csv ? splitCsv(line) : List.of(line.split("\t", -1));
+                    if (columns.size() < 2 || "canonical_id".equalsIgnoreCase(columns.get(0).trim())) {
+                        continue;
+                    }
+                    entries.add(new GazetteerEntry(
+                            columns.get(0).trim(),
+                            columns.get(1).trim(),
+                            column(columns, 2, DEFAULT_TYPE).toUpperCase(),
+                            column(columns, 3, defaultCategory),
+                            column(columns, 4, null)));
+                }
+            }
+        }
+        return entries;
+    }
+
+    private List<Path> dictionaryFiles() throws IOException {
+        if (dictionaryPath == null || dictionaryPath.isBlank()) {
+            return List.of();
+        }
+        Path dir = Paths.get(dictionaryPath);
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files
+                    .filter(Files::isRegularFile)
+                    .filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.endsWith(".tsv") || name.endsWith(".csv");
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private String fingerprint() {
+        try {
+            StringBuilder fingerprint = new StringBuilder();
+            for (Path file : dictionaryFiles()) {
+                fingerprint.append(file.getFileName())
+                        .append(':').append(Files.size(file))
+                        .append(':').append(Files.getLastModifiedTime(file).toMillis())
+                        .append(';');
+            }
+            return fingerprint.toString();
+        } catch (IOException e) {
+            logger.warn("Unable to read gazetteer directory: {}", dictionaryPath);
+            return current.fingerprint();
+        }
+    }
+
+    private static String column(List<String> columns, int index, String defaultValue) {
+        if (index >= columns.size() || columns.get(index).isBlank()) {
+            return defaultValue;
+        }
+        return columns.get(index).trim();
+    }
+
+    private static String baseName(Path file) {
+        String name = file.getFileName().toString();
+        int lastDot = name.lastIndexOf('.');
+        return lastDot > 0 ? name.substring(0, lastDot) : name;
+    }
+
+    private static List<String> splitCsv(String line) {
+        List<String> columns = new ArrayList<>();
+        StringBuilder column = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    column.append('"');
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == ',' && !quoted) {
+                columns.add(column.toString());
+                column.setLength(0);
+            } else {
+                column.append(c);
+            }
+        }
+        columns.add(column.toString());
+        return columns;
+    }
+
+    private record Snapshot(GazetteerAutomaton automaton, String fingerprint, Instant loadedAt) {
+    }
+}
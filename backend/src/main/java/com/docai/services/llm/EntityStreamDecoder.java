@@ -0,0 +1,296 @@
+package com.docai.services.llm;
+
+import com.docai.models.Entity;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Decodes entities from a model response while it is still arriving. Text is pushed in as it is
+ * received (a whole body or streamed completion deltas) through Jackson's non-blocking parser, and
+ * each entity is handed to the listener as soon as its object closes, without building a tree of
+ * the response. Prose or code fences around the JSON are skipped: decoding starts at the first
+ * {@code {} or {@code [} and moves on to the next one when a candidate turns out not to be JSON or
+ * holds no entities. Entities are the elements of a root array or of any {@code "entities"} array.
+ */
+public class EntityStreamDecoder {
+
+    private static final Logger logger = LoggerFactory.getLogger(EntityStreamDecoder.class);
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    // Each failed candidate is reparsed from the buffer; a response rarely needs more than a couple
+    private static final int MAX_CANDIDATES = 16;
+
+    private final Consumer<Entity> listener;
+    private final StringBuilder buffer = new StringBuilder();
+    private final List<Entity> entities = new ArrayList<>();
+
+    private JsonParser parser;
+    private int candidates;
+    private int scanFrom;
+    private int fedTo;
+    private boolean done;
+
+    // Parser position: open containers, which of them are arrays and which hold entities
+    private int depth;
+    private final BitSet arrays = new BitSet();
+    private final BitSet entityArrays = new BitSet();
+    private String field;
+    private Entity current;
+    private int entityDepth;
+
+    public EntityStreamDecoder(Consumer<Entity> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Appends the next piece of the response and emits any entities it completes.
+     */
+    public EntityStreamDecoder feed(CharSequence text) {
+        if (text == null || text.isEmpty() || done) {
+            return this;
+        }
+        buffer.append(text);
+        advance(false);
+        return this;
+    }
+
+    /**
+     * Marks the end of the response and returns every entity decoded from it.
+     */
+    public List<Entity> finish() {
+        if (!done) {
+            advance(true);
+            close();
+            done = true;
+        }
+        return entities;
+    }
+
+    public int getEntityCount() {
+        return entities.size();
+    }
+
+    private void advance(boolean endOfInput) {
+        while (!done) {
+            if (parser == null && !openNextCandidate()) {
+                if (endOfInput) {
+                    done = true;
+                }
+                return;
+            }
+            try {
+                feedParser(endOfInput);
+                if (pump()) {
+                    // The root value closed; entities found so far are the answer
+                    if (!entities.isEmpty()) {
+                        done = true;
+                        close();
+                        return;
+                    }
+                    retry();
+                    continue;
+                }
+                if (endOfInput) {
+                    done = true;
+                }
+                return;
+            } catch (IOException e) {
+                if (!entities.isEmpty()) {
+                    // Truncated or malformed tail after usable entities
+                    logger.debug("Stopped decoding entities after {}: {}", entities.size(), e.getMessage());
+                    done = true;
+                    close();
+                    return;
+                }
+                retry();
+            }
+        }
+    }
+
+    private boolean openNextCandidate() {
+        if (candidates >= MAX_CANDIDATES) {
+            done = true;
+            return false;
+        }
+        for (int i = scanFrom; i < buffer.length(); i++) {
+            char c = buffer.charAt(i);
+            if (c == '{' || c == '[') {
+                try {
+                    parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+                } catch (IOException e) {
+                    throw new IllegalStateException("Cannot create JSON parser", e);
+                }
+                candidates++;
+                scanFrom = i;
+                fedTo = i;
+                depth = 0;
+                arrays.clear();
+                entityArrays.clear();
+                field = null;
+                current = null;
+                return true;
+            }
+        }
+        scanFrom = buffer.length();
+        return false;
+    }
+
+    private void retry() {
+        close();
+        scanFrom++;
+    }
+
+    private void feedParser(boolean endOfInput) throws IOException {
+        int end = buffer.length();
+        // Keep a trailing high surrogate back until its pair arrives
+        if (!endOfInput && end > fedTo && Character.isHighSurrogate(buffer.charAt(end - 1))) {
+            end--;
+        }
+        ByteArrayFeeder feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+        if (end > fedTo) {
+            byte[] bytes = buffer.substring(fedTo, end).getBytes(StandardCharsets.UTF_8);
+            feeder.feedInput(bytes, 0, bytes.length);
+            fedTo = end;
+        }
+        if (endOfInput) {
+            feeder.endOfInput();
+        }
+    }
+
+    /**
+     * Consumes the tokens available so far; true once the root value has closed.
+     */
+    private boolean pump() throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            switch (token) {
+                case FIELD_NAME -> field = parser.currentName();
+                case START_ARRAY -> {
+                    boolean holdsEntities = current == null
+                            && (depth == 0 || (!arrays.get(depth) && "entities".equalsIgnoreCase(field)));
+                    depth++;
+                    arrays.set(depth);
+                    entityArrays.set(depth, holdsEntities);
+                    field = null;
+                }
+                case START_OBJECT -> {
+                    if (current == null && depth > 0 && entityArrays.get(depth)) {
+                        current = new Entity();
+                        entityDepth = depth + 1;
+                    }
+                    depth++;
+                    arrays.clear(depth);
+                    entityArrays.clear(depth);
+                    field = null;
+                }
+                case END_ARRAY, END_OBJECT -> {
+                    if (current != null && depth == entityDepth) {
+                        emit(current);
+                        current = null;
+                    }
+                    depth--;
+                    field = null;
+                    if (depth == 0) {
+                        return true;
+                    }
+                }
+                default -> {
+                    if (current != null && depth == entityDepth && field != null) {
+                        assign(current, field.toLowerCase(Locale.ROOT), token);
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private void assign(Entity entity, String name, JsonToken token) throws IOException {
+        switch (name) {
+            case "text" -> entity.setText(stringValue(token));
+            case "name", "value" -> {
+                if (entity.getText() == null) {
+                    entity.setText(stringValue(token));
+                }
+            }
+            case "type", "label", "entity_type", "entitytype" -> {
+                String type = stringValue(token);
+                entity.setType(type != null ? type.trim().toUpperCase(Locale.ROOT) : null);
+            }
+            case "confidence", "score" -> {
+                Double value = doubleValue(token);
+                if (value != null) {
+                    entity.setConfidence(value);
+                }
+            }
+            case "startoffset", "start_offset", "start" -> entity.setStartOffset(intValue(token));
+            case "endoffset", "end_offset", "end" -> entity.setEndOffset(intValue(token));
+            case "category" -> entity.setCategory(stringValue(token));
+            case "subcategory" -> entity.setSubcategory(stringValue(token));
+            case "normalizedvalue", "normalized_value" -> entity.setNormalizedValue(stringValue(token));
+            default -> {
+            }
+        }
+    }
+
+    private void emit(Entity entity) {
+        if (entity.getText() == null || entity.getText().isBlank() || entity.getType() == null || entity.getType().isEmpty()) {
+            return;
+        }
+        if (entity.getStartOffset() == null || entity.getEndOffset() == null
+                || entity.getStartOffset() < 0 || entity.getEndOffset() < entity.getStartOffset()) {
+            entity.setStartOffset(null);
+            entity.setEndOffset(null);
+        }
+        entities.add(entity);
+        if (listener != null) {
+            listener.accept(entity);
+        }
+    }
+
+    private String stringValue(JsonToken token) throws IOException {
+        return token.isScalarValue() && token != JsonToken.VALUE_NULL ? parser.getText() : null;
+    }
+
+    private Double doubleValue(JsonToken token) throws IOException {
+        if (token.isNumeric()) {
+            return parser.getDoubleValue();
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            try {
+                return Double.parseDouble(parser.getText().trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private Integer intValue(JsonToken token) throws IOException {
+        Double value = doubleValue(token);
+        return value != null ? value.intValue() : null;
+    }
+
+    private void close() {
+        if (parser != null) {
+            try {
+                parser.close();
+            } catch (IOException e) {
+                // Nothing to release for an in-memory parser
+            }
+            parser = null;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.docai.services.llm;
+
+import com.docai.models.DocumentAnalysis;
+import com.docai.models.Entity;
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Turns model responses into typed analysis results. Responses are decoded straight into
+ * {@link Entity}, {@link DocumentAnalysis.Sentiment} and {@link DocumentAnalysis.Classification}
+ * rather than through {@code Map<String, Object>}, and the JSON is located tolerantly, so answers
+ * wrapped in prose or code fences still decode.
+ */
+@Component
+public class LlmResponseDecoder {
+
+    public static final List<String> CATEGORIES = List.of(
+            "INVOICE", "CONTRACT", "RESUME", "LEGAL_DOCUMENT", "FINANCIAL_REPORT",
+            "TECHNICAL_MANUAL", "BUSINESS_CORRESPONDENCE", "RESEARCH_PAPER", "OTHER");
+
+    private static final int MAX_CANDIDATES = 16;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .configure(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY, true);
+    private final ObjectReader sentimentReader = objectMapper.readerFor(SentimentPayload.class);
+    private final ObjectReader classificationReader = objectMapper.readerFor(ClassificationPayload.class);
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record SentimentPayload(@JsonAlias("label") String sentiment, @JsonAlias("score") Double confidence,
+                            Map<String, Double> scores) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record ClassificationPayload(@JsonAlias({"classification", "category"}) String type, Double confidence,
+                                 List<String> tags) {
+    }
+
+    public List<Entity> decodeEntities(String response) {
+        return new EntityStreamDecoder(null).feed(response).finish();
+    }
+
+    public Optional<DocumentAnalysis.Sentiment> decodeSentiment(String response) {
+        return this.<SentimentPayload>decodeObject(response, sentimentReader)
+                .filter(payload -> payload.sentiment() != null && !payload.sentiment().isBlank())
+                .map(payload -> {
+                    DocumentAnalysis.Sentiment sentiment = new DocumentAnalysis.Sentiment();
+                    sentiment.setLabel(payload.sentiment().trim().toUpperCase(Locale.ROOT));
+                    sentiment.setScore(payload.confidence());
+                    if (payload.scores() != null) {
+                        sentiment.setPositiveScore(payload.scores().get("positive"));
+                        sentiment.setNegativeScore(payload.scores().get("negative"));
+                        sentiment.setNeutralScore(payload.scores().get("neutral"));
+                    }
+                    return sentiment;
+                });
+    }
+
+    /**
+     * Reads a category from either a JSON answer or a bare name; unknown answers become {@code OTHER}.
+     * The confidence is left unset unless the model supplied one.
+     */
+    public DocumentAnalysis.Classification decodeClassification(String response) {
+        DocumentAnalysis.Classification classification = new DocumentAnalysis.Classification();
+        Optional<ClassificationPayload> payload = this.<ClassificationPayload>decodeObject(response, classificationReader)
+                .filter(candidate -> candidate.type() != null);
+        if (payload.isPresent()) {
+            classification.setType(matchCategory(payload.get().type()));
+            classification.setConfidence(payload.get().confidence());
+            classification.setTags(payload.get().tags());
+        } else {
+            classification.setType(matchCategory(response));
+        }
+        return classification;
+    }
+
+    /**
+     * The earliest known category named in the text, ignoring case, spacing and punctuation.
+     */
+    static String matchCategory(String text) {
+        if (text == null) {
+            return "OTHER";
+        }
+        String normalized = "_" + text.toUpperCase(Locale.ROOT).replaceAll("[^A-Z]+", "_") + "_";
+        String best = "OTHER";
+        int bestAt = Integer.MAX_VALUE;
+        for (String category : CATEGORIES) {
+            int at = normalized.indexOf("_" + category + "_");
+            if (at >= 0 && at < bestAt) {
+                best = category;
+                bestAt = at;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Reads the first JSON object in the text that the reader maps, skipping surrounding prose.
+     */
+    private <T> Optional<T> decodeObject(String response, ObjectReader reader) {
+        if (response == null) {
+            return Optional.empty();
+        }
+        char[] chars = response.toCharArray();
+        int candidates = 0;
+        for (int i = 0; i < chars.length && candidates < MAX_CANDIDATES; i++) {
+            if (chars[i] != '{') {
+                continue;
+            }
+            candidates++;
+            // Only the first value is read, so text after the closing brace is ignored
+            try (JsonParser parser = objectMapper.getFactory().createParser(chars, i, chars.length - i)) {
+                T value = reader.readValue(parser);
+                if (value != null) {
+                    return Optional.of(value);
+                }
+            } catch (IOException e) {
+                // Not JSON at this brace; try the next one
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,115 @@
+package com.docai.services.llm;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code llm.*} registry: chat completion endpoints, the models served by them and the rules
+ * that route each analysis type and text size to a model. See {@link ModelRouter}.
+ */
+@Component
+@ConfigurationProperties(prefix = "llm")
+public class LlmRoutingProperties {
+
+    private Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+    private Map<String, Model> models = new LinkedHashMap<>();
+    private List<Route> routes = new ArrayList<>();
+    private String defaultModel = "default";
+    private int sloWindow = 20;
+    private Duration failoverCooldown = Duration.ofSeconds(60);
+
+    /**
+     * An OpenAI-compatible chat completions URL.
+     */
+    public static class Endpoint {
+        private String url;
+        private String apiKey;
+        private boolean streamUsage = true;
+
+        public String getUrl() { return url; }
+        public void setUrl(String url) { this.url = url; }
+
+        public String getApiKey() { return apiKey; }
+        public void setApiKey(String apiKey) { this.apiKey = apiKey; }
+
+        public boolean isStreamUsage() { return streamUsage; }
+        public void setStreamUsage(boolean streamUsage) { this.streamUsage = streamUsage; }
+    }
+
+    public static class Model {
+        private String endpoint;
+        private String model;
+        private double inputCostPer1k;
+        private double outputCostPer1k;
+
+        public String getEndpoint() { return endpoint; }
+        public void setEndpoint(String endpoint) { this.endpoint = endpoint; }
+
+        public String getModel() { return model; }
+        public void setModel(String model) { this.model = model; }
+
+        public double getInputCostPer1k() { return inputCostPer1k; }
+        public void setInputCostPer1k(double inputCostPer1k) { this.inputCostPer1k = inputCostPer1k; }
+
+        public double getOutputCostPer1k() { return outputCostPer1k; }
+        public void setOutputCostPer1k(double outputCostPer1k) { this.outputCostPer1k = outputCostPer1k; }
+    }
+
+    /**
+     * Sends the listed analysis types (all when empty) within the size range to {@code model}.
+     */
+    public static class Route {
+        private String name;
+        private List<String> types = new ArrayList<>();
+        private int minChars;
+        private int maxChars;
+        private String model;
+        private String fallback;
+        private Duration latencySlo;
+
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+
+        public List<String> getTypes() { return types; }
+        public void setTypes(List<String> types) { this.types = types; }
+
+        public int getMinChars() { return minChars; }
+        public void setMinChars(int minChars) { this.minChars = minChars; }
+
+        public int getMaxChars() { return maxChars; }
+        public void setMaxChars(int maxChars) { this.maxChars = maxChars; }
+
+        public String getModel() { return model; }
+        public void setModel(String model) { this.model = model; }
+
+        public String getFallback() { return fallback; }
+        public void setFallback(String fallback) { this.fallback = fallback; }
+
+        public Duration getLatencySlo() { return latencySlo; }
+        public void setLatencySlo(Duration latencySlo) { this.latencySlo = latencySlo; }
+    }
+
+    public Map<String, Endpoint> getEndpoints() { return endpoints; }
+    public void setEndpoints(Map<String, Endpoint> endpoints) { this.endpoints = endpoints; }
+
+    public Map<String, Model> getModels() { return models; }
+    public void setModels(Map<String, Model> models) { this.models = models; }
+
+    public List<Route> getRoutes() { return routes; }
+    public void setRoutes(List<Route> routes) { this.routes = routes; }
+
+    public String getDefaultModel() { return defaultModel; }
+    public void setDefaultModel(String defaultModel) { this.defaultModel = defaultModel; }
+
+    public int getSloWindow() { return sloWindow; }
+    public void setSloWindow(int sloWindow) { this.sloWindow = sloWindow; }
+
+    public Duration getFailoverCooldown() { return failoverCooldown; }
+    public void setFailoverCooldown(Duration failoverCooldown) { this.failoverCooldown = failoverCooldown; }
+}
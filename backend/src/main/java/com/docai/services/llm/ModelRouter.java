@@ -0,0 +1,314 @@
+package com.docai.services.llm;
+
+import com.docai.services.stats.DocumentStatisticsService;
+import jakarta.annotation.PostConstruct;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Picks the model for each completion from the {@code llm.*} registry. The first route whose
+ * analysis types and text size match wins; unmatched calls go to the default model. A route with a
+ * fallback fails over to it when a call fails, or when the 90th percentile latency of its recent
+ * primary calls breaks the route's SLO, and returns to the primary after a cooldown. Latency, token
+ * usage and cost are recorded per route and model so the rules can be tuned from real traffic.
+ */
+@Service
+public class ModelRouter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModelRouter.class);
+
+    private static final long MAX_TRACKABLE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    @Autowired
+    private LlmRoutingProperties properties;
+
+    @Autowired
+    private DocumentStatisticsService statisticsService;
+
+    // The implicit default model when no registry is configured
+    @Value("${openai.api.url:https://api.openai.com/v1/chat/completions}")
+    private String defaultUrl;
+
+    @Value("${openai.api.key:}")
+    private String defaultApiKey;
+
+    private final List<Route> routes = new ArrayList<>();
+    private Route defaultRoute;
+    private final Map<String, ModelStats> stats = new ConcurrentHashMap<>();
+    private Clock clock = Clock.systemUTC();
+
+    /**
+     * A registered model and the endpoint serving it.
+     */
+    public record Target(String name, String url, String apiKey, String model, boolean streamUsage,
+                         double inputCostPer1k, double outputCostPer1k) {
+
+        double cost(TokenUsage usage) {
+            return usage.promptTokens() / 1000.0 * inputCostPer1k + usage.completionTokens() / 1000.0 * outputCostPer1k;
+        }
+    }
+
+    /**
+     * Tokens billed for one call; estimated from character counts when the endpoint reports none.
+     */
+    public record TokenUsage(long promptTokens, long completionTokens, boolean estimated) {
+
+        public static TokenUsage estimate(String prompt, String completion) {
+            // Roughly four characters per token for English text
+            return new TokenUsage((prompt.length() + 3) / 4, (completion.length() + 3) / 4, true);
+        }
+    }
+
+    public static final class Route {
+        private final String name;
+        private final Set<String> types;
+        private final int minChars;
+        private final int maxChars;
+        private final Target primary;
+        private final Target fallback;
+        private final long sloMillis;
+
+        // Recent primary latencies the SLO is judged on
+        private final long[] window;
+        private int next;
+        private int size;
+        private volatile long degradedUntil;
+        private final LongAdder failovers = new LongAdder();
+
+        Route(String name, Set<String> types, int minChars, int maxChars, Target primary, Target fallback,
+              long sloMillis, int windowSize) {
+            this.name = name;
+            this.types = types;
+            this.minChars = minChars;
+            this.maxChars = maxChars;
+            this.primary = primary;
+            this.fallback = fallback;
+            this.sloMillis = sloMillis;
+            this.window = new long[Math.max(1, windowSize)];
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        boolean matches(String analysisType, int textChars) {
+            return (types.isEmpty() || types.contains(analysisType))
+                    && textChars >= minChars
+                    && (maxChars <= 0 || textChars <= maxChars);
+        }
+    }
+
+    @PostConstruct
+    public void initialize() {
+        Map<String, Target> targets = new LinkedHashMap<>();
+        if (properties.getModels().isEmpty()) {
+            targets.put(properties.getDefaultModel(), new Target(properties.getDefaultModel(), defaultUrl, defaultApiKey,
+                    "gpt-4o", true, 0, 0));
+        }
+        properties.getModels().forEach((name, model) -> {
+            LlmRoutingProperties.Endpoint endpoint = properties.getEndpoints().get(model.getEndpoint());
+            if (endpoint == null) {
+                throw new IllegalStateException("LLM model " + name + " refers to unknown endpoint " + model.getEndpoint());
+            }
+            if (endpoint.getUrl() == null || endpoint.getUrl().isBlank()) {
+                logger.info("LLM model {} disabled: endpoint {} has no URL", name, model.getEndpoint());
+                return;
+            }
+            targets.put(name, new Target(name, endpoint.getUrl(), endpoint.getApiKey(), model.getModel(),
+                    endpoint.isStreamUsage(), model.getInputCostPer1k(), model.getOutputCostPer1k()));
+        });
+
+        Target defaultTarget = targets.get(properties.getDefaultModel());
+        if (defaultTarget == null) {
+            throw new IllegalStateException("LLM default model " + properties.getDefaultModel() + " is not available");
+        }
+        defaultRoute = new Route("default", Set.of(), 0, 0, defaultTarget, null, 0, properties.getSloWindow());
+
+        int index = 0;
+        for (LlmRoutingProperties.Route rule : properties.getRoutes()) {
+            index++;
+            String name = rule.getName() != null ? rule.getName() : "route-" + index;
+            Target primary = targets.get(rule.getModel());
+            if (primary == null) {
+                throw new IllegalStateException("LLM route " + name + " uses unavailable model " + rule.getModel());
+            }
+            // An unconfigured fallback (e.g. no local server) leaves the route without failover
+            Target fallback = rule.getFallback() != null ? targets.get(rule.getFallback()) : null;
+            Set<String> types = new LinkedHashSet<>();
+            rule.getTypes().forEach(type -> types.add(type.trim().toLowerCase(Locale.ROOT)));
+            routes.add(new Route(name, types, rule.getMinChars(), rule.getMaxChars(), primary, fallback,
+                    rule.getLatencySlo() != null ? rule.getLatencySlo().toMillis() : 0, properties.getSloWindow()));
+        }
+        logger.info("LLM routing: {} routes over models {}, default {}", routes.size(), targets.keySet(),
+                defaultTarget.name());
+    }
+
+    public Route route(String analysisType, int textChars) {
+        String type = analysisType.toLowerCase(Locale.ROOT);
+        for (Route route : routes) {
+            if (route.matches(type, textChars)) {
+                return route;
+            }
+        }
+        return defaultRoute;
+    }
+
+    /**
+     * Models to try for a call, in order: the fallback leads while the primary is failed over.
+     */
+    public List<Target> targets(Route route) {
+        if (route.fallback == null) {
+            return List.of(route.primary);
+        }
+        return clock.millis() < route.degradedUntil
+                ? List.of(route.fallback, route.primary)
+                : List.of(route.primary, route.fallback);
+    }
+
+    /**
+     * Records a completed call. For streamed calls the latency is the time to the first token.
+     */
+    public void recordSuccess(Route route, Target target, long latencyMillis, TokenUsage usage) {
+        ModelStats modelStats = stats(route, target);
+        modelStats.calls.increment();
+        modelStats.latency.recordValue(Math.min(Math.max(latencyMillis, 0), MAX_TRACKABLE_MILLIS));
+        modelStats.promptTokens.add(usage.promptTokens());
+        modelStats.completionTokens.add(usage.completionTokens());
+        modelStats.cost.add(target.cost(usage));
+        if (usage.estimated()) {
+            modelStats.estimatedUsage.increment();
+        }
+
+        if (target != route.primary) {
+            route.failovers.increment();
+            return;
+        }
+        if (route.fallback == null || route.sloMillis <= 0) {
+            return;
+        }
+        long p90;
+        synchronized (route) {
+            route.window[route.next] = latencyMillis;
+            route.next = (route.next + 1) % route.window.length;
+            route.size = Math.min(route.size + 1, route.window.length);
+            if (route.size < route.window.length) {
+                return;
+            }
+            long[] sorted = route.window.clone();
+            Arrays.sort(sorted);
+            p90 = sorted[(int) Math.ceil(sorted.length * 0.9) - 1];
+        }
+        if (p90 > route.sloMillis) {
+            degrade(route, "p90 latency " + p90 + " ms exceeds SLO " + route.sloMillis + " ms");
+        }
+    }
+
+    public void recordFailure(Route route, Target target, long latencyMillis) {
+        ModelStats modelStats = stats(route, target);
+        modelStats.failures.increment();
+        if (target == route.primary && route.fallback != null) {
+            degrade(route, "call failed after " + latencyMillis + " ms");
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        List<Map<String, Object>> routeStatus = new ArrayList<>();
+        double totalCost = 0;
+        long totalPromptTokens = 0;
+        long totalCompletionTokens = 0;
+        List<Route> all = new ArrayList<>(routes);
+        all.add(defaultRoute);
+        for (Route route : all) {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("name", route.name);
+            status.put("types", route.types);
+            status.put("minChars", route.minChars);
+            status.put("maxChars", route.maxChars);
+            status.put("model", route.primary.name());
+            status.put("fallback", route.fallback != null ? route.fallback.name() : null);
+            status.put("latencySloMillis", route.sloMillis);
+            boolean degraded = clock.millis() < route.degradedUntil;
+            status.put("failedOver", degraded);
+            status.put("failedOverUntil", degraded ? Instant.ofEpochMilli(route.degradedUntil).toString() : null);
+            status.put("failovers", route.failovers.sum());
+
+            Map<String, Object> models = new LinkedHashMap<>();
+            for (Target target : route.fallback != null ? List.of(route.primary, route.fallback) : List.of(route.primary)) {
+                ModelStats modelStats = stats.get(route.name + "/" + target.name());
+                if (modelStats == null) {
+                    continue;
+                }
+                Map<String, Object> model = new LinkedHashMap<>();
+                model.put("model", target.model());
+                model.put("calls", modelStats.calls.sum());
+                model.put("failures", modelStats.failures.sum());
+                model.put("latencyMillis", statisticsService.percentiles(modelStats.latency));
+                model.put("promptTokens", modelStats.promptTokens.sum());
+                model.put("completionTokens", modelStats.completionTokens.sum());
+                model.put("estimatedUsageCalls", modelStats.estimatedUsage.sum());
+                model.put("cost", modelStats.cost.sum());
+                models.put(target.name(), model);
+                totalCost += modelStats.cost.sum();
+                totalPromptTokens += modelStats.promptTokens.sum();
+                totalCompletionTokens += modelStats.completionTokens.sum();
+            }
+            status.put("models", models);
+            routeStatus.add(status);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("routes", routeStatus);
+        result.put("promptTokens", totalPromptTokens);
+        result.put("completionTokens", totalCompletionTokens);
+        result.put("cost", totalCost);
+        return result;
+    }
+
+    private void degrade(Route route, String reason) {
+        synchronized (route) {
+            if (clock.millis() < route.degradedUntil) {
+                return;
+            }
+            route.degradedUntil = clock.millis() + properties.getFailoverCooldown().toMillis();
+            // Slow samples from before the failover must not trip the SLO again on return
+            route.size = 0;
+            route.next = 0;
+        }
+        logger.warn("LLM route {} failing over from {} to {} for {}: {}", route.name, route.primary.name(),
+                route.fallback.name(), properties.getFailoverCooldown(), reason);
+    }
+
+    private ModelStats stats(Route route, Target target) {
+        return stats.computeIfAbsent(route.name + "/" + target.name(), key -> new ModelStats());
+    }
+
+    private static final class ModelStats {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder promptTokens = new LongAdder();
+        private final LongAdder completionTokens = new LongAdder();
+        private final LongAdder estimatedUsage = new LongAdder();
+        private final DoubleAdder cost = new DoubleAdder();
+        private final Histogram latency = new ConcurrentHistogram(MAX_TRACKABLE_MILLIS, 3);
+    }
+}
@@ -0,0 +1,179 @@
+package com.docai.services.normalization;
+
+import com.docai.models.Entity;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Text prepared for a model prompt, with a map back to the extracted text it came from. The map
+ * is a list of segments, each a run of normalized characters copied from one place in the
+ * original, so an offset reported against the prompt text can be translated to the original with a
+ * binary search. Characters the normalizer inserted (a single space for a whitespace run, a line
+ * break between kept lines) map to the start of the text they replaced.
+ */
+public class NormalizedText {
+
+    public static final String REMOVED_WHITESPACE = "whitespace";
+    public static final String REMOVED_HEADERS_FOOTERS = "headersFooters";
+    public static final String REMOVED_RULERS = "rulers";
+    public static final String REMOVED_HYPHENATION = "hyphenation";
+    public static final String REMOVED_STOP_SECTIONS = "stopSections";
+
+    private final String original;
+    private final String text;
+    private final int[] segmentStarts;
+    private final int[] segmentOrigins;
+    private final int segments;
+    private final Map<String, Integer> removedChars;
+
+    private NormalizedText(String original, String text, int[] segmentStarts, int[] segmentOrigins, int segments,
+                           Map<String, Integer> removedChars) {
+        this.original = original;
+        this.text = text;
+        this.segmentStarts = segmentStarts;
+        this.segmentOrigins = segmentOrigins;
+        this.segments = segments;
+        this.removedChars = removedChars;
+    }
+
+    /**
+     * The text unchanged, for when normalization is switched off.
+     */
+    public static NormalizedText identity(String text) {
+        return new NormalizedText(text, text, new int[] {0}, new int[] {0}, 1, Map.of());
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public String getOriginal() {
+        return original;
+    }
+
+    /**
+     * Characters dropped by each normalization step.
+     */
+    public Map<String, Integer> getRemovedChars() {
+        return removedChars;
+    }
+
+    /**
+     * The offset in the original text of the character at {@code offset} in the normalized text.
+     */
+    public int toOriginal(int offset) {
+        if (text == null) {
+            return 0;
+        }
+        if (offset >= text.length()) {
+            return original.length();
+        }
+        // Offset 0 goes through the map too: trimmed leading whitespace moves the first segment
+        offset = Math.max(0, offset);
+        int segment = Arrays.binarySearch(segmentStarts, 0, segments, offset);
+        if (segment < 0) {
+            segment = -segment - 2;
+        }
+        return Math.min(original.length(), segmentOrigins[segment] + offset - segmentStarts[segment]);
+    }
+
+    /**
+     * The exclusive end in the original text of a range ending at {@code end} in the normalized text.
+     */
+    public int toOriginalEnd(int end) {
+        if (text == null || end <= 0) {
+            return 0;
+        }
+        if (end >= text.length()) {
+            return toOriginal(text.length() - 1) + 1;
+        }
+        return toOriginal(end - 1) + 1;
+    }
+
+    /**
+     * Moves the entity's offsets from the normalized text to the original; entities without offsets are left alone.
+     */
+    public void restoreOffsets(Entity entity) {
+        if (entity.getStartOffset() == null || entity.getEndOffset() == null || text == null) {
+            return;
+        }
+        int start = Math.min(entity.getStartOffset(), text.length());
+        int end = Math.min(Math.max(entity.getEndOffset(), start), text.length());
+        entity.setStartOffset(toOriginal(start));
+        entity.setEndOffset(Math.max(toOriginal(start), toOriginalEnd(end)));
+    }
+
+    /**
+     * Appends copied runs and inserted characters while recording where each came from.
+     */
+    static final class Builder {
+
+        private final String original;
+        private final StringBuilder text;
+        private int[] segmentStarts = new int[64];
+        private int[] segmentOrigins = new int[64];
+        private int segments;
+        // Original offset the next copied character must have to extend the current segment
+        private int nextOrigin = -1;
+        private final Map<String, Integer> removedChars = new LinkedHashMap<>();
+
+        Builder(String original) {
+            this.original = original;
+            this.text = new StringBuilder(original.length());
+        }
+
+        void copy(int from, int to) {
+            if (from >= to) {
+                return;
+            }
+            if (from != nextOrigin) {
+                addSegment(from);
+            }
+            text.append(original, from, to);
+            nextOrigin = to;
+        }
+
+        void insert(String inserted, int origin) {
+            addSegment(origin);
+            text.append(inserted);
+            // Later characters of the insertion also map to origin until the next copy starts a segment
+            nextOrigin = -1;
+        }
+
+        void removed(String step, int chars) {
+            if (chars > 0) {
+                removedChars.merge(step, chars, Integer::sum);
+            }
+        }
+
+        int length() {
+            return text.length();
+        }
+
+        NormalizedText build() {
+            // Whatever the other steps do not account for was whitespace
+            int accounted = removedChars.values().stream().mapToInt(Integer::intValue).sum();
+            removed(REMOVED_WHITESPACE, original.length() - text.length() - accounted);
+            return new NormalizedText(original, text.toString(), segmentStarts, segmentOrigins, segments,
+                    Collections.unmodifiableMap(removedChars));
+        }
+
+        private void addSegment(int origin) {
+            if (segments > 0 && segmentStarts[segments - 1] == text.length()) {
+                // An empty segment is replaced rather than kept
+                segmentOrigins[segments - 1] = origin;
+                return;
+            }
+            if (segments == segmentStarts.length) {
+                segmentStarts = Arrays.copyOf(segmentStarts, segments * 2);
+                segmentOrigins = Arrays.copyOf(segmentOrigins, segments * 2);
+            }
+            segmentStarts[segments] = text.length();
+            segmentOrigins[segments] = origin;
+            segments++;
+        }
+    }
+}
@@ -0,0 +1,408 @@
+package com.docai.services.normalization;
+
+import com.docai.models.Document;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Strips what extraction leaves in the text but a model prompt does not need: runs of whitespace,
+ * running page headers and footers, table rulers and dot leaders, words hyphenated across line
+ * breaks and, optionally, boilerplate sections such as e-mail disclaimers. Tika's plain text has no
+ * page breaks, so headers and footers are found by repetition: a short line that recurs at least
+ * {@code min-repeats} times, on average at least {@code min-repeat-gap} characters apart, and whose
+ * numbers are either constant or count up like page numbers. The result keeps an offset map so
+ * positions reported against the prompt text still point into {@code extractedText}.
+ */
+@Service
+public class TextNormalizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(TextNormalizer.class);
+
+    private static final String RULER_CHARS = "-=_*+|:.~#\u2500\u2550\u2014\u2013";
+    private static final String LEADER_CHARS = ".-_=*\u00B7";
+    private static final int MIN_RULER_LENGTH = 3;
+    private static final int MIN_LEADER_LENGTH = 4;
+
+    private static final byte KEEP = 0;
+    private static final byte HEADER_FOOTER = 1;
+    private static final byte RULER = 2;
+    private static final byte STOP_SECTION = 3;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${document.normalization.enabled:true}")
+    private boolean enabled;
+
+    @Value("${document.normalization.headers-footers:true}")
+    private boolean headersFooters;
+
+    @Value("${document.normalization.min-repeats:3}")
+    private int minRepeats;
+
+    @Value("${document.normalization.min-repeat-gap:1000}")
+    private int minRepeatGap;
+
+    @Value("${document.normalization.max-header-chars:120}")
+    private int maxHeaderChars;
+
+    @Value("${document.normalization.dehyphenate:true}")
+    private boolean dehyphenate;
+
+    @Value("${document.normalization.strip-stop-sections:false}")
+    private boolean stripStopSections;
+
+    @Value("${document.normalization.stop-sections:}")
+    private List<String> stopSections;
+
+    private final List<Pattern> stopPatterns = new ArrayList<>();
+
+    private final LongAdder texts = new LongAdder();
+    private final LongAdder originalChars = new LongAdder();
+    private final LongAdder normalizedChars = new LongAdder();
+    private final Map<String, LongAdder> removedChars = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void initialize() {
+        for (String section : stopSections) {
+            if (!section.isBlank()) {
+                stopPatterns.add(Pattern.compile(section.trim(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE));
+            }
+        }
+    }
+
+    public NormalizedText normalize(String text) {
+        if (!enabled || text == null || text.isEmpty()) {
+            return NormalizedText.identity(text);
+        }
+        NormalizedText normalized = normalizeLines(text);
+        texts.increment();
+        originalChars.add(text.length());
+        normalizedChars.add(normalized.getText().length());
+        normalized.getRemovedChars().forEach((step, chars) ->
+                removedChars.computeIfAbsent(step, key -> new LongAdder()).add(chars));
+        return normalized;
+    }
+
+    /**
+     * Normalizes a random sample of stored documents and reports how much shorter the prompts get.
+     */
+    public Map<String, Object> measureSample(int size) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("extractedText").exists(true)),
+                Aggregation.sample(size),
+                Aggregation.project("extractedText"));
+        long original = 0;
+        long normalized = 0;
+        int documents = 0;
+        Map<String, Long> removed = new LinkedHashMap<>();
+        for (Document document : mongoTemplate.aggregate(aggregation, Document.class, Document.class)) {
+            if (document.getExtractedText() == null) {
+                continue;
+            }
+            // Measured without touching the running counters
+            NormalizedText result = enabled ? normalizeLines(document.getExtractedText())
+                    : NormalizedText.identity(document.getExtractedText());
+            documents++;
+            original += document.getExtractedText().length();
+            normalized += result.getText().length();
+            result.getRemovedChars().forEach((step, chars) -> removed.merge(step, (long) chars, Long::sum));
+        }
+        Map<String, Object> report = report(documents, original, normalized, removed);
+        logger.info("Normalization sample of {} documents: {} -> {} chars", documents, original, normalized);
+        return report;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Long> removed = new LinkedHashMap<>();
+        removedChars.forEach((step, chars) -> removed.put(step, chars.sum()));
+        Map<String, Object> status = report(texts.sum(), originalChars.sum(), normalizedChars.sum(), removed);
+        status.put("enabled", enabled);
+        status.put("stripStopSections", stripStopSections);
+        return status;
+    }
+
+    private Map<String, Object> report(long count, long original, long normalized, Map<String, Long> removed) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("texts", count);
+        report.put("originalChars", original);
+        report.put("normalizedChars", normalized);
+        // Same four-characters-per-token estimate the model router uses when usage is not reported
+        report.put("estimatedTokensSaved", (original - normalized) / 4);
+        report.put("reduction", original > 0 ? 1.0 - (double) normalized / original : 0.0);
+        report.put("removedChars", removed);
+        return report;
+    }
+
+    private NormalizedText normalizeLines(String text) {
+        // Line bounds with surrounding whitespace trimmed; a blank line has start == end
+        List<int[]> lines = new ArrayList<>();
+        int lineStart = 0;
+        for (int i = 0; i <= text.length(); i++) {
+            if (i == text.length() || text.charAt(i) == '\n') {
+                int start = lineStart;
+                int end = i;
+                while (start < end && isSpace(text.charAt(start))) {
+                    start++;
+                }
+                while (end > start && isSpace(text.charAt(end - 1))) {
+                    end--;
+                }
+                lines.add(new int[] {start, end});
+                lineStart = i + 1;
+            }
+        }
+
+        byte[] drop = new byte[lines.size()];
+        for (int i = 0; i < lines.size(); i++) {
+            if (isRuler(text, lines.get(i))) {
+                drop[i] = RULER;
+            }
+        }
+        if (headersFooters) {
+            markHeadersFooters(text, lines, drop);
+        }
+        if (stripStopSections && !stopPatterns.isEmpty()) {
+            markStopSections(text, lines, drop);
+        }
+        return emit(text, lines, drop);
+    }
+
+    private NormalizedText emit(String text, List<int[]> lines, byte[] drop) {
+        NormalizedText.Builder out = new NormalizedText.Builder(text);
+        int previousEnd = -1;
+        boolean blankSincePrevious = false;
+        // A trailing hyphen is held back until the next line shows whether it splits a word
+        int pendingHyphen = -1;
+
+        for (int i = 0; i < lines.size(); i++) {
+            int[] line = lines.get(i);
+            if (line[0] == line[1]) {
+                blankSincePrevious = previousEnd >= 0;
+                continue;
+            }
+            if (drop[i] != KEEP) {
+                out.removed(drop[i] == RULER ? NormalizedText.REMOVED_RULERS
+                        : drop[i] == HEADER_FOOTER ? NormalizedText.REMOVED_HEADERS_FOOTERS
+                        : NormalizedText.REMOVED_STOP_SECTIONS, line[1] - line[0]);
+                continue;
+            }
+
+            if (previousEnd >= 0) {
+                if (pendingHyphen >= 0 && !blankSincePrevious && Character.isLowerCase(text.charAt(line[0]))) {
+                    out.removed(NormalizedText.REMOVED_HYPHENATION, 1);
+                } else {
+                    if (pendingHyphen >= 0) {
+                        out.copy(pendingHyphen, pendingHyphen + 1);
+                    }
+                    out.insert(blankSincePrevious ? "\n\n" : "\n", previousEnd);
+                }
+            }
+
+            int end = line[1];
+            pendingHyphen = -1;
+            if (dehyphenate && end - line[0] >= 3 && text.charAt(end - 1) == '-'
+                    && Character.isLowerCase(text.charAt(end - 2))) {
+                pendingHyphen = end - 1;
+                end--;
+            }
+            emitLine(text, line[0], end, out);
+            previousEnd = line[1];
+            blankSincePrevious = false;
+        }
+        if (pendingHyphen >= 0) {
+            out.copy(pendingHyphen, pendingHyphen + 1);
+        }
+        return out.build();
+    }
+
+    private void emitLine(String text, int start, int end, NormalizedText.Builder out) {
+        int i = start;
+        while (i < end) {
+            char c = text.charAt(i);
+            if (isSpace(c)) {
+                int j = i;
+                while (j < end && isSpace(text.charAt(j))) {
+                    j++;
+                }
+                if (j - i == 1 && c == ' ') {
+                    out.copy(i, j);
+                } else {
+                    out.insert(" ", i);
+                }
+                i = j;
+            } else if (isInvisible(c)) {
+                i++;
+            } else if (LEADER_CHARS.indexOf(c) >= 0) {
+                int j = i;
+                while (j < end && text.charAt(j) == c) {
+                    j++;
+                }
+                if (j - i >= MIN_LEADER_LENGTH) {
+                    // Dot leaders and inline rulers shrink to three characters
+                    out.copy(i, i + 3);
+                    out.removed(NormalizedText.REMOVED_RULERS, j - i - 3);
+                } else {
+                    out.copy(i, j);
+                }
+                i = j;
+            } else {
+                int j = i + 1;
+                while (j < end) {
+                    char next = text.charAt(j);
+                    if (isSpace(next) || isInvisible(next) || LEADER_CHARS.indexOf(next) >= 0) {
+                        break;
+                    }
+                    j++;
+                }
+                out.copy(i, j);
+                i = j;
+            }
+        }
+    }
+
+    private void markHeadersFooters(String text, List<int[]> lines, byte[] drop) {
+        Map<String, List<Integer>> occurrences = new HashMap<>();
+        for (int i = 0; i < lines.size(); i++) {
+            int[] line = lines.get(i);
+            if (drop[i] == KEEP && line[0] < line[1] && line[1] - line[0] <= maxHeaderChars) {
+                occurrences.computeIfAbsent(lineKey(text, line), key -> new ArrayList<>()).add(i);
+            }
+        }
+
+        for (Map.Entry<String, List<Integer>> entry : occurrences.entrySet()) {
+            List<Integer> indexes = entry.getValue();
+            if (indexes.size() < minRepeats) {
+                continue;
+            }
+            int first = lines.get(indexes.get(0))[0];
+            int last = lines.get(indexes.get(indexes.size() - 1))[0];
+            if ((last - first) / (double) (indexes.size() - 1) < minRepeatGap) {
+                continue;
+            }
+            if (entry.getKey().indexOf('#') >= 0 && !isPageSequence(text, lines, indexes)) {
+                // Numbers that vary freely are content, e.g. a recurring "Total: 120" line
+                continue;
+            }
+            for (int index : indexes) {
+                drop[index] = HEADER_FOOTER;
+            }
+        }
+    }
+
+    /**
+     * True when the first number on each repeat is constant or mostly counts up by one.
+     */
+    private boolean isPageSequence(String text, List<int[]> lines, List<Integer> indexes) {
+        long previous = firstNumber(text, lines.get(indexes.get(0)));
+        int constant = 0;
+        int increments = 0;
+        for (int k = 1; k < indexes.size(); k++) {
+            long value = firstNumber(text, lines.get(indexes.get(k)));
+            if (value == previous) {
+                constant++;
+            } else if (value == previous + 1) {
+                increments++;
+            }
+            previous = value;
+        }
+        int steps = indexes.size() - 1;
+        return constant == steps || increments >= steps * 0.7;
+    }
+
+    private void markStopSections(String text, List<int[]> lines, byte[] drop) {
+        boolean paragraphStart = true;
+        boolean stripping = false;
+        for (int i = 0; i < lines.size(); i++) {
+            int[] line = lines.get(i);
+            if (line[0] == line[1]) {
+                paragraphStart = true;
+                stripping = false;
+                continue;
+            }
+            if (paragraphStart && drop[i] == KEEP) {
+                String first = text.substring(line[0], line[1]);
+                stripping = stopPatterns.stream().anyMatch(pattern -> pattern.matcher(first).lookingAt());
+            }
+            if (stripping && drop[i] == KEEP) {
+                drop[i] = STOP_SECTION;
+            }
+            paragraphStart = false;
+        }
+    }
+
+    private boolean isRuler(String text, int[] line) {
+        if (line[1] - line[0] < MIN_RULER_LENGTH) {
+            return false;
+        }
+        for (int i = line[0]; i < line[1]; i++) {
+            char c = text.charAt(i);
+            if (RULER_CHARS.indexOf(c) < 0 && !isSpace(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Lower-cased line with digit runs as {@code #} and whitespace runs as one space.
+     */
+    private String lineKey(String text, int[] line) {
+        StringBuilder key = new StringBuilder(line[1] - line[0]);
+        for (int i = line[0]; i < line[1]; i++) {
+            char c = text.charAt(i);
+            if (Character.isDigit(c)) {
+                if (key.length() == 0 || key.charAt(key.length() - 1) != '#') {
+                    key.append('#');
+                }
+            } else if (isSpace(c)) {
+                if (key.length() == 0 || key.charAt(key.length() - 1) != ' ') {
+                    key.append(' ');
+                }
+            } else {
+                key.append(Character.toLowerCase(c));
+            }
+        }
+        return key.toString();
+    }
+
+    private long firstNumber(String text, int[] line) {
+        long value = -1;
+        for (int i = line[0]; i < line[1]; i++) {
+            char c = text.charAt(i);
+            if (Character.isDigit(c)) {
+                value = (value < 0 ? 0 : value) * 10 + Character.digit(c, 10);
+                if (value > 999_999_999L) {
+                    break;
+                }
+            } else if (value >= 0) {
+                break;
+            }
+        }
+        return value;
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\f' || c == '\u000B' || Character.isSpaceChar(c);
+    }
+
+    private static boolean isInvisible(char c) {
+        return c == '\u00AD' || c == '\u200B' || c == '\u200C' || c == '\u200D' || c == '\uFEFF';
+    }
+}
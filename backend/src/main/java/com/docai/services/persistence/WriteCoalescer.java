@@ -0,0 +1,382 @@
+package com.docai.services.persistence;
+
+import com.docai.services.stats.DocumentStatisticsService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind buffer for single-row updates. Updates to the same row (same collection and filter)
+ * made within {@code window} are merged into one, and everything pending is flushed as unordered
+ * bulk writes, one per collection. {@link Durability#COMMIT} writes return once their row is
+ * flushed (together with whatever else is pending); {@link Durability#BATCHED} writes return at
+ * once. Flushes run one at a time, so a row's updates reach Mongo in the order they were made.
+ * Only {@code $set}, {@code $unset} and {@code $setOnInsert} can be merged.
+ */
+@Service
+public class WriteCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteCoalescer.class);
+
+    private static final long MAX_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+    private static final Set<String> MERGEABLE = Set.of("$set", "$unset", "$setOnInsert");
+
+    public enum Durability {
+        /** Return once the write is in Mongo, for user-facing calls. */
+        COMMIT,
+        /** Return at once and flush with the next batch, for pipeline stages. */
+        BATCHED
+    }
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private DocumentStatisticsService statisticsService;
+
+    @Value("${document.persistence.write-behind.enabled:true}")
+    private boolean enabled;
+
+    @Value("${document.persistence.write-behind.window:50ms}")
+    private Duration window;
+
+    @Value("${document.persistence.write-behind.max-batch:500}")
+    private int maxBatch;
+
+    @Value("${document.persistence.write-behind.max-attempts:3}")
+    private int maxAttempts;
+
+    private final Object pendingLock = new Object();
+    private Map<String, PendingWrite> pending = new LinkedHashMap<>();
+    private Set<String> inFlight = Set.of();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private ScheduledExecutorService flusher;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder roundTrips = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final Histogram batchSize = new ConcurrentHistogram(100_000, 3);
+    private final Histogram flushLatency = new ConcurrentHistogram(MAX_TRACKABLE_MICROS, 3);
+
+    private static final class PendingWrite {
+        private final Class<?> entityClass;
+        private final Query query;
+        private boolean upsert;
+        private final Map<String, Object> set = new LinkedHashMap<>();
+        private final Map<String, Object> setOnInsert = new LinkedHashMap<>();
+        private final Set<String> unset = new LinkedHashSet<>();
+        private final CompletableFuture<Void> flushed = new CompletableFuture<>();
+        private int attempts;
+
+        private PendingWrite(Class<?> entityClass, Query query, boolean upsert) {
+            this.entityClass = entityClass;
+            this.query = query;
+            this.upsert = upsert;
+        }
+
+        private void merge(org.bson.Document update) {
+            update.forEach((operator, value) -> {
+                org.bson.Document fields = (org.bson.Document) value;
+                switch (operator) {
+                    case "$set" -> fields.forEach((field, fieldValue) -> {
+                        unset.remove(field);
+                        set.put(field, fieldValue);
+                    });
+                    case "$unset" -> fields.keySet().forEach(field -> {
+                        set.remove(field);
+                        unset.add(field);
+                    });
+                    default -> setOnInsert.putAll(fields);
+                }
+            });
+        }
+
+        /**
+         * Layers this (older, failed) write under {@code newer}, whose values win.
+         */
+        private void mergeUnder(PendingWrite newer) {
+            set.forEach((field, value) -> {
+                if (!newer.set.containsKey(field) && !newer.unset.contains(field)) {
+                    newer.set.put(field, value);
+                }
+            });
+            unset.forEach(field -> {
+                if (!newer.set.containsKey(field)) {
+                    newer.unset.add(field);
+                }
+            });
+            setOnInsert.forEach(newer.setOnInsert::putIfAbsent);
+            newer.upsert |= upsert;
+            newer.flushed.whenComplete((result, error) -> complete(flushed, error));
+        }
+
+        private Update toUpdate() {
+            Update update = new Update();
+            set.forEach(update::set);
+            unset.forEach(update::unset);
+            setOnInsert.forEach(update::setOnInsert);
+            return update;
+        }
+    }
+
+    @PostConstruct
+    public void initialize() {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-coalescer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long windowMillis = Math.max(1, window.toMillis());
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (Exception e) {
+                logger.error("Error flushing buffered writes", e);
+            }
+        }, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+        flush();
+    }
+
+    /**
+     * Updates the row with the given id.
+     */
+    public void update(Class<?> entityClass, String id, Update update, Durability durability) {
+        update(entityClass, new Query(Criteria.where("_id").is(id)), update, false, durability);
+    }
+
+    /**
+     * Updates the first row matching {@code query}; updates with the same query are merged.
+     */
+    public void update(Class<?> entityClass, Query query, Update update, boolean upsert, Durability durability) {
+        org.bson.Document operations = update.getUpdateObject();
+        for (String operator : operations.keySet()) {
+            if (!MERGEABLE.contains(operator)) {
+                throw new IllegalArgumentException("Cannot buffer " + operator + " updates");
+            }
+        }
+        if (!enabled) {
+            execute(entityClass, query, update, upsert);
+            return;
+        }
+
+        String key = key(entityClass, query);
+        PendingWrite write;
+        int size;
+        synchronized (pendingLock) {
+            write = pending.get(key);
+            if (write == null) {
+                write = new PendingWrite(entityClass, query, upsert);
+                pending.put(key, write);
+            } else {
+                coalesced.increment();
+                write.upsert |= upsert;
+            }
+            write.merge(operations);
+            size = pending.size();
+        }
+        enqueued.increment();
+
+        if (durability == Durability.COMMIT || size >= maxBatch) {
+            flush();
+        }
+        if (durability == Durability.COMMIT) {
+            try {
+                write.flushed.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Flushes now if the row has a buffered update, before a direct write to it or a read that must see it.
+     * A row in a batch that is still being written counts as buffered, so this waits for that batch.
+     * Returns whether it had one.
+     */
+    public boolean flush(Class<?> entityClass, String id) {
+        String key = key(entityClass, new Query(Criteria.where("_id").is(id)));
+        boolean buffered;
+        synchronized (pendingLock) {
+            buffered = pending.containsKey(key) || inFlight.contains(key);
+        }
+        if (buffered) {
+            flush();
+        }
+        return buffered;
+    }
+
+    /**
+     * Writes everything buffered.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            Map<String, PendingWrite> batch;
+            synchronized (pendingLock) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                inFlight = batch.keySet();
+                pending = new LinkedHashMap<>();
+            }
+            long startNanos = System.nanoTime();
+
+            Map<Class<?>, List<Map.Entry<String, PendingWrite>>> byClass = new LinkedHashMap<>();
+            batch.entrySet().forEach(entry -> byClass.computeIfAbsent(entry.getValue().entityClass,
+                    ignored -> new ArrayList<>()).add(entry));
+            for (Map.Entry<Class<?>, List<Map.Entry<String, PendingWrite>>> group : byClass.entrySet()) {
+                writeBatch(group.getKey(), group.getValue());
+            }
+
+            flushes.increment();
+            batchSize.recordValue(Math.min(batch.size(), batchSize.getHighestTrackableValue()));
+            flushLatency.recordValue(Math.min((System.nanoTime() - startNanos) / 1000, MAX_TRACKABLE_MICROS));
+        } finally {
+            synchronized (pendingLock) {
+                inFlight = Set.of();
+            }
+            flushLock.unlock();
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("windowMillis", window.toMillis());
+        status.put("maxBatch", maxBatch);
+        synchronized (pendingLock) {
+            status.put("pending", pending.size());
+        }
+        long requested = enqueued.sum();
+        status.put("enqueued", requested);
+        status.put("coalesced", coalesced.sum());
+        status.put("written", written.sum());
+        status.put("retried", retried.sum());
+        status.put("failed", failed.sum());
+        status.put("flushes", flushes.sum());
+        status.put("roundTrips", roundTrips.sum());
+        // 1.0 is what unbuffered saves cost
+        status.put("roundTripsPerWrite", requested > 0 ? (double) roundTrips.sum() / requested : null);
+        status.put("batchSize", statisticsService.percentiles(batchSize));
+        status.put("flushLatencyMicros", statisticsService.percentiles(flushLatency));
+        return status;
+    }
+
+    private void writeBatch(Class<?> entityClass, List<Map.Entry<String, PendingWrite>> writes) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, entityClass);
+        for (Map.Entry<String, PendingWrite> entry : writes) {
+            PendingWrite write = entry.getValue();
+            if (write.upsert) {
+                bulk.upsert(write.query, write.toUpdate());
+            } else {
+                bulk.updateOne(write.query, write.toUpdate());
+            }
+        }
+
+        Set<Integer> failedIndexes = new HashSet<>();
+        RuntimeException failure = null;
+        roundTrips.increment();
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            e.getErrors().forEach(error -> failedIndexes.add(error.getIndex()));
+            failure = e;
+        } catch (RuntimeException e) {
+            for (int i = 0; i < writes.size(); i++) {
+                failedIndexes.add(i);
+            }
+            failure = e;
+        }
+
+        for (int i = 0; i < writes.size(); i++) {
+            PendingWrite write = writes.get(i).getValue();
+            if (!failedIndexes.contains(i)) {
+                written.increment();
+                write.flushed.complete(null);
+            } else if (++write.attempts < maxAttempts) {
+                retried.increment();
+                requeue(writes.get(i).getKey(), write);
+            } else {
+                failed.increment();
+                logger.error("Dropping buffered {} write after {} attempts: {}", entityClass.getSimpleName(),
+                        write.attempts, failure.getMessage());
+                write.flushed.completeExceptionally(failure);
+            }
+        }
+    }
+
+    private void requeue(String key, PendingWrite write) {
+        synchronized (pendingLock) {
+            PendingWrite newer = pending.get(key);
+            if (newer == null) {
+                pending.put(key, write);
+            } else {
+                write.mergeUnder(newer);
+            }
+        }
+    }
+
+    private void execute(Class<?> entityClass, Query query, Update update, boolean upsert) {
+        if (upsert) {
+            mongoTemplate.upsert(query, update, entityClass);
+        } else {
+            mongoTemplate.updateFirst(query, update, entityClass);
+        }
+        enqueued.increment();
+        written.increment();
+        roundTrips.increment();
+    }
+
+    private String key(Class<?> entityClass, Query query) {
+        return mongoTemplate.getCollectionName(entityClass) + ":" + query.getQueryObject().toJson();
+    }
+
+    private static void complete(CompletableFuture<Void> future, Throwable error) {
+        if (error == null) {
+            future.complete(null);
+        } else {
+            future.completeExceptionally(error);
+        }
+    }
+}
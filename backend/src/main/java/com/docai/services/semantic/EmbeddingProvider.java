@@ -0,0 +1,34 @@
+package com.docai.services.semantic;
+
+import java.util.List;
+
+/**
+ * Turns text into dense vectors. Implementations return one L2-normalized vector of
+ * {@link #dimensions()} floats per input, in input order. Selected with
+ * {@code document.semantic.provider}; changing provider, model or dimensions changes
+ * {@link SemanticIndexService#embeddingVersion()}, so stored embeddings are rebuilt by a backfill.
+ */
+public interface EmbeddingProvider {
+
+    String name();
+
+    String model();
+
+    int dimensions();
+
+    List<float[]> embed(List<String> texts);
+
+    static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm > 0) {
+            float inverse = (float) (1.0 / Math.sqrt(norm));
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= inverse;
+            }
+        }
+        return vector;
+    }
+}
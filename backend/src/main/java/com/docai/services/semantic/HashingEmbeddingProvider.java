@@ -0,0 +1,89 @@
+package com.docai.services.semantic;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Deterministic local embeddings: signed feature hashing of word unigrams and bigrams with
+ * sublinear term frequency. No model or network is needed, so it is the default for development
+ * and tests; similarity is lexical-topical rather than truly semantic.
+ */
+@Component
+@ConditionalOnProperty(name = "document.semantic.provider", havingValue = "local", matchIfMissing = true)
+public class HashingEmbeddingProvider implements EmbeddingProvider {
+
+    private static final Pattern TOKEN = Pattern.compile("[\\p{L}\\p{N}]{2,}");
+
+    @Value("${document.semantic.dimensions:384}")
+    private int dimensions;
+
+    @Override
+    public String name() {
+        return "local";
+    }
+
+    @Override
+    public String model() {
+        return "hashing-v1";
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    @Override
+    public List<float[]> embed(List<String> texts) {
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            vectors.add(embed(text));
+        }
+        return vectors;
+    }
+
+    private float[] embed(String text) {
+        Map<String, Integer> counts = new HashMap<>();
+        Matcher matcher = TOKEN.matcher(text.toLowerCase(Locale.ROOT));
+        String previous = null;
+        while (matcher.find()) {
+            String token = matcher.group();
+            counts.merge(token, 1, Integer::sum);
+            if (previous != null) {
+                counts.merge(previous + " " + token, 1, Integer::sum);
+            }
+            previous = token;
+        }
+
+        float[] vector = new float[dimensions];
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            int hash = mix(entry.getKey().hashCode());
+            int index = Math.floorMod(hash, dimensions);
+            float weight = (float) (1 + Math.log(entry.getValue()));
+            // Bigrams carry phrase information but should not dominate single words
+            if (entry.getKey().indexOf(' ') >= 0) {
+                weight *= 0.5f;
+            }
+            vector[index] += (hash & 0x40000000) != 0 ? weight : -weight;
+        }
+        return EmbeddingProvider.normalize(vector);
+    }
+
+    private static int mix(int hash) {
+        // murmur3 finalizer; String.hashCode alone clusters similar tokens
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+}
@@ -0,0 +1,192 @@
+package com.docai.services.semantic;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+/**
+ * Read side of the on-disk inverted-file (IVF) vector index written by {@link IvfIndexWriter}.
+ * Only the document ids, centroids and list offsets are read onto the heap; the int8 entries are
+ * memory-mapped, so resident memory is whatever the page cache keeps of the probed lists.
+ *
+ * <p>Layout: {@code int metadataLength}, metadata (magic, format, dimensions, list count, document
+ * count, entry count, build time, embedding version, document ids, centroids, list offsets), then
+ * entries grouped by list, each {@code int documentOrdinal, float scale, byte[dimensions] codes}.
+ */
+final class IvfIndex {
+
+    static final int MAGIC = 0x44535631; // "DSV1"
+    static final int FORMAT = 1;
+
+    // Keep each mapping under the 2 GB MappedByteBuffer limit
+    private static final long MAX_SEGMENT_BYTES = Integer.MAX_VALUE - 8;
+
+    private final Path path;
+    private final int dimensions;
+    private final long builtAt;
+    private final String version;
+    private final String[] documentIds;
+    private final float[][] centroids;
+    private final long[] listOffsets;
+    private final long entryCount;
+    private final int entrySize;
+    private final long entriesPerSegment;
+    private final MappedByteBuffer[] segments;
+
+    private IvfIndex(Path path, int dimensions, long builtAt, String version, String[] documentIds,
+                     float[][] centroids, long[] listOffsets, long entryCount, MappedByteBuffer[] segments) {
+        this.path = path;
+        this.dimensions = dimensions;
+        this.builtAt = builtAt;
+        this.version = version;
+        this.documentIds = documentIds;
+        this.centroids = centroids;
+        this.listOffsets = listOffsets;
+        this.entryCount = entryCount;
+        this.entrySize = entrySize(dimensions);
+        this.entriesPerSegment = MAX_SEGMENT_BYTES / entrySize;
+        this.segments = segments;
+    }
+
+    static int entrySize(int dimensions) {
+        return Integer.BYTES + Float.BYTES + dimensions;
+    }
+
+    static IvfIndex open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+            channel.read(lengthBuffer, 0);
+            int metadataLength = lengthBuffer.flip().getInt();
+            ByteBuffer metadataBuffer = ByteBuffer.allocate(metadataLength);
+            channel.read(metadataBuffer, Integer.BYTES);
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(metadataBuffer.array()));
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT) {
+                throw new IOException("Not a vector index: " + path);
+            }
+            int dimensions = in.readInt();
+            int lists = in.readInt();
+            int documentCount = in.readInt();
+            long entryCount = in.readLong();
+            long builtAt = in.readLong();
+            String version = in.readUTF();
+
+            String[] documentIds = new String[documentCount];
+            for (int i = 0; i < documentCount; i++) {
+                documentIds[i] = in.readUTF();
+            }
+            float[][] centroids = new float[lists][dimensions];
+            for (float[] centroid : centroids) {
+                for (int d = 0; d < dimensions; d++) {
+                    centroid[d] = in.readFloat();
+                }
+            }
+            long[] listOffsets = new long[lists + 1];
+            for (int i = 0; i <= lists; i++) {
+                listOffsets[i] = in.readLong();
+            }
+
+            long entriesStart = Integer.BYTES + (long) metadataLength;
+            long entrySize = entrySize(dimensions);
+            long perSegment = MAX_SEGMENT_BYTES / entrySize;
+            int segmentCount = (int) ((entryCount + perSegment - 1) / perSegment);
+            MappedByteBuffer[] segments = new MappedByteBuffer[segmentCount];
+            for (int s = 0; s < segmentCount; s++) {
+                long first = s * perSegment;
+                long count = Math.min(perSegment, entryCount - first);
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, entriesStart + first * entrySize, count * entrySize);
+            }
+            return new IvfIndex(path, dimensions, builtAt, version, documentIds, centroids, listOffsets, entryCount, segments);
+        }
+    }
+
+    /**
+     * Best score per document over the entries of the {@code probes} lists closest to the query.
+     */
+    List<VectorHit> search(float[] query, int probes, int limit, Predicate<String> exclude) {
+        Map<Integer, Float> best = new HashMap<>();
+        byte[] codes = new byte[dimensions];
+        for (int list : nearestLists(query, probes)) {
+            for (long entry = listOffsets[list]; entry < listOffsets[list + 1]; entry++) {
+                MappedByteBuffer segment = segments[(int) (entry / entriesPerSegment)];
+                int offset = (int) ((entry % entriesPerSegment) * entrySize);
+                int ordinal = segment.getInt(offset);
+                float scale = segment.getFloat(offset + Integer.BYTES);
+                segment.get(offset + Integer.BYTES + Float.BYTES, codes);
+                best.merge(ordinal, VectorCodec.dot(query, codes, scale), Math::max);
+            }
+        }
+
+        PriorityQueue<VectorHit> top = new PriorityQueue<>(Comparator.comparingDouble(VectorHit::score));
+        for (Map.Entry<Integer, Float> entry : best.entrySet()) {
+            String documentId = documentIds[entry.getKey()];
+            if (exclude.test(documentId)) {
+                continue;
+            }
+            top.add(new VectorHit(documentId, entry.getValue()));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        List<VectorHit> hits = new ArrayList<>(top);
+        hits.sort(Comparator.comparingDouble(VectorHit::score).reversed());
+        return hits;
+    }
+
+    private int[] nearestLists(float[] query, int probes) {
+        int count = Math.min(probes, centroids.length);
+        Integer[] order = new Integer[centroids.length];
+        float[] scores = new float[centroids.length];
+        for (int i = 0; i < centroids.length; i++) {
+            order[i] = i;
+            scores[i] = VectorCodec.dot(query, centroids[i]);
+        }
+        Arrays.sort(order, (a, b) -> Float.compare(scores[b], scores[a]));
+        int[] lists = new int[count];
+        for (int i = 0; i < count; i++) {
+            lists[i] = order[i];
+        }
+        return lists;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    int dimensions() {
+        return dimensions;
+    }
+
+    long builtAt() {
+        return builtAt;
+    }
+
+    String version() {
+        return version;
+    }
+
+    int documentCount() {
+        return documentIds.length;
+    }
+
+    long entryCount() {
+        return entryCount;
+    }
+
+    int listCount() {
+        return centroids.length;
+    }
+}
@@ -0,0 +1,189 @@
+package com.docai.services.semantic;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Builds an {@link IvfIndex} file from int8 vectors: spherical k-means over a sample picks the
+ * list centroids, every vector is assigned to its nearest centroid, and entries are written
+ * grouped by list. Assignment and centroid updates run on the supplied pool, one task per core.
+ */
+final class IvfIndexWriter {
+
+    private static final int ITERATIONS = 8;
+    private static final int SAMPLES_PER_LIST = 64;
+
+    private final ForkJoinPool pool;
+
+    IvfIndexWriter(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Vectors accumulated for a build; entry i belongs to {@code documentIds.get(ordinals[i])}.
+     */
+    record Vectors(int dimensions, List<String> documentIds, int[] ordinals, float[] scales, byte[][] codes) {
+        int size() {
+            return codes.length;
+        }
+    }
+
+    void write(Path target, String version, long builtAt, Vectors vectors) throws IOException {
+        int n = vectors.size();
+        int lists = Math.max(1, Math.min(4096, (int) Math.round(Math.sqrt(n))));
+        float[][] centroids = n > 0 ? train(vectors, Math.min(lists, n)) : new float[0][];
+        int[] assignment = assign(vectors, centroids);
+
+        // Counting sort of entries by list
+        long[] listOffsets = new long[centroids.length + 1];
+        for (int list : assignment) {
+            listOffsets[list + 1]++;
+        }
+        for (int i = 0; i < centroids.length; i++) {
+            listOffsets[i + 1] += listOffsets[i];
+        }
+        int[] order = new int[n];
+        long[] next = listOffsets.clone();
+        for (int i = 0; i < n; i++) {
+            order[(int) next[assignment[i]]++] = i;
+        }
+
+        ByteArrayOutputStream metadataBytes = new ByteArrayOutputStream();
+        DataOutputStream metadata = new DataOutputStream(metadataBytes);
+        metadata.writeInt(IvfIndex.MAGIC);
+        metadata.writeInt(IvfIndex.FORMAT);
+        metadata.writeInt(vectors.dimensions());
+        metadata.writeInt(centroids.length);
+        metadata.writeInt(vectors.documentIds().size());
+        metadata.writeLong(n);
+        metadata.writeLong(builtAt);
+        metadata.writeUTF(version);
+        for (String documentId : vectors.documentIds()) {
+            metadata.writeUTF(documentId);
+        }
+        for (float[] centroid : centroids) {
+            for (float value : centroid) {
+                metadata.writeFloat(value);
+            }
+        }
+        for (long offset : listOffsets) {
+            metadata.writeLong(offset);
+        }
+        metadata.flush();
+
+        try (OutputStream file = new BufferedOutputStream(Files.newOutputStream(target), 1 << 20)) {
+            DataOutputStream out = new DataOutputStream(file);
+            out.writeInt(metadataBytes.size());
+            metadataBytes.writeTo(out);
+            for (int i : order) {
+                out.writeInt(vectors.ordinals()[i]);
+                out.writeFloat(vectors.scales()[i]);
+                out.write(vectors.codes()[i]);
+            }
+            out.flush();
+        }
+    }
+
+    private float[][] train(Vectors vectors, int lists) throws IOException {
+        int n = vectors.size();
+        int sampleSize = Math.min(n, lists * SAMPLES_PER_LIST);
+        int[] sample = new int[sampleSize];
+        for (int i = 0; i < sampleSize; i++) {
+            sample[i] = (int) ((long) i * n / sampleSize);
+        }
+
+        // Deterministic seeding spread across the sample
+        float[][] centroids = new float[lists][];
+        for (int c = 0; c < lists; c++) {
+            int entry = sample[(int) ((long) c * sampleSize / lists)];
+            centroids[c] = VectorCodec.dequantize(vectors.codes()[entry], vectors.scales()[entry]);
+        }
+
+        int[] assignment = new int[sampleSize];
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            float[][] current = centroids;
+            parallel(sampleSize, i -> assignment[i] = nearest(current, vectors.codes()[sample[i]], vectors.scales()[sample[i]]));
+
+            int[][] members = group(assignment, lists);
+            float[][] updated = new float[lists][];
+            parallel(lists, c -> {
+                if (members[c].length == 0) {
+                    // Reseed an empty list from a sample point so every list stays useful
+                    int entry = sample[(c * 7919) % sampleSize];
+                    updated[c] = VectorCodec.dequantize(vectors.codes()[entry], vectors.scales()[entry]);
+                    return;
+                }
+                float[] sum = new float[vectors.dimensions()];
+                for (int member : members[c]) {
+                    int entry = sample[member];
+                    byte[] codes = vectors.codes()[entry];
+                    float scale = vectors.scales()[entry];
+                    for (int d = 0; d < sum.length; d++) {
+                        sum[d] += codes[d] * scale;
+                    }
+                }
+                updated[c] = EmbeddingProvider.normalize(sum);
+            });
+            centroids = updated;
+        }
+        return centroids;
+    }
+
+    private int[] assign(Vectors vectors, float[][] centroids) throws IOException {
+        int[] assignment = new int[vectors.size()];
+        if (centroids.length > 0) {
+            parallel(vectors.size(), i -> assignment[i] = nearest(centroids, vectors.codes()[i], vectors.scales()[i]));
+        }
+        return assignment;
+    }
+
+    private static int nearest(float[][] centroids, byte[] codes, float scale) {
+        int best = 0;
+        float bestScore = Float.NEGATIVE_INFINITY;
+        for (int c = 0; c < centroids.length; c++) {
+            float score = VectorCodec.dot(centroids[c], codes, scale);
+            if (score > bestScore) {
+                bestScore = score;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    private static int[][] group(int[] assignment, int lists) {
+        int[] counts = new int[lists];
+        for (int list : assignment) {
+            counts[list]++;
+        }
+        int[][] members = new int[lists][];
+        for (int c = 0; c < lists; c++) {
+            members[c] = new int[counts[c]];
+        }
+        int[] fill = new int[lists];
+        for (int i = 0; i < assignment.length; i++) {
+            members[assignment[i]][fill[assignment[i]]++] = i;
+        }
+        return members;
+    }
+
+    private void parallel(int count, IntConsumer task) throws IOException {
+        try {
+            pool.submit(() -> IntStream.range(0, count).parallel().forEach(task)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Index build interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Index build failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+}
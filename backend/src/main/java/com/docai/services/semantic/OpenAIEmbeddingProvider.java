@@ -0,0 +1,106 @@
+package com.docai.services.semantic;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Embeddings from the OpenAI embeddings endpoint, requested at {@code document.semantic.dimensions}
+ * and sent in batches of {@code document.semantic.batch-size} inputs.
+ */
+@Component
+@ConditionalOnProperty(name = "document.semantic.provider", havingValue = "openai")
+public class OpenAIEmbeddingProvider implements EmbeddingProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(OpenAIEmbeddingProvider.class);
+
+    @Value("${openai.api.key}")
+    private String apiKey;
+
+    @Value("${document.semantic.embeddings-url:https://api.openai.com/v1/embeddings}")
+    private String apiUrl;
+
+    @Value("${document.semantic.model:text-embedding-3-small}")
+    private String model;
+
+    @Value("${document.semantic.dimensions:384}")
+    private int dimensions;
+
+    @Value("${document.semantic.batch-size:64}")
+    private int batchSize;
+
+    private final RestTemplate restTemplate = new RestTemplate();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    public String name() {
+        return "openai";
+    }
+
+    @Override
+    public String model() {
+        return model;
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    @Override
+    public List<float[]> embed(List<String> texts) {
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        for (int from = 0; from < texts.size(); from += batchSize) {
+            vectors.addAll(embedBatch(texts.subList(from, Math.min(texts.size(), from + batchSize))));
+        }
+        return vectors;
+    }
+
+    private List<float[]> embedBatch(List<String> texts) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setBearerAuth(apiKey);
+
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", model);
+        requestBody.put("input", texts);
+        requestBody.put("dimensions", dimensions);
+
+        String response = restTemplate.postForObject(apiUrl, new HttpEntity<>(requestBody, headers), String.class);
+        try {
+            JsonNode data = objectMapper.readTree(response).path("data");
+            float[][] vectors = new float[texts.size()][];
+            for (JsonNode item : data) {
+                JsonNode embedding = item.path("embedding");
+                float[] vector = new float[embedding.size()];
+                for (int i = 0; i < vector.length; i++) {
+                    vector[i] = (float) embedding.get(i).asDouble();
+                }
+                vectors[item.path("index").asInt()] = EmbeddingProvider.normalize(vector);
+            }
+            for (float[] vector : vectors) {
+                if (vector == null || vector.length != dimensions) {
+                    throw new IllegalStateException("Embedding response did not match the request");
+                }
+            }
+            logger.debug("Embedded {} inputs with {}", texts.size(), model);
+            return List.of(vectors);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unreadable embedding response: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,564 @@
+package com.docai.services.semantic;
+
+import com.docai.models.Document;
+import com.docai.models.DocumentAnalysis;
+import com.docai.models.DocumentEmbedding;
+import com.docai.models.Entity;
+import com.docai.services.analysis.AnalysisStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Dense-vector index over document chunks. Each document's text is split into overlapping
+ * chunks, embedded by the configured {@link EmbeddingProvider} together with one vector for its
+ * extracted entities, and stored int8-quantized in {@code document_embeddings}. Searches run
+ * against a memory-mapped {@link IvfIndex} file built from that collection, plus an in-memory
+ * delta of embeddings written since the build; the delta is refreshed from Mongo so every
+ * instance sees every write, and a rebuild folds it into a new file once it grows too large.
+ * Deleting a document leaves a tombstone row ({@code deletedAt}) that the refresh picks up like
+ * any other write; tombstones are purged after {@code document.semantic.tombstone-retention}.
+ */
+@Service
+public class SemanticIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SemanticIndexService.class);
+
+    private static final String FILE_PREFIX = "vectors-";
+    private static final String FILE_SUFFIX = ".ivf";
+
+    // Writes landing just before a build or refresh started may not be visible to it yet
+    private static final long CLOCK_SKEW_SECONDS = 5;
+
+    private static final int SIMILAR_QUERY_CHUNKS = 16;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private EmbeddingProvider embeddingProvider;
+
+    @Autowired
+    private AnalysisStore analysisStore;
+
+    @Value("${document.semantic.enabled:true}")
+    private boolean enabled;
+
+    @Value("${document.semantic.index-path:${document.storage.path:/tmp/documents}/semantic}")
+    private String indexPath;
+
+    @Value("${document.semantic.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${document.semantic.chunk-overlap:200}")
+    private int chunkOverlap;
+
+    @Value("${document.semantic.max-chunks:64}")
+    private int maxChunks;
+
+    @Value("${document.semantic.nprobe:8}")
+    private int probes;
+
+    @Value("${document.semantic.build-threads:0}")
+    private int buildThreads;
+
+    @Value("${document.semantic.rebuild-threshold:2000}")
+    private int rebuildThreshold;
+
+    @Value("${document.semantic.tombstone-retention:7d}")
+    private Duration tombstoneRetention;
+
+    private final Map<String, DocumentEmbedding> delta = new ConcurrentHashMap<>();
+    private final Map<String, LocalDateTime> removed = new ConcurrentHashMap<>();
+    private final AtomicBoolean building = new AtomicBoolean();
+
+    private volatile IvfIndex index;
+    private volatile LocalDateTime watermark = LocalDateTime.MIN;
+    private volatile Long lastBuildMillis;
+    private volatile String lastBuildError;
+
+    private ForkJoinPool buildPool;
+    private ExecutorService builder;
+
+    @PostConstruct
+    public void initialize() {
+        buildPool = new ForkJoinPool(buildThreads > 0 ? buildThreads : Runtime.getRuntime().availableProcessors());
+        builder = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "semantic-index-builder");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        builder.shutdownNow();
+        buildPool.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            openLatest();
+            if (index != null) {
+                refreshDelta();
+            } else {
+                rebuild();
+            }
+        } catch (Exception e) {
+            logger.error("Error opening semantic index", e);
+        }
+    }
+
+    /**
+     * Identifies how stored vectors were produced; documents with another version are re-embedded.
+     */
+    public String embeddingVersion() {
+        return embeddingProvider.name() + ":" + embeddingProvider.model() + ":" + embeddingProvider.dimensions()
+                + ":c" + chunkSize + "-" + chunkOverlap + "-" + maxChunks;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isCurrent(Document document) {
+        return embeddingVersion().equals(document.getEmbeddingVersion());
+    }
+
+    /**
+     * Embeds the document's text chunks and current entities and makes them searchable.
+     */
+    public void indexDocument(Document document) {
+        if (!enabled || document.getExtractedText() == null || document.getExtractedText().isBlank()) {
+            return;
+        }
+        String text = document.getExtractedText();
+        List<TextChunker.Span> spans = TextChunker.split(text, chunkSize, chunkOverlap, maxChunks);
+        List<String> inputs = new ArrayList<>(spans.size() + 1);
+        for (TextChunker.Span span : spans) {
+            inputs.add(text.substring(span.start(), span.end()));
+        }
+        String entityText = entityText(currentEntities(document.getId()));
+        if (entityText != null) {
+            inputs.add(entityText);
+        }
+
+        List<float[]> vectors = embeddingProvider.embed(inputs);
+        DocumentEmbedding embedding = new DocumentEmbedding(document.getId(), embeddingVersion(), embeddingProvider.dimensions());
+        for (int i = 0; i < spans.size(); i++) {
+            VectorCodec.Quantized quantized = VectorCodec.quantize(vectors.get(i));
+            embedding.getChunks().add(new DocumentEmbedding.Chunk(DocumentEmbedding.KIND_TEXT,
+                    spans.get(i).start(), spans.get(i).end(), quantized.scale(), quantized.codes()));
+        }
+        if (entityText != null) {
+            embedding.getChunks().add(entityChunk(vectors.get(vectors.size() - 1)));
+        }
+        save(embedding);
+
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(document.getId())),
+                new Update().set("embeddingVersion", embedding.getVersion()), Document.class);
+        document.setEmbeddingVersion(embedding.getVersion());
+        logger.debug("Indexed {} chunks for document {}", embedding.getChunks().size(), document.getId());
+    }
+
+    /**
+     * Replaces the entity vector of an already embedded document after a new entity analysis.
+     */
+    public void updateEntities(String documentId, List<Entity> entities) {
+        String entityText = entityText(entities);
+        if (!enabled || entityText == null) {
+            return;
+        }
+        DocumentEmbedding embedding = mongoTemplate.findById(documentId, DocumentEmbedding.class);
+        if (embedding == null || embedding.getDeletedAt() != null || !embeddingVersion().equals(embedding.getVersion())) {
+            // Not embedded yet, deleted, or stale; the next full embedding picks the entities up
+            return;
+        }
+        float[] vector = embeddingProvider.embed(List.of(entityText)).get(0);
+        embedding.getChunks().removeIf(chunk -> DocumentEmbedding.KIND_ENTITIES.equals(chunk.getKind()));
+        embedding.getChunks().add(entityChunk(vector));
+        embedding.setUpdatedAt(LocalDateTime.now());
+        save(embedding);
+    }
+
+    /**
+     * Drops the document's vectors, leaving a tombstone so other instances exclude it from their index.
+     */
+    public void remove(String documentId) {
+        LocalDateTime now = LocalDateTime.now();
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(documentId)), new Update()
+                .set("chunks", List.of())
+                .set("deletedAt", now)
+                .set("updatedAt", now), DocumentEmbedding.class);
+        delta.remove(documentId);
+        removed.put(documentId, now);
+    }
+
+    /**
+     * Documents whose chunks are closest to the query text.
+     */
+    public List<VectorHit> search(String query, int limit) {
+        if (!enabled || query == null || query.isBlank()) {
+            return List.of();
+        }
+        float[] vector = embeddingProvider.embed(List.of(query)).get(0);
+        return search(vector, limit, null);
+    }
+
+    /**
+     * Documents closest to any of the given document's chunks, or empty when it has no embedding.
+     */
+    public Optional<List<VectorHit>> similar(String documentId, int limit) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        DocumentEmbedding embedding = delta.get(documentId);
+        if (embedding == null) {
+            embedding = mongoTemplate.findById(documentId, DocumentEmbedding.class);
+        }
+        if (embedding == null || embedding.getDeletedAt() != null || embedding.getChunks().isEmpty()
+                || !embeddingVersion().equals(embedding.getVersion())) {
+            return Optional.empty();
+        }
+
+        // Long documents query with an even sample of their chunks
+        List<DocumentEmbedding.Chunk> chunks = embedding.getChunks();
+        int step = Math.max(1, (chunks.size() + SIMILAR_QUERY_CHUNKS - 1) / SIMILAR_QUERY_CHUNKS);
+        Map<String, Float> best = new HashMap<>();
+        for (int i = 0; i < chunks.size(); i += step) {
+            DocumentEmbedding.Chunk chunk = chunks.get(i);
+            float[] query = VectorCodec.dequantize(chunk.getVector(), chunk.getScale());
+            for (VectorHit hit : search(query, limit, documentId)) {
+                best.merge(hit.documentId(), hit.score(), Math::max);
+            }
+        }
+        return Optional.of(top(best, limit));
+    }
+
+    private List<VectorHit> search(float[] query, int limit, String excludeId) {
+        Map<String, Float> best = new HashMap<>();
+        IvfIndex current = index;
+        if (current != null && current.dimensions() == query.length) {
+            for (VectorHit hit : current.search(query, probes, limit + 1,
+                    id -> delta.containsKey(id) || removed.containsKey(id) || id.equals(excludeId))) {
+                best.put(hit.documentId(), hit.score());
+            }
+        }
+        String version = embeddingVersion();
+        for (DocumentEmbedding embedding : delta.values()) {
+            if (embedding.getId().equals(excludeId) || !version.equals(embedding.getVersion())) {
+                continue;
+            }
+            for (DocumentEmbedding.Chunk chunk : embedding.getChunks()) {
+                best.merge(embedding.getId(), VectorCodec.dot(query, chunk.getVector(), chunk.getScale()), Math::max);
+            }
+        }
+        return top(best, limit);
+    }
+
+    private static List<VectorHit> top(Map<String, Float> scores, int limit) {
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<String, Float>comparingByValue().reversed())
+                .limit(limit)
+                .map(entry -> new VectorHit(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Pulls embeddings written and tombstones left by any instance since the last refresh into the delta.
+     */
+    @Scheduled(fixedDelayString = "${document.semantic.refresh-interval:10000}",
+            initialDelayString = "${document.semantic.refresh-interval:10000}")
+    public void refreshDelta() {
+        if (!enabled || (index == null && building.get())) {
+            // The first build covers everything written so far
+            return;
+        }
+        int pageSize = 500;
+        while (true) {
+            Query query = new Query(Criteria.where("updatedAt").gt(watermark.minusSeconds(CLOCK_SKEW_SECONDS)))
+                    .with(Sort.by(Sort.Direction.ASC, "updatedAt"))
+                    .limit(pageSize);
+            List<DocumentEmbedding> page = mongoTemplate.find(query, DocumentEmbedding.class);
+            LocalDateTime previous = watermark;
+            for (DocumentEmbedding embedding : page) {
+                if (embedding.getDeletedAt() != null) {
+                    DocumentEmbedding existing = delta.get(embedding.getId());
+                    if (existing == null || !existing.getUpdatedAt().isAfter(embedding.getUpdatedAt())) {
+                        delta.remove(embedding.getId());
+                        removed.put(embedding.getId(), embedding.getDeletedAt());
+                    }
+                } else {
+                    delta.merge(embedding.getId(), embedding,
+                            (existing, update) -> update.getUpdatedAt().isBefore(existing.getUpdatedAt()) ? existing : update);
+                    removed.remove(embedding.getId());
+                }
+                if (embedding.getUpdatedAt().isAfter(watermark)) {
+                    watermark = embedding.getUpdatedAt();
+                }
+            }
+            if (page.size() < pageSize || !watermark.isAfter(previous)) {
+                break;
+            }
+        }
+
+        if (delta.size() > rebuildThreshold) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Starts a background rebuild of the index file; false if one is already running.
+     */
+    public boolean rebuild() {
+        if (!enabled || !building.compareAndSet(false, true)) {
+            return false;
+        }
+        builder.submit(() -> {
+            try {
+                build();
+            } catch (Exception e) {
+                lastBuildError = e.getMessage();
+                logger.error("Semantic index build failed", e);
+            } finally {
+                building.set(false);
+            }
+        });
+        return true;
+    }
+
+    private void build() throws IOException {
+        long startTime = System.currentTimeMillis();
+        LocalDateTime snapshot = LocalDateTime.now().minusSeconds(CLOCK_SKEW_SECONDS);
+        String version = embeddingVersion();
+        int dimensions = embeddingProvider.dimensions();
+
+        List<String> documentIds = new ArrayList<>();
+        int[] ordinals = new int[1024];
+        float[] scales = new float[1024];
+        byte[][] codes = new byte[1024][];
+        int size = 0;
+
+        Query query = new Query(Criteria.where("version").is(version).and("deletedAt").is(null));
+        try (Stream<DocumentEmbedding> stream = mongoTemplate.stream(query, DocumentEmbedding.class)) {
+            Iterator<DocumentEmbedding> embeddings = stream.iterator();
+            while (embeddings.hasNext()) {
+                DocumentEmbedding embedding = embeddings.next();
+                int ordinal = documentIds.size();
+                documentIds.add(embedding.getId());
+                for (DocumentEmbedding.Chunk chunk : embedding.getChunks()) {
+                    if (chunk.getVector() == null || chunk.getVector().length != dimensions) {
+                        continue;
+                    }
+                    if (size == codes.length) {
+                        ordinals = Arrays.copyOf(ordinals, size * 2);
+                        scales = Arrays.copyOf(scales, size * 2);
+                        codes = Arrays.copyOf(codes, size * 2);
+                    }
+                    ordinals[size] = ordinal;
+                    scales[size] = chunk.getScale();
+                    codes[size] = chunk.getVector();
+                    size++;
+                }
+            }
+        }
+
+        Path directory = Paths.get(indexPath);
+        Files.createDirectories(directory);
+        long builtAt = snapshot.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        Path target = directory.resolve(FILE_PREFIX + builtAt + FILE_SUFFIX);
+        Path temp = directory.resolve("." + target.getFileName() + ".part");
+        try {
+            new IvfIndexWriter(buildPool).write(temp, version, builtAt, new IvfIndexWriter.Vectors(dimensions, documentIds,
+                    Arrays.copyOf(ordinals, size), Arrays.copyOf(scales, size), Arrays.copyOf(codes, size)));
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        IvfIndex previous = index;
+        index = IvfIndex.open(target);
+        // Embeddings written before the snapshot are in the file now
+        delta.values().removeIf(embedding -> embedding.getUpdatedAt().isBefore(snapshot));
+        removed.values().removeIf(time -> time.isBefore(snapshot));
+        if (watermark.isBefore(snapshot)) {
+            watermark = snapshot;
+        }
+        deleteOtherFiles(target);
+        purgeTombstones();
+
+        lastBuildMillis = System.currentTimeMillis() - startTime;
+        lastBuildError = null;
+        logger.info("Semantic index built: {} documents, {} vectors, {} lists in {} ms (previous: {})",
+                documentIds.size(), size, index.listCount(), lastBuildMillis,
+                previous != null ? previous.path().getFileName() : "none");
+    }
+
+    /**
+     * Removes tombstones old enough that every running instance has refreshed past them.
+     */
+    private void purgeTombstones() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(tombstoneRetention);
+        long purged = mongoTemplate.remove(new Query(Criteria.where("updatedAt").lt(cutoff).and("deletedAt").ne(null)),
+                DocumentEmbedding.class).getDeletedCount();
+        if (purged > 0) {
+            logger.debug("Purged {} semantic index tombstones", purged);
+        }
+    }
+
+    private void openLatest() throws IOException {
+        Path directory = Paths.get(indexPath);
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort(Comparator.comparing(Path::toString).reversed());
+        for (Path file : files) {
+            try {
+                IvfIndex candidate = IvfIndex.open(file);
+                if (!embeddingVersion().equals(candidate.version())) {
+                    continue;
+                }
+                if (Instant.ofEpochMilli(candidate.builtAt()).isBefore(Instant.now().minus(tombstoneRetention))) {
+                    // Tombstones for deletions since then may be purged already; rebuild instead
+                    logger.info("Semantic index {} is older than the tombstone retention, rebuilding", file.getFileName());
+                    return;
+                }
+                index = candidate;
+                watermark = LocalDateTime.ofInstant(Instant.ofEpochMilli(candidate.builtAt()), ZoneId.systemDefault());
+                logger.info("Opened semantic index {} ({} documents)", file.getFileName(), candidate.documentCount());
+                return;
+            } catch (IOException e) {
+                logger.warn("Skipping unreadable semantic index {}: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    private void deleteOtherFiles(Path keep) {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(keep.getParent(), FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path file : stream) {
+                if (!file.equals(keep)) {
+                    // Open mappings stay valid until unmapped; searches in flight are unaffected
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Could not delete old semantic index files: {}", e.getMessage());
+        }
+    }
+
+    private void save(DocumentEmbedding embedding) {
+        mongoTemplate.save(embedding);
+        delta.put(embedding.getId(), embedding);
+        removed.remove(embedding.getId());
+    }
+
+    private List<Entity> currentEntities(String documentId) {
+        for (String analysisType : List.of("entity_extraction", "comprehensive")) {
+            Optional<DocumentAnalysis> analysis = analysisStore.findCurrent(documentId, analysisType);
+            if (analysis.isPresent() && analysis.get().getEntities() != null && !analysis.get().getEntities().isEmpty()) {
+                return analysis.get().getEntities();
+            }
+        }
+        return List.of();
+    }
+
+    private static String entityText(List<Entity> entities) {
+        if (entities == null || entities.isEmpty()) {
+            return null;
+        }
+        String text = entities.stream()
+                .map(entity -> entity.getNormalizedValue() != null ? entity.getNormalizedValue() : entity.getText())
+                .filter(value -> value != null && !value.isBlank())
+                .distinct()
+                .collect(Collectors.joining(". "));
+        return text.isBlank() ? null : text;
+    }
+
+    private static DocumentEmbedding.Chunk entityChunk(float[] vector) {
+        VectorCodec.Quantized quantized = VectorCodec.quantize(vector);
+        return new DocumentEmbedding.Chunk(DocumentEmbedding.KIND_ENTITIES, 0, 0, quantized.scale(), quantized.codes());
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("provider", embeddingProvider.name());
+        status.put("model", embeddingProvider.model());
+        status.put("dimensions", embeddingProvider.dimensions());
+        status.put("version", embeddingVersion());
+        IvfIndex current = index;
+        if (current != null) {
+            Map<String, Object> file = new LinkedHashMap<>();
+            file.put("path", current.path().toString());
+            file.put("documents", current.documentCount());
+            file.put("vectors", current.entryCount());
+            file.put("lists", current.listCount());
+            file.put("builtAt", LocalDateTime.ofInstant(Instant.ofEpochMilli(current.builtAt()), ZoneId.systemDefault()));
+            try {
+                file.put("sizeBytes", Files.size(current.path()));
+            } catch (IOException e) {
+                file.put("sizeBytes", null);
+            }
+            status.put("index", file);
+        } else {
+            status.put("index", null);
+        }
+        status.put("deltaDocuments", delta.size());
+        status.put("building", building.get());
+        status.put("lastBuildMillis", lastBuildMillis);
+        status.put("lastBuildError", lastBuildError);
+        return status;
+    }
+}
@@ -0,0 +1,114 @@
+package com.docai.services.semantic;
+
+import com.docai.config.MongoReadRouting;
+import com.docai.models.Document;
+import com.docai.repositories.DocumentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Document-level semantic and hybrid search on top of {@link SemanticIndexService}. Hybrid mode
+ * fuses the ranking of the {@code extracted_text} full-text index with the vector ranking by
+ * reciprocal rank fusion, so neither score scale has to be calibrated against the other.
+ */
+@Service
+public class SemanticSearchService {
+
+    public static final String MODE_SEMANTIC = "semantic";
+    public static final String MODE_HYBRID = "hybrid";
+
+    // Standard RRF damping constant; larger values flatten the contribution of top ranks
+    private static final int RRF_K = 60;
+
+    @Autowired
+    private SemanticIndexService semanticIndex;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MongoReadRouting readRouting;
+
+    @Value("${document.semantic.hybrid-candidates:100}")
+    private int hybridCandidates;
+
+    public record ScoredDocument(Document document, double score) {
+    }
+
+    /**
+     * Documents most similar to the given one, or empty when it has not been embedded yet.
+     */
+    public Optional<List<ScoredDocument>> similar(String documentId, int limit) {
+        return semanticIndex.similar(documentId, limit)
+                .map(hits -> load(hits.stream().collect(Collectors.toMap(VectorHit::documentId,
+                        hit -> (double) hit.score(), (a, b) -> a, LinkedHashMap::new)), null, 0, limit));
+    }
+
+    public List<ScoredDocument> search(String query, String classification, String mode, int page, int size) {
+        int wanted = (page + 1) * size;
+        // Over-fetch so the classification filter still fills a page
+        int candidates = classification != null ? Math.max(wanted * 4, hybridCandidates) : Math.max(wanted, hybridCandidates);
+
+        List<VectorHit> vectorHits = semanticIndex.search(query, candidates);
+        if (!MODE_HYBRID.equals(mode)) {
+            return load(vectorHits.stream().collect(Collectors.toMap(VectorHit::documentId,
+                    hit -> (double) hit.score(), (a, b) -> a, LinkedHashMap::new)), classification, page, size);
+        }
+
+        Map<String, Double> fused = new HashMap<>();
+        List<String> lexical = lexicalRanking(query, classification, candidates);
+        for (int rank = 0; rank < lexical.size(); rank++) {
+            fused.merge(lexical.get(rank), 1.0 / (RRF_K + rank + 1), Double::sum);
+        }
+        for (int rank = 0; rank < vectorHits.size(); rank++) {
+            fused.merge(vectorHits.get(rank).documentId(), 1.0 / (RRF_K + rank + 1), Double::sum);
+        }
+        Map<String, Double> ranked = fused.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+        return load(ranked, classification, page, size);
+    }
+
+    private List<String> lexicalRanking(String query, String classification, int limit) {
+        TextQuery textQuery = TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(query)).sortByScore();
+        if (classification != null) {
+            textQuery.addCriteria(Criteria.where("classification").is(classification));
+        }
+        textQuery.fields().include("id");
+        textQuery.limit(limit);
+        return mongoTemplate.find(readRouting.analytics(textQuery), Document.class).stream().map(Document::getId).toList();
+    }
+
+    private List<ScoredDocument> load(Map<String, Double> ranked, String classification, int page, int size) {
+        Map<String, Document> documents = new HashMap<>();
+        documentRepository.findAllById(ranked.keySet()).forEach(document -> documents.put(document.getId(), document));
+
+        List<ScoredDocument> results = new ArrayList<>();
+        for (Map.Entry<String, Double> entry : ranked.entrySet()) {
+            Document document = documents.get(entry.getKey());
+            // Hits for deleted documents drop out here until the next index build
+            if (document == null || (classification != null && !classification.equals(document.getClassification()))) {
+                continue;
+            }
+            results.add(new ScoredDocument(document, entry.getValue()));
+        }
+        int from = Math.min(results.size(), page * size);
+        return results.subList(from, Math.min(results.size(), from + size));
+    }
+}
@@ -0,0 +1,49 @@
+package com.docai.services.semantic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits text into overlapping windows that end on whitespace. Long documents get wider windows
+ * rather than being truncated, so at most {@code maxChunks} spans always cover the whole text.
+ */
+final class TextChunker {
+
+    private TextChunker() {
+    }
+
+    record Span(int start, int end) {
+    }
+
+    static List<Span> split(String text, int size, int overlap, int maxChunks) {
+        List<Span> spans = new ArrayList<>();
+        int length = text.length();
+        if (length == 0) {
+            return spans;
+        }
+        int step = Math.max(1, size - overlap);
+        if ((long) step * maxChunks < length) {
+            step = (length + maxChunks - 1) / maxChunks;
+            size = step + overlap;
+        }
+
+        int start = 0;
+        while (start < length && spans.size() < maxChunks) {
+            int end = Math.min(length, start + size);
+            if (end < length) {
+                int space = text.lastIndexOf(' ', end);
+                if (space > start + size / 2) {
+                    end = space;
+                }
+            }
+            spans.add(new Span(start, end));
+            if (end >= length) {
+                break;
+            }
+            int next = start + step;
+            int space = text.indexOf(' ', next);
+            start = space >= 0 && space < next + overlap ? space + 1 : next;
+        }
+        return spans;
+    }
+}
@@ -0,0 +1,52 @@
+package com.docai.services.semantic;
+
+/**
+ * Symmetric per-vector int8 quantization: each component is stored as round(x / scale) with
+ * scale = max|x| / 127, a quarter of the float32 footprint. Dot products against a float query
+ * are computed on the codes and rescaled once.
+ */
+final class VectorCodec {
+
+    private VectorCodec() {
+    }
+
+    record Quantized(float scale, byte[] codes) {
+    }
+
+    static Quantized quantize(float[] vector) {
+        float max = 0;
+        for (float value : vector) {
+            max = Math.max(max, Math.abs(value));
+        }
+        float scale = max > 0 ? max / 127f : 1f;
+        byte[] codes = new byte[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            codes[i] = (byte) Math.max(-127, Math.min(127, Math.round(vector[i] / scale)));
+        }
+        return new Quantized(scale, codes);
+    }
+
+    static float[] dequantize(byte[] codes, float scale) {
+        float[] vector = new float[codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            vector[i] = codes[i] * scale;
+        }
+        return vector;
+    }
+
+    static float dot(float[] query, byte[] codes, float scale) {
+        float sum = 0;
+        for (int i = 0; i < query.length; i++) {
+            sum += query[i] * codes[i];
+        }
+        return sum * scale;
+    }
+
+    static float dot(float[] left, float[] right) {
+        float sum = 0;
+        for (int i = 0; i < left.length; i++) {
+            sum += left[i] * right[i];
+        }
+        return sum;
+    }
+}
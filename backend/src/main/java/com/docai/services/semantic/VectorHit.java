@@ -0,0 +1,7 @@
+package com.docai.services.semantic;
+
+/**
+ * A document and its best chunk similarity to a query (cosine, higher is closer).
+ */
+public record VectorHit(String documentId, float score) {
+}
@@ -0,0 +1,648 @@
+package com.docai.services.stats;
+
+import com.docai.config.MongoReadRouting;
+import com.docai.models.Document;
+import com.docai.models.DocumentAnalysis;
+import com.docai.models.Entity;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.bson.conversions.Bson;
+import org.bson.types.Binary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+
+/**
+ * Keeps document and analysis statistics up to date as documents move through the pipeline,
+ * so the stats endpoints are served from memory instead of scanning collections.
+ * Every replica counts its own pipeline events and checkpoints them as {@code $inc} deltas into
+ * one shared counters document, reading back the cluster-wide totals in the same round trip; reads
+ * are those totals plus the changes not yet checkpointed. Latency histograms cannot be summed that
+ * way, so each instance writes its own and reads merge them all.
+ * <p>
+ * Rows that disappear without going through the pipeline (TTL indexes, manual deletes) are not
+ * seen by the hooks, so the counters are re-aggregated from the collections periodically by one
+ * replica, and rebuilt on startup when no counters document exists yet.
+ */
+@Service
+public class DocumentStatisticsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentStatisticsService.class);
+
+    public static final String CONTENT_TYPE = "contentType";
+    public static final String STATUS = "status";
+    public static final String CLASSIFICATION = "classification";
+    public static final String ENTITY_TYPE = "entityType";
+    public static final String ANALYSIS_TYPE = "analysisType";
+    public static final String ANALYSIS_STATUS = "analysisStatus";
+    public static final String TOTALS = "totals";
+
+    public static final String SERIES_UPLOADED = "uploaded";
+    public static final String SERIES_PROCESSED = "processed";
+    public static final String SERIES_ANALYZED = "analyzed";
+
+    private static final String SNAPSHOTS = "statistics_snapshots";
+    private static final String CLUSTER_ID = "cluster";
+    // Single-writer snapshot from before counters were shared; replaced by a rebuild
+    private static final String LEGACY_SNAPSHOT_ID = "global";
+    private static final String INSTANCE_PREFIX = "instance:";
+    private static final String UNKNOWN = "UNKNOWN";
+    private static final long MAX_TRACKABLE_MILLIS = TimeUnit.HOURS.toMillis(6);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MongoReadRouting readRouting;
+
+    @Value("${document.stats.retention-days:90}")
+    private int retentionDays;
+
+    @Value("${document.stats.reconcile-interval:21600000}")
+    private long reconcileInterval;
+
+    private final String instanceId = instanceName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+
+    // Cluster-wide totals as of the last checkpoint
+    private volatile Map<String, Map<String, Long>> clusterCounters = Map.of();
+    private volatile Map<String, Map<Long, Long>> clusterBuckets = Map.of();
+
+    // This instance's changes not yet checkpointed
+    private final Map<String, Map<String, LongAdder>> counters = new ConcurrentHashMap<>();
+    private final Map<String, Map<Long, LongAdder>> hourlySeries = new ConcurrentHashMap<>();
+
+    private final Histogram analysisTime = new ConcurrentHistogram(MAX_TRACKABLE_MILLIS, 3);
+    private final Histogram extractionTime = new ConcurrentHistogram(MAX_TRACKABLE_MILLIS, 3);
+    // Latest checkpoints of every other instance within the retention window
+    private volatile Histogram otherAnalysisTime = new Histogram(MAX_TRACKABLE_MILLIS, 3);
+    private volatile Histogram otherExtractionTime = new Histogram(MAX_TRACKABLE_MILLIS, 3);
+
+    @PostConstruct
+    public void initialize() {
+        try {
+            org.bson.Document cluster = snapshots().find(Filters.eq("_id", CLUSTER_ID)).first();
+            if (cluster != null) {
+                applyCluster(cluster);
+                logger.info("Document statistics loaded from counters checkpointed at {}", cluster.get("checkpointed_at"));
+            } else {
+                rebuild();
+                snapshots().deleteOne(Filters.eq("_id", LEGACY_SNAPSHOT_ID));
+            }
+            loadOtherHistograms();
+        } catch (Exception e) {
+            logger.error("Error initializing document statistics", e);
+        }
+    }
+
+    // Pipeline hooks
+
+    public void onDocumentUploaded(Document document) {
+        increment(TOTALS, "documents", 1);
+        increment(CONTENT_TYPE, document.getContentType(), 1);
+        increment(STATUS, document.getProcessingStatus(), 1);
+        recordEvent(SERIES_UPLOADED);
+    }
+
+    public void onDocumentStatusChanged(String oldStatus, String newStatus, Long processingMillis) {
+        if (oldStatus != null && oldStatus.equals(newStatus)) {
+            return;
+        }
+        increment(STATUS, oldStatus, -1);
+        increment(STATUS, newStatus, 1);
+        if ("COMPLETED".equals(newStatus)) {
+            recordEvent(SERIES_PROCESSED);
+            if (processingMillis != null) {
+                extractionTime.recordValue(Math.min(Math.max(processingMillis, 0), MAX_TRACKABLE_MILLIS));
+            }
+        }
+    }
+
+    public void onClassificationChanged(String oldClassification, String newClassification) {
+        if (oldClassification != null && oldClassification.equals(newClassification)) {
+            return;
+        }
+        if (oldClassification != null) {
+            increment(CLASSIFICATION, oldClassification, -1);
+        }
+        increment(CLASSIFICATION, newClassification, 1);
+    }
+
+    public void onDocumentDeleted(Document document) {
+        increment(TOTALS, "documents", -1);
+        increment(CONTENT_TYPE, document.getContentType(), -1);
+        increment(STATUS, document.getProcessingStatus(), -1);
+        if (document.getClassification() != null) {
+            increment(CLASSIFICATION, document.getClassification(), -1);
+        }
+    }
+
+    /**
+     * Records a finished analysis; {@code replaced} is the analysis it supersedes, if any,
+     * so counts keep reflecting current analyses and are not inflated by re-analysis.
+     */
+    public void onAnalysisCompleted(DocumentAnalysis analysis, DocumentAnalysis replaced) {
+        if (replaced != null) {
+            increment(TOTALS, "analyses", -1);
+            increment(ANALYSIS_TYPE, replaced.getAnalysisType(), -1);
+            increment(ANALYSIS_STATUS, replaced.getStatus(), -1);
+            countEntities(replaced.getEntities(), -1);
+        }
+        increment(TOTALS, "analyses", 1);
+        increment(ANALYSIS_TYPE, analysis.getAnalysisType(), 1);
+        increment(ANALYSIS_STATUS, analysis.getStatus(), 1);
+        countEntities(analysis.getEntities(), 1);
+        recordEvent(SERIES_ANALYZED);
+
+        if (analysis.getProcessingTime() != null) {
+            analysisTime.recordValue(Math.min(Math.max(analysis.getProcessingTime(), 0), MAX_TRACKABLE_MILLIS));
+        }
+    }
+
+    // Reads
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("totalDocuments", count(TOTALS, "documents"));
+        stats.put("totalAnalyses", count(TOTALS, "analyses"));
+        stats.put("totalEntities", total(ENTITY_TYPE));
+        stats.put("byClassification", snapshot(CLASSIFICATION));
+        stats.put("byContentType", snapshot(CONTENT_TYPE));
+        stats.put("byStatus", snapshot(STATUS));
+        stats.put("byEntityType", snapshot(ENTITY_TYPE));
+        stats.put("byAnalysisType", snapshot(ANALYSIS_TYPE));
+        stats.put("byAnalysisStatus", snapshot(ANALYSIS_STATUS));
+        stats.put("analysisProcessingTime", percentiles(merged(otherAnalysisTime, analysisTime)));
+        stats.put("extractionProcessingTime", percentiles(merged(otherExtractionTime, extractionTime)));
+        return stats;
+    }
+
+    public long count(String dimension, String value) {
+        Map<String, LongAdder> values = counters.get(dimension);
+        LongAdder adder = values != null ? values.get(value) : null;
+        return clusterCounters.getOrDefault(dimension, Map.of()).getOrDefault(value, 0L)
+                + (adder != null ? adder.sum() : 0L);
+    }
+
+    public long total(String dimension) {
+        return snapshot(dimension).values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    public Map<String, Long> snapshot(String dimension) {
+        Map<String, Long> values = new TreeMap<>(clusterCounters.getOrDefault(dimension, Map.of()));
+        counters.getOrDefault(dimension, Map.of()).forEach((value, adder) -> values.merge(value, adder.sum(), Long::sum));
+        values.values().removeIf(count -> count == 0);
+        return values;
+    }
+
+    public Map<String, Object> getTimeSeries(int days, int hours) {
+        Map<String, Object> daily = new LinkedHashMap<>();
+        Map<String, Object> hourly = new LinkedHashMap<>();
+        for (String series : List.of(SERIES_UPLOADED, SERIES_PROCESSED, SERIES_ANALYZED)) {
+            daily.put(series, dailySeries(series, days));
+            hourly.put(series, hourlySeries(series, hours));
+        }
+        return Map.of("daily", daily, "hourly", hourly);
+    }
+
+    public Map<String, Object> percentiles(Histogram histogram) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        long count = histogram.getTotalCount();
+        result.put("count", count);
+        result.put("mean", count > 0 ? histogram.getMean() : 0.0);
+        result.put("p50", histogram.getValueAtPercentile(50));
+        result.put("p90", histogram.getValueAtPercentile(90));
+        result.put("p95", histogram.getValueAtPercentile(95));
+        result.put("p99", histogram.getValueAtPercentile(99));
+        result.put("max", histogram.getMaxValue());
+        return result;
+    }
+
+    /**
+     * Analysis latency across all instances.
+     */
+    public Histogram getAnalysisTimeHistogram() {
+        return merged(otherAnalysisTime, analysisTime);
+    }
+
+    /**
+     * Hourly counts for the last {@code hours} hours, oldest first.
+     */
+    public List<Map<String, Object>> hourlySeries(String series, int hours) {
+        Map<Long, Long> buckets = buckets(series);
+        long currentHour = currentEpochHour();
+        List<Map<String, Object>> points = new ArrayList<>(hours);
+        for (long hour = currentHour - hours + 1; hour <= currentHour; hour++) {
+            points.add(Map.of(
+                    "timestamp", LocalDateTime.ofEpochSecond(hour * 3600, 0, ZoneOffset.UTC).toString(),
+                    "count", buckets.getOrDefault(hour, 0L)));
+        }
+        return points;
+    }
+
+    /**
+     * Daily rollup (server time zone) of the hourly buckets for the last {@code days} days, oldest first.
+     */
+    public List<Map<String, Object>> dailySeries(String series, int days) {
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDate today = LocalDate.now(zone);
+        LocalDate firstDay = today.minusDays(days - 1L);
+        Map<LocalDate, Long> totals = new TreeMap<>();
+        for (LocalDate day = firstDay; !day.isAfter(today); day = day.plusDays(1)) {
+            totals.put(day, 0L);
+        }
+
+        buckets(series).forEach((hour, count) -> {
+            LocalDate day = Instant.ofEpochSecond(hour * 3600).atZone(zone).toLocalDate();
+            if (!day.isBefore(firstDay) && !day.isAfter(today)) {
+                totals.merge(day, count, Long::sum);
+            }
+        });
+
+        List<Map<String, Object>> points = new ArrayList<>(totals.size());
+        totals.forEach((day, count) -> points.add(Map.of("date", day.toString(), "count", count)));
+        return points;
+    }
+
+    private Map<Long, Long> buckets(String series) {
+        Map<Long, Long> buckets = new HashMap<>(clusterBuckets.getOrDefault(series, Map.of()));
+        hourlySeries.getOrDefault(series, Map.of()).forEach((hour, adder) -> buckets.merge(hour, adder.sum(), Long::sum));
+        return buckets;
+    }
+
+    private static Histogram merged(Histogram others, Histogram local) {
+        Histogram merged = others.copy();
+        merged.add(local);
+        return merged;
+    }
+
+    // Checkpointing
+
+    /**
+     * Sends this instance's deltas as one {@code $inc} and picks up the cluster totals it returns,
+     * then publishes this instance's histograms and reloads the others'.
+     */
+    @Scheduled(fixedDelayString = "${document.stats.checkpoint-interval:30000}")
+    public synchronized void checkpoint() {
+        try {
+            Map<String, Map<String, Long>> counterDeltas = pending(counters);
+            Map<String, Map<Long, Long>> bucketDeltas = pending(hourlySeries);
+
+            List<Bson> increments = new ArrayList<>();
+            counterDeltas.forEach((dimension, values) -> values.forEach((value, delta) ->
+                    increments.add(Updates.inc("counters." + dimension + "." + encodeKey(value), delta))));
+            bucketDeltas.forEach((series, buckets) -> buckets.forEach((hour, delta) ->
+                    increments.add(Updates.inc("buckets." + series + "." + hour, delta))));
+
+            org.bson.Document cluster;
+            if (increments.isEmpty()) {
+                cluster = snapshots().find(Filters.eq("_id", CLUSTER_ID)).first();
+            } else {
+                increments.add(Updates.set("checkpointed_at", new Date()));
+                cluster = snapshots().findOneAndUpdate(Filters.eq("_id", CLUSTER_ID), Updates.combine(increments),
+                        new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.AFTER));
+            }
+            if (cluster != null) {
+                // The returned totals include the deltas just sent, so take them off the local view
+                applyCluster(cluster);
+                subtract(counters, counterDeltas);
+                subtract(hourlySeries, bucketDeltas);
+                pruneExpiredBuckets(cluster);
+            }
+
+            writeHistograms();
+            loadOtherHistograms();
+            logger.debug("Statistics checkpoint sent {} counter and bucket deltas", increments.size());
+        } catch (Exception e) {
+            logger.error("Error writing statistics checkpoint", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        checkpoint();
+    }
+
+    /**
+     * Re-aggregates the counters from the collections to correct drift from rows removed outside
+     * the pipeline. One replica per interval claims the run; deltas other replicas have not yet
+     * checkpointed can leave an error of one checkpoint interval's activity until the next run.
+     */
+    @Scheduled(fixedDelayString = "${document.stats.reconcile-interval:21600000}",
+            initialDelayString = "${document.stats.reconcile-interval:21600000}")
+    public void reconcile() {
+        try {
+            Date now = new Date();
+            Date claimBefore = new Date(now.getTime() - reconcileInterval / 2);
+            long claimed = snapshots().updateOne(
+                    Filters.and(Filters.eq("_id", CLUSTER_ID), Filters.or(
+                            Filters.exists("reconciled_at", false), Filters.lt("reconciled_at", claimBefore))),
+                    Updates.set("reconciled_at", now)).getModifiedCount();
+            if (claimed == 0) {
+                return;
+            }
+
+            checkpoint();
+            long startTime = System.currentTimeMillis();
+            Map<String, Map<String, Long>> totals = aggregateCounters();
+            org.bson.Document cluster = snapshots().findOneAndUpdate(Filters.eq("_id", CLUSTER_ID),
+                    Updates.set("counters", encodeCounters(totals)),
+                    new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER));
+            if (cluster != null) {
+                applyCluster(cluster);
+            }
+            logger.info("Document statistics reconciled with the collections in {} ms",
+                    System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            logger.error("Error reconciling document statistics", e);
+        }
+    }
+
+    /**
+     * Recomputes all counters and hourly series from the collections and replaces the shared
+     * counters document. Only used when no counters document exists.
+     */
+    public synchronized void rebuild() {
+        logger.info("Rebuilding document statistics from collections");
+        long startTime = System.currentTimeMillis();
+
+        counters.clear();
+        hourlySeries.clear();
+        analysisTime.reset();
+        extractionTime.reset();
+
+        Map<String, Map<Long, Long>> buckets = new HashMap<>();
+        hourlyCount("documents", SERIES_UPLOADED, buckets);
+        hourlyCount("document_analyses", SERIES_ANALYZED, buckets);
+        org.bson.Document encodedBuckets = new org.bson.Document();
+        buckets.forEach((series, hours) -> {
+            org.bson.Document encoded = new org.bson.Document();
+            hours.forEach((hour, count) -> encoded.append(String.valueOf(hour), count));
+            encodedBuckets.append(series, encoded);
+        });
+
+        Date now = new Date();
+        snapshots().updateOne(Filters.eq("_id", CLUSTER_ID), Updates.combine(
+                        Updates.set("counters", encodeCounters(aggregateCounters())),
+                        Updates.set("buckets", encodedBuckets),
+                        Updates.set("checkpointed_at", now),
+                        Updates.set("reconciled_at", now)),
+                new UpdateOptions().upsert(true));
+        org.bson.Document cluster = snapshots().find(Filters.eq("_id", CLUSTER_ID)).first();
+        if (cluster != null) {
+            applyCluster(cluster);
+        }
+
+        mongoTemplate.getCollection("document_analyses")
+                .withReadPreference(readRouting.analytics())
+                .find(Filters.exists("processing_time"))
+                .projection(Projections.include("processing_time"))
+                .batchSize(1000)
+                .forEach(row -> {
+                    Number millis = row.get("processing_time", Number.class);
+                    if (millis != null) {
+                        analysisTime.recordValue(Math.min(Math.max(millis.longValue(), 0), MAX_TRACKABLE_MILLIS));
+                    }
+                });
+
+        logger.info("Document statistics rebuilt in {} ms", System.currentTimeMillis() - startTime);
+    }
+
+    private Map<String, Map<String, Long>> aggregateCounters() {
+        Map<String, Map<String, Long>> totals = new HashMap<>();
+        totals.computeIfAbsent(TOTALS, key -> new HashMap<>()).put("documents", mongoTemplate
+                .getCollection("documents").withReadPreference(readRouting.analytics()).countDocuments());
+        totals.computeIfAbsent(TOTALS, key -> new HashMap<>()).put("analyses", mongoTemplate
+                .getCollection("document_analyses").withReadPreference(readRouting.analytics()).countDocuments());
+        groupCount("documents", "content_type", CONTENT_TYPE, totals);
+        groupCount("documents", "processing_status", STATUS, totals);
+        groupCount("documents", "classification", CLASSIFICATION, totals);
+        groupCount("document_analyses", "analysis_type", ANALYSIS_TYPE, totals);
+        groupCount("document_analyses", "status", ANALYSIS_STATUS, totals);
+
+        Aggregation entityTypes = Aggregation.newAggregation(
+                Aggregation.unwind("entities"),
+                Aggregation.group("entities.type").count().as("count"));
+        mongoTemplate.aggregate(readRouting.analytics(entityTypes), "document_analyses", org.bson.Document.class)
+                .forEach(row -> add(totals, ENTITY_TYPE, row.getString("_id"), row.getInteger("count")));
+        return totals;
+    }
+
+    private void applyCluster(org.bson.Document cluster) {
+        Map<String, Map<String, Long>> loadedCounters = new HashMap<>();
+        org.bson.Document encodedCounters = cluster.get("counters", org.bson.Document.class);
+        if (encodedCounters != null) {
+            encodedCounters.forEach((dimension, values) -> ((org.bson.Document) values).forEach((key, count) ->
+                    loadedCounters.computeIfAbsent(dimension, k -> new HashMap<>())
+                            .put(decodeKey(key), ((Number) count).longValue())));
+        }
+        Map<String, Map<Long, Long>> loadedBuckets = new HashMap<>();
+        org.bson.Document encodedBuckets = cluster.get("buckets", org.bson.Document.class);
+        if (encodedBuckets != null) {
+            encodedBuckets.forEach((series, hours) -> ((org.bson.Document) hours).forEach((hour, count) ->
+                    loadedBuckets.computeIfAbsent(series, k -> new HashMap<>())
+                            .put(Long.parseLong(hour), ((Number) count).longValue())));
+        }
+        clusterCounters = loadedCounters;
+        clusterBuckets = loadedBuckets;
+    }
+
+    private void writeHistograms() {
+        snapshots().replaceOne(Filters.eq("_id", INSTANCE_PREFIX + instanceId), new org.bson.Document()
+                        .append("_id", INSTANCE_PREFIX + instanceId)
+                        .append("analysis_time_histogram", new Binary(encode(analysisTime)))
+                        .append("extraction_time_histogram", new Binary(encode(extractionTime)))
+                        .append("checkpointed_at", new Date()),
+                new ReplaceOptions().upsert(true));
+    }
+
+    private void loadOtherHistograms() {
+        Date cutoff = new Date(System.currentTimeMillis() - Duration.ofDays(retentionDays).toMillis());
+        Bson instances = Filters.regex("_id", "^" + INSTANCE_PREFIX);
+        snapshots().deleteMany(Filters.and(instances, Filters.lt("checkpointed_at", cutoff)));
+
+        Histogram analysis = new Histogram(MAX_TRACKABLE_MILLIS, 3);
+        Histogram extraction = new Histogram(MAX_TRACKABLE_MILLIS, 3);
+        snapshots().find(Filters.and(instances, Filters.ne("_id", INSTANCE_PREFIX + instanceId))).forEach(row -> {
+            decodeInto(row.get("analysis_time_histogram", Binary.class), analysis);
+            decodeInto(row.get("extraction_time_histogram", Binary.class), extraction);
+        });
+        otherAnalysisTime = analysis;
+        otherExtractionTime = extraction;
+    }
+
+    private void groupCount(String collection, String field, String dimension, Map<String, Map<String, Long>> totals) {
+        Aggregation aggregation = Aggregation.newAggregation(Aggregation.group(field).count().as("count"));
+        mongoTemplate.aggregate(readRouting.analytics(aggregation), collection, org.bson.Document.class)
+                .forEach(row -> add(totals, dimension, row.getString("_id"), row.getInteger("count")));
+    }
+
+    private void hourlyCount(String collection, String series, Map<String, Map<Long, Long>> buckets) {
+        long oldestHour = currentEpochHour() - retentionDays * 24L;
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("created_at").exists(true)),
+                Aggregation.project().and(DateOperators.dateOf("created_at").toString("%Y-%m-%dT%H:00")).as("hour"),
+                Aggregation.group("hour").count().as("count"));
+        mongoTemplate.aggregate(readRouting.analytics(aggregation), collection, org.bson.Document.class).forEach(row -> {
+            long hour = LocalDateTime.parse(row.getString("_id")).toEpochSecond(ZoneOffset.UTC) / 3600;
+            if (hour >= oldestHour) {
+                buckets.computeIfAbsent(series, key -> new HashMap<>()).merge(hour, (long) row.getInteger("count"), Long::sum);
+            }
+        });
+    }
+
+    private void countEntities(List<Entity> entities, int delta) {
+        if (entities == null) {
+            return;
+        }
+        Map<String, Integer> byType = new HashMap<>();
+        for (Entity entity : entities) {
+            byType.merge(entity.getType() != null ? entity.getType() : UNKNOWN, 1, Integer::sum);
+        }
+        byType.forEach((type, count) -> increment(ENTITY_TYPE, type, (long) count * delta));
+    }
+
+    private void increment(String dimension, String value, long delta) {
+        counters.computeIfAbsent(dimension, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(value != null ? value : UNKNOWN, key -> new LongAdder())
+                .add(delta);
+    }
+
+    private void recordEvent(String series) {
+        hourlySeries.computeIfAbsent(series, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(currentEpochHour(), key -> new LongAdder())
+                .increment();
+    }
+
+    private void pruneExpiredBuckets(org.bson.Document cluster) {
+        long oldestHour = currentEpochHour() - retentionDays * 24L;
+        hourlySeries.values().forEach(buckets -> buckets.keySet().removeIf(hour -> hour < oldestHour));
+        List<Bson> expired = new ArrayList<>();
+        clusterBuckets.forEach((series, buckets) -> buckets.keySet().stream()
+                .filter(hour -> hour < oldestHour)
+                .forEach(hour -> expired.add(Updates.unset("buckets." + series + "." + hour))));
+        if (!expired.isEmpty()) {
+            snapshots().updateOne(Filters.eq("_id", cluster.get("_id")), Updates.combine(expired));
+        }
+    }
+
+    private MongoCollection<org.bson.Document> snapshots() {
+        return mongoTemplate.getCollection(SNAPSHOTS);
+    }
+
+    private static void add(Map<String, Map<String, Long>> totals, String dimension, String value, long count) {
+        totals.computeIfAbsent(dimension, key -> new HashMap<>()).merge(value != null ? value : UNKNOWN, count, Long::sum);
+    }
+
+    private static <K> Map<String, Map<K, Long>> pending(Map<String, ? extends Map<K, LongAdder>> adders) {
+        Map<String, Map<K, Long>> deltas = new HashMap<>();
+        adders.forEach((name, values) -> values.forEach((key, adder) -> {
+            long delta = adder.sum();
+            if (delta != 0) {
+                deltas.computeIfAbsent(name, k -> new HashMap<>()).put(key, delta);
+            }
+        }));
+        return deltas;
+    }
+
+    private static <K> void subtract(Map<String, ? extends Map<K, LongAdder>> adders, Map<String, Map<K, Long>> sent) {
+        sent.forEach((name, values) -> values.forEach((key, delta) -> adders.get(name).get(key).add(-delta)));
+    }
+
+    private static org.bson.Document encodeCounters(Map<String, Map<String, Long>> totals) {
+        org.bson.Document encoded = new org.bson.Document();
+        totals.forEach((dimension, values) -> {
+            org.bson.Document encodedValues = new org.bson.Document();
+            values.forEach((value, count) -> encodedValues.append(encodeKey(value), count));
+            encoded.append(dimension, encodedValues);
+        });
+        return encoded;
+    }
+
+    /**
+     * Counter values such as content types contain dots, which field paths cannot.
+     */
+    static String encodeKey(String value) {
+        if (value.isEmpty()) {
+            return "%";
+        }
+        return value.replace("%", "%25").replace(".", "%2E").replace("$", "%24");
+    }
+
+    static String decodeKey(String key) {
+        if (key.equals("%")) {
+            return "";
+        }
+        return key.replace("%2E", ".").replace("%24", "$").replace("%25", "%");
+    }
+
+    private static long currentEpochHour() {
+        return System.currentTimeMillis() / TimeUnit.HOURS.toMillis(1);
+    }
+
+    private static byte[] encode(Histogram histogram) {
+        Histogram copy = histogram.copy();
+        ByteBuffer buffer = ByteBuffer.allocate(copy.getNeededByteBufferCapacity());
+        int length = copy.encodeIntoCompressedByteBuffer(buffer);
+        byte[] bytes = new byte[length];
+        buffer.flip();
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static void decodeInto(Binary encoded, Histogram target) {
+        if (encoded == null || encoded.length() == 0) {
+            return;
+        }
+        try {
+            target.add(Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(encoded.getData()), 0));
+        } catch (DataFormatException e) {
+            logger.warn("Discarding unreadable histogram checkpoint", e);
+        }
+    }
+
+    private static String instanceName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "stats";
+        }
+    }
+}
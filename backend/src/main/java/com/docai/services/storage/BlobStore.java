@@ -0,0 +1,58 @@
+package com.docai.services.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Storage backend for original document files. A store hands back an opaque locator on write;
+ * the locator is what {@code Document.filePath} records and is routed back to the owning store
+ * via {@link #supports(String)} on every read.
+ */
+public interface BlobStore {
+
+    /**
+     * Backend name used by {@code document.storage.backend}.
+     */
+    String name();
+
+    boolean supports(String locator);
+
+    /**
+     * Writes {@code content} and returns its locator. {@code checksum} (hex SHA-256) picks the shard
+     * and may be null, in which case the filename is used.
+     */
+    String put(String checksum, String filename, InputStream content, long size, String contentType) throws IOException;
+
+    /**
+     * Opens {@code length} bytes starting at {@code offset}; a negative length reads to the end.
+     */
+    InputStream open(String locator, long offset, long length) throws IOException;
+
+    default InputStream open(String locator) throws IOException {
+        return open(locator, 0, -1);
+    }
+
+    /**
+     * @throws java.nio.file.NoSuchFileException when the blob does not exist
+     */
+    BlobInfo stat(String locator) throws IOException;
+
+    boolean delete(String locator) throws IOException;
+
+    /**
+     * The file behind {@code locator} when it lives on a local file system, for zero-copy transfers.
+     */
+    default Optional<Path> localPath(String locator) {
+        return Optional.empty();
+    }
+
+    record BlobInfo(long size, long lastModified) {
+    }
+
+    static String shardPrefix(String checksum, String filename) {
+        String source = checksum != null && checksum.length() >= 4 ? checksum : Integer.toHexString(filename.hashCode() | 0x10000);
+        return source.substring(0, 2) + "/" + source.substring(2, 4);
+    }
+}
@@ -0,0 +1,169 @@
+package com.docai.services.storage;
+
+import com.docai.models.CompressionDictionary;
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+/**
+ * Compressed tier for originals that are rarely read. Each blob is a small header (magic,
+ * original size, dictionary id) followed by one Zstd frame, stored under
+ * {@code document.storage.cold.path} with the same checksum fan-out as the hot tier.
+ * Reads decompress on the fly, so callers of {@link #open} see the original bytes.
+ */
+@Component
+public class ColdTierBlobStore implements BlobStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ColdTierBlobStore.class);
+
+    static final String SCHEME = "cold://";
+
+    private static final int MAGIC = 0x445A4331; // "DZC1"
+
+    @Autowired
+    private CompressionDictionaryService dictionaryService;
+
+    @Value("${document.storage.cold.path:${document.storage.path:/tmp/documents}/cold}")
+    private String coldPath;
+
+    @Value("${document.storage.cold.level:9}")
+    private int level;
+
+    @Value("${document.storage.cold.dictionary-max-file-size:128KB}")
+    private DataSize dictionaryMaxFileSize;
+
+    @Override
+    public String name() {
+        return "cold";
+    }
+
+    @Override
+    public boolean supports(String locator) {
+        return locator != null && locator.startsWith(SCHEME);
+    }
+
+    @Override
+    public String put(String checksum, String filename, InputStream content, long size, String contentType) throws IOException {
+        if (size < 0) {
+            throw new IOException("Cold tier writes need the original size: " + filename);
+        }
+        Path directory = Paths.get(coldPath).resolve(BlobStore.shardPrefix(checksum, filename));
+        Files.createDirectories(directory);
+
+        // Only small files gain from a dictionary; large ones build enough context on their own
+        Optional<CompressionDictionary> dictionary = size <= dictionaryMaxFileSize.toBytes()
+                ? dictionaryService.forContentType(contentType)
+                : Optional.empty();
+
+        Path target = directory.resolve(filename + ".zst");
+        Path temp = directory.resolve("." + filename + ".zst.part");
+        try {
+            try (OutputStream file = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                DataOutputStream header = new DataOutputStream(file);
+                header.writeInt(MAGIC);
+                header.writeLong(size);
+                header.writeLong(dictionary.map(CompressionDictionary::getDictId).orElse(0L));
+
+                ZstdOutputStream zstd = new ZstdOutputStream(file, level);
+                zstd.setChecksum(true);
+                if (dictionary.isPresent()) {
+                    zstd.setDict(dictionary.get().getDictionary());
+                }
+                try (zstd) {
+                    long written = content.transferTo(zstd);
+                    if (written != size) {
+                        throw new IOException("Expected " + size + " bytes but read " + written + ": " + filename);
+                    }
+                }
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return SCHEME + target.toAbsolutePath();
+    }
+
+    @Override
+    public InputStream open(String locator, long offset, long length) throws IOException {
+        Path path = path(locator);
+        InputStream file = new BufferedInputStream(Files.newInputStream(path));
+        try {
+            Header header = readHeader(new DataInputStream(file), locator);
+            ZstdInputStream zstd = new ZstdInputStream(file);
+            if (header.dictId() != 0) {
+                zstd.setDict(dictionaryService.dictionary(header.dictId()));
+            }
+            InputStream stream = new BufferedInputStream(zstd, 64 * 1024);
+            // Ranges need decompression from the frame start; cold reads are rare enough for that
+            stream.skipNBytes(offset);
+            return length < 0 ? stream : new BoundedInputStream(stream, length);
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public BlobInfo stat(String locator) throws IOException {
+        Path path = path(locator);
+        if (!Files.isRegularFile(path)) {
+            throw new NoSuchFileException(locator);
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+            Header header = readHeader(in, locator);
+            return new BlobInfo(header.originalSize(), Files.getLastModifiedTime(path).toMillis());
+        }
+    }
+
+    @Override
+    public boolean delete(String locator) throws IOException {
+        return Files.deleteIfExists(path(locator));
+    }
+
+    /**
+     * Bytes the blob occupies on disk, header included.
+     */
+    public long storedSize(String locator) throws IOException {
+        return Files.size(path(locator));
+    }
+
+    private Path path(String locator) {
+        return Paths.get(locator.substring(SCHEME.length()));
+    }
+
+    private Header readHeader(DataInputStream in, String locator) throws IOException {
+        int magic = in.readInt();
+        if (magic != MAGIC) {
+            logger.error("Cold blob has an unknown header: {}", locator);
+            throw new IOException("Not a cold tier blob: " + locator);
+        }
+        return new Header(in.readLong(), in.readLong());
+    }
+
+    private record Header(long originalSize, long dictId) {
+    }
+}
@@ -0,0 +1,96 @@
+package com.docai.services.storage;
+
+import com.docai.models.CompressionDictionary;
+import com.docai.repositories.CompressionDictionaryRepository;
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictTrainer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Zstd dictionaries trained per content type. Small files of one type share most of their
+ * structure (XML parts, PDF object headers), which a dictionary captures and plain Zstd cannot
+ * see inside a few kilobytes. Dictionaries are never deleted: each cold blob records the id it
+ * was compressed with, and retraining only affects new writes.
+ */
+@Service
+public class CompressionDictionaryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompressionDictionaryService.class);
+
+    @Autowired
+    private CompressionDictionaryRepository dictionaryRepository;
+
+    @Value("${document.storage.cold.dictionary-size:64KB}")
+    private DataSize dictionarySize;
+
+    @Value("${document.storage.cold.dictionary-min-samples:50}")
+    private int minSamples;
+
+    private final Map<Long, byte[]> byId = new ConcurrentHashMap<>();
+    private final Map<String, Optional<CompressionDictionary>> byContentType = new ConcurrentHashMap<>();
+
+    public Optional<CompressionDictionary> forContentType(String contentType) {
+        if (contentType == null) {
+            return Optional.empty();
+        }
+        return byContentType.computeIfAbsent(contentType,
+                type -> dictionaryRepository.findByContentType(type).stream().findFirst());
+    }
+
+    public byte[] dictionary(long dictId) {
+        return byId.computeIfAbsent(dictId, id -> dictionaryRepository.findByDictId(id)
+                .map(CompressionDictionary::getDictionary)
+                .orElseThrow(() -> new IllegalStateException("Compression dictionary not found: " + id)));
+    }
+
+    public boolean hasEnoughSamples(int samples) {
+        return samples >= minSamples;
+    }
+
+    /**
+     * Trains and stores a dictionary from {@code samples}; returns empty when there are too few.
+     */
+    public Optional<CompressionDictionary> train(String contentType, List<byte[]> samples) {
+        if (!hasEnoughSamples(samples.size())) {
+            return Optional.empty();
+        }
+
+        long sampleBytes = samples.stream().mapToLong(sample -> sample.length).sum();
+        ZstdDictTrainer trainer = new ZstdDictTrainer((int) Math.min(sampleBytes, Integer.MAX_VALUE),
+                (int) dictionarySize.toBytes());
+        samples.forEach(trainer::addSample);
+
+        byte[] trained;
+        try {
+            trained = trainer.trainSamples();
+        } catch (RuntimeException e) {
+            logger.warn("Dictionary training failed for {}: {}", contentType, e.getMessage());
+            return Optional.empty();
+        }
+
+        CompressionDictionary dictionary = new CompressionDictionary(Zstd.getDictIdFromDict(trained), contentType, trained);
+        dictionary.setSampleCount(samples.size());
+        dictionary.setSampleBytes(sampleBytes);
+        CompressionDictionary saved = dictionaryRepository.save(dictionary);
+
+        byId.put(saved.getDictId(), trained);
+        byContentType.put(contentType, Optional.of(saved));
+        logger.info("Trained {} byte dictionary {} for {} from {} samples",
+                trained.length, saved.getDictId(), contentType, samples.size());
+        return Optional.of(saved);
+    }
+
+    public List<CompressionDictionary> getDictionaries() {
+        return dictionaryRepository.findAll();
+    }
+}
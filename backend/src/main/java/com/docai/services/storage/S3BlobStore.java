@@ -0,0 +1,243 @@
+package com.docai.services.storage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Blob store for S3 and S3-compatible servers (MinIO, Ceph RGW). Point
+ * {@code document.storage.s3.endpoint} at a local MinIO with path-style access for development.
+ * Objects larger than one part are written as multipart uploads whose parts are sent in parallel;
+ * at most {@code upload-concurrency} part buffers are held per upload.
+ */
+@Component
+@ConditionalOnExpression("!'${document.storage.s3.bucket:}'.isEmpty()")
+public class S3BlobStore implements BlobStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(S3BlobStore.class);
+
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+
+    @Value("${document.storage.s3.bucket}")
+    private String bucket;
+
+    @Value("${document.storage.s3.endpoint:}")
+    private String endpoint;
+
+    @Value("${document.storage.s3.region:us-east-1}")
+    private String region;
+
+    @Value("${document.storage.s3.access-key:}")
+    private String accessKey;
+
+    @Value("${document.storage.s3.secret-key:}")
+    private String secretKey;
+
+    @Value("${document.storage.s3.path-style:true}")
+    private boolean pathStyle;
+
+    @Value("${document.storage.s3.key-prefix:documents/}")
+    private String keyPrefix;
+
+    @Value("${document.storage.s3.part-size:16MB}")
+    private DataSize partSize;
+
+    @Value("${document.storage.s3.upload-concurrency:4}")
+    private int uploadConcurrency;
+
+    private S3Client client;
+
+    private ExecutorService uploadExecutor;
+
+    @PostConstruct
+    public void initialize() {
+        AwsCredentialsProvider credentials = accessKey.isBlank()
+                ? DefaultCredentialsProvider.create()
+                : StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials)
+                .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(pathStyle).build());
+        if (!endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        client = builder.build();
+
+        AtomicInteger threads = new AtomicInteger();
+        uploadExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "s3-upload-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("S3 blob store using bucket {} at {}", bucket, endpoint.isBlank() ? region : endpoint);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        uploadExecutor.shutdown();
+        client.close();
+    }
+
+    @Override
+    public String name() {
+        return "s3";
+    }
+
+    @Override
+    public boolean supports(String locator) {
+        return locator != null && locator.startsWith(locatorPrefix());
+    }
+
+    @Override
+    public String put(String checksum, String filename, InputStream content, long size, String contentType) throws IOException {
+        String key = keyPrefix + BlobStore.shardPrefix(checksum, filename) + "/" + filename;
+        long part = Math.max(partSize.toBytes(), MIN_PART_SIZE);
+        try {
+            if (size >= 0 && size <= part) {
+                client.putObject(request -> request.bucket(bucket).key(key).contentType(contentType),
+                        RequestBody.fromInputStream(content, size));
+            } else {
+                multipartUpload(key, content, (int) part, contentType);
+            }
+        } catch (S3Exception e) {
+            throw new IOException("S3 upload failed for " + key + ": " + e.getMessage(), e);
+        }
+        return locatorPrefix() + key;
+    }
+
+    @Override
+    public InputStream open(String locator, long offset, long length) throws IOException {
+        GetObjectRequest.Builder request = GetObjectRequest.builder().bucket(bucket).key(key(locator));
+        if (offset > 0 || length >= 0) {
+            request.range("bytes=" + offset + "-" + (length >= 0 ? String.valueOf(offset + length - 1) : ""));
+        }
+        try {
+            return client.getObject(request.build());
+        } catch (NoSuchKeyException e) {
+            throw new NoSuchFileException(locator);
+        } catch (S3Exception e) {
+            throw new IOException("S3 read failed for " + locator + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public BlobInfo stat(String locator) throws IOException {
+        try {
+            HeadObjectResponse head = client.headObject(request -> request.bucket(bucket).key(key(locator)));
+            return new BlobInfo(head.contentLength(), head.lastModified().toEpochMilli());
+        } catch (NoSuchKeyException e) {
+            throw new NoSuchFileException(locator);
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                throw new NoSuchFileException(locator);
+            }
+            throw new IOException("S3 stat failed for " + locator + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean delete(String locator) throws IOException {
+        try {
+            client.deleteObject(request -> request.bucket(bucket).key(key(locator)));
+            return true;
+        } catch (S3Exception e) {
+            throw new IOException("S3 delete failed for " + locator + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void multipartUpload(String key, InputStream content, int part, String contentType) throws IOException {
+        String uploadId = client.createMultipartUpload(request -> request.bucket(bucket).key(key).contentType(contentType))
+                .uploadId();
+        Semaphore inFlight = new Semaphore(Math.max(1, uploadConcurrency));
+        List<CompletableFuture<CompletedPart>> parts = new ArrayList<>();
+        try {
+            for (int partNumber = 1; ; partNumber++) {
+                // Bounds buffered parts: the next part is only read once an upload slot is free
+                inFlight.acquireUninterruptibly();
+                byte[] buffer;
+                try {
+                    buffer = content.readNBytes(part);
+                } catch (IOException e) {
+                    inFlight.release();
+                    throw e;
+                }
+                if (buffer.length == 0 && partNumber > 1) {
+                    inFlight.release();
+                    break;
+                }
+
+                int number = partNumber;
+                parts.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        String etag = client.uploadPart(request -> request.bucket(bucket).key(key)
+                                        .uploadId(uploadId).partNumber(number).contentLength((long) buffer.length),
+                                RequestBody.fromBytes(buffer)).eTag();
+                        return CompletedPart.builder().partNumber(number).eTag(etag).build();
+                    } finally {
+                        inFlight.release();
+                    }
+                }, uploadExecutor));
+
+                if (buffer.length < part) {
+                    break;
+                }
+            }
+
+            List<CompletedPart> completed = parts.stream().map(CompletableFuture::join).toList();
+            client.completeMultipartUpload(request -> request.bucket(bucket).key(key).uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(completed).build()));
+            logger.debug("Multipart upload of {} completed in {} parts", key, completed.size());
+        } catch (IOException | RuntimeException e) {
+            parts.forEach(future -> future.cancel(true));
+            try {
+                client.abortMultipartUpload(request -> request.bucket(bucket).key(key).uploadId(uploadId));
+            } catch (S3Exception abortError) {
+                logger.warn("Could not abort multipart upload {} for {}", uploadId, key, abortError);
+            }
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            throw new IOException("Multipart upload failed for " + key + ": " + cause.getMessage(), cause);
+        }
+    }
+
+    private String locatorPrefix() {
+        return "s3://" + bucket + "/";
+    }
+
+    private String key(String locator) {
+        return locator.substring(locatorPrefix().length());
+    }
+}
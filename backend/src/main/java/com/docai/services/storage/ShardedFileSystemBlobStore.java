@@ -0,0 +1,187 @@
+package com.docai.services.storage;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Local blob store spread over one or more mount points. Files fan out into
+ * {@code <volume>/<ab>/<cd>/<filename>} by checksum prefix, so no directory grows past a few
+ * hundred entries per million files. Each write picks a volume at random weighted by usable
+ * space, which balances fill level and lets concurrent uploads use every disk.
+ * Locators are absolute paths, so files written by the old date-folder layout remain readable.
+ */
+@Component
+public class ShardedFileSystemBlobStore implements BlobStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedFileSystemBlobStore.class);
+
+    @Value("${document.storage.path:/tmp/documents}")
+    private String storagePath;
+
+    @Value("${document.storage.volumes:}")
+    private String volumesSetting;
+
+    @Value("${document.storage.min-free-space:1GB}")
+    private DataSize minFreeSpace;
+
+    private List<Path> volumes = List.of();
+
+    @PostConstruct
+    public void initialize() {
+        List<Path> configured = new ArrayList<>();
+        String setting = volumesSetting == null || volumesSetting.isBlank() ? storagePath : volumesSetting;
+        for (String volume : setting.split(",")) {
+            if (!volume.isBlank()) {
+                configured.add(Paths.get(volume.trim()).toAbsolutePath().normalize());
+            }
+        }
+        for (Path volume : configured) {
+            try {
+                Files.createDirectories(volume);
+            } catch (IOException e) {
+                logger.error("Cannot create storage volume: {}", volume, e);
+            }
+        }
+        volumes = List.copyOf(configured);
+        logger.info("Local blob store using {} volume(s): {}", volumes.size(), volumes);
+    }
+
+    @Override
+    public String name() {
+        return "local";
+    }
+
+    @Override
+    public boolean supports(String locator) {
+        return locator != null && !locator.contains("://");
+    }
+
+    @Override
+    public String put(String checksum, String filename, InputStream content, long size, String contentType) throws IOException {
+        Path volume = selectVolume(size);
+        Path directory = volume.resolve(BlobStore.shardPrefix(checksum, filename));
+        Files.createDirectories(directory);
+
+        // Write beside the target and rename, so readers never see a partial file
+        Path target = directory.resolve(filename);
+        Path temp = directory.resolve("." + filename + ".part");
+        try {
+            Files.copy(content, temp, StandardCopyOption.REPLACE_EXISTING);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return target.toString();
+    }
+
+    @Override
+    public InputStream open(String locator, long offset, long length) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(locator), StandardOpenOption.READ);
+        try {
+            channel.position(offset);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        InputStream stream = Channels.newInputStream(channel);
+        return length < 0 ? stream : new BoundedInputStream(stream, length);
+    }
+
+    @Override
+    public BlobInfo stat(String locator) throws IOException {
+        Path path = Paths.get(locator);
+        if (!Files.isRegularFile(path)) {
+            throw new NoSuchFileException(locator);
+        }
+        return new BlobInfo(Files.size(path), Files.getLastModifiedTime(path).toMillis());
+    }
+
+    @Override
+    public boolean delete(String locator) throws IOException {
+        return Files.deleteIfExists(Paths.get(locator));
+    }
+
+    @Override
+    public Optional<Path> localPath(String locator) {
+        return Optional.of(Paths.get(locator));
+    }
+
+    /**
+     * Usable and total bytes per volume, for the admin API.
+     */
+    public Map<String, Map<String, Long>> volumeUsage() {
+        Map<String, Map<String, Long>> usage = new LinkedHashMap<>();
+        for (Path volume : volumes) {
+            try {
+                var store = Files.getFileStore(volume);
+                usage.put(volume.toString(), Map.of("usable", store.getUsableSpace(), "total", store.getTotalSpace()));
+            } catch (IOException e) {
+                logger.warn("Cannot read usage for volume {}: {}", volume, e.getMessage());
+            }
+        }
+        return usage;
+    }
+
+    private Path selectVolume(long size) throws IOException {
+        if (volumes.size() == 1) {
+            return volumes.get(0);
+        }
+
+        long reserve = minFreeSpace.toBytes() + Math.max(size, 0);
+        long[] weights = new long[volumes.size()];
+        for (int i = 0; i < volumes.size(); i++) {
+            try {
+                long usable = Files.getFileStore(volumes.get(i)).getUsableSpace();
+                weights[i] = Math.max(0, usable - reserve);
+            } catch (IOException e) {
+                logger.warn("Skipping unavailable volume {}: {}", volumes.get(i), e.getMessage());
+            }
+        }
+
+        long total = Arrays.stream(weights).sum();
+        if (total <= 0) {
+            throw new IOException("No storage volume has " + reserve + " bytes free");
+        }
+        return volumes.get(weightedIndex(weights, ThreadLocalRandom.current().nextLong(total)));
+    }
+
+    /**
+     * The index whose cumulative weight range contains {@code pick}, for a pick in [0, sum of weights).
+     */
+    static int weightedIndex(long[] weights, long pick) {
+        for (int i = 0; i < weights.length; i++) {
+            pick -= weights[i];
+            if (pick < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+}
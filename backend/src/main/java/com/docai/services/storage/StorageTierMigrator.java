@@ -0,0 +1,366 @@
+package com.docai.services.storage;
+
+import com.docai.config.MongoReadRouting;
+import com.docai.models.Document;
+import com.docai.services.StorageService;
+import com.docai.services.stats.DocumentStatisticsService;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Moves originals older than {@code document.storage.cold.min-age} from the hot store into the
+ * Zstd cold tier. Runs in small batches behind a shared {@link IoThrottle} and skips a round
+ * while ingestion is busy. The document is repointed with a conditional update on its old
+ * locator, so a concurrent re-upload or delete is never overwritten; the hot copy is removed
+ * only after that update succeeds. A failed migration is retried with exponential backoff and
+ * the document is left hot after {@code document.storage.cold.max-attempts}, so failing rows never
+ * hold back the rest of the backlog.
+ */
+@Service
+public class StorageTierMigrator {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageTierMigrator.class);
+
+    public static final String TIER_HOT = "HOT";
+    public static final String TIER_COLD = "COLD";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MongoReadRouting readRouting;
+
+    @Autowired
+    private StorageService storageService;
+
+    @Autowired
+    private ColdTierBlobStore coldStore;
+
+    @Autowired
+    private CompressionDictionaryService dictionaryService;
+
+    @Autowired
+    private DocumentStatisticsService statisticsService;
+
+    @Value("${document.storage.cold.enabled:true}")
+    private boolean enabled;
+
+    @Value("${document.storage.cold.min-age:30d}")
+    private Duration minAge;
+
+    @Value("${document.storage.cold.batch-size:200}")
+    private int batchSize;
+
+    @Value("${document.storage.cold.max-bytes-per-second:20MB}")
+    private DataSize maxBytesPerSecond;
+
+    @Value("${document.storage.cold.max-processing:4}")
+    private long maxProcessing;
+
+    @Value("${document.storage.cold.max-ratio:0.9}")
+    private double maxRatio;
+
+    @Value("${document.storage.cold.retry-delay:1h}")
+    private Duration retryDelay;
+
+    @Value("${document.storage.cold.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${document.storage.cold.dictionary-max-file-size:128KB}")
+    private DataSize dictionaryMaxFileSize;
+
+    @Value("${document.storage.cold.dictionary-sample-limit:1000}")
+    private int dictionarySampleLimit;
+
+    @Value("${document.storage.cold.skip-content-types:image/jpeg,image/png,image/gif,application/zip,application/gzip,video/mp4,audio/mpeg}")
+    private Set<String> skipContentTypes;
+
+    private IoThrottle throttle;
+
+    private final AtomicLong migrated = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private volatile LocalDateTime lastRunAt;
+
+    @PostConstruct
+    public void initialize() {
+        throttle = new IoThrottle(maxBytesPerSecond.toBytes());
+    }
+
+    @Scheduled(fixedDelayString = "${document.storage.cold.migration-interval:600000}",
+            initialDelayString = "${document.storage.cold.migration-interval:600000}")
+    public void migrateScheduled() {
+        if (!enabled) {
+            return;
+        }
+        long processing = statisticsService.count(DocumentStatisticsService.STATUS, "PROCESSING");
+        if (processing > maxProcessing) {
+            logger.debug("Skipping cold tier migration, {} documents processing", processing);
+            return;
+        }
+        try {
+            migrateBatch();
+        } catch (Exception e) {
+            logger.error("Error during cold tier migration", e);
+        }
+    }
+
+    /**
+     * Migrates one batch of eligible documents and returns what happened.
+     */
+    public synchronized Map<String, Object> migrateBatch() {
+        lastRunAt = LocalDateTime.now();
+        List<Document> candidates = findCandidates();
+        trainMissingDictionaries(candidates);
+
+        int moved = 0;
+        int kept = 0;
+        int errors = 0;
+        for (Document document : candidates) {
+            try {
+                if (migrate(document)) {
+                    moved++;
+                } else {
+                    kept++;
+                }
+            } catch (IOException | RuntimeException e) {
+                errors++;
+                failed.incrementAndGet();
+                logger.warn("Cold tier migration failed for {}: {}", document.getId(), e.getMessage());
+                recordFailure(document);
+            }
+        }
+
+        if (moved > 0 || errors > 0) {
+            logger.info("Cold tier migration moved {} documents, kept {} hot, {} failed", moved, kept, errors);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("candidates", candidates.size());
+        result.put("migrated", moved);
+        result.put("keptHot", kept);
+        result.put("failed", errors);
+        return result;
+    }
+
+    /**
+     * Document counts and bytes per tier, with the space saved by compression.
+     */
+    public Map<String, Object> getReport() {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.group("storage_tier").count().as("count")
+                        .sum("file_size").as("originalBytes")
+                        .sum("stored_size").as("storedBytes"));
+        List<org.bson.Document> groups = mongoTemplate.aggregate(readRouting.analytics(aggregation), "documents",
+                org.bson.Document.class).getMappedResults();
+
+        Map<String, Object> tiers = new LinkedHashMap<>();
+        long coldOriginal = 0;
+        long coldStored = 0;
+        for (org.bson.Document group : groups) {
+            String tier = group.get("_id") != null ? group.get("_id").toString() : TIER_HOT;
+            long original = number(group.get("originalBytes"));
+            long stored = TIER_COLD.equals(tier) ? number(group.get("storedBytes")) : original;
+            Map<String, Object> totals = new LinkedHashMap<>();
+            totals.put("count", number(group.get("count")));
+            totals.put("originalBytes", original);
+            totals.put("storedBytes", stored);
+            // Unset and HOT tiers are both hot; merge them
+            tiers.merge(tier, totals, (left, right) -> mergeTotals(left, right));
+            if (TIER_COLD.equals(tier)) {
+                coldOriginal += original;
+                coldStored += stored;
+            }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("tiers", tiers);
+        report.put("spaceSavedBytes", coldOriginal - coldStored);
+        report.put("coldCompressionRatio", coldOriginal > 0 ? (double) coldStored / coldOriginal : null);
+        report.put("dictionaries", dictionaryService.getDictionaries().stream()
+                .map(dictionary -> {
+                    Map<String, Object> summary = new LinkedHashMap<>();
+                    summary.put("dictId", dictionary.getDictId());
+                    summary.put("contentType", dictionary.getContentType());
+                    summary.put("size", dictionary.getDictionary() != null ? dictionary.getDictionary().length : 0);
+                    summary.put("sampleCount", dictionary.getSampleCount());
+                    summary.put("createdAt", dictionary.getCreatedAt());
+                    return summary;
+                })
+                .toList());
+
+        Map<String, Object> migrator = new LinkedHashMap<>();
+        migrator.put("enabled", enabled);
+        migrator.put("minAge", minAge.toString());
+        migrator.put("maxBytesPerSecond", maxBytesPerSecond.toBytes());
+        migrator.put("lastRunAt", lastRunAt);
+        migrator.put("migrated", migrated.get());
+        migrator.put("keptHot", skipped.get());
+        migrator.put("failed", failed.get());
+        migrator.put("bytesRead", bytesRead.get());
+        migrator.put("bytesWritten", bytesWritten.get());
+        report.put("migrator", migrator);
+        return report;
+    }
+
+    private List<Document> findCandidates() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cutoff = now.minus(minAge);
+        Query query = new Query(Criteria.where("tierCheckedAt").is(null)
+                .and("createdAt").lt(cutoff)
+                .and("processingStatus").in("COMPLETED", "FAILED")
+                .orOperator(Criteria.where("tierRetryAt").is(null), Criteria.where("tierRetryAt").lte(now)))
+                .with(Sort.by(Sort.Direction.ASC, "createdAt"))
+                .limit(batchSize);
+        query.fields().exclude("extractedText").exclude("entities");
+        return mongoTemplate.find(query, Document.class);
+    }
+
+    private boolean migrate(Document document) throws IOException {
+        String hotLocator = document.getFilePath();
+        if (hotLocator == null || coldStore.supports(hotLocator)
+                || (document.getContentType() != null && skipContentTypes.contains(document.getContentType()))) {
+            markChecked(document, null, null);
+            skipped.incrementAndGet();
+            return false;
+        }
+
+        long size = storageService.stat(hotLocator).size();
+        String coldLocator;
+        try (InputStream content = throttle.wrap(storageService.openFile(hotLocator))) {
+            coldLocator = coldStore.put(document.getChecksum(), document.getFilename(), content, size,
+                    document.getContentType());
+        }
+        long storedSize = coldStore.storedSize(coldLocator);
+        bytesRead.addAndGet(size);
+        bytesWritten.addAndGet(storedSize);
+
+        if (storedSize > size * maxRatio) {
+            // Already compressed formats stay hot rather than paying decompression on every read
+            coldStore.delete(coldLocator);
+            markChecked(document, null, null);
+            skipped.incrementAndGet();
+            return false;
+        }
+
+        if (!markChecked(document, coldLocator, storedSize)) {
+            coldStore.delete(coldLocator);
+            logger.debug("Document {} changed during migration, left hot", document.getId());
+            return false;
+        }
+        storageService.deleteFile(hotLocator);
+        migrated.incrementAndGet();
+        return true;
+    }
+
+    private boolean markChecked(Document document, String coldLocator, Long storedSize) {
+        Query query = new Query(Criteria.where("_id").is(document.getId()).and("filePath").is(document.getFilePath()));
+        Update update = new Update().set("tierCheckedAt", LocalDateTime.now())
+                .unset("tierAttempts")
+                .unset("tierRetryAt");
+        if (coldLocator != null) {
+            update.set("filePath", coldLocator)
+                    .set("storageTier", TIER_COLD)
+                    .set("storedSize", storedSize)
+                    .set("updatedAt", LocalDateTime.now());
+        } else {
+            update.set("storageTier", TIER_HOT);
+        }
+        return mongoTemplate.updateFirst(query, update, Document.class).getModifiedCount() > 0;
+    }
+
+    /**
+     * Backs off a failed document until {@code tierRetryAt}; after {@code maxAttempts} it is marked
+     * checked and stays hot, and clearing {@code tierCheckedAt} queues it again.
+     */
+    private void recordFailure(Document document) {
+        int attempts = (document.getTierAttempts() != null ? document.getTierAttempts() : 0) + 1;
+        LocalDateTime now = LocalDateTime.now();
+        Query query = new Query(Criteria.where("_id").is(document.getId()).and("filePath").is(document.getFilePath()));
+        Update update = new Update().set("tierAttempts", attempts);
+        if (attempts >= maxAttempts) {
+            update.set("tierCheckedAt", now).set("storageTier", TIER_HOT).unset("tierRetryAt");
+            logger.warn("Giving up cold tier migration for {} after {} attempts", document.getId(), attempts);
+        } else {
+            update.set("tierRetryAt", now.plus(retryDelay.multipliedBy(1L << Math.min(attempts - 1, 20))));
+        }
+        try {
+            mongoTemplate.updateFirst(query, update, Document.class);
+        } catch (RuntimeException e) {
+            logger.warn("Could not record cold tier failure for {}: {}", document.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Trains a dictionary for each small-file content type in the batch that has none yet.
+     */
+    private void trainMissingDictionaries(List<Document> candidates) {
+        long smallFile = dictionaryMaxFileSize.toBytes();
+        Map<String, Long> smallByType = candidates.stream()
+                .filter(document -> document.getContentType() != null && document.getFileSize() != null)
+                .filter(document -> document.getFileSize() <= smallFile)
+                .filter(document -> !skipContentTypes.contains(document.getContentType()))
+                .collect(Collectors.groupingBy(Document::getContentType, HashMap::new, Collectors.counting()));
+
+        for (String contentType : smallByType.keySet()) {
+            if (dictionaryService.forContentType(contentType).isPresent()) {
+                continue;
+            }
+            Query query = new Query(Criteria.where("contentType").is(contentType).and("fileSize").lte(smallFile))
+                    .limit(dictionarySampleLimit);
+            query.fields().include("filePath");
+            List<Document> sampleDocuments = mongoTemplate.find(query, Document.class);
+            if (!dictionaryService.hasEnoughSamples(sampleDocuments.size())) {
+                continue;
+            }
+
+            List<byte[]> samples = new ArrayList<>(sampleDocuments.size());
+            for (Document sample : sampleDocuments) {
+                try (InputStream content = throttle.wrap(storageService.openFile(sample.getFilePath()))) {
+                    samples.add(content.readAllBytes());
+                } catch (IOException e) {
+                    logger.debug("Skipping dictionary sample {}: {}", sample.getId(), e.getMessage());
+                }
+            }
+            dictionaryService.train(contentType, samples);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object mergeTotals(Object left, Object right) {
+        Map<String, Object> merged = new LinkedHashMap<>((Map<String, Object>) left);
+        ((Map<String, Object>) right).forEach((key, value) -> merged.merge(key, value,
+                (a, b) -> ((Number) a).longValue() + ((Number) b).longValue()));
+        return merged;
+    }
+
+    private static long number(Object value) {
+        return value instanceof Number number ? number.longValue() : 0L;
+    }
+}
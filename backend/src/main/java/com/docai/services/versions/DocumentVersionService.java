@@ -0,0 +1,209 @@
+package com.docai.services.versions;
+
+import com.docai.models.Document;
+import com.docai.models.DocumentAnalysis;
+import com.docai.services.analysis.AnalysisStore;
+import com.docai.services.persistence.WriteCoalescer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Links revisions of a document into a version chain and diffs each revision against the one
+ * before it. A revision is linked explicitly on upload, or automatically when duplicate detection
+ * finds an edited near-duplicate. Analyses of a revision can then be computed incrementally from
+ * the previous version's results (see {@link #prepareIncremental}).
+ */
+@Service
+public class DocumentVersionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentVersionService.class);
+
+    private static final Set<String> INCREMENTAL_TYPES = Set.of("entity_extraction", "summarization", "comprehensive");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private AnalysisStore analysisStore;
+
+    @Autowired
+    private WriteCoalescer writeCoalescer;
+
+    @Value("${document.versions.incremental:true}")
+    private boolean incremental;
+
+    @Value("${document.versions.link-near-duplicates:true}")
+    private boolean linkNearDuplicates;
+
+    @Value("${document.versions.max-changed-fraction:0.5}")
+    private double maxChangedFraction;
+
+    @Value("${document.versions.max-chunk-chars:6000}")
+    private int maxChunkChars;
+
+    /**
+     * Makes {@code document} the next version after {@code previousVersionId}; the caller saves it.
+     */
+    public void link(Document document, String previousVersionId) {
+        Document previous = findSummary(previousVersionId)
+                .orElseThrow(() -> new IllegalArgumentException("Previous version not found: " + previousVersionId));
+        if (document.getId() != null && (document.getId().equals(previous.getId())
+                || document.getId().equals(previous.getVersionGroupId()))) {
+            throw new IllegalArgumentException("A document cannot follow itself or one of its own revisions");
+        }
+        document.setPreviousVersionId(previous.getId());
+        document.setVersionGroupId(previous.getVersionGroupId() != null ? previous.getVersionGroupId() : previous.getId());
+        document.setVersionNumber((previous.getVersionNumber() != null ? previous.getVersionNumber() : 1) + 1);
+    }
+
+    /**
+     * Links a stored first version (and any revisions already chained to it) after another document.
+     */
+    public Document linkExisting(String documentId, String previousVersionId) {
+        Document document = findSummary(documentId)
+                .orElseThrow(() -> new IllegalArgumentException("Document not found: " + documentId));
+        if (document.getPreviousVersionId() != null) {
+            throw new IllegalArgumentException("Document already follows " + document.getPreviousVersionId());
+        }
+        link(document, previousVersionId);
+        document.setUpdatedAt(LocalDateTime.now());
+        // Committed through the coalescer so a buffered pipeline write cannot land after it with an older updatedAt
+        writeCoalescer.update(Document.class, documentId, linkUpdate(document), WriteCoalescer.Durability.COMMIT);
+
+        // Later revisions move into the new chain after this one
+        mongoTemplate.updateMulti(new Query(Criteria.where("versionGroupId").is(documentId).and("_id").ne(documentId)),
+                new Update().set("versionGroupId", document.getVersionGroupId())
+                        .inc("versionNumber", document.getVersionNumber() - 1)
+                        .set("updatedAt", document.getUpdatedAt()), Document.class);
+        return document;
+    }
+
+    /**
+     * Links an edited near-duplicate to the newest earlier document of its duplicate group.
+     */
+    public void linkNearDuplicate(Document document) {
+        if (!linkNearDuplicates || document.getPreviousVersionId() != null || document.getDuplicateOf() == null
+                || document.getDuplicateSimilarity() == null || document.getDuplicateSimilarity() >= 1.0) {
+            // Identical rescans are duplicates, not revisions
+            return;
+        }
+        String root = document.getDuplicateOf();
+        Query query = new Query(new Criteria().andOperator(
+                new Criteria().orOperator(Criteria.where("_id").is(root), Criteria.where("duplicateOf").is(root)),
+                Criteria.where("_id").lt(document.getId())))
+                .with(Sort.by(Sort.Direction.DESC, "id"))
+                .limit(1);
+        query.fields().include("id");
+        Document previous = mongoTemplate.findOne(query, Document.class);
+        if (previous == null) {
+            return;
+        }
+        link(document, previous.getId());
+        document.setUpdatedAt(LocalDateTime.now());
+        writeCoalescer.update(Document.class, document.getId(), linkUpdate(document), WriteCoalescer.Durability.BATCHED);
+        logger.info("Document {} linked as version {} after {}", document.getId(), document.getVersionNumber(), previous.getId());
+    }
+
+    /**
+     * Every version of the document's chain, oldest first.
+     */
+    public List<Document> getVersions(Document document) {
+        String group = document.getVersionGroupId() != null ? document.getVersionGroupId() : document.getId();
+        Query query = new Query(new Criteria().orOperator(Criteria.where("_id").is(group), Criteria.where("versionGroupId").is(group)))
+                .with(Sort.by(Sort.Direction.ASC, "versionNumber", "id"));
+        query.fields().exclude("extractedText");
+        return mongoTemplate.find(query, Document.class);
+    }
+
+    /**
+     * Paragraph-level changes against the previous version, or empty for a first version.
+     */
+    public Optional<Map<String, Object>> diff(Document document, int maxExcerptChars) {
+        if (document.getPreviousVersionId() == null || document.getExtractedText() == null) {
+            return Optional.empty();
+        }
+        Document previous = mongoTemplate.findById(document.getPreviousVersionId(), Document.class);
+        if (previous == null || previous.getExtractedText() == null) {
+            return Optional.empty();
+        }
+        VersionDelta delta = new VersionDelta(previous.getId(), null, previous.getExtractedText(), document.getExtractedText(),
+                ParagraphDiff.compute(previous.getExtractedText(), document.getExtractedText()), maxChunkChars);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("documentId", document.getId());
+        result.put("previousVersionId", previous.getId());
+        result.put("versionNumber", document.getVersionNumber());
+        result.put("paragraphs", delta.getTotalParagraphs());
+        result.put("changedParagraphs", delta.getChangedParagraphs());
+        result.put("removedParagraphs", delta.getRemovedParagraphs());
+        result.put("changedFraction", delta.getChangedFraction());
+        result.put("changes", delta.getChangedSpans().stream()
+                .map(span -> Map.of(
+                        "start", span.start(),
+                        "end", span.end(),
+                        "excerpt", span.text().length() <= maxExcerptChars
+                                ? span.text()
+                                : span.text().substring(0, maxExcerptChars) + "...")
+                ).toList());
+        return Optional.of(result);
+    }
+
+    /**
+     * The change since the previous version, when an analysis of this type can be derived from the
+     * previous version's completed result instead of analyzing the whole text again.
+     */
+    public Optional<VersionDelta> prepareIncremental(Document document, String analysisType) {
+        if (!incremental || document.getPreviousVersionId() == null || document.getExtractedText() == null
+                || !INCREMENTAL_TYPES.contains(analysisType.toLowerCase())) {
+            return Optional.empty();
+        }
+        Optional<DocumentAnalysis> previousAnalysis = analysisStore.findCurrent(document.getPreviousVersionId(), analysisType)
+                .filter(analysis -> "COMPLETED".equals(analysis.getStatus()));
+        if (previousAnalysis.isEmpty()) {
+            return Optional.empty();
+        }
+        Document previous = mongoTemplate.findById(document.getPreviousVersionId(), Document.class);
+        if (previous == null || previous.getExtractedText() == null) {
+            return Optional.empty();
+        }
+
+        VersionDelta delta = new VersionDelta(previous.getId(), previousAnalysis.get(), previous.getExtractedText(),
+                document.getExtractedText(), ParagraphDiff.compute(previous.getExtractedText(), document.getExtractedText()),
+                maxChunkChars);
+        if (delta.getChangedFraction() > maxChangedFraction) {
+            logger.debug("Document {} changed {}% since {}, analyzing in full", document.getId(),
+                    Math.round(delta.getChangedFraction() * 100), previous.getId());
+            return Optional.empty();
+        }
+        return Optional.of(delta);
+    }
+
+    private static Update linkUpdate(Document document) {
+        return new Update()
+                .set("previousVersionId", document.getPreviousVersionId())
+                .set("versionGroupId", document.getVersionGroupId())
+                .set("versionNumber", document.getVersionNumber())
+                .set("updatedAt", document.getUpdatedAt());
+    }
+
+    private Optional<Document> findSummary(String documentId) {
+        Query query = new Query(Criteria.where("_id").is(documentId));
+        query.fields().include("id", "previousVersionId", "versionGroupId", "versionNumber");
+        return Optional.ofNullable(mongoTemplate.findOne(query, Document.class));
+    }
+}
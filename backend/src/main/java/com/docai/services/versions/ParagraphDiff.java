@@ -0,0 +1,207 @@
+package com.docai.services.versions;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Paragraph-level diff of two extracted texts. Paragraphs are compared by a hash of their
+ * whitespace-normalized content, so re-flowed lines still match. The common prefix and suffix
+ * are matched directly and the middle by longest common subsequence; very large middles fall
+ * back to in-order matching of equal hashes, which is linear and nearly as good for revisions.
+ */
+final class ParagraphDiff {
+
+    // Above this many cells the LCS table would cost more than it saves
+    private static final long MAX_LCS_CELLS = 4_000_000L;
+
+    // Text with blank-line paragraphs only every this many characters is split on single newlines
+    private static final int MAX_PARAGRAPH_CHARS = 2000;
+
+    private static final Pattern BLANK_LINES = Pattern.compile("\\n\\s*\\n");
+    private static final Pattern LINE_BREAK = Pattern.compile("\\n");
+
+    record Paragraph(int start, int end, long hash) {
+        int length() {
+            return end - start;
+        }
+    }
+
+    final List<Paragraph> oldParagraphs;
+    final List<Paragraph> newParagraphs;
+    // Index of the matching old paragraph for each new paragraph, -1 if it is new or changed
+    final int[] newToOld;
+    final int[] oldToNew;
+
+    private ParagraphDiff(List<Paragraph> oldParagraphs, List<Paragraph> newParagraphs, int[] newToOld, int[] oldToNew) {
+        this.oldParagraphs = oldParagraphs;
+        this.newParagraphs = newParagraphs;
+        this.newToOld = newToOld;
+        this.oldToNew = oldToNew;
+    }
+
+    static ParagraphDiff compute(String oldText, String newText) {
+        List<Paragraph> oldParagraphs = paragraphs(oldText);
+        List<Paragraph> newParagraphs = paragraphs(newText);
+        int[] newToOld = new int[newParagraphs.size()];
+        int[] oldToNew = new int[oldParagraphs.size()];
+        Arrays.fill(newToOld, -1);
+        Arrays.fill(oldToNew, -1);
+
+        int n = oldParagraphs.size();
+        int m = newParagraphs.size();
+        int prefix = 0;
+        while (prefix < n && prefix < m && oldParagraphs.get(prefix).hash() == newParagraphs.get(prefix).hash()) {
+            link(newToOld, oldToNew, prefix, prefix);
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < n - prefix && suffix < m - prefix
+                && oldParagraphs.get(n - 1 - suffix).hash() == newParagraphs.get(m - 1 - suffix).hash()) {
+            link(newToOld, oldToNew, n - 1 - suffix, m - 1 - suffix);
+            suffix++;
+        }
+
+        int oldFrom = prefix;
+        int oldTo = n - suffix;
+        int newFrom = prefix;
+        int newTo = m - suffix;
+        if ((long) (oldTo - oldFrom) * (newTo - newFrom) <= MAX_LCS_CELLS) {
+            matchLcs(oldParagraphs, newParagraphs, oldFrom, oldTo, newFrom, newTo, newToOld, oldToNew);
+        } else {
+            matchInOrder(oldParagraphs, newParagraphs, oldFrom, oldTo, newFrom, newTo, newToOld, oldToNew);
+        }
+        return new ParagraphDiff(oldParagraphs, newParagraphs, newToOld, oldToNew);
+    }
+
+    static List<Paragraph> paragraphs(String text) {
+        List<Paragraph> paragraphs = split(text, BLANK_LINES);
+        int longest = paragraphs.stream().mapToInt(Paragraph::length).max().orElse(0);
+        if (longest > MAX_PARAGRAPH_CHARS) {
+            paragraphs = split(text, LINE_BREAK);
+        }
+        return paragraphs;
+    }
+
+    /**
+     * Index of the paragraph containing {@code offset}, or -1.
+     */
+    static int paragraphAt(List<Paragraph> paragraphs, int offset) {
+        int low = 0;
+        int high = paragraphs.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            Paragraph paragraph = paragraphs.get(mid);
+            if (offset < paragraph.start()) {
+                high = mid - 1;
+            } else if (offset >= paragraph.end()) {
+                low = mid + 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private static List<Paragraph> split(String text, Pattern separator) {
+        List<Paragraph> paragraphs = new ArrayList<>();
+        Matcher matcher = separator.matcher(text);
+        int start = 0;
+        while (matcher.find()) {
+            add(paragraphs, text, start, matcher.start());
+            start = matcher.end();
+        }
+        add(paragraphs, text, start, text.length());
+        return paragraphs;
+    }
+
+    private static void add(List<Paragraph> paragraphs, String text, int start, int end) {
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        if (start < end) {
+            paragraphs.add(new Paragraph(start, end, hash(text, start, end)));
+        }
+    }
+
+    private static long hash(String text, int start, int end) {
+        // FNV-1a over the text with whitespace runs collapsed to one space
+        long hash = 0xcbf29ce484222325L;
+        boolean space = false;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = true;
+                continue;
+            }
+            if (space) {
+                hash = (hash ^ ' ') * 0x100000001b3L;
+                space = false;
+            }
+            hash = (hash ^ c) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static void matchLcs(List<Paragraph> oldParagraphs, List<Paragraph> newParagraphs,
+                                 int oldFrom, int oldTo, int newFrom, int newTo, int[] newToOld, int[] oldToNew) {
+        int rows = oldTo - oldFrom;
+        int columns = newTo - newFrom;
+        if (rows == 0 || columns == 0) {
+            return;
+        }
+        int[][] lengths = new int[rows + 1][columns + 1];
+        for (int i = rows - 1; i >= 0; i--) {
+            for (int j = columns - 1; j >= 0; j--) {
+                lengths[i][j] = oldParagraphs.get(oldFrom + i).hash() == newParagraphs.get(newFrom + j).hash()
+                        ? lengths[i + 1][j + 1] + 1
+                        : Math.max(lengths[i + 1][j], lengths[i][j + 1]);
+            }
+        }
+        int i = 0;
+        int j = 0;
+        while (i < rows && j < columns) {
+            if (oldParagraphs.get(oldFrom + i).hash() == newParagraphs.get(newFrom + j).hash()) {
+                link(newToOld, oldToNew, oldFrom + i, newFrom + j);
+                i++;
+                j++;
+            } else if (lengths[i + 1][j] >= lengths[i][j + 1]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+    }
+
+    private static void matchInOrder(List<Paragraph> oldParagraphs, List<Paragraph> newParagraphs,
+                                     int oldFrom, int oldTo, int newFrom, int newTo, int[] newToOld, int[] oldToNew) {
+        Map<Long, ArrayDeque<Integer>> positions = new HashMap<>();
+        for (int i = oldFrom; i < oldTo; i++) {
+            positions.computeIfAbsent(oldParagraphs.get(i).hash(), hash -> new ArrayDeque<>()).add(i);
+        }
+        int last = oldFrom - 1;
+        for (int j = newFrom; j < newTo; j++) {
+            ArrayDeque<Integer> candidates = positions.get(newParagraphs.get(j).hash());
+            while (candidates != null && !candidates.isEmpty() && candidates.peekFirst() <= last) {
+                candidates.pollFirst();
+            }
+            if (candidates != null && !candidates.isEmpty()) {
+                last = candidates.pollFirst();
+                link(newToOld, oldToNew, last, j);
+            }
+        }
+    }
+
+    private static void link(int[] newToOld, int[] oldToNew, int oldIndex, int newIndex) {
+        newToOld[newIndex] = oldIndex;
+        oldToNew[oldIndex] = newIndex;
+    }
+}
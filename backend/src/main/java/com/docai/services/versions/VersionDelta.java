@@ -0,0 +1,193 @@
+package com.docai.services.versions;
+
+import com.docai.models.DocumentAnalysis;
+import com.docai.models.Entity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * What changed between a document and its previous version, with the previous version's
+ * analysis of the requested type. Offers the pieces an incremental analysis needs: the changed
+ * spans of the new text, entities from unchanged paragraphs moved to their new offsets, and a
+ * compact description of the change for recomposing the summary.
+ */
+public final class VersionDelta {
+
+    public record Span(int start, int end, String text) {
+    }
+
+    private final String previousVersionId;
+    private final DocumentAnalysis previousAnalysis;
+    private final String oldText;
+    private final String newText;
+    private final ParagraphDiff diff;
+    private final int maxChunkChars;
+
+    VersionDelta(String previousVersionId, DocumentAnalysis previousAnalysis, String oldText, String newText,
+                 ParagraphDiff diff, int maxChunkChars) {
+        this.previousVersionId = previousVersionId;
+        this.previousAnalysis = previousAnalysis;
+        this.oldText = oldText;
+        this.newText = newText;
+        this.diff = diff;
+        this.maxChunkChars = maxChunkChars;
+    }
+
+    public String getPreviousVersionId() {
+        return previousVersionId;
+    }
+
+    public DocumentAnalysis getPreviousAnalysis() {
+        return previousAnalysis;
+    }
+
+    public int getTotalParagraphs() {
+        return diff.newParagraphs.size();
+    }
+
+    public int getChangedParagraphs() {
+        int changed = 0;
+        for (int oldIndex : diff.newToOld) {
+            if (oldIndex < 0) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    public int getRemovedParagraphs() {
+        int removed = 0;
+        for (int newIndex : diff.oldToNew) {
+            if (newIndex < 0) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Share of the text that is new, changed or removed, from 0 (identical) to 1.
+     */
+    public double getChangedFraction() {
+        long changed = 0;
+        for (Span span : getChangedSpans()) {
+            changed += span.end() - span.start();
+        }
+        for (int i = 0; i < diff.oldParagraphs.size(); i++) {
+            if (diff.oldToNew[i] < 0) {
+                changed += diff.oldParagraphs.get(i).length();
+            }
+        }
+        return Math.min(1.0, changed / (double) Math.max(1, newText.length()));
+    }
+
+    /**
+     * Runs of new or changed paragraphs in the new text, split to at most the chunk size.
+     */
+    public List<Span> getChangedSpans() {
+        List<Span> spans = new ArrayList<>();
+        List<ParagraphDiff.Paragraph> paragraphs = diff.newParagraphs;
+        int i = 0;
+        while (i < paragraphs.size()) {
+            if (diff.newToOld[i] >= 0) {
+                i++;
+                continue;
+            }
+            int start = paragraphs.get(i).start();
+            int end = paragraphs.get(i).end();
+            i++;
+            while (i < paragraphs.size() && diff.newToOld[i] < 0 && paragraphs.get(i).end() - start <= maxChunkChars) {
+                end = paragraphs.get(i).end();
+                i++;
+            }
+            spans.add(new Span(start, end, newText.substring(start, end)));
+        }
+        return spans;
+    }
+
+    /**
+     * Copies of {@code entities} (found in the previous text) that lie in unchanged paragraphs, with
+     * offsets moved to the new text. Entities without offsets are placed at their first occurrence
+     * in an unchanged paragraph. Entities only found in changed or removed text are dropped.
+     */
+    public List<Entity> rebaseEntities(List<Entity> entities) {
+        List<Entity> rebased = new ArrayList<>();
+        for (Entity entity : entities) {
+            Integer start = entity.getStartOffset();
+            Integer end = entity.getEndOffset();
+            if (start != null && end != null && start >= 0 && end <= oldText.length()) {
+                int oldIndex = ParagraphDiff.paragraphAt(diff.oldParagraphs, start);
+                if (oldIndex < 0 || diff.oldToNew[oldIndex] < 0) {
+                    continue;
+                }
+                int shift = diff.newParagraphs.get(diff.oldToNew[oldIndex]).start() - diff.oldParagraphs.get(oldIndex).start();
+                int newStart = start + shift;
+                int newEnd = end + shift;
+                // Whitespace-only edits inside the paragraph can move the text; keep only exact placements
+                if (newEnd <= newText.length() && entity.getText() != null
+                        && newText.regionMatches(newStart, entity.getText(), 0, entity.getText().length())) {
+                    rebased.add(copy(entity, newStart, newEnd));
+                } else if (entity.getText() != null) {
+                    placeInUnchanged(entity).ifPresent(rebased::add);
+                }
+            } else if (entity.getText() != null && !entity.getText().isBlank()) {
+                placeInUnchanged(entity).ifPresent(rebased::add);
+            }
+        }
+        return rebased;
+    }
+
+    /**
+     * Removed and added passages, each capped, for a summary update prompt.
+     */
+    public String describeChanges(int maxChars) {
+        StringBuilder removed = new StringBuilder();
+        for (int i = 0; i < diff.oldParagraphs.size(); i++) {
+            if (diff.oldToNew[i] < 0) {
+                ParagraphDiff.Paragraph paragraph = diff.oldParagraphs.get(i);
+                removed.append(oldText, paragraph.start(), paragraph.end()).append("\n\n");
+            }
+        }
+        StringBuilder added = new StringBuilder();
+        for (Span span : getChangedSpans()) {
+            added.append(span.text()).append("\n\n");
+        }
+        int half = maxChars / 2;
+        return "Removed passages:\n" + truncate(removed, half) + "\nAdded or changed passages:\n" + truncate(added, half);
+    }
+
+    private Optional<Entity> placeInUnchanged(Entity entity) {
+        String text = entity.getText();
+        int from = 0;
+        while (true) {
+            int found = newText.indexOf(text, from);
+            if (found < 0) {
+                return Optional.empty();
+            }
+            int newIndex = ParagraphDiff.paragraphAt(diff.newParagraphs, found);
+            if (newIndex >= 0 && diff.newToOld[newIndex] >= 0) {
+                return Optional.of(copy(entity, found, found + text.length()));
+            }
+            from = found + 1;
+        }
+    }
+
+    private static Entity copy(Entity entity, int start, int end) {
+        Entity copy = new Entity(entity.getType(), entity.getText(), entity.getConfidence(), start, end);
+        copy.setCategory(entity.getCategory());
+        copy.setSubcategory(entity.getSubcategory());
+        copy.setNormalizedValue(entity.getNormalizedValue());
+        copy.setMetadata(entity.getMetadata() != null ? new HashMap<>(entity.getMetadata()) : null);
+        return copy;
+    }
+
+    private static String truncate(StringBuilder text, int maxChars) {
+        if (text.length() == 0) {
+            return "(none)\n";
+        }
+        return text.length() <= maxChars ? text.toString() : text.substring(0, maxChars) + "...\n";
+    }
+}
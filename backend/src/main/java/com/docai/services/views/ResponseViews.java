@@ -0,0 +1,215 @@
+package com.docai.services.views;
+
+import com.docai.models.Document;
+import com.docai.models.DocumentAnalysis;
+import com.docai.models.Entity;
+import com.docai.services.stats.DocumentStatisticsService;
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Serializes API responses containing documents and analyses with a named view or a sparse
+ * fieldset ({@code fields=id,filename,classification}). Views apply wherever the models appear in
+ * the response, including inside wrappers and nested lists; {@code fields} selects top-level
+ * properties of the endpoint's model from those its view shows and leaves the rest to the view.
+ * <ul>
+ *   <li>{@code summary}: list columns only, no text, entities, topics or metadata maps</li>
+ *   <li>{@code detail}: everything except extracted text and raw metadata maps</li>
+ *   <li>{@code full}: the stored record as is (the default)</li>
+ * </ul>
+ * Filters hang off a private copy of the application ObjectMapper through mix-ins, so the models
+ * stay unannotated, and one ObjectWriter is built per view and per distinct fieldset.
+ */
+@Service
+public class ResponseViews {
+
+    public static final String SUMMARY = "summary";
+    public static final String DETAIL = "detail";
+    public static final String FULL = "full";
+
+    private static final String DOCUMENT_FILTER = "document";
+    private static final String ANALYSIS_FILTER = "analysis";
+    private static final String ENTITY_FILTER = "entity";
+    private static final String FIELDSETS = "fields";
+    private static final long MAX_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final long MAX_TRACKABLE_BYTES = 1L << 32;
+
+    private static final Set<String> DOCUMENT_SUMMARY = Set.of("id", "filename", "originalFilename", "contentType",
+            "fileSize", "processed", "processingStatus", "classification", "confidenceScore", "tags", "uploadedBy",
+            "language", "pageCount", "storageTier", "duplicateOf", "versionGroupId", "versionNumber",
+            "createdAt", "updatedAt");
+    private static final Set<String> ANALYSIS_SUMMARY = Set.of("id", "documentId", "analysisType", "status",
+            "confidence", "processingTime", "sentiment", "classification", "language", "errorMessage",
+            "lastFailure", "createdAt", "updatedAt");
+    private static final Set<String> DOCUMENT_DETAIL_EXCLUDED = Set.of("extractedText", "metadata");
+    private static final Set<String> ANALYSIS_DETAIL_EXCLUDED = Set.of("metadata", "analyticsData");
+
+    @JsonFilter(DOCUMENT_FILTER)
+    private interface DocumentFilter {
+    }
+
+    @JsonFilter(ANALYSIS_FILTER)
+    private interface AnalysisFilter {
+    }
+
+    @JsonFilter(ENTITY_FILTER)
+    private interface EntityFilter {
+    }
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DocumentStatisticsService statisticsService;
+
+    private ObjectMapper viewMapper;
+    private Map<String, ObjectWriter> viewWriters;
+    private final Map<Class<?>, Set<String>> properties = new ConcurrentHashMap<>();
+    private final Cache<String, ObjectWriter> fieldsetWriters = Caffeine.newBuilder().maximumSize(256).build();
+    private final Map<String, Histogram> serializeMicros = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> responseBytes = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void initialize() {
+        viewMapper = objectMapper.copy()
+                .addMixIn(Document.class, DocumentFilter.class)
+                .addMixIn(DocumentAnalysis.class, AnalysisFilter.class)
+                .addMixIn(Entity.class, EntityFilter.class);
+        viewWriters = Map.of(
+                SUMMARY, viewMapper.writer(filters(SUMMARY)),
+                DETAIL, viewMapper.writer(filters(DETAIL)),
+                FULL, viewMapper.writer(filters(FULL)));
+    }
+
+    /**
+     * Serializes {@code body} for an endpoint returning {@code model} (Document or DocumentAnalysis).
+     * A null or blank view means {@link #FULL}; unknown views and fields are rejected.
+     */
+    public byte[] write(Object body, Class<?> model, String view, String fields) throws IOException {
+        String viewName = view == null || view.isBlank() ? FULL : view.trim().toLowerCase();
+        if (!viewWriters.containsKey(viewName)) {
+            throw new IllegalArgumentException("Unknown view: " + view + " (expected summary, detail or full)");
+        }
+        ObjectWriter writer;
+        String metric;
+        if (fields == null || fields.isBlank()) {
+            writer = viewWriters.get(viewName);
+            metric = viewName;
+        } else {
+            Set<String> selected = fieldset(model, viewName, fields);
+            writer = fieldsetWriters.get(model.getSimpleName() + ":" + viewName + ":" + selected,
+                    key -> viewMapper.writer(filters(viewName).addFilter(filterId(model),
+                            SimpleBeanPropertyFilter.filterOutAllExcept(selected))));
+            metric = FIELDSETS;
+        }
+
+        long startTime = System.nanoTime();
+        byte[] bytes = writer.writeValueAsBytes(body);
+        serializeMicros.computeIfAbsent(metric, key -> new ConcurrentHistogram(MAX_TRACKABLE_MICROS, 3))
+                .recordValue(Math.min((System.nanoTime() - startTime) / 1000, MAX_TRACKABLE_MICROS));
+        responseBytes.computeIfAbsent(metric, key -> new ConcurrentHistogram(MAX_TRACKABLE_BYTES, 2))
+                .recordValue(Math.min(bytes.length, MAX_TRACKABLE_BYTES));
+        return bytes;
+    }
+
+    /**
+     * Serialization time and uncompressed response size per view (and for ad-hoc fieldsets).
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        new TreeSet<>(serializeMicros.keySet()).forEach(metric -> status.put(metric, Map.of(
+                "serializeMicros", statisticsService.percentiles(serializeMicros.get(metric)),
+                "responseBytes", statisticsService.percentiles(responseBytes.get(metric)))));
+        status.put("cachedFieldsets", fieldsetWriters.estimatedSize());
+        return status;
+    }
+
+    private SimpleFilterProvider filters(String view) {
+        SimpleFilterProvider provider = new SimpleFilterProvider();
+        switch (view) {
+            case SUMMARY -> provider
+                    .addFilter(DOCUMENT_FILTER, SimpleBeanPropertyFilter.filterOutAllExcept(DOCUMENT_SUMMARY))
+                    .addFilter(ANALYSIS_FILTER, SimpleBeanPropertyFilter.filterOutAllExcept(ANALYSIS_SUMMARY))
+                    .addFilter(ENTITY_FILTER, SimpleBeanPropertyFilter.serializeAllExcept("metadata"));
+            case DETAIL -> provider
+                    .addFilter(DOCUMENT_FILTER, SimpleBeanPropertyFilter.serializeAllExcept(DOCUMENT_DETAIL_EXCLUDED))
+                    .addFilter(ANALYSIS_FILTER, SimpleBeanPropertyFilter.serializeAllExcept(ANALYSIS_DETAIL_EXCLUDED))
+                    .addFilter(ENTITY_FILTER, SimpleBeanPropertyFilter.serializeAllExcept("metadata"));
+            default -> provider
+                    .addFilter(DOCUMENT_FILTER, SimpleBeanPropertyFilter.serializeAll())
+                    .addFilter(ANALYSIS_FILTER, SimpleBeanPropertyFilter.serializeAll())
+                    .addFilter(ENTITY_FILTER, SimpleBeanPropertyFilter.serializeAll());
+        }
+        return provider;
+    }
+
+    private Set<String> fieldset(Class<?> model, String view, String fields) {
+        String filterId = filterId(model);
+        Set<String> known = properties.computeIfAbsent(model, this::propertyNames);
+        Set<String> selected = Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .collect(Collectors.toCollection(TreeSet::new));
+        List<String> unknown = selected.stream().filter(field -> !known.contains(field)).toList();
+        if (!unknown.isEmpty()) {
+            throw new IllegalArgumentException("Unknown fields " + unknown + "; available: " + known);
+        }
+        // A fieldset narrows the view; it cannot bring back what the view leaves out
+        List<String> hidden = selected.stream().filter(field -> !visible(filterId, view, field)).toList();
+        if (!hidden.isEmpty()) {
+            throw new IllegalArgumentException("Fields " + hidden + " are not part of the " + view + " view");
+        }
+        // Rows stay addressable whatever was asked for
+        selected.add("id");
+        return selected;
+    }
+
+    private Set<String> propertyNames(Class<?> model) {
+        return viewMapper.getSerializationConfig().introspect(viewMapper.constructType(model)).findProperties().stream()
+                .filter(BeanPropertyDefinition::couldSerialize)
+                .map(BeanPropertyDefinition::getName)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private static boolean visible(String filterId, String view, String field) {
+        boolean document = filterId.equals(DOCUMENT_FILTER);
+        return switch (view) {
+            case SUMMARY -> (document ? DOCUMENT_SUMMARY : ANALYSIS_SUMMARY).contains(field);
+            case DETAIL -> !(document ? DOCUMENT_DETAIL_EXCLUDED : ANALYSIS_DETAIL_EXCLUDED).contains(field);
+            default -> true;
+        };
+    }
+
+    private static String filterId(Class<?> model) {
+        if (model == Document.class) {
+            return DOCUMENT_FILTER;
+        }
+        if (model == DocumentAnalysis.class) {
+            return ANALYSIS_FILTER;
+        }
+        throw new IllegalArgumentException("No fieldset support for " + model.getSimpleName());
+    }
+}
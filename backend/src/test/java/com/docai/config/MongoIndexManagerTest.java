@@ -0,0 +1,69 @@
+package com.docai.config;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs every declared query shape through {@code explain()} against a real server with the
+ * declared indexes, so a shape that loses its index fails the build rather than only logging at
+ * startup. Skipped where Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class MongoIndexManagerTest {
+
+    @Container
+    private static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+
+    private static MongoClient client;
+    private static MongoIndexManager indexManager;
+
+    @BeforeAll
+    static void createIndexes() {
+        client = MongoClients.create(MONGO.getConnectionString());
+        indexManager = new MongoIndexManager();
+        ReflectionTestUtils.setField(indexManager, "mongoTemplate", new MongoTemplate(client, "docai_index_test"));
+        ReflectionTestUtils.setField(indexManager, "failOnCollectionScan", true);
+        ReflectionTestUtils.setField(indexManager, "failedAnalysisTtl", Duration.ofDays(30));
+        ReflectionTestUtils.setField(indexManager, "historyTtl", Duration.ofDays(180));
+        indexManager.ensureIndexes();
+    }
+
+    @AfterAll
+    static void closeClient() {
+        client.close();
+    }
+
+    @Test
+    void everyQueryShapeUsesAnIndexScan() {
+        SoftAssertions softly = new SoftAssertions();
+        for (MongoIndexManager.QueryShape shape : indexManager.queryShapes()) {
+            Object plan = indexManager.winningPlan(shape);
+            // $text plans nest the IXSCAN under TEXT_MATCH/TEXT_OR
+            softly.assertThat(MongoIndexManager.containsStage(plan, "IXSCAN"))
+                    .as("%s on %s uses an IXSCAN: %s", shape.name(), shape.collection(), plan)
+                    .isTrue();
+            softly.assertThat(MongoIndexManager.containsStage(plan, "COLLSCAN"))
+                    .as("%s on %s avoids a COLLSCAN: %s", shape.name(), shape.collection(), plan)
+                    .isFalse();
+        }
+        softly.assertAll();
+    }
+
+    @Test
+    void verificationReportsNoCollectionScans() {
+        assertThat(indexManager.verifyQueryShapes()).isEmpty();
+    }
+}
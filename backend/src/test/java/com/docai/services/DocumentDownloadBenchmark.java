@@ -0,0 +1,82 @@
+package com.docai.services;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrent download throughput for a stored original: the streamed {@code transferTo} path
+ * against the previous {@code Files.readAllBytes} copy. Eight threads download the same file into
+ * a discarding stream; multiply the file size by the reported downloads per second for MB/s.
+ * Add {@code -prof gc} to compare bytes allocated per download, which for the streamed path does
+ * not grow with the file size.
+ * <p>
+ * After {@code mvn test-compile}, run from the backend directory with
+ * {@code java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath
+ * -Dmdep.outputFile=/dev/stdout)" org.openjdk.jmh.Main DocumentDownloadBenchmark -prof gc},
+ * or start {@link #main} from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class DocumentDownloadBenchmark {
+
+    @Param({"1", "50"})
+    private int fileMegabytes;
+
+    private Path file;
+    private long length;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        byte[] content = new byte[fileMegabytes * 1024 * 1024];
+        new Random(31).nextBytes(content);
+        file = Files.createTempFile("download-benchmark", ".bin");
+        Files.write(file, content);
+        length = content.length;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void streamed() throws IOException {
+        DocumentDownloadService.transfer(file, 0, length, OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public void readAllBytes() throws IOException {
+        OutputStream.nullOutputStream().write(Files.readAllBytes(file));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(DocumentDownloadBenchmark.class.getSimpleName()).build()).run();
+    }
+}
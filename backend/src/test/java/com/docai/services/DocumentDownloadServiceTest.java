@@ -0,0 +1,199 @@
+package com.docai.services;
+
+import com.docai.models.Document;
+import com.docai.services.storage.BlobStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+class DocumentDownloadServiceTest {
+
+    private static final String CONTENT = "0123456789abcdefghij";
+    private static final String ETAG = "\"abc123\"";
+    private static final long LAST_MODIFIED = 1_700_000_000_000L;
+
+    @TempDir
+    Path tempDir;
+
+    private final StorageService storageService = mock(StorageService.class);
+    private final DocumentDownloadService downloadService = new DocumentDownloadService();
+    private final Document document = new Document();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path file = Files.writeString(tempDir.resolve("stored.bin"), CONTENT);
+        document.setFilePath("stored.bin");
+        document.setOriginalFilename("report.txt");
+        document.setContentType("text/plain");
+        document.setChecksum("abc123");
+        when(storageService.stat("stored.bin")).thenReturn(new BlobStore.BlobInfo(CONTENT.length(), LAST_MODIFIED));
+        when(storageService.resolvePath("stored.bin")).thenReturn(file);
+
+        ReflectionTestUtils.setField(downloadService, "storageService", storageService);
+        ReflectionTestUtils.setField(downloadService, "cacheControl", "no-cache");
+        ReflectionTestUtils.setField(downloadService, "sendfileEnabled", false);
+    }
+
+    @Test
+    void parsesNoRangesWithoutARangeHeader() {
+        assertThat(DocumentDownloadService.requestedRanges(new MockHttpServletRequest(), ETAG, LAST_MODIFIED)).isEmpty();
+    }
+
+    @Test
+    void parsesSingleSuffixAndMultipleRanges() {
+        assertThat(ranges("bytes=0-9")).containsExactly(HttpRange.createByteRange(0, 9));
+        assertThat(ranges("bytes=-5").get(0).getRangeStart(CONTENT.length())).isEqualTo(15);
+        assertThat(ranges("bytes=10-")).containsExactly(HttpRange.createByteRange(10));
+        assertThat(ranges("bytes=0-1, 5-6")).hasSize(2);
+    }
+
+    @Test
+    void rejectsMalformedRangeHeaders() {
+        assertThatThrownBy(() -> ranges("bytes=a-b")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ranges("items=0-1")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void ignoresRangesWhenIfRangeNoLongerMatches() {
+        MockHttpServletRequest request = rangeRequest("bytes=0-9");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"stale\"");
+        assertThat(DocumentDownloadService.requestedRanges(request, ETAG, LAST_MODIFIED)).isEmpty();
+
+        MockHttpServletRequest matching = rangeRequest("bytes=0-9");
+        matching.addHeader(HttpHeaders.IF_RANGE, ETAG);
+        assertThat(DocumentDownloadService.requestedRanges(matching, ETAG, LAST_MODIFIED)).hasSize(1);
+
+        MockHttpServletRequest olderDate = rangeRequest("bytes=0-9");
+        olderDate.addHeader(HttpHeaders.IF_RANGE, LAST_MODIFIED - 60_000);
+        assertThat(DocumentDownloadService.requestedRanges(olderDate, ETAG, LAST_MODIFIED)).isEmpty();
+
+        MockHttpServletRequest sameDate = rangeRequest("bytes=0-9");
+        sameDate.addHeader(HttpHeaders.IF_RANGE, LAST_MODIFIED);
+        assertThat(DocumentDownloadService.requestedRanges(sameDate, ETAG, LAST_MODIFIED)).hasSize(1);
+    }
+
+    @Test
+    void servesASingleRangeAsPartialContent() throws Exception {
+        ResponseEntity<?> response = serve(rangeRequest("bytes=5-9"));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 5-9/20");
+        assertThat(response.getHeaders().getContentLength()).isEqualTo(5);
+        assertThat(response.getHeaders().getETag()).isEqualTo(ETAG);
+        assertThat(body(response)).isEqualTo("56789");
+    }
+
+    @Test
+    void servesTheWholeFileWithoutARange() throws Exception {
+        ResponseEntity<?> response = serve(new MockHttpServletRequest("GET", "/download"));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentLength()).isEqualTo(CONTENT.length());
+        assertThat(body(response)).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void leavesMultipleRangesToResourceRegionsOnAnOkResponse() throws Exception {
+        ResponseEntity<?> response = serve(rangeRequest("bytes=0-1,5-6"));
+
+        // Spring only builds multipart/byteranges regions from a Resource body on a 200
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isInstanceOf(FileSystemResource.class);
+        assertThat(response.getHeaders().containsKey(HttpHeaders.CONTENT_LENGTH)).isFalse();
+    }
+
+    @Test
+    void answersMultipleRangesWithMultipartByteranges() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new DownloadController(downloadService, document)).build();
+
+        MvcResult result = mockMvc.perform(get("/download").header(HttpHeaders.RANGE, "bytes=0-1,5-6")).andReturn();
+
+        assertThat(result.getResponse().getStatus()).isEqualTo(HttpStatus.PARTIAL_CONTENT.value());
+        assertThat(result.getResponse().getContentType()).startsWith("multipart/byteranges");
+        String body = result.getResponse().getContentAsString();
+        assertThat(body).contains("Content-Range: bytes 0-1/20", "Content-Range: bytes 5-6/20");
+        assertThat(body).doesNotContain(CONTENT);
+    }
+
+    @Test
+    void rejectsRangesPastTheEnd() throws Exception {
+        ResponseEntity<?> response = serve(rangeRequest("bytes=20-30"));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */20");
+    }
+
+    @Test
+    void answersMatchingConditionalRequestsWithNotModified() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/download");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, ETAG);
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+
+        assertThat(downloadService.serve(document, false, new ServletWebRequest(request, servletResponse))).isNull();
+        assertThat(servletResponse.getStatus()).isEqualTo(HttpStatus.NOT_MODIFIED.value());
+    }
+
+    @RestController
+    static class DownloadController {
+
+        private final DocumentDownloadService downloadService;
+        private final Document document;
+
+        DownloadController(DocumentDownloadService downloadService, Document document) {
+            this.downloadService = downloadService;
+            this.document = document;
+        }
+
+        @GetMapping("/download")
+        ResponseEntity<?> download(ServletWebRequest webRequest) throws Exception {
+            return downloadService.serve(document, false, webRequest);
+        }
+    }
+
+    private List<HttpRange> ranges(String header) {
+        return DocumentDownloadService.requestedRanges(rangeRequest(header), ETAG, LAST_MODIFIED);
+    }
+
+    private static MockHttpServletRequest rangeRequest(String header) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/download");
+        request.addHeader(HttpHeaders.RANGE, header);
+        return request;
+    }
+
+    private ResponseEntity<?> serve(MockHttpServletRequest request) throws Exception {
+        return downloadService.serve(document, false, new ServletWebRequest(request, new MockHttpServletResponse()));
+    }
+
+    private static String body(ResponseEntity<?> response) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ((StreamingResponseBody) response.getBody()).writeTo(output);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+}
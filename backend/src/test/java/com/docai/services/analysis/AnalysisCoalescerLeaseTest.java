@@ -0,0 +1,157 @@
+package com.docai.services.analysis;
+
+import com.docai.models.AnalysisLease;
+import com.docai.models.DocumentAnalysis;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the lease paths against a real server, since acquisition relies on the upsert colliding
+ * with a live lease on {@code _id}. Skipped where Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class AnalysisCoalescerLeaseTest {
+
+    private static final String TEXT = "Invoice 42 from ACME Corp";
+    private static final String KEY = AnalysisCoalescer.key("doc-1", "summarization", TEXT);
+
+    @Container
+    private static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+
+    private static MongoClient client;
+    private static MongoTemplate mongoTemplate;
+
+    private final AnalysisStore analysisStore = mock(AnalysisStore.class);
+    private final ScheduledExecutorService holder = Executors.newSingleThreadScheduledExecutor();
+    private final AnalysisCoalescer coalescer = new AnalysisCoalescer();
+
+    @BeforeAll
+    static void connect() {
+        client = MongoClients.create(MONGO.getConnectionString());
+        mongoTemplate = new MongoTemplate(client, "docai_coalescer_test");
+    }
+
+    @AfterAll
+    static void closeClient() {
+        client.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate.dropCollection(AnalysisLease.class);
+        ReflectionTestUtils.setField(coalescer, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(coalescer, "analysisStore", analysisStore);
+        ReflectionTestUtils.setField(coalescer, "enabled", true);
+        ReflectionTestUtils.setField(coalescer, "distributed", true);
+        ReflectionTestUtils.setField(coalescer, "leaseTimeout", Duration.ofMinutes(2));
+        ReflectionTestUtils.setField(coalescer, "pollInterval", Duration.ofMillis(20));
+        ReflectionTestUtils.setField(coalescer, "maxWait", Duration.ofSeconds(10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        holder.shutdownNow();
+    }
+
+    @Test
+    void holdsTheLeaseWhileRunningAndReleasesIt() {
+        AtomicReference<AnalysisLease> held = new AtomicReference<>();
+        DocumentAnalysis result = analysis(TEXT);
+
+        assertThat(coalescer.execute("doc-1", "summarization", TEXT, () -> {
+            held.set(mongoTemplate.findById(KEY, AnalysisLease.class));
+            return result;
+        })).isSameAs(result);
+
+        assertThat(held.get().getOwner()).isEqualTo(coalescer.getStatus().get("instance"));
+        assertThat(held.get().getExpiresAt()).isAfter(LocalDateTime.now().plusMinutes(1));
+        assertThat(mongoTemplate.findById(KEY, AnalysisLease.class)).isNull();
+        assertThat(coalescer.getStatus()).containsEntry("executed", 1L).containsEntry("leasesHeld", 0);
+    }
+
+    @Test
+    void takesOverALeaseWhoseHolderStoppedHeartbeating() {
+        insertLease("crashed-token", LocalDateTime.now().minusSeconds(1));
+        DocumentAnalysis result = analysis(TEXT);
+
+        assertThat(coalescer.execute("doc-1", "summarization", TEXT, () -> result)).isSameAs(result);
+
+        assertThat(coalescer.getStatus()).containsEntry("executed", 1L).containsEntry("leaseWaits", 0L);
+        assertThat(mongoTemplate.findById(KEY, AnalysisLease.class)).isNull();
+    }
+
+    @Test
+    void waitsForALeaseThatExpiresAndThenRunsItself() {
+        insertLease("stalled-token", LocalDateTime.now().plusNanos(TimeUnit.MILLISECONDS.toNanos(300)));
+        DocumentAnalysis result = analysis(TEXT);
+
+        assertThat(coalescer.execute("doc-1", "summarization", TEXT, () -> result)).isSameAs(result);
+
+        assertThat(coalescer.getStatus()).containsEntry("executed", 1L).containsEntry("leaseWaits", 1L);
+    }
+
+    @Test
+    void returnsTheStoredResultWhenTheHolderReleases() {
+        insertLease("remote-token", LocalDateTime.now().plusMinutes(2));
+        DocumentAnalysis stored = analysis(TEXT);
+        when(analysisStore.findCurrent("doc-1", "summarization")).thenReturn(Optional.of(stored));
+        holder.schedule(() -> mongoTemplate.remove(mongoTemplate.findById(KEY, AnalysisLease.class)),
+                200, TimeUnit.MILLISECONDS);
+
+        assertThat(coalescer.execute("doc-1", "summarization", TEXT, () -> fail("ran twice"))).isSameAs(stored);
+
+        assertThat(coalescer.getStatus()).containsEntry("coalescedRemote", 1L).containsEntry("executed", 0L);
+    }
+
+    @Test
+    void givesUpWaitingAfterMaxWait() {
+        ReflectionTestUtils.setField(coalescer, "maxWait", Duration.ofMillis(300));
+        insertLease("remote-token", LocalDateTime.now().plusMinutes(2));
+
+        assertThatThrownBy(() -> coalescer.execute("doc-1", "summarization", TEXT, () -> fail("ran twice")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Timed out waiting for analysis summarization of document doc-1");
+        assertThat(mongoTemplate.findById(KEY, AnalysisLease.class).getToken()).isEqualTo("remote-token");
+    }
+
+    private static void insertLease(String token, LocalDateTime expiresAt) {
+        AnalysisLease lease = new AnalysisLease();
+        lease.setId(KEY);
+        lease.setOwner("other-instance");
+        lease.setToken(token);
+        lease.setAcquiredAt(LocalDateTime.now());
+        lease.setExpiresAt(expiresAt);
+        mongoTemplate.insert(lease);
+    }
+
+    private static DocumentAnalysis analysis(String text) {
+        DocumentAnalysis analysis = new DocumentAnalysis("doc-1", "summarization");
+        analysis.setStatus("COMPLETED");
+        analysis.setTextChecksum(AnalysisCoalescer.textChecksum(text));
+        return analysis;
+    }
+}
@@ -0,0 +1,213 @@
+package com.docai.services.analysis;
+
+import com.docai.models.AnalysisLease;
+import com.docai.models.DocumentAnalysis;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Single-flight on this instance, and the waiter side of the lease against a stubbed template;
+ * {@link AnalysisCoalescerLeaseTest} runs the lease paths on a real server.
+ */
+class AnalysisCoalescerTest {
+
+    private static final String TEXT = "Invoice 42 from ACME Corp";
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final AnalysisStore analysisStore = mock(AnalysisStore.class);
+    private final ExecutorService callers = Executors.newFixedThreadPool(2);
+    private final AnalysisCoalescer coalescer = new AnalysisCoalescer();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(coalescer, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(coalescer, "analysisStore", analysisStore);
+        ReflectionTestUtils.setField(coalescer, "enabled", true);
+        ReflectionTestUtils.setField(coalescer, "distributed", false);
+        ReflectionTestUtils.setField(coalescer, "leaseTimeout", Duration.ofMinutes(2));
+        ReflectionTestUtils.setField(coalescer, "pollInterval", Duration.ofMillis(10));
+        ReflectionTestUtils.setField(coalescer, "maxWait", Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    void keysOnTheTextChecksum() {
+        String key = AnalysisCoalescer.key("doc-1", "Summarization", TEXT);
+
+        assertThat(key).isEqualTo("doc-1:summarization:" + AnalysisCoalescer.textChecksum(TEXT));
+        assertThat(AnalysisCoalescer.key("doc-1", "summarization", TEXT + " ")).isNotEqualTo(key);
+    }
+
+    @Test
+    void concurrentCallersAttachToTheRunInFlight() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        DocumentAnalysis result = analysis("COMPLETED", TEXT);
+
+        Future<DocumentAnalysis> first = callers.submit(() -> coalescer.execute("doc-1", "summarization", TEXT, () -> {
+            runs.incrementAndGet();
+            await(release);
+            return result;
+        }));
+        awaitUntil(() -> coalescer.findInFlight(AnalysisCoalescer.key("doc-1", "summarization", TEXT)).isPresent());
+        Future<DocumentAnalysis> second = callers.submit(() -> coalescer.execute("doc-1", "summarization", TEXT, () -> {
+            runs.incrementAndGet();
+            return analysis("COMPLETED", TEXT);
+        }));
+        awaitUntil(() -> (long) coalescer.getStatus().get("coalescedLocal") == 1);
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isSameAs(result);
+        assertThat(second.get(5, TimeUnit.SECONDS)).isSameAs(result);
+        assertThat(runs).hasValue(1);
+        assertThat(coalescer.getStatus()).containsEntry("executed", 1L).containsEntry("inFlight", 0);
+    }
+
+    @Test
+    void aFailureReachesEveryAttachedCaller() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("model unavailable");
+
+        Future<DocumentAnalysis> first = callers.submit(() -> coalescer.execute("doc-1", "summarization", TEXT, () -> {
+            await(release);
+            throw failure;
+        }));
+        awaitUntil(() -> coalescer.findInFlight(AnalysisCoalescer.key("doc-1", "summarization", TEXT)).isPresent());
+        Future<DocumentAnalysis> second = callers.submit(() -> coalescer.execute("doc-1", "summarization", TEXT,
+                () -> analysis("COMPLETED", TEXT)));
+        awaitUntil(() -> (long) coalescer.getStatus().get("coalescedLocal") == 1);
+        release.countDown();
+
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class).hasCauseReference(failure);
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class).hasCauseReference(failure);
+
+        // the failed run is not left behind for later callers
+        DocumentAnalysis retried = analysis("COMPLETED", TEXT);
+        assertThat(coalescer.execute("doc-1", "summarization", TEXT, () -> retried)).isSameAs(retried);
+    }
+
+    @Test
+    void differentTextIsNotCoalesced() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+
+        Future<DocumentAnalysis> first = callers.submit(() -> coalescer.execute("doc-1", "summarization", TEXT, () -> {
+            runs.incrementAndGet();
+            await(release);
+            return analysis("COMPLETED", TEXT);
+        }));
+        awaitUntil(() -> coalescer.findInFlight(AnalysisCoalescer.key("doc-1", "summarization", TEXT)).isPresent());
+        coalescer.execute("doc-1", "summarization", TEXT + " revised", () -> {
+            runs.incrementAndGet();
+            return analysis("COMPLETED", TEXT + " revised");
+        });
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+
+        assertThat(runs).hasValue(2);
+        assertThat(coalescer.getStatus()).containsEntry("coalescedLocal", 0L);
+    }
+
+    @Test
+    void returnsTheStoredResultOnceTheRemoteHolderReleases() {
+        ReflectionTestUtils.setField(coalescer, "distributed", true);
+        String key = AnalysisCoalescer.key("doc-1", "summarization", TEXT);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(AnalysisLease.class))).thenThrow(new DuplicateKeyException("lease held"));
+        when(mongoTemplate.findById(key, AnalysisLease.class)).thenReturn(lease(key, "remote-token"), null);
+        DocumentAnalysis stored = analysis("COMPLETED", TEXT);
+        when(analysisStore.findCurrent("doc-1", "summarization")).thenReturn(Optional.of(stored));
+
+        DocumentAnalysis result = coalescer.execute("doc-1", "summarization", TEXT, () -> fail("ran twice"));
+
+        assertThat(result).isSameAs(stored);
+        assertThat(coalescer.getStatus()).containsEntry("coalescedRemote", 1L).containsEntry("executed", 0L);
+    }
+
+    @Test
+    void runsItselfWhenTheStoredResultIsForOtherText() {
+        ReflectionTestUtils.setField(coalescer, "distributed", true);
+        String key = AnalysisCoalescer.key("doc-1", "summarization", TEXT);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(AnalysisLease.class))).thenThrow(new DuplicateKeyException("lease held"))
+                .thenReturn(lease(key, "my-token"));
+        when(mongoTemplate.findById(key, AnalysisLease.class)).thenReturn(lease(key, "remote-token"), null);
+        // the holder analysed the text from before the document was re-extracted
+        when(analysisStore.findCurrent("doc-1", "summarization"))
+                .thenReturn(Optional.of(analysis("COMPLETED", "Invoice 41 from ACME Corp")));
+        DocumentAnalysis fresh = analysis("COMPLETED", TEXT);
+
+        DocumentAnalysis result = coalescer.execute("doc-1", "summarization", TEXT, () -> fresh);
+
+        assertThat(result).isSameAs(fresh);
+        assertThat(coalescer.getStatus()).containsEntry("coalescedRemote", 0L).containsEntry("executed", 1L);
+    }
+
+    private static DocumentAnalysis analysis(String status, String text) {
+        DocumentAnalysis analysis = new DocumentAnalysis("doc-1", "summarization");
+        analysis.setStatus(status);
+        analysis.setTextChecksum(AnalysisCoalescer.textChecksum(text));
+        return analysis;
+    }
+
+    private static AnalysisLease lease(String key, String token) {
+        AnalysisLease lease = new AnalysisLease();
+        lease.setId(key);
+        lease.setOwner("other-instance");
+        lease.setToken(token);
+        lease.setExpiresAt(LocalDateTime.now().plusMinutes(2));
+        return lease;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("condition not reached");
+            }
+            Thread.sleep(5);
+        }
+    }
+}
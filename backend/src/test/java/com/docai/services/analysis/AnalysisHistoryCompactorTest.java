@@ -0,0 +1,113 @@
+package com.docai.services.analysis;
+
+import com.docai.models.AnalysisHistoryEntry;
+import com.docai.models.DocumentAnalysis;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs compaction against a real server, since the history queries depend on how entity
+ * properties map to stored field names. Skipped where Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class AnalysisHistoryCompactorTest {
+
+    private static final int MAX_VERSIONS = 5;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Container
+    private static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+
+    private static MongoClient client;
+    private static MongoTemplate mongoTemplate;
+
+    private final AnalysisHistoryCompactor compactor = new AnalysisHistoryCompactor();
+
+    @BeforeAll
+    static void connect() {
+        client = MongoClients.create(MONGO.getConnectionString());
+        mongoTemplate = new MongoTemplate(client, "docai_compaction_test");
+    }
+
+    @AfterAll
+    static void closeClient() {
+        client.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate.dropCollection(AnalysisHistoryEntry.class);
+        mongoTemplate.dropCollection(DocumentAnalysis.class);
+        ReflectionTestUtils.setField(compactor, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(compactor, "maxVersions", MAX_VERSIONS);
+    }
+
+    @Test
+    void trimsEachHistoryToTheNewestVersions() {
+        archive("doc-1", "summarization", 8);
+        archive("doc-1", "sentiment", 3);
+        archive("doc-2", "summarization", MAX_VERSIONS);
+
+        assertThat(compactor.trimHistory()).isEqualTo(3);
+
+        List<AnalysisHistoryEntry> kept = history("doc-1", "summarization");
+        assertThat(kept).extracting(AnalysisHistoryEntry::getArchivedAt)
+                .containsExactly(START.plusHours(7), START.plusHours(6), START.plusHours(5), START.plusHours(4),
+                        START.plusHours(3));
+        assertThat(history("doc-1", "sentiment")).hasSize(3);
+        assertThat(history("doc-2", "summarization")).hasSize(MAX_VERSIONS);
+        assertThat(compactor.trimHistory()).isZero();
+    }
+
+    @Test
+    void movesAllButTheNewestDuplicateCurrentRowIntoHistory() {
+        for (int i = 0; i < 3; i++) {
+            DocumentAnalysis analysis = new DocumentAnalysis();
+            analysis.setDocumentId("doc-1");
+            analysis.setAnalysisType("summarization");
+            analysis.setUpdatedAt(START.plusHours(i));
+            mongoTemplate.insert(analysis);
+        }
+
+        assertThat(compactor.deduplicateCurrent()).isEqualTo(2);
+
+        List<DocumentAnalysis> current = mongoTemplate.findAll(DocumentAnalysis.class);
+        assertThat(current).singleElement()
+                .extracting(DocumentAnalysis::getUpdatedAt).isEqualTo(START.plusHours(2));
+        assertThat(history("doc-1", "summarization")).hasSize(2);
+    }
+
+    private static void archive(String documentId, String analysisType, int versions) {
+        for (int i = 0; i < versions; i++) {
+            DocumentAnalysis analysis = new DocumentAnalysis();
+            analysis.setDocumentId(documentId);
+            analysis.setAnalysisType(analysisType);
+            AnalysisHistoryEntry entry = new AnalysisHistoryEntry(analysis);
+            entry.setArchivedAt(START.plusHours(i));
+            mongoTemplate.insert(entry);
+        }
+    }
+
+    private static List<AnalysisHistoryEntry> history(String documentId, String analysisType) {
+        return mongoTemplate.find(new Query(Criteria.where("documentId").is(documentId)
+                        .and("analysisType").is(analysisType))
+                .with(Sort.by(Sort.Direction.DESC, "archivedAt")), AnalysisHistoryEntry.class);
+    }
+}
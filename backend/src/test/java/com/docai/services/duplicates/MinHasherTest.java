@@ -0,0 +1,126 @@
+package com.docai.services.duplicates;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class MinHasherTest {
+
+    @Test
+    void returnsNoSignatureForTextWithoutWords() {
+        assertThat(MinHasher.sign("")).isNull();
+        assertThat(MinHasher.sign(" -- ... \n\t!? ")).isNull();
+    }
+
+    @Test
+    void ignoresCaseWhitespacePunctuationAndLayout() {
+        MinHasher.Signature original = MinHasher.sign("The Supplier shall deliver the goods, on time, to the Buyer.");
+        MinHasher.Signature rescanned = MinHasher.sign("the supplier\nshall  deliver the goods on\ttime -- to the buyer");
+
+        assertThat(rescanned.minhash()).isEqualTo(original.minhash());
+        assertThat(rescanned.bands()).isEqualTo(original.bands());
+        assertThat(rescanned.shingleCount()).isEqualTo(original.shingleCount());
+    }
+
+    @Test
+    void countsOneShinglePerFiveWordWindow() {
+        assertThat(MinHasher.sign("one two three").shingleCount()).isEqualTo(1);
+        assertThat(MinHasher.sign("one two three four five").shingleCount()).isEqualTo(1);
+        assertThat(MinHasher.sign("one two three four five six seven").shingleCount()).isEqualTo(3);
+    }
+
+    @Test
+    void groupsTheSignatureIntoNumberedBands() {
+        MinHasher.Signature signature = MinHasher.sign(words(new Random(1), 100));
+
+        assertThat(signature.minhash()).hasSize(MinHasher.HASHES);
+        assertThat(signature.bands()).hasSize(MinHasher.BANDS);
+        for (int band = 0; band < MinHasher.BANDS; band++) {
+            assertThat(signature.bands().get(band)).startsWith(band + ":");
+        }
+    }
+
+    @Test
+    void estimatesTheJaccardSimilarityOfTheShingleSets() {
+        Random random = new Random(37);
+        for (int round = 0; round < 20; round++) {
+            List<String> left = wordList(random, 400);
+            List<String> right = new ArrayList<>(left);
+            // Replace a varying share of the words
+            int edits = random.nextInt(60);
+            for (int e = 0; e < edits; e++) {
+                right.set(random.nextInt(right.size()), "w" + random.nextInt(1_000_000));
+            }
+
+            double exact = jaccard(shingles(left), shingles(right));
+            double estimated = MinHasher.similarity(MinHasher.sign(String.join(" ", left)).minhash(),
+                    MinHasher.sign(String.join(" ", right)).minhash());
+
+            // Standard error of a 128-hash estimate is at most ~0.045
+            assertThat(estimated).isCloseTo(exact, within(0.15));
+        }
+    }
+
+    @Test
+    void nearDuplicatesShareABandAndUnrelatedTextsDoNot() {
+        Random random = new Random(5);
+        List<String> original = wordList(random, 1000);
+        List<String> revised = new ArrayList<>(original);
+        for (int e = 0; e < 10; e++) {
+            revised.set(random.nextInt(revised.size()), "changed");
+        }
+
+        MinHasher.Signature signature = MinHasher.sign(String.join(" ", original));
+        MinHasher.Signature nearDuplicate = MinHasher.sign(String.join(" ", revised));
+        MinHasher.Signature unrelated = MinHasher.sign(String.join(" ", wordList(random, 1000)));
+
+        assertThat(MinHasher.similarity(signature.minhash(), nearDuplicate.minhash())).isGreaterThan(0.8);
+        assertThat(nearDuplicate.bands()).containsAnyElementsOf(signature.bands());
+        assertThat(MinHasher.similarity(signature.minhash(), unrelated.minhash())).isLessThan(0.1);
+        assertThat(unrelated.bands()).doesNotContainAnyElementsOf(signature.bands());
+    }
+
+    @Test
+    void comparesOnlySignaturesOfTheSameLength() {
+        int[] signature = MinHasher.sign("a b c d e f").minhash();
+
+        assertThat(MinHasher.similarity(signature, signature)).isEqualTo(1.0);
+        assertThat(MinHasher.similarity(signature, new int[3])).isZero();
+        assertThat(MinHasher.similarity(null, signature)).isZero();
+    }
+
+    private static String words(Random random, int count) {
+        return String.join(" ", wordList(random, count));
+    }
+
+    private static List<String> wordList(Random random, int count) {
+        List<String> words = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            words.add("w" + random.nextInt(5_000));
+        }
+        return words;
+    }
+
+    private static Set<String> shingles(List<String> words) {
+        Set<String> shingles = new HashSet<>();
+        for (int start = 0; start + MinHasher.SHINGLE_WORDS <= words.size(); start++) {
+            shingles.add(String.join(" ", words.subList(start, start + MinHasher.SHINGLE_WORDS)));
+        }
+        return shingles;
+    }
+
+    private static double jaccard(Set<String> left, Set<String> right) {
+        Set<String> union = new HashSet<>(left);
+        union.addAll(right);
+        Set<String> intersection = new HashSet<>(left);
+        intersection.retainAll(right);
+        return union.isEmpty() ? 1 : (double) intersection.size() / union.size();
+    }
+}
@@ -0,0 +1,88 @@
+package com.docai.services.entities;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SpaceSavingSketchTest {
+
+    @Test
+    void rejectsNonPositiveCapacity() {
+        assertThatThrownBy(() -> new SpaceSavingSketch(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void countsExactlyWhileUnderCapacity() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(10);
+        offer(sketch, "a", 5);
+        offer(sketch, "b", 3);
+        offer(sketch, "c", 1);
+
+        assertThat(sketch.top(10)).containsExactly(
+                new SpaceSavingSketch.Estimate("a", 5, 0),
+                new SpaceSavingSketch.Estimate("b", 3, 0),
+                new SpaceSavingSketch.Estimate("c", 1, 0));
+        assertThat(sketch.top(2)).extracting(SpaceSavingSketch.Estimate::item).containsExactly("a", "b");
+        assertThat(sketch.total()).isEqualTo(9);
+    }
+
+    @Test
+    void replacesTheLeastCountedItemAndInheritsItsCountAsError() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(2);
+        offer(sketch, "a", 3);
+        offer(sketch, "b", 1);
+        sketch.offer("c");
+
+        assertThat(sketch.size()).isEqualTo(2);
+        assertThat(sketch.top(2)).containsExactly(
+                new SpaceSavingSketch.Estimate("a", 3, 0),
+                new SpaceSavingSketch.Estimate("c", 2, 1));
+    }
+
+    @Test
+    void boundsEstimatesAndKeepsEveryHeavyHitterOnASkewedStream() {
+        int capacity = 50;
+        SpaceSavingSketch sketch = new SpaceSavingSketch(capacity);
+        Map<String, Long> exact = new HashMap<>();
+        Random random = new Random(46);
+        for (int i = 0; i < 200_000; i++) {
+            // roughly Zipfian over 5000 items
+            String item = "entity-" + (int) Math.floor(Math.pow(5000, random.nextDouble()));
+            sketch.offer(item);
+            exact.merge(item, 1L, Long::sum);
+        }
+
+        long total = sketch.total();
+        List<SpaceSavingSketch.Estimate> top = sketch.top(capacity);
+        assertThat(sketch.size()).isEqualTo(capacity);
+        assertThat(top.stream().mapToLong(SpaceSavingSketch.Estimate::count).sum()).isEqualTo(total);
+        assertThat(top).isSortedAccordingTo((a, b) -> Long.compare(b.count(), a.count()));
+        for (SpaceSavingSketch.Estimate estimate : top) {
+            long actual = exact.get(estimate.item());
+            assertThat(estimate.count()).isGreaterThanOrEqualTo(actual);
+            assertThat(estimate.count() - estimate.error()).isLessThanOrEqualTo(actual);
+            assertThat(estimate.error()).isLessThanOrEqualTo(total / capacity);
+        }
+
+        Map<String, SpaceSavingSketch.Estimate> tracked = top.stream()
+                .collect(Collectors.toMap(SpaceSavingSketch.Estimate::item, estimate -> estimate));
+        exact.forEach((item, count) -> {
+            if (count > total / capacity) {
+                assertThat(tracked).as("heavy hitter %s seen %d times", item, count).containsKey(item);
+            }
+        });
+    }
+
+    private static void offer(SpaceSavingSketch sketch, String item, int times) {
+        for (int i = 0; i < times; i++) {
+            sketch.offer(item);
+        }
+    }
+}
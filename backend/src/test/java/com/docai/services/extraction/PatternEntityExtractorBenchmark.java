@@ -0,0 +1,76 @@
+package com.docai.services.extraction;
+
+import com.docai.models.Entity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of entity extraction over 10 MB of invoice-like text, for the scanner and for the
+ * previous regex implementation. Divide 10 MB by the reported time per operation for MB/s.
+ * <p>
+ * After {@code mvn test-compile}, run from the backend directory with
+ * {@code java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath
+ * -Dmdep.outputFile=/dev/stdout)" org.openjdk.jmh.Main PatternEntityExtractorBenchmark},
+ * or start {@link #main} from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PatternEntityExtractorBenchmark {
+
+    private static final int TEXT_CHARS = 10 * 1024 * 1024;
+
+    private static final String[] SENTENCES = {
+            "Please remit payment of $12,450.00 to accounts@acme-supplies.com by March 31st, 2024. ",
+            "The contract value is EUR 3.5m, with a 12.5% discount applied from 2024-04-01. ",
+            "Call our billing desk on +1 (555) 123-4567 or +44 20 7946 0958 for questions. ",
+            "Late fees accrue at 1.5 percent per month after 15 April 2024 on balances over 2 million dollars. ",
+            "This agreement between the parties supersedes all prior understandings and representations. ",
+            "Delivery shall be made to the warehouse listed in schedule B within thirty business days. "};
+
+    private final PatternEntityExtractor extractor = new PatternEntityExtractor();
+    private final RegexEntityExtractor regexExtractor = new RegexEntityExtractor();
+    private String text;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(26);
+        StringBuilder builder = new StringBuilder(TEXT_CHARS + 128);
+        while (builder.length() < TEXT_CHARS) {
+            builder.append(SENTENCES[random.nextInt(SENTENCES.length)]);
+        }
+        text = builder.substring(0, TEXT_CHARS);
+    }
+
+    @Benchmark
+    public List<Entity> scanner() {
+        return extractor.extract(text);
+    }
+
+    @Benchmark
+    public List<Entity> regex() {
+        return regexExtractor.extract(text);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PatternEntityExtractorBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,102 @@
+package com.docai.services.extraction;
+
+import com.docai.models.Entity;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class PatternEntityExtractorTest {
+
+    private final PatternEntityExtractor extractor = new PatternEntityExtractor();
+    private final RegexEntityExtractor reference = new RegexEntityExtractor();
+
+    private static final String[] TOKENS = {
+            "1", "12", "123", "1234", "12345", "2024", "1,000", "1,000,000", "12,34", "3.5", "0.25", ".", ",", "-",
+            "/", "(", ")", "+", "+1", "+44", "+1234", "555", "5555", "(555)", "$", "€", "£", "¥", "₹", "USD",
+            "usd", "Eur", "euros", "euro", "dollars", "Dollar", "pounds", "GBP", "k", "M", "b", "bn", "thousand",
+            "million", "Billion", "%", "percent", "per cent", "percentage", "jan", "January", "Feb.", "sept",
+            "September", "may", "mayo", "dec", "st", "nd", "rd", "th", "of", "john", "j.doe", "x_y", "@", "acme",
+            "example.com", "mail.co.uk", "a.b", "-1", "_", "é", "K", "ſ", "Ω", "'", "\"", ":", ";",
+            "2024-03-01", "03/04/2024", "31.12.2024", "13/01/2024", "2024-02-30", "555-1234", "555 123 4567"};
+
+    private static final String[] GAPS = {"", "", " ", " ", " ", "  ", "\t", "\n", " "};
+
+    @Test
+    void extractsEachTypeWithOffsetsAndNormalizedValues() {
+        String text = "Contact Jane.Doe@Example.com or +1 (555) 123-4567 by March 3rd, 2024; "
+                + "the fee is $1,200.50 (EUR 3.5m, 2 million dollars) and rose 12.5 percent on 2024-02-29.";
+
+        List<Entity> entities = extractor.extract(text);
+
+        assertThat(entities).extracting(Entity::getType, Entity::getText, Entity::getNormalizedValue).containsExactly(
+                tuple("EMAIL", "Jane.Doe@Example.com", "jane.doe@example.com"),
+                tuple("PHONE", "+1 (555) 123-4567", "+15551234567"),
+                tuple("DATE", "March 3rd, 2024", "2024-03-03"),
+                tuple("MONEY", "$1,200.50", "1200.5 USD"),
+                tuple("MONEY", "EUR 3.5m", "3500000 EUR"),
+                tuple("MONEY", "2 million dollars", "2000000 USD"),
+                tuple("PERCENTAGE", "12.5 percent", "12.5"),
+                tuple("DATE", "2024-02-29", "2024-02-29"));
+        for (Entity entity : entities) {
+            assertThat(text.substring(entity.getStartOffset(), entity.getEndOffset())).isEqualTo(entity.getText());
+        }
+    }
+
+    @Test
+    void rejectsMatchesThatAreNotWholeTokensOrValidValues() {
+        assertThat(extractor.extract("invoice2024-01-01 and 2024-02-30 and 5 USDX and 12345-678-9012"))
+                .isEmpty();
+    }
+
+    @Test
+    void readsDayFirstWhenTheFirstComponentCannotBeAMonth() {
+        assertThat(extractor.extract("on 13/01/2024 and 01.02.2024"))
+                .extracting(Entity::getNormalizedValue)
+                .containsExactly("2024-01-13", "2024-01-02");
+    }
+
+    @Test
+    void matchesThePreviousRegexExtractorOnHandWrittenCases() {
+        List<String> cases = List.of(
+                "", "a@b.co", "a@b.c", "x@.com", "john@mail.example.co.uk.", "-x-@y.io", "1 Jan 2024", "1st of may, 2024",
+                "Sept. 9 2024", "sep 31 2024", "mayo 5 2024", "5 USDX", "5 euros", "5 euro", "5eur", "5 k USD",
+                "5k USD", "5 kUSD", "5 thousand pounds", "1,000,000.5", "1,000.", "$1,0000", "€ 5", "usd5", "USD 5 M",
+                "100%", "100 %", "100 percentage", "100 per cent", "3.14.15", "+44 20 7946 0958", "+1234 567 8901",
+                "(12) 345 6789", "(12345) 345 6789", "12.345.6789", "123-4567-89012", "2024-1-1", "2024-001-01",
+                "1/2/20245", "Kelvin K 5K USD", "5 dollarſ", "5 dollars_", "5 dollarsé", "12 Ω 2024",
+                "a".repeat(300) + "@example.com", "x@" + "d".repeat(260) + ".com");
+        for (String text : cases) {
+            assertSameEntities(text);
+        }
+    }
+
+    @Test
+    void matchesThePreviousRegexExtractorOnGeneratedText() {
+        Random random = new Random(26);
+        for (int round = 0; round < 3_000; round++) {
+            StringBuilder text = new StringBuilder();
+            int tokens = 1 + random.nextInt(40);
+            for (int t = 0; t < tokens; t++) {
+                text.append(TOKENS[random.nextInt(TOKENS.length)]).append(GAPS[random.nextInt(GAPS.length)]);
+            }
+            assertSameEntities(text.toString());
+        }
+    }
+
+    private void assertSameEntities(String text) {
+        assertThat(describe(extractor.extract(text)))
+                .as("entities in \"%s\"", text)
+                .isEqualTo(describe(reference.extract(text)));
+    }
+
+    private static List<String> describe(List<Entity> entities) {
+        return entities.stream()
+                .map(entity -> entity.getType() + "[" + entity.getStartOffset() + "," + entity.getEndOffset() + ")="
+                        + entity.getText() + "->" + entity.getNormalizedValue())
+                .toList();
+    }
+}
@@ -0,0 +1,246 @@
+package com.docai.services.extraction;
+
+import com.docai.models.Entity;
+
+import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The previous java.util.regex implementation of {@link PatternEntityExtractor}, kept as the
+ * reference the hand-compiled scanner is checked and benchmarked against. One pattern per entity
+ * type is attempted with {@code lookingAt()} at each candidate start, in the same priority order
+ * as the old combined alternation, so the first pattern that matches wins.
+ */
+class RegexEntityExtractor {
+
+    private static final String MONTH_NAMES =
+            "jan(?:uary)?|feb(?:ruary)?|mar(?:ch)?|apr(?:il)?|may|june?|july?|aug(?:ust)?|"
+            + "sep(?:t(?:ember)?)?|oct(?:ober)?|nov(?:ember)?|dec(?:ember)?";
+
+    private static final String CURRENCY_SYMBOLS = "[$€£¥₹]";
+    private static final String CURRENCY_CODES = "USD|EUR|GBP|JPY|INR|CHF|CAD|AUD";
+    private static final String AMOUNT = "\\d{1,3}(?:,\\d{3})+(?:\\.\\d+)?|\\d+(?:\\.\\d+)?";
+    private static final String MAGNITUDE = "(?:\\s?(?:thousand|million|billion|[kKmMbB](?![a-zA-Z])))?";
+    private static final int FLAGS = Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+
+    private static final Pattern EMAIL = Pattern.compile(
+            "[A-Za-z0-9._%+-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}", FLAGS);
+
+    private static final Pattern MONEY = Pattern.compile(
+            "(?:(?<msym>" + CURRENCY_SYMBOLS + ")|(?<mcodePre>" + CURRENCY_CODES + ")\\s?)"
+                    + "(?<mamt>" + AMOUNT + ")(?<mmag>" + MAGNITUDE + ")"
+            + "|(?<mamt2>" + AMOUNT + ")(?<mmag2>" + MAGNITUDE + ")\\s?(?<mcodePost>" + CURRENCY_CODES
+                    + "|dollars?|euros?|pounds?)\\b", FLAGS);
+
+    private static final Pattern PERCENTAGE = Pattern.compile(
+            "(?<pamt>\\d+(?:\\.\\d+)?)\\s?(?:%|percent\\b|per cent\\b)", FLAGS);
+
+    private static final Pattern DATE = Pattern.compile(
+            "(?<iy>\\d{4})-(?<im>\\d{1,2})-(?<id>\\d{1,2})(?!\\d)"
+            + "|(?<na>\\d{1,2})[/.](?<nb>\\d{1,2})[/.](?<ny>\\d{4})(?!\\d)"
+            + "|(?<tmon>" + MONTH_NAMES + ")\\.?\\s+(?<tday>\\d{1,2})(?:st|nd|rd|th)?,?\\s+(?<tyear>\\d{4})"
+            + "|(?<dday>\\d{1,2})(?:st|nd|rd|th)?\\s+(?:of\\s+)?(?<dmon>" + MONTH_NAMES + ")\\.?,?\\s+(?<dyear>\\d{4})",
+            FLAGS);
+
+    private static final Pattern PHONE = Pattern.compile(
+            "(?:\\+\\d{1,3}[\\s.-]?)?(?:\\(\\d{2,4}\\)|\\d{2,4})[\\s.-]\\d{3,4}[\\s.-]\\d{3,4}(?!\\d)", FLAGS);
+
+    // Priority order of the old alternation
+    private static final Pattern[] PATTERNS = {EMAIL, MONEY, PERCENTAGE, DATE, PHONE};
+
+    private static final Map<String, String> CURRENCY_BY_SYMBOL = Map.of(
+            "$", "USD", "€", "EUR", "£", "GBP", "¥", "JPY", "₹", "INR");
+
+    private static final Map<String, String> CURRENCY_BY_WORD = Map.of(
+            "dollar", "USD", "dollars", "USD", "euro", "EUR", "euros", "EUR", "pound", "GBP", "pounds", "GBP");
+
+    private static final Set<String> WORD_PREFIXES = Set.of(
+            "jan", "feb", "mar", "apr", "may", "jun", "jul", "aug", "sep", "oct", "nov", "dec",
+            "usd", "eur", "gbp", "jpy", "inr", "chf", "cad", "aud");
+
+    private static final int MAX_MATCH_LENGTH = 256;
+
+    List<Entity> extract(String text) {
+        List<Entity> entities = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return entities;
+        }
+        Matcher[] matchers = new Matcher[PATTERNS.length];
+        for (int p = 0; p < PATTERNS.length; p++) {
+            matchers[p] = PATTERNS[p].matcher(text).useTransparentBounds(true).useAnchoringBounds(false);
+        }
+
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            if ((i > 0 && Character.isLetterOrDigit(text.charAt(i - 1))) || !isCandidateStart(text, i)) {
+                i++;
+                continue;
+            }
+            Entity entity = null;
+            for (int p = 0; p < matchers.length; p++) {
+                Matcher matcher = matchers[p].region(i, Math.min(length, i + MAX_MATCH_LENGTH));
+                if (matcher.lookingAt()) {
+                    if (isTokenBoundary(text, matcher.start(), matcher.end())) {
+                        entity = toEntity(PATTERNS[p], matcher);
+                    }
+                    break;
+                }
+            }
+            if (entity != null) {
+                entities.add(entity);
+                i = entity.getEndOffset();
+                continue;
+            }
+            i++;
+        }
+        return entities;
+    }
+
+    private Entity toEntity(Pattern pattern, Matcher m) {
+        String type;
+        String normalized;
+        if (pattern == EMAIL) {
+            type = PatternEntityExtractor.EMAIL;
+            normalized = m.group().toLowerCase(Locale.ROOT);
+        } else if (pattern == MONEY) {
+            type = PatternEntityExtractor.MONEY;
+            normalized = normalizeMoney(m);
+        } else if (pattern == PERCENTAGE) {
+            type = PatternEntityExtractor.PERCENTAGE;
+            normalized = new BigDecimal(m.group("pamt")).stripTrailingZeros().toPlainString();
+        } else if (pattern == DATE) {
+            type = PatternEntityExtractor.DATE;
+            normalized = normalizeDate(m);
+        } else {
+            type = PatternEntityExtractor.PHONE;
+            normalized = normalizePhone(m.group());
+        }
+        if (normalized == null) {
+            return null;
+        }
+        Entity entity = new Entity(type, m.group(), 0.99, m.start(), m.end());
+        entity.setNormalizedValue(normalized);
+        entity.setMetadata(Map.of("source", "pattern"));
+        return entity;
+    }
+
+    private String normalizeMoney(Matcher m) {
+        String amount = m.group("mamt") != null ? m.group("mamt") : m.group("mamt2");
+        String magnitude = m.group("mamt") != null ? m.group("mmag") : m.group("mmag2");
+
+        String currency;
+        if (m.group("msym") != null) {
+            currency = CURRENCY_BY_SYMBOL.get(m.group("msym"));
+        } else if (m.group("mcodePre") != null) {
+            currency = m.group("mcodePre").toUpperCase(Locale.ROOT);
+        } else {
+            String code = m.group("mcodePost").toLowerCase(Locale.ROOT);
+            currency = CURRENCY_BY_WORD.getOrDefault(code, code.toUpperCase(Locale.ROOT));
+        }
+
+        BigDecimal value = new BigDecimal(amount.replace(",", ""));
+        value = value.multiply(switch (magnitude == null ? "" : magnitude.trim().toLowerCase(Locale.ROOT)) {
+            case "k", "thousand" -> BigDecimal.valueOf(1_000L);
+            case "m", "million" -> BigDecimal.valueOf(1_000_000L);
+            case "b", "billion" -> BigDecimal.valueOf(1_000_000_000L);
+            default -> BigDecimal.ONE;
+        });
+        return value.stripTrailingZeros().toPlainString() + " " + currency;
+    }
+
+    private String normalizeDate(Matcher m) {
+        try {
+            if (m.group("iy") != null) {
+                return LocalDate.of(Integer.parseInt(m.group("iy")), Integer.parseInt(m.group("im")),
+                        Integer.parseInt(m.group("id"))).toString();
+            }
+            if (m.group("ny") != null) {
+                int a = Integer.parseInt(m.group("na"));
+                int b = Integer.parseInt(m.group("nb"));
+                return a > 12
+                        ? LocalDate.of(Integer.parseInt(m.group("ny")), b, a).toString()
+                        : LocalDate.of(Integer.parseInt(m.group("ny")), a, b).toString();
+            }
+            if (m.group("tyear") != null) {
+                return LocalDate.of(Integer.parseInt(m.group("tyear")), monthNumber(m.group("tmon")),
+                        Integer.parseInt(m.group("tday"))).toString();
+            }
+            return LocalDate.of(Integer.parseInt(m.group("dyear")), monthNumber(m.group("dmon")),
+                    Integer.parseInt(m.group("dday"))).toString();
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    private int monthNumber(String name) {
+        return switch (name.substring(0, 3).toLowerCase(Locale.ROOT)) {
+            case "jan" -> 1;
+            case "feb" -> 2;
+            case "mar" -> 3;
+            case "apr" -> 4;
+            case "may" -> 5;
+            case "jun" -> 6;
+            case "jul" -> 7;
+            case "aug" -> 8;
+            case "sep" -> 9;
+            case "oct" -> 10;
+            case "nov" -> 11;
+            default -> 12;
+        };
+    }
+
+    private String normalizePhone(String phone) {
+        StringBuilder digits = new StringBuilder(phone.length());
+        if (phone.startsWith("+")) {
+            digits.append('+');
+        }
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        int digitCount = digits.length() - (phone.startsWith("+") ? 1 : 0);
+        return digitCount >= 7 && digitCount <= 15 ? digits.toString() : null;
+    }
+
+    private boolean isCandidateStart(String text, int i) {
+        char c = text.charAt(i);
+        if ((c >= '0' && c <= '9') || c == '+' || c == '(' || CURRENCY_BY_SYMBOL.containsKey(String.valueOf(c))) {
+            return true;
+        }
+        if (!Character.isLetter(c)) {
+            return false;
+        }
+        if (i + 3 <= text.length()
+                && WORD_PREFIXES.contains(text.substring(i, i + 3).toLowerCase(Locale.ROOT))) {
+            return true;
+        }
+        int limit = Math.min(text.length(), i + MAX_MATCH_LENGTH);
+        for (int j = i + 1; j < limit; j++) {
+            char next = text.charAt(j);
+            if (next == '@') {
+                return true;
+            }
+            if (Character.isWhitespace(next)) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private boolean isTokenBoundary(String text, int start, int end) {
+        boolean leftOk = start == 0 || !Character.isLetterOrDigit(text.charAt(start - 1));
+        boolean rightOk = end == text.length() || !Character.isLetterOrDigit(text.charAt(end));
+        return leftOk && rightOk;
+    }
+}
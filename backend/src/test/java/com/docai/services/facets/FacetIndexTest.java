@@ -0,0 +1,213 @@
+package com.docai.services.facets;
+
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FacetIndexTest {
+
+    private static final List<String> FIELDS = List.of("classification", "contentType", "tags");
+
+    private final FacetIndex index = new FacetIndex();
+
+    @Test
+    void replacesOnlyTheFieldsGivenOnPut() {
+        index.put("a", Map.of("classification", List.of("invoice"), "tags", List.of("urgent", "q1")));
+        index.put("a", Map.of("tags", List.of("q2")));
+
+        assertThat(ids(index.match(term("classification", "invoice")))).containsExactly("a");
+        assertThat(ids(index.match(term("tags", "urgent", "q1")))).isEmpty();
+        assertThat(ids(index.match(term("tags", "q2")))).containsExactly("a");
+    }
+
+    @Test
+    void skipsBlankAndDuplicateValues() {
+        index.put("a", Map.of("tags", Arrays.asList("x", "x", " ", null)));
+
+        assertThat(index.counts(index.match(null), List.of("tags"), 10).get("tags"))
+                .containsExactly(new FacetIndex.FacetCount("x", 1));
+        assertThat(index.valueCount()).isEqualTo(1);
+    }
+
+    @Test
+    void updatesOnlyIndexedDocuments() {
+        assertThat(index.update("missing", Map.of("tags", List.of("x")))).isFalse();
+        assertThat(index.size()).isZero();
+
+        index.put("a", Map.of("tags", List.of("x")));
+        assertThat(index.update("a", Map.of("tags", List.of("y")))).isTrue();
+        assertThat(ids(index.match(term("tags", "y")))).containsExactly("a");
+    }
+
+    @Test
+    void removedDocumentsMatchNothingIncludingNegations() {
+        index.put("a", Map.of("tags", List.of("x")));
+        index.put("b", Map.of("tags", List.of("y")));
+
+        assertThat(index.remove("a")).isTrue();
+        assertThat(index.remove("a")).isFalse();
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(ids(index.match(term("tags", "x")))).isEmpty();
+        assertThat(ids(index.match(new FacetIndex.Not(term("tags", "y"))))).isEmpty();
+        assertThat(ids(index.match(null))).containsExactly("b");
+        assertThat(index.ordinalOf("a")).isEmpty();
+    }
+
+    @Test
+    void pagesNewestFirst() {
+        for (int i = 0; i < 10; i++) {
+            index.put("doc-" + i, Map.of("tags", List.of("all")));
+        }
+        index.remove("doc-8");
+
+        RoaringBitmap all = index.match(term("tags", "all"));
+        assertThat(index.page(all, 0, 3)).containsExactly("doc-9", "doc-7", "doc-6");
+        assertThat(index.page(all, 3, 3)).containsExactly("doc-5", "doc-4", "doc-3");
+        assertThat(index.page(all, 8, 3)).containsExactly("doc-0");
+    }
+
+    @Test
+    void limitsCountsToTheMostFrequentValuesWithTiesByValue() {
+        index.put("a", Map.of("tags", List.of("x", "y", "z")));
+        index.put("b", Map.of("tags", List.of("y", "z")));
+        index.put("c", Map.of("tags", List.of("z")));
+        index.put("d", Map.of("tags", List.of("w")));
+
+        assertThat(index.fieldCounts("tags", index.match(null), 3)).containsExactly(
+                new FacetIndex.FacetCount("z", 3), new FacetIndex.FacetCount("y", 2), new FacetIndex.FacetCount("w", 1));
+        assertThat(index.fieldCounts("tags", index.ordinalsOf(List.of("b", "c", "unknown")), 10)).containsExactly(
+                new FacetIndex.FacetCount("z", 2), new FacetIndex.FacetCount("y", 1));
+    }
+
+    @Test
+    void agreesWithABruteForceModelUnderRandomUpdatesAndFilters() {
+        Random random = new Random(45);
+        Map<String, Map<String, Set<String>>> model = new HashMap<>();
+        for (int step = 0; step < 3_000; step++) {
+            String id = "doc-" + random.nextInt(400);
+            if (random.nextInt(10) == 0) {
+                assertThat(index.remove(id)).isEqualTo(model.remove(id) != null);
+                continue;
+            }
+            Map<String, List<String>> values = new HashMap<>();
+            for (String field : FIELDS) {
+                if (random.nextBoolean()) {
+                    values.put(field, randomValues(random, field));
+                }
+            }
+            index.put(id, values);
+            Map<String, Set<String>> stored = model.computeIfAbsent(id, key -> new HashMap<>());
+            values.forEach((field, list) -> stored.put(field, new HashSet<>(list)));
+
+            if (step % 50 == 0) {
+                for (int check = 0; check < 20; check++) {
+                    FacetIndex.Filter filter = randomFilter(random, 3);
+                    RoaringBitmap matches = index.match(filter);
+                    Set<String> expected = model.keySet().stream()
+                            .filter(doc -> matches(model.get(doc), filter))
+                            .collect(Collectors.toSet());
+                    assertThat(new HashSet<>(ids(matches))).as("%s", filter).isEqualTo(expected);
+                    assertThat(index.counts(matches, FIELDS, 100)).isEqualTo(expectedCounts(model, expected));
+                }
+            }
+        }
+        assertThat(index.size()).isEqualTo(model.size());
+    }
+
+    @Test
+    void countsByIntersectionWhenTheMatchIsTooLargeToScan() {
+        for (int i = 0; i < 70_000; i++) {
+            index.put("doc-" + i, Map.of("classification", List.of("c" + (i % 3)), "tags", List.of("t" + (i % 7))));
+        }
+        index.optimize();
+
+        Map<String, List<FacetIndex.FacetCount>> counts = index.counts(index.match(null), List.of("classification"), 10);
+
+        assertThat(counts.get("classification")).containsExactly(new FacetIndex.FacetCount("c0", 23_334),
+                new FacetIndex.FacetCount("c1", 23_333), new FacetIndex.FacetCount("c2", 23_333));
+        assertThat(index.fieldCounts("tags", index.match(term("classification", "c0")), 1))
+                .containsExactly(new FacetIndex.FacetCount("t0", 3_334));
+    }
+
+    private List<String> ids(RoaringBitmap matches) {
+        return index.page(matches, 0, matches.getCardinality());
+    }
+
+    private static FacetIndex.Term term(String field, String... values) {
+        return new FacetIndex.Term(field, List.of(values));
+    }
+
+    private static List<String> randomValues(Random random, String field) {
+        List<String> values = new ArrayList<>();
+        int count = field.equals("tags") ? random.nextInt(4) : random.nextInt(2);
+        for (int i = 0; i < count; i++) {
+            values.add(field.charAt(0) + String.valueOf(random.nextInt(5)));
+        }
+        return values;
+    }
+
+    private static FacetIndex.Filter randomFilter(Random random, int depth) {
+        int kind = depth == 0 ? 0 : random.nextInt(4);
+        if (kind == 0) {
+            String field = FIELDS.get(random.nextInt(FIELDS.size()));
+            List<String> values = new ArrayList<>();
+            for (int i = random.nextInt(3); i >= 0; i--) {
+                values.add(field.charAt(0) + String.valueOf(random.nextInt(6)));
+            }
+            return new FacetIndex.Term(field, values);
+        }
+        if (kind == 3) {
+            return new FacetIndex.Not(randomFilter(random, depth - 1));
+        }
+        List<FacetIndex.Filter> filters = new ArrayList<>();
+        for (int i = random.nextInt(3); i > 0; i--) {
+            filters.add(randomFilter(random, depth - 1));
+        }
+        return kind == 1 ? new FacetIndex.And(filters) : new FacetIndex.Or(filters);
+    }
+
+    private static boolean matches(Map<String, Set<String>> document, FacetIndex.Filter filter) {
+        if (filter instanceof FacetIndex.Term term) {
+            Set<String> values = document.getOrDefault(term.field(), Set.of());
+            return term.values().stream().anyMatch(values::contains);
+        }
+        if (filter instanceof FacetIndex.And and) {
+            return and.filters().stream().allMatch(part -> matches(document, part));
+        }
+        if (filter instanceof FacetIndex.Or or) {
+            return or.filters().stream().anyMatch(part -> matches(document, part));
+        }
+        return !matches(document, ((FacetIndex.Not) filter).filter());
+    }
+
+    private static Map<String, List<FacetIndex.FacetCount>> expectedCounts(Map<String, Map<String, Set<String>>> model,
+                                                                           Set<String> documents) {
+        Map<String, List<FacetIndex.FacetCount>> result = new LinkedHashMap<>();
+        for (String field : FIELDS) {
+            Map<String, Integer> counts = new TreeMap<>();
+            for (String document : documents) {
+                model.get(document).getOrDefault(field, Set.of()).forEach(value -> counts.merge(value, 1, Integer::sum));
+            }
+            List<FacetIndex.FacetCount> sorted = counts.entrySet().stream()
+                    .map(entry -> new FacetIndex.FacetCount(entry.getKey(), entry.getValue()))
+                    .sorted((a, b) -> a.count() != b.count() ? Integer.compare(b.count(), a.count()) : a.value().compareTo(b.value()))
+                    .collect(Collectors.toList());
+            result.put(field, sorted);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,139 @@
+package com.docai.services.gazetteer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GazetteerAutomatonTest {
+
+    @Test
+    void findsNamesCaseInsensitivelyWithOffsetsIntoTheOriginalText() {
+        GazetteerAutomaton automaton = GazetteerAutomaton.build(List.of(
+                entry("acme", "Acme Corporation"), entry("globex", "Globex")));
+        String text = "Invoice from ACME CORPORATION, forwarded to globex.";
+
+        List<GazetteerAutomaton.Match> matches = automaton.match(text);
+
+        assertThat(matches).extracting(match -> text.substring(match.start(), match.end()))
+                .containsExactly("ACME CORPORATION", "globex");
+        assertThat(matches).extracting(match -> match.entry().canonicalId()).containsExactly("acme", "globex");
+    }
+
+    @Test
+    void prefersTheLeftmostLongestNameAndSkipsOverlaps() {
+        GazetteerAutomaton automaton = GazetteerAutomaton.build(List.of(
+                entry("bank", "Bank"), entry("boa", "Bank of America"), entry("america", "America"),
+                entry("nab", "Bank of America Merrill")));
+
+        assertThat(automaton.match("Bank of America Merrill Lynch and America"))
+                .extracting(match -> match.entry().canonicalId())
+                .containsExactly("nab", "america");
+    }
+
+    @Test
+    void followsFailureLinksAcrossSharedSuffixes() {
+        GazetteerAutomaton automaton = GazetteerAutomaton.build(List.of(
+                entry("he", "he"), entry("she", "she"), entry("his", "his"), entry("hers", "hers")));
+
+        assertThat(automaton.match("ushers she his hers he"))
+                .extracting(match -> match.entry().canonicalId())
+                .containsExactly("she", "his", "hers", "he");
+    }
+
+    @Test
+    void onlyMatchesWholeWords() {
+        GazetteerAutomaton automaton = GazetteerAutomaton.build(List.of(entry("ibm", "IBM")));
+
+        assertThat(automaton.match("IBMers at IBM, not xIBM or IBM2")).hasSize(1)
+                .first().satisfies(match -> assertThat(match.start()).isEqualTo(10));
+    }
+
+    @Test
+    void treatsAnyWhitespaceInTheTextAsTheSingleSpaceInANormalizedName() {
+        GazetteerAutomaton automaton = GazetteerAutomaton.build(List.of(entry("ms", "  Microsoft \t Corporation ")));
+
+        assertThat(automaton.match("Microsoft\nCorporation")).hasSize(1);
+        assertThat(automaton.match("Microsoft  Corporation")).isEmpty();
+    }
+
+    @Test
+    void keepsTheFirstRecordForDuplicateNamesAndSkipsBlankOnes() {
+        GazetteerAutomaton automaton = GazetteerAutomaton.build(List.of(
+                entry("first", "Initech"), entry("second", "INITECH"), entry("blank", "  "), entry("null", null)));
+
+        assertThat(automaton.size()).isEqualTo(1);
+        assertThat(automaton.match("initech")).extracting(match -> match.entry().canonicalId())
+                .containsExactly("first");
+    }
+
+    @Test
+    void emptyDictionaryMatchesNothing() {
+        assertThat(GazetteerAutomaton.empty().match("anything at all")).isEmpty();
+        assertThat(GazetteerAutomaton.empty().nodeCount()).isEqualTo(1);
+    }
+
+    @Test
+    void agreesWithABruteForceScanOnRandomDictionaries() {
+        Random random = new Random(27);
+        String alphabet = "abc ";
+        for (int round = 0; round < 500; round++) {
+            List<GazetteerEntry> dictionary = new ArrayList<>();
+            for (int i = 0; i < 1 + random.nextInt(20); i++) {
+                String name = randomWord(random, "abc", 1 + random.nextInt(3));
+                if (random.nextBoolean()) {
+                    name += " " + randomWord(random, "abc", 1 + random.nextInt(3));
+                }
+                dictionary.add(entry("id" + i, name));
+            }
+            String text = randomWord(random, alphabet, random.nextInt(60));
+
+            GazetteerAutomaton automaton = GazetteerAutomaton.build(dictionary);
+
+            assertThat(automaton.match(text)).extracting(match -> match.start() + ":" + match.end())
+                    .as("%s in \"%s\"", dictionary, text)
+                    .isEqualTo(bruteForce(dictionary, text));
+        }
+    }
+
+    private static List<String> bruteForce(List<GazetteerEntry> dictionary, String text) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        List<String> selected = new ArrayList<>();
+        int position = 0;
+        while (position < text.length()) {
+            int longest = -1;
+            for (GazetteerEntry entry : dictionary) {
+                String name = entry.name().toLowerCase(Locale.ROOT);
+                int end = position + name.length();
+                if (lower.startsWith(name, position) && end > longest
+                        && (position == 0 || !Character.isLetterOrDigit(text.charAt(position - 1)))
+                        && (end == text.length() || !Character.isLetterOrDigit(text.charAt(end)))) {
+                    longest = end;
+                }
+            }
+            if (longest > 0) {
+                selected.add(position + ":" + longest);
+                position = longest;
+            } else {
+                position++;
+            }
+        }
+        return selected;
+    }
+
+    private static String randomWord(Random random, String alphabet, int length) {
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return word.toString();
+    }
+
+    private static GazetteerEntry entry(String id, String name) {
+        return new GazetteerEntry(id, name, "ORGANIZATION", null, null);
+    }
+}
@@ -0,0 +1,110 @@
+package com.docai.services.llm;
+
+import com.docai.models.Entity;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EntityStreamDecoderTest {
+
+    private static final String RESPONSE = "Here are the entities you asked for:\n```json\n"
+            + "{\"entities\": [\n"
+            + "  {\"text\": \"Zoë Müller\", \"type\": \"person\", \"confidence\": 0.93, \"start_offset\": 0, \"end_offset\": 10},\n"
+            + "  {\"text\": \"東京 🏢 Ltd\", \"type\": \"ORGANIZATION\", \"confidence\": \"0.8\", \"metadata\": {\"note\": \"[x]\"}},\n"
+            + "  {\"name\": \"$1,200.50\", \"label\": \"Money\", \"score\": 0.7, \"start\": 40, \"end\": 30}\n"
+            + "], \"summary\": \"{not an entity}\"}\n```\nLet me know if you need more.";
+
+    private static final List<String> EXPECTED = List.of(
+            "PERSON|Zoë Müller|0.93|0-10",
+            "ORGANIZATION|東京 🏢 Ltd|0.8|null-null",
+            "MONEY|$1,200.50|0.7|null-null");
+
+    @Test
+    void decodesAWholeResponseWithProseAndFences() {
+        assertThat(describe(new EntityStreamDecoder(null).feed(RESPONSE).finish())).isEqualTo(EXPECTED);
+    }
+
+    @Test
+    void decodesTheSameEntitiesWhateverTwoChunksTheResponseArrivesIn() {
+        for (int split = 0; split <= RESPONSE.length(); split++) {
+            List<Entity> entities = new EntityStreamDecoder(null)
+                    .feed(RESPONSE.substring(0, split))
+                    .feed(RESPONSE.substring(split))
+                    .finish();
+            assertThat(describe(entities)).as("split at %d", split).isEqualTo(EXPECTED);
+        }
+    }
+
+    @Test
+    void decodesTheSameEntitiesFromManySmallChunks() {
+        Random random = new Random(39);
+        for (int round = 0; round < 200; round++) {
+            EntityStreamDecoder decoder = new EntityStreamDecoder(null);
+            int position = 0;
+            while (position < RESPONSE.length()) {
+                int end = Math.min(RESPONSE.length(), position + 1 + random.nextInt(8));
+                decoder.feed(RESPONSE.substring(position, end));
+                position = end;
+            }
+            assertThat(describe(decoder.finish())).isEqualTo(EXPECTED);
+        }
+    }
+
+    @Test
+    void emitsEachEntityAsSoonAsItsObjectCloses() {
+        List<Entity> emitted = new ArrayList<>();
+        EntityStreamDecoder decoder = new EntityStreamDecoder(emitted::add);
+
+        int firstEnd = RESPONSE.indexOf("},") + 1;
+        decoder.feed(RESPONSE.substring(0, firstEnd - 1));
+        assertThat(emitted).isEmpty();
+
+        decoder.feed(RESPONSE.substring(firstEnd - 1, firstEnd));
+        assertThat(describe(emitted)).containsExactly(EXPECTED.get(0));
+
+        decoder.feed(RESPONSE.substring(firstEnd));
+        assertThat(describe(emitted)).isEqualTo(EXPECTED);
+        assertThat(decoder.getEntityCount()).isEqualTo(3);
+    }
+
+    @Test
+    void keepsEntitiesDecodedBeforeATruncatedTail() {
+        String truncated = RESPONSE.substring(0, RESPONSE.indexOf("{\"name\"") + 12);
+
+        assertThat(describe(new EntityStreamDecoder(null).feed(truncated).finish()))
+                .containsExactly(EXPECTED.get(0), EXPECTED.get(1));
+    }
+
+    @Test
+    void skipsCandidatesThatAreNotJsonOrHoldNoEntities() {
+        String response = "Using {braces} and [brackets] in prose, then {\"other\": [1, 2]} and finally "
+                + "[{\"text\": \"Acme\", \"type\": \"org\"}]";
+
+        assertThat(describe(new EntityStreamDecoder(null).feed(response).finish()))
+                .containsExactly("ORG|Acme|null|null-null");
+    }
+
+    @Test
+    void dropsEntitiesWithoutTextOrType() {
+        String response = "[{\"text\": \"\", \"type\": \"X\"}, {\"text\": \"a\"}, {\"type\": \"Y\"}, {\"text\": \"b\", \"type\": \"Z\"}]";
+
+        assertThat(describe(new EntityStreamDecoder(null).feed(response).finish())).containsExactly("Z|b|null|null-null");
+    }
+
+    @Test
+    void returnsNothingForAResponseWithoutJson() {
+        assertThat(new EntityStreamDecoder(null).feed("No entities were found.").finish()).isEmpty();
+        assertThat(new EntityStreamDecoder(null).finish()).isEmpty();
+    }
+
+    private static List<String> describe(List<Entity> entities) {
+        return entities.stream()
+                .map(entity -> entity.getType() + "|" + entity.getText() + "|" + entity.getConfidence() + "|"
+                        + entity.getStartOffset() + "-" + entity.getEndOffset())
+                .toList();
+    }
+}
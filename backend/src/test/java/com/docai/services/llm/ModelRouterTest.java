@@ -0,0 +1,295 @@
+package com.docai.services.llm;
+
+import com.docai.services.OpenAIService;
+import com.docai.services.stats.DocumentStatisticsService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class ModelRouterTest {
+
+    private static final int WINDOW = 10;
+    private static final Duration COOLDOWN = Duration.ofSeconds(60);
+    private static final ModelRouter.TokenUsage USAGE = new ModelRouter.TokenUsage(1000, 500, false);
+
+    private final FakeClock clock = new FakeClock();
+    private final LlmRoutingProperties properties = new LlmRoutingProperties();
+    private final ModelRouter router = new ModelRouter();
+
+    @BeforeEach
+    void setUp() {
+        endpoint("cloud", "http://cloud.example/v1/chat/completions");
+        endpoint("local", "http://localhost:11434/v1/chat/completions");
+        model("large", "cloud", "gpt-4o", 0.005, 0.015);
+        model("small", "cloud", "gpt-4o-mini", 0.00015, 0.0006);
+        model("llama", "local", "llama3.1:8b", 0, 0);
+        route("long-entities", List.of("Entity_Extraction"), 20_000, 0, "large", "llama", Duration.ofSeconds(2));
+        route("summaries", List.of("summarization", "summary_update"), 0, 20_000, "small", "llama", Duration.ofSeconds(1));
+        route("no-fallback", List.of("sentiment"), 0, 0, "small", null, Duration.ofSeconds(1));
+        properties.setDefaultModel("small");
+        properties.setSloWindow(WINDOW);
+        properties.setFailoverCooldown(COOLDOWN);
+
+        ReflectionTestUtils.setField(router, "properties", properties);
+        ReflectionTestUtils.setField(router, "statisticsService", mock(DocumentStatisticsService.class));
+        ReflectionTestUtils.setField(router, "clock", clock);
+        router.initialize();
+    }
+
+    @Test
+    void routesByAnalysisTypeAndTextSize() {
+        assertThat(router.route("ENTITY_EXTRACTION", 50_000).getName()).isEqualTo("long-entities");
+        assertThat(router.route("entity_extraction", 19_999).getName()).isEqualTo("default");
+        assertThat(router.route("summarization", 20_000).getName()).isEqualTo("summaries");
+        assertThat(router.route("summary_update", 10).getName()).isEqualTo("summaries");
+        assertThat(router.route("summarization", 20_001).getName()).isEqualTo("default");
+        assertThat(router.route("classification", 10).getName()).isEqualTo("default");
+
+        assertThat(models(router.route("entity_extraction", 50_000))).containsExactly("large", "llama");
+        assertThat(models(router.route("classification", 10))).containsExactly("small");
+    }
+
+    @Test
+    void dropsFallbacksWithoutAnEndpointUrlAndRejectsUnknownModels() {
+        endpoint("local", "");
+        ModelRouter withoutLocal = new ModelRouter();
+        ReflectionTestUtils.setField(withoutLocal, "properties", properties);
+        withoutLocal.initialize();
+        assertThat(models(withoutLocal.route("summarization", 10))).containsExactly("small");
+
+        route("broken", List.of("qa"), 0, 0, "missing", null, null);
+        ModelRouter broken = new ModelRouter();
+        ReflectionTestUtils.setField(broken, "properties", properties);
+        assertThatThrownBy(broken::initialize).isInstanceOf(IllegalStateException.class).hasMessageContaining("missing");
+    }
+
+    @Test
+    void failsOverOnceTheP90OfAFullWindowBreaksTheSlo() {
+        ModelRouter.Route route = router.route("summarization", 10);
+        ModelRouter.Target primary = router.targets(route).get(0);
+
+        // the SLO is only judged on a full window
+        for (int i = 0; i < WINDOW - 1; i++) {
+            router.recordSuccess(route, primary, 5_000, USAGE);
+        }
+        assertThat(models(route)).containsExactly("small", "llama");
+
+        ModelRouter fresh = freshRouter();
+        route = fresh.route("summarization", 10);
+        primary = fresh.targets(route).get(0);
+        for (int i = 0; i < WINDOW - 1; i++) {
+            fresh.recordSuccess(route, primary, 200, USAGE);
+        }
+        // one slow call in ten is within the p90
+        fresh.recordSuccess(route, primary, 5_000, USAGE);
+        assertThat(models(fresh, route)).containsExactly("small", "llama");
+
+        // the window slides; two slow calls in ten put the p90 over the SLO
+        fresh.recordSuccess(route, primary, 5_000, USAGE);
+        assertThat(models(fresh, route)).containsExactly("llama", "small");
+    }
+
+    @Test
+    void returnsToThePrimaryAfterTheCooldownWithAFreshWindow() {
+        ModelRouter.Route route = router.route("summarization", 10);
+        ModelRouter.Target primary = router.targets(route).get(0);
+        for (int i = 0; i < WINDOW - 1; i++) {
+            router.recordSuccess(route, primary, 5_000, USAGE);
+        }
+        router.recordFailure(route, primary, 30_000);
+        assertThat(models(route)).containsExactly("llama", "small");
+
+        clock.advance(COOLDOWN.minusSeconds(1));
+        assertThat(models(route)).containsExactly("llama", "small");
+        clock.advance(Duration.ofSeconds(1));
+        assertThat(models(route)).containsExactly("small", "llama");
+
+        // samples from before the failover were dropped, so one slow call does not trip it again
+        router.recordSuccess(route, primary, 5_000, USAGE);
+        assertThat(models(route)).containsExactly("small", "llama");
+    }
+
+    @Test
+    void neverFailsOverARouteWithoutAFallback() {
+        ModelRouter.Route route = router.route("sentiment", 10);
+        ModelRouter.Target primary = router.targets(route).get(0);
+
+        router.recordFailure(route, primary, 100);
+        for (int i = 0; i < WINDOW; i++) {
+            router.recordSuccess(route, primary, 5_000, USAGE);
+        }
+
+        assertThat(models(route)).containsExactly("small");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reportsFailoversUsageAndCostPerModel() {
+        ModelRouter.Route route = router.route("entity_extraction", 50_000);
+        List<ModelRouter.Target> targets = router.targets(route);
+        router.recordFailure(route, targets.get(0), 100);
+        router.recordSuccess(route, targets.get(1), 800, USAGE);
+        router.recordSuccess(route, router.targets(route).get(1), 900, USAGE);
+
+        Map<String, Object> status = ((List<Map<String, Object>>) router.getStatus().get("routes")).get(0);
+        assertThat(status).containsEntry("name", "long-entities").containsEntry("failedOver", true)
+                .containsEntry("failovers", 1L)
+                .containsEntry("failedOverUntil", Instant.ofEpochMilli(clock.millis()).plus(COOLDOWN).toString());
+        Map<String, Map<String, Object>> models = (Map<String, Map<String, Object>>) status.get("models");
+        assertThat(models.get("large")).containsEntry("failures", 1L).containsEntry("calls", 1L)
+                .containsEntry("cost", 0.005 + 0.0075);
+        assertThat(models.get("llama")).containsEntry("calls", 1L).containsEntry("promptTokens", 1000L);
+    }
+
+    @Test
+    void openAiServiceFailsOverThroughTheRouterOnAStubbedEndpoint() throws Exception {
+        AtomicInteger primaryCalls = new AtomicInteger();
+        AtomicInteger fallbackCalls = new AtomicInteger();
+        AtomicInteger primaryStatus = new AtomicInteger(503);
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/cloud", exchange -> {
+            primaryCalls.incrementAndGet();
+            respond(exchange, primaryStatus.get(), completion("from cloud"));
+        });
+        server.createContext("/local", exchange -> {
+            fallbackCalls.incrementAndGet();
+            respond(exchange, 200, completion("from local"));
+        });
+        server.start();
+        try {
+            String base = "http://127.0.0.1:" + server.getAddress().getPort();
+            endpoint("cloud", base + "/cloud");
+            endpoint("local", base + "/local");
+            ModelRouter stubbed = freshRouter();
+            OpenAIService openAIService = new OpenAIService();
+            ReflectionTestUtils.setField(openAIService, "modelRouter", stubbed);
+            ReflectionTestUtils.setField(openAIService, "stream", false);
+            ReflectionTestUtils.setField(openAIService, "timeout", Duration.ofSeconds(5));
+
+            assertThat(openAIService.analyzeDocument("short text", "summarization")).isEqualTo("from local");
+            assertThat(primaryCalls).hasValue(1);
+
+            // while failed over the fallback is tried first
+            primaryStatus.set(200);
+            assertThat(openAIService.analyzeDocument("short text", "summarization")).isEqualTo("from local");
+            assertThat(primaryCalls).hasValue(1);
+            assertThat(fallbackCalls).hasValue(2);
+
+            clock.advance(COOLDOWN);
+            assertThat(openAIService.analyzeDocument("short text", "summarization")).isEqualTo("from cloud");
+            assertThat(primaryCalls).hasValue(2);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private ModelRouter freshRouter() {
+        ModelRouter fresh = new ModelRouter();
+        ReflectionTestUtils.setField(fresh, "properties", properties);
+        ReflectionTestUtils.setField(fresh, "statisticsService", mock(DocumentStatisticsService.class));
+        ReflectionTestUtils.setField(fresh, "clock", clock);
+        fresh.initialize();
+        return fresh;
+    }
+
+    private List<String> models(ModelRouter.Route route) {
+        return models(router, route);
+    }
+
+    private static List<String> models(ModelRouter router, ModelRouter.Route route) {
+        return router.targets(route).stream().map(ModelRouter.Target::name).toList();
+    }
+
+    private void endpoint(String name, String url) {
+        LlmRoutingProperties.Endpoint endpoint = new LlmRoutingProperties.Endpoint();
+        endpoint.setUrl(url);
+        properties.getEndpoints().put(name, endpoint);
+    }
+
+    private void model(String name, String endpoint, String modelName, double inputCost, double outputCost) {
+        LlmRoutingProperties.Model model = new LlmRoutingProperties.Model();
+        model.setEndpoint(endpoint);
+        model.setModel(modelName);
+        model.setInputCostPer1k(inputCost);
+        model.setOutputCostPer1k(outputCost);
+        properties.getModels().put(name, model);
+    }
+
+    private void route(String name, List<String> types, int minChars, int maxChars, String model, String fallback,
+                       Duration latencySlo) {
+        LlmRoutingProperties.Route route = new LlmRoutingProperties.Route();
+        route.setName(name);
+        route.setTypes(types);
+        route.setMinChars(minChars);
+        route.setMaxChars(maxChars);
+        route.setModel(model);
+        route.setFallback(fallback);
+        route.setLatencySlo(latencySlo);
+        properties.getRoutes().add(route);
+    }
+
+    private static String completion(String content) {
+        return "{\"choices\":[{\"message\":{\"content\":\"" + content + "\"}}],"
+                + "\"usage\":{\"prompt_tokens\":12,\"completion_tokens\":3}}";
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body)
+            throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+    private static final class FakeClock extends Clock {
+
+        private final AtomicLong millis = new AtomicLong(1_700_000_000_000L);
+
+        void advance(Duration duration) {
+            millis.addAndGet(duration.toMillis());
+        }
+
+        @Override
+        public long millis() {
+            return millis.get();
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis());
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
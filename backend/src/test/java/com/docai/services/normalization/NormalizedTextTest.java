@@ -0,0 +1,146 @@
+package com.docai.services.normalization;
+
+import com.docai.models.Entity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NormalizedTextTest {
+
+    private static final String[] PIECES = {
+            "alpha", "Beta", "gamma", "invoice", "Total", "42", "$1,200.50", "e-mail", "docu-", "ment", "Acme",
+            " ", " ", " ", "  ", "\t", " \t ", "\u00A0", "\n", "\n", "\n\n", "\n \n", "\r\n", "-----", "==========",
+            " .......... ", "\u200B", "\u00AD", "\uFEFF", "--", "x-", "\nACME CONFIDENTIAL\n", "\nPage 3 of 9\n"};
+
+    private final TextNormalizer normalizer = new TextNormalizer();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(normalizer, "enabled", true);
+        ReflectionTestUtils.setField(normalizer, "headersFooters", true);
+        ReflectionTestUtils.setField(normalizer, "minRepeats", 3);
+        ReflectionTestUtils.setField(normalizer, "minRepeatGap", 20);
+        ReflectionTestUtils.setField(normalizer, "maxHeaderChars", 120);
+        ReflectionTestUtils.setField(normalizer, "dehyphenate", true);
+        ReflectionTestUtils.setField(normalizer, "stripStopSections", false);
+        ReflectionTestUtils.setField(normalizer, "stopSections", List.of());
+    }
+
+    @Test
+    void identityMapsEveryOffsetToItself() {
+        NormalizedText identity = NormalizedText.identity("unchanged text");
+
+        for (int offset = 0; offset <= identity.getText().length(); offset++) {
+            assertThat(identity.toOriginal(offset)).isEqualTo(offset);
+        }
+        assertThat(identity.toOriginalEnd(7)).isEqualTo(7);
+        assertThat(identity.getRemovedChars()).isEmpty();
+    }
+
+    @Test
+    void mapsOffsetsAcrossCollapsedWhitespace() {
+        String original = "  Acme \t Corp\n\n\n   owes   $5 ";
+        NormalizedText normalized = normalizer.normalize(original);
+
+        assertThat(normalized.getText()).isEqualTo("Acme Corp\n\nowes $5");
+        assertSpan(normalized, "Acme", "Acme");
+        assertSpan(normalized, "Corp", "Corp");
+        assertSpan(normalized, "Acme Corp", "Acme \t Corp");
+        assertSpan(normalized, "owes $5", "owes   $5");
+    }
+
+    @Test
+    void mapsADehyphenatedWordBackToBothHalves() {
+        String original = "the docu-\nment was signed";
+        NormalizedText normalized = normalizer.normalize(original);
+
+        assertThat(normalized.getText()).isEqualTo("the document was signed");
+        assertSpan(normalized, "document", "docu-\nment");
+        assertThat(normalized.getRemovedChars()).containsEntry(NormalizedText.REMOVED_HYPHENATION, 1);
+    }
+
+    @Test
+    void mapsOffsetsPastRemovedRulersAndInvisibleCharacters() {
+        String original = "Item\u200B one\n----------\nTotal .......... 5";
+        NormalizedText normalized = normalizer.normalize(original);
+
+        assertThat(normalized.getText()).isEqualTo("Item one\nTotal ... 5");
+        assertSpan(normalized, "one", "one");
+        assertSpan(normalized, "Total", "Total");
+        assertSpan(normalized, "5", "5");
+        assertThat(normalized.getRemovedChars()).containsKey(NormalizedText.REMOVED_RULERS);
+    }
+
+    @Test
+    void restoresEntityOffsetsAndLeavesEntitiesWithoutOffsetsAlone() {
+        String original = "Paid   to\n\n  Acme    Corp  on Monday";
+        NormalizedText normalized = normalizer.normalize(original);
+        int start = normalized.getText().indexOf("Acme Corp");
+
+        Entity entity = new Entity("ORGANIZATION", "Acme Corp", 0.9, start, start + "Acme Corp".length());
+        normalized.restoreOffsets(entity);
+        Entity withoutOffsets = new Entity();
+        withoutOffsets.setText("Monday");
+        normalized.restoreOffsets(withoutOffsets);
+
+        assertThat(original.substring(entity.getStartOffset(), entity.getEndOffset())).isEqualTo("Acme    Corp");
+        assertThat(withoutOffsets.getStartOffset()).isNull();
+    }
+
+    @Test
+    void clampsOffsetsOutsideTheText() {
+        String original = "  one   two  ";
+        NormalizedText normalized = normalizer.normalize(original);
+
+        assertThat(normalized.toOriginal(-5)).isEqualTo(original.indexOf("one"));
+        assertThat(normalized.toOriginal(normalized.getText().length() + 10)).isEqualTo(original.length());
+        assertThat(normalized.toOriginalEnd(0)).isZero();
+        assertThat(normalized.toOriginalEnd(normalized.getText().length())).isEqualTo(original.indexOf("two") + 3);
+    }
+
+    @Test
+    void mapsEveryKeptCharacterToTheSameCharacterInOrder() {
+        Random random = new Random(42);
+        for (int round = 0; round < 2_000; round++) {
+            StringBuilder builder = new StringBuilder();
+            int pieces = random.nextInt(60);
+            for (int p = 0; p < pieces; p++) {
+                builder.append(PIECES[random.nextInt(PIECES.length)]);
+            }
+            String original = builder.toString();
+            NormalizedText normalized = normalizer.normalize(original);
+            String text = normalized.getText();
+
+            int previous = 0;
+            for (int i = 0; i < text.length(); i++) {
+                int origin = normalized.toOriginal(i);
+                assertThat(origin).as("offset %d in %s", i, describe(original)).isBetween(previous, original.length());
+                if (!Character.isWhitespace(text.charAt(i))) {
+                    // Only spaces and line breaks are inserted; everything else is copied from its origin
+                    assertThat(original.charAt(origin)).as("offset %d in %s", i, describe(original))
+                            .isEqualTo(text.charAt(i));
+                }
+                previous = origin;
+            }
+            assertThat(normalized.getRemovedChars().values().stream().mapToInt(Integer::intValue).sum())
+                    .isEqualTo(original.length() - text.length());
+        }
+    }
+
+    private static void assertSpan(NormalizedText normalized, String normalizedSpan, String originalSpan) {
+        int start = normalized.getText().indexOf(normalizedSpan);
+        int end = start + normalizedSpan.length();
+        assertThat(start).isNotNegative();
+        assertThat(normalized.getOriginal().substring(normalized.toOriginal(start), normalized.toOriginalEnd(end)))
+                .isEqualTo(originalSpan);
+    }
+
+    private static String describe(String text) {
+        return "\"" + text.replace("\n", "\\n").replace("\t", "\\t") + "\"";
+    }
+}
@@ -0,0 +1,167 @@
+package com.docai.services.persistence;
+
+import com.docai.models.Document;
+import com.docai.services.stats.DocumentStatisticsService;
+import com.mongodb.bulk.BulkWriteError;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WriteCoalescerTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final WriteCoalescer coalescer = new WriteCoalescer();
+
+    @BeforeEach
+    void setUp() {
+        when(mongoTemplate.getCollectionName(Document.class)).thenReturn("documents");
+        ReflectionTestUtils.setField(coalescer, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(coalescer, "statisticsService", mock(DocumentStatisticsService.class));
+        ReflectionTestUtils.setField(coalescer, "enabled", true);
+        ReflectionTestUtils.setField(coalescer, "window", Duration.ofMillis(50));
+        ReflectionTestUtils.setField(coalescer, "maxBatch", 500);
+        ReflectionTestUtils.setField(coalescer, "maxAttempts", 3);
+    }
+
+    @Test
+    void mergesUpdatesToTheSameRowIntoOneWrite() {
+        BulkOperations bulk = bulkOps();
+        coalescer.update(Document.class, "a", new Update().set("status", "PROCESSING").set("error", "x"),
+                WriteCoalescer.Durability.BATCHED);
+        coalescer.update(Document.class, "a", new Update().unset("error").set("status", "COMPLETED").set("pages", 3),
+                WriteCoalescer.Durability.BATCHED);
+        coalescer.update(Document.class, "b", new Update().set("status", "UPLOADED"), WriteCoalescer.Durability.BATCHED);
+
+        coalescer.flush();
+
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulk, times(2)).updateOne(any(Query.class), updates.capture());
+        verify(bulk).execute();
+        assertThat(updates.getAllValues().get(0).getUpdateObject()).isEqualTo(new org.bson.Document()
+                .append("$set", new org.bson.Document("status", "COMPLETED").append("pages", 3))
+                .append("$unset", new org.bson.Document("error", 1)));
+        assertThat(coalescer.getStatus()).containsEntry("enqueued", 3L).containsEntry("coalesced", 1L)
+                .containsEntry("written", 2L).containsEntry("roundTrips", 1L).containsEntry("pending", 0);
+    }
+
+    @Test
+    void rejectsOperatorsThatCannotBeMerged() {
+        assertThatThrownBy(() -> coalescer.update(Document.class, "a", new Update().inc("views", 1),
+                WriteCoalescer.Durability.BATCHED)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void writesDirectlyWhenDisabled() {
+        ReflectionTestUtils.setField(coalescer, "enabled", false);
+        Update update = new Update().set("status", "FAILED");
+
+        coalescer.update(Document.class, "a", update, WriteCoalescer.Durability.BATCHED);
+
+        verify(mongoTemplate).updateFirst(new Query(Criteria.where("_id").is("a")), update, Document.class);
+        verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), any(Class.class));
+    }
+
+    @Test
+    void requeuesFailedRowsUnderNewerUpdates() {
+        BulkOperations failing = mock(BulkOperations.class);
+        BulkOperationException error = mock(BulkOperationException.class);
+        when(error.getErrors()).thenReturn(List.of(new BulkWriteError(11000, "duplicate", new BsonDocument(), 1)));
+        when(failing.execute()).thenThrow(error);
+        BulkOperations retry = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(eq(BulkOperations.BulkMode.UNORDERED), any(Class.class))).thenReturn(failing, retry);
+
+        coalescer.update(Document.class, "a", new Update().set("status", "COMPLETED"), WriteCoalescer.Durability.BATCHED);
+        coalescer.update(Document.class, "b", new Update().set("status", "COMPLETED").set("pages", 2),
+                WriteCoalescer.Durability.BATCHED);
+        coalescer.flush();
+        // only "b" failed; a newer update to it arrives before the retry
+        coalescer.update(Document.class, "b", new Update().set("status", "FAILED"), WriteCoalescer.Durability.BATCHED);
+        coalescer.flush();
+
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(retry).updateOne(queries.capture(), updates.capture());
+        assertThat(queries.getValue().getQueryObject()).isEqualTo(new org.bson.Document("_id", "b"));
+        assertThat(updates.getValue().getUpdateObject()).isEqualTo(new org.bson.Document("$set",
+                new org.bson.Document("status", "FAILED").append("pages", 2)));
+        assertThat(coalescer.getStatus()).containsEntry("retried", 1L).containsEntry("written", 2L)
+                .containsEntry("failed", 0L);
+    }
+
+    @Test
+    void failsCommittedWritesAfterTheLastAttempt() throws Exception {
+        BulkOperations bulk = bulkOps();
+        when(bulk.execute()).thenThrow(new DataAccessResourceFailureException("down"));
+
+        CompletableFuture<Void> commit = CompletableFuture.runAsync(() -> coalescer.update(Document.class, "a",
+                new Update().set("status", "COMPLETED"), WriteCoalescer.Durability.COMMIT));
+        // the COMMIT flush is the first attempt; stand in for the scheduled flushes that retry it
+        while (coalescer.getStatus().get("retried").equals(0L)) {
+            Thread.sleep(5);
+        }
+        coalescer.flush();
+        coalescer.flush();
+
+        assertThatThrownBy(() -> commit.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(DataAccessResourceFailureException.class);
+        verify(bulk, times(3)).execute();
+        assertThat(coalescer.getStatus()).containsEntry("retried", 2L).containsEntry("failed", 1L)
+                .containsEntry("pending", 0);
+    }
+
+    @Test
+    void flushingARowWaitsForTheBatchThatIsWritingIt() throws Exception {
+        BulkOperations bulk = bulkOps();
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(bulk.execute()).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return null;
+        });
+        coalescer.update(Document.class, "a", new Update().set("status", "COMPLETED"), WriteCoalescer.Durability.BATCHED);
+        CompletableFuture<Void> batch = CompletableFuture.runAsync(coalescer::flush);
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<Boolean> rowFlush = CompletableFuture.supplyAsync(() -> coalescer.flush(Document.class, "a"));
+        assertThat(coalescer.flush(Document.class, "b")).isFalse();
+        Thread.sleep(100);
+        assertThat(rowFlush).isNotDone();
+
+        release.countDown();
+        assertThat(rowFlush.get(5, TimeUnit.SECONDS)).isTrue();
+        batch.get(5, TimeUnit.SECONDS);
+        assertThat(coalescer.flush(Document.class, "a")).isFalse();
+    }
+
+    private BulkOperations bulkOps() {
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(eq(BulkOperations.BulkMode.UNORDERED), any(Class.class))).thenReturn(bulk);
+        return bulk;
+    }
+}
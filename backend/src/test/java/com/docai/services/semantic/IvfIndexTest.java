@@ -0,0 +1,131 @@
+package com.docai.services.semantic;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IvfIndexTest {
+
+    private static final int DIMENSIONS = 32;
+
+    @TempDir
+    Path tempDir;
+
+    private final ForkJoinPool pool = new ForkJoinPool(2);
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void readsBackTheMetadataItWasWrittenWith() throws IOException {
+        IvfIndex index = write(randomVectors(new Random(36), 50, 3), 1_700_000_000_000L);
+
+        assertThat(index.version()).isEqualTo("test:v1");
+        assertThat(index.builtAt()).isEqualTo(1_700_000_000_000L);
+        assertThat(index.dimensions()).isEqualTo(DIMENSIONS);
+        assertThat(index.documentCount()).isEqualTo(50);
+        assertThat(index.entryCount()).isEqualTo(150);
+        assertThat(index.listCount()).isBetween(1, 150);
+    }
+
+    @Test
+    void findsEveryStoredChunkAsItsOwnBestHitWhenAllListsAreProbed() throws IOException {
+        IvfIndexWriter.Vectors vectors = randomVectors(new Random(1), 200, 2);
+        IvfIndex index = write(vectors, 0L);
+
+        for (int entry = 0; entry < vectors.size(); entry++) {
+            float[] query = VectorCodec.dequantize(vectors.codes()[entry], vectors.scales()[entry]);
+            List<VectorHit> hits = index.search(query, index.listCount(), 3, id -> false);
+
+            assertThat(hits).hasSize(3);
+            assertThat(hits.get(0).documentId()).isEqualTo(vectors.documentIds().get(vectors.ordinals()[entry]));
+            assertThat(hits).isSortedAccordingTo((a, b) -> Float.compare(b.score(), a.score()));
+        }
+    }
+
+    @Test
+    void scoresMatchAnExhaustiveScanOfTheStoredCodes() throws IOException {
+        Random random = new Random(2);
+        IvfIndexWriter.Vectors vectors = randomVectors(random, 100, 4);
+        IvfIndex index = write(vectors, 0L);
+        float[] query = VectorCodecTest.normalized(VectorCodecTest.randomVector(random, DIMENSIONS));
+
+        float[] best = new float[vectors.documentIds().size()];
+        Arrays.fill(best, Float.NEGATIVE_INFINITY);
+        for (int entry = 0; entry < vectors.size(); entry++) {
+            int ordinal = vectors.ordinals()[entry];
+            best[ordinal] = Math.max(best[ordinal], VectorCodec.dot(query, vectors.codes()[entry], vectors.scales()[entry]));
+        }
+
+        for (VectorHit hit : index.search(query, index.listCount(), 100, id -> false)) {
+            assertThat(hit.score()).isEqualTo(best[vectors.documentIds().indexOf(hit.documentId())]);
+        }
+    }
+
+    @Test
+    void leavesOutExcludedDocuments() throws IOException {
+        IvfIndexWriter.Vectors vectors = randomVectors(new Random(3), 30, 1);
+        IvfIndex index = write(vectors, 0L);
+        float[] query = VectorCodec.dequantize(vectors.codes()[0], vectors.scales()[0]);
+
+        List<VectorHit> hits = index.search(query, index.listCount(), 30, id -> id.equals("doc-0"));
+
+        assertThat(hits).hasSize(29).extracting(VectorHit::documentId).doesNotContain("doc-0");
+    }
+
+    @Test
+    void opensAnEmptyIndex() throws IOException {
+        IvfIndex index = write(new IvfIndexWriter.Vectors(DIMENSIONS, List.of(), new int[0], new float[0], new byte[0][]), 0L);
+
+        assertThat(index.entryCount()).isZero();
+        assertThat(index.search(new float[DIMENSIONS], 8, 10, id -> false)).isEmpty();
+    }
+
+    @Test
+    void rejectsFilesThatAreNotAnIndex() throws IOException {
+        Path file = tempDir.resolve("garbage.ivf");
+        Files.write(file, new byte[]{0, 0, 0, 8, 1, 2, 3, 4, 5, 6, 7, 8});
+
+        assertThatThrownBy(() -> IvfIndex.open(file)).isInstanceOf(IOException.class);
+    }
+
+    private IvfIndex write(IvfIndexWriter.Vectors vectors, long builtAt) throws IOException {
+        Path file = tempDir.resolve("vectors-" + builtAt + ".ivf");
+        new IvfIndexWriter(pool).write(file, "test:v1", builtAt, vectors);
+        return IvfIndex.open(file);
+    }
+
+    private static IvfIndexWriter.Vectors randomVectors(Random random, int documents, int chunksPerDocument) {
+        List<String> documentIds = new ArrayList<>();
+        int size = documents * chunksPerDocument;
+        int[] ordinals = new int[size];
+        float[] scales = new float[size];
+        byte[][] codes = new byte[size][];
+        for (int d = 0; d < documents; d++) {
+            documentIds.add("doc-" + d);
+            for (int c = 0; c < chunksPerDocument; c++) {
+                int entry = d * chunksPerDocument + c;
+                VectorCodec.Quantized quantized = VectorCodec.quantize(
+                        VectorCodecTest.normalized(VectorCodecTest.randomVector(random, DIMENSIONS)));
+                ordinals[entry] = d;
+                scales[entry] = quantized.scale();
+                codes[entry] = quantized.codes();
+            }
+        }
+        return new IvfIndexWriter.Vectors(DIMENSIONS, documentIds, ordinals, scales, codes);
+    }
+}
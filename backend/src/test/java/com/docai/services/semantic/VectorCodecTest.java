@@ -0,0 +1,81 @@
+package com.docai.services.semantic;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class VectorCodecTest {
+
+    @Test
+    void roundTripsEachComponentWithinHalfAStep() {
+        Random random = new Random(36);
+        for (int round = 0; round < 100; round++) {
+            float[] vector = randomVector(random, 1 + random.nextInt(512));
+            VectorCodec.Quantized quantized = VectorCodec.quantize(vector);
+            float[] restored = VectorCodec.dequantize(quantized.codes(), quantized.scale());
+
+            assertThat(restored).hasSameSizeAs(vector);
+            for (int i = 0; i < vector.length; i++) {
+                assertThat(restored[i]).isCloseTo(vector[i], within(quantized.scale() / 2 + 1e-6f));
+            }
+        }
+    }
+
+    @Test
+    void mapsTheLargestMagnitudeToTheEndOfTheCodeRange() {
+        VectorCodec.Quantized quantized = VectorCodec.quantize(new float[]{0.5f, -1.0f, 0.25f, 0f});
+
+        assertThat(quantized.scale()).isCloseTo(1.0f / 127, within(1e-9f));
+        assertThat(quantized.codes()).containsExactly(64, -127, 32, 0);
+    }
+
+    @Test
+    void quantizesTheZeroVectorWithoutDividingByZero() {
+        VectorCodec.Quantized quantized = VectorCodec.quantize(new float[8]);
+
+        assertThat(quantized.scale()).isEqualTo(1f);
+        assertThat(quantized.codes()).containsOnly(0);
+    }
+
+    @Test
+    void dotProductOnCodesMatchesTheDequantizedVector() {
+        Random random = new Random(7);
+        float[] query = randomVector(random, 384);
+        VectorCodec.Quantized stored = VectorCodec.quantize(randomVector(random, 384));
+
+        float onCodes = VectorCodec.dot(query, stored.codes(), stored.scale());
+        float onFloats = VectorCodec.dot(query, VectorCodec.dequantize(stored.codes(), stored.scale()));
+
+        assertThat(onCodes).isCloseTo(onFloats, within(1e-4f));
+    }
+
+    @Test
+    void quantizedDotProductStaysCloseToTheExactOne() {
+        Random random = new Random(11);
+        float[] query = normalized(randomVector(random, 384));
+        float[] vector = normalized(randomVector(random, 384));
+        VectorCodec.Quantized stored = VectorCodec.quantize(vector);
+
+        assertThat(VectorCodec.dot(query, stored.codes(), stored.scale()))
+                .isCloseTo(VectorCodec.dot(query, vector), within(0.01f));
+    }
+
+    static float[] randomVector(Random random, int dimensions) {
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    static float[] normalized(float[] vector) {
+        float norm = (float) Math.sqrt(VectorCodec.dot(vector, vector));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] /= norm;
+        }
+        return vector;
+    }
+}
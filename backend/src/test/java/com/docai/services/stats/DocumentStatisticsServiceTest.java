@@ -0,0 +1,180 @@
+package com.docai.services.stats;
+
+import com.docai.models.Document;
+import com.docai.models.DocumentAnalysis;
+import com.docai.models.Entity;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import org.HdrHistogram.Histogram;
+import org.bson.BsonDocument;
+import org.bson.conversions.Bson;
+import org.bson.types.Binary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DocumentStatisticsServiceTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final MongoCollection<org.bson.Document> snapshots = mock(MongoCollection.class);
+    private final List<org.bson.Document> otherInstances = new ArrayList<>();
+    private final DocumentStatisticsService statisticsService = new DocumentStatisticsService();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(mongoTemplate.getCollection("statistics_snapshots")).thenReturn(snapshots);
+        FindIterable<org.bson.Document> rows = mock(FindIterable.class);
+        when(snapshots.find(any(Bson.class))).thenReturn(rows);
+        doAnswer(invocation -> {
+            otherInstances.forEach(invocation.<Consumer<org.bson.Document>>getArgument(0));
+            return null;
+        }).when(rows).forEach(any());
+        ReflectionTestUtils.setField(statisticsService, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(statisticsService, "retentionDays", 90);
+    }
+
+    @Test
+    void counterKeysAreSafeFieldNamesAndRoundTrip() {
+        List<String> values = List.of("application/vnd.ms-excel", "$price", "50%", "%2E", "%252E", "a.b$c%d", "", "UNKNOWN");
+        for (String value : values) {
+            String key = DocumentStatisticsService.encodeKey(value);
+
+            assertThat(key).doesNotContain(".", "$").isNotEmpty();
+            assertThat(DocumentStatisticsService.decodeKey(key)).isEqualTo(value);
+        }
+    }
+
+    @Test
+    void countsUploadsStatusChangesAndDeletes() {
+        Document invoice = document("application/pdf");
+        Document memo = document("text/plain");
+        statisticsService.onDocumentUploaded(invoice);
+        statisticsService.onDocumentUploaded(memo);
+        statisticsService.onDocumentStatusChanged("UPLOADED", "COMPLETED", 1_200L);
+        invoice.setProcessingStatus("COMPLETED");
+        statisticsService.onClassificationChanged(null, "invoice");
+        invoice.setClassification("invoice");
+        // repeated transitions are not double counted
+        statisticsService.onDocumentStatusChanged("COMPLETED", "COMPLETED", null);
+
+        assertThat(statisticsService.count(DocumentStatisticsService.TOTALS, "documents")).isEqualTo(2);
+        assertThat(statisticsService.snapshot(DocumentStatisticsService.STATUS))
+                .containsExactlyInAnyOrderEntriesOf(Map.of("UPLOADED", 1L, "COMPLETED", 1L));
+        assertThat(statisticsService.snapshot(DocumentStatisticsService.CLASSIFICATION)).containsEntry("invoice", 1L);
+
+        statisticsService.onDocumentDeleted(invoice);
+
+        assertThat(statisticsService.count(DocumentStatisticsService.TOTALS, "documents")).isEqualTo(1);
+        assertThat(statisticsService.snapshot(DocumentStatisticsService.CONTENT_TYPE))
+                .containsExactlyInAnyOrderEntriesOf(Map.of("text/plain", 1L));
+        assertThat(statisticsService.snapshot(DocumentStatisticsService.STATUS))
+                .containsExactlyInAnyOrderEntriesOf(Map.of("UPLOADED", 1L));
+        assertThat(statisticsService.snapshot(DocumentStatisticsService.CLASSIFICATION)).isEmpty();
+    }
+
+    @Test
+    void replacesTheCountsOfASupersededAnalysis() {
+        statisticsService.onAnalysisCompleted(analysis("entity_extraction", "PERSON", "PERSON"), null);
+        statisticsService.onAnalysisCompleted(analysis("entity_extraction", "ORGANIZATION"),
+                analysis("entity_extraction", "PERSON", "PERSON"));
+
+        assertThat(statisticsService.count(DocumentStatisticsService.TOTALS, "analyses")).isEqualTo(1);
+        assertThat(statisticsService.snapshot(DocumentStatisticsService.ENTITY_TYPE))
+                .containsExactlyInAnyOrderEntriesOf(Map.of("ORGANIZATION", 1L));
+    }
+
+    @Test
+    void checkpointSendsDeltasAndTakesThemOffTheLocalView() {
+        statisticsService.onDocumentUploaded(document("application/pdf"));
+        statisticsService.onDocumentUploaded(document("application/pdf"));
+        statisticsService.onDocumentUploaded(document("text/plain"));
+        List<BsonDocument> updates = new ArrayList<>();
+        when(snapshots.findOneAndUpdate(any(Bson.class), any(Bson.class), any(FindOneAndUpdateOptions.class)))
+                .thenAnswer(invocation -> {
+                    updates.add(invocation.<Bson>getArgument(1).toBsonDocument());
+                    // an upload that lands while the checkpoint is in flight stays pending
+                    statisticsService.onDocumentUploaded(document("text/plain"));
+                    // other instances had already checkpointed 10 documents, 7 of them PDFs
+                    return new org.bson.Document("_id", "cluster").append("counters", new org.bson.Document()
+                            .append("totals", new org.bson.Document("documents", 13L))
+                            .append("contentType", new org.bson.Document()
+                                    .append(DocumentStatisticsService.encodeKey("application/pdf"), 9L)
+                                    .append(DocumentStatisticsService.encodeKey("text/plain"), 4L)));
+                });
+
+        statisticsService.checkpoint();
+
+        BsonDocument increments = updates.get(0).getDocument("$inc");
+        assertThat(increments.getInt64("counters.totals.documents").getValue()).isEqualTo(3);
+        assertThat(increments.getInt64("counters.contentType." + DocumentStatisticsService.encodeKey("application/pdf"))
+                .getValue()).isEqualTo(2);
+        assertThat(statisticsService.count(DocumentStatisticsService.TOTALS, "documents")).isEqualTo(14);
+        assertThat(statisticsService.snapshot(DocumentStatisticsService.CONTENT_TYPE))
+                .containsExactlyInAnyOrderEntriesOf(Map.of("application/pdf", 9L, "text/plain", 5L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void mergesOtherInstancesHistogramsIntoReads() {
+        statisticsService.onDocumentStatusChanged("PROCESSING", "COMPLETED", 1_000L);
+        Histogram other = new Histogram(TimeUnit.HOURS.toMillis(6), 3);
+        for (int i = 0; i < 99; i++) {
+            other.recordValue(5_000);
+        }
+        otherInstances.add(new org.bson.Document("_id", "instance:other")
+                .append("extraction_time_histogram", new Binary(encode(other))));
+
+        statisticsService.checkpoint();
+
+        Map<String, Object> extraction = (Map<String, Object>) statisticsService.getStats().get("extractionProcessingTime");
+        assertThat(extraction).containsEntry("count", 100L);
+        assertThat((long) extraction.get("p50")).isBetween(4_995L, 5_005L);
+        assertThat(extraction.get("max")).isEqualTo(statisticsService.percentiles(other).get("max"));
+        assertThat((Map<String, Object>) statisticsService.getStats().get("analysisProcessingTime"))
+                .containsEntry("count", 0L);
+    }
+
+    private static Document document(String contentType) {
+        Document document = new Document("file", contentType, 10L, "stored/file");
+        document.setProcessingStatus("UPLOADED");
+        return document;
+    }
+
+    private static DocumentAnalysis analysis(String type, String... entityTypes) {
+        DocumentAnalysis analysis = new DocumentAnalysis();
+        analysis.setAnalysisType(type);
+        analysis.setStatus("COMPLETED");
+        List<Entity> entities = new ArrayList<>();
+        for (String entityType : entityTypes) {
+            entities.add(new Entity(entityType, "text", 0.9));
+        }
+        analysis.setEntities(entities);
+        return analysis;
+    }
+
+    private static byte[] encode(Histogram histogram) {
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+        byte[] bytes = new byte[length];
+        buffer.flip();
+        buffer.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,104 @@
+package com.docai.services.storage;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Round-trips objects through a MinIO server, including one large enough for a multipart upload.
+ * Skipped where Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class S3BlobStoreMinioTest {
+
+    private static final String ACCESS_KEY = "minioadmin";
+    private static final String SECRET_KEY = "minioadmin";
+    private static final String BUCKET = "documents";
+
+    @Container
+    private static final GenericContainer<?> MINIO = new GenericContainer<>("minio/minio:RELEASE.2023-12-02T10-51-33Z")
+            .withCommand("server", "/data")
+            .withEnv("MINIO_ROOT_USER", ACCESS_KEY)
+            .withEnv("MINIO_ROOT_PASSWORD", SECRET_KEY)
+            .withExposedPorts(9000)
+            .waitingFor(Wait.forHttp("/minio/health/live").forPort(9000));
+
+    private static S3BlobStore store;
+
+    @BeforeAll
+    static void createStore() {
+        store = new S3BlobStore();
+        ReflectionTestUtils.setField(store, "bucket", BUCKET);
+        ReflectionTestUtils.setField(store, "endpoint", "http://" + MINIO.getHost() + ":" + MINIO.getMappedPort(9000));
+        ReflectionTestUtils.setField(store, "region", "us-east-1");
+        ReflectionTestUtils.setField(store, "accessKey", ACCESS_KEY);
+        ReflectionTestUtils.setField(store, "secretKey", SECRET_KEY);
+        ReflectionTestUtils.setField(store, "pathStyle", true);
+        ReflectionTestUtils.setField(store, "keyPrefix", "documents/");
+        ReflectionTestUtils.setField(store, "partSize", DataSize.ofMegabytes(5));
+        ReflectionTestUtils.setField(store, "uploadConcurrency", 2);
+        store.initialize();
+        ((S3Client) ReflectionTestUtils.getField(store, "client")).createBucket(request -> request.bucket(BUCKET));
+    }
+
+    @AfterAll
+    static void shutdown() {
+        store.shutdown();
+    }
+
+    @Test
+    void putsReadsRangesStatsAndDeletesASmallObject() throws Exception {
+        byte[] content = "0123456789abcdefghij".getBytes();
+
+        String locator = store.put("abcdef", "small.txt", new ByteArrayInputStream(content), content.length, "text/plain");
+
+        assertThat(locator).isEqualTo("s3://documents/documents/ab/cd/small.txt");
+        assertThat(read(store.open(locator))).isEqualTo(content);
+        assertThat(read(store.open(locator, 5, 5))).isEqualTo("56789".getBytes());
+        assertThat(read(store.open(locator, 15, -1))).isEqualTo("fghij".getBytes());
+        assertThat(store.stat(locator).size()).isEqualTo(content.length);
+
+        assertThat(store.delete(locator)).isTrue();
+        assertThatThrownBy(() -> store.stat(locator)).isInstanceOf(NoSuchFileException.class);
+        assertThatThrownBy(() -> store.open(locator)).isInstanceOf(NoSuchFileException.class);
+    }
+
+    @Test
+    void writesLargeObjectsOfUnknownSizeAsMultipartUploads() throws Exception {
+        byte[] content = new byte[12 * 1024 * 1024 + 17];
+        new Random(32).nextBytes(content);
+
+        String locator = store.put("0123ab", "large.bin", new ByteArrayInputStream(content), -1, "application/octet-stream");
+
+        assertThat(store.stat(locator).size()).isEqualTo(content.length);
+        assertThat(read(store.open(locator))).isEqualTo(content);
+        // a range across the first part boundary
+        int boundary = 5 * 1024 * 1024;
+        assertThat(read(store.open(locator, boundary - 100, 200)))
+                .isEqualTo(Arrays.copyOfRange(content, boundary - 100, boundary + 100));
+        assertThat(store.delete(locator)).isTrue();
+    }
+
+    private static byte[] read(InputStream stream) throws IOException {
+        try (stream) {
+            return stream.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.docai.services.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Multipart behaviour against a stubbed client; {@link S3BlobStoreMinioTest} covers a real server.
+ */
+class S3BlobStoreTest {
+
+    private static final int PART = 5 * 1024 * 1024;
+    private static final int CONCURRENCY = 2;
+
+    // Real default methods turn the builder-style calls into the request-object calls stubbed below
+    private final S3Client client = mock(S3Client.class, CALLS_REAL_METHODS);
+    private final ExecutorService uploadExecutor = Executors.newCachedThreadPool();
+    private final S3BlobStore store = new S3BlobStore();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(store, "client", client);
+        ReflectionTestUtils.setField(store, "uploadExecutor", uploadExecutor);
+        ReflectionTestUtils.setField(store, "bucket", "documents");
+        ReflectionTestUtils.setField(store, "keyPrefix", "documents/");
+        ReflectionTestUtils.setField(store, "partSize", DataSize.ofBytes(PART));
+        ReflectionTestUtils.setField(store, "uploadConcurrency", CONCURRENCY);
+        doReturn(CreateMultipartUploadResponse.builder().uploadId("upload-1").build())
+                .when(client).createMultipartUpload(any(CreateMultipartUploadRequest.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        uploadExecutor.shutdownNow();
+    }
+
+    @Test
+    void writesSmallObjectsInOneRequest() throws Exception {
+        doReturn(null).when(client).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+
+        String locator = store.put("abcdef", "report.pdf", new ByteArrayInputStream(new byte[10]), 10, "application/pdf");
+
+        assertThat(locator).isEqualTo("s3://documents/documents/ab/cd/report.pdf");
+        assertThat(store.supports(locator)).isTrue();
+        assertThat(store.supports("/var/documents/ab/cd/report.pdf")).isFalse();
+        verify(client, never()).createMultipartUpload(any(CreateMultipartUploadRequest.class));
+    }
+
+    @Test
+    void uploadsPartsInOrderWhileHoldingAtMostTheConcurrencyInBuffers() throws Exception {
+        CountingStream content = new CountingStream(new byte[PART * 5 + 1234]);
+        AtomicInteger uploaded = new AtomicInteger();
+        AtomicInteger maxHeld = new AtomicInteger();
+        doAnswer(invocation -> {
+            // parts read from the stream and not yet uploaded are held in memory
+            int read = (int) ((content.position.get() + PART - 1) / PART);
+            maxHeld.accumulateAndGet(read - uploaded.get(), Math::max);
+            Thread.sleep(20);
+            uploaded.incrementAndGet();
+            return UploadPartResponse.builder()
+                    .eTag("etag-" + invocation.<UploadPartRequest>getArgument(0).partNumber()).build();
+        }).when(client).uploadPart(any(UploadPartRequest.class), any(RequestBody.class));
+        ArgumentCaptor<CompleteMultipartUploadRequest> complete = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        doReturn(null).when(client).completeMultipartUpload(complete.capture());
+
+        store.put("abcdef", "large.bin", content, -1, "application/octet-stream");
+
+        assertThat(complete.getValue().uploadId()).isEqualTo("upload-1");
+        assertThat(complete.getValue().multipartUpload().parts()).extracting(CompletedPart::partNumber)
+                .containsExactly(1, 2, 3, 4, 5, 6);
+        assertThat(complete.getValue().multipartUpload().parts()).extracting(CompletedPart::eTag)
+                .containsExactly("etag-1", "etag-2", "etag-3", "etag-4", "etag-5", "etag-6");
+        assertThat(maxHeld.get()).isBetween(1, CONCURRENCY);
+        verify(client, never()).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+    }
+
+    @Test
+    void abortsTheUploadWhenAPartFails() {
+        doAnswer(invocation -> {
+            if (invocation.<UploadPartRequest>getArgument(0).partNumber() == 2) {
+                throw S3Exception.builder().message("slow down").statusCode(503).build();
+            }
+            return UploadPartResponse.builder().eTag("etag").build();
+        }).when(client).uploadPart(any(UploadPartRequest.class), any(RequestBody.class));
+        doReturn(null).when(client).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+
+        assertThatThrownBy(() -> store.put("abcdef", "large.bin", new ByteArrayInputStream(new byte[PART * 3]), -1,
+                "application/octet-stream"))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("slow down");
+
+        verify(client).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
+    @Test
+    void abortsTheUploadWhenTheSourceFails() {
+        doReturn(UploadPartResponse.builder().eTag("etag").build())
+                .when(client).uploadPart(any(UploadPartRequest.class), any(RequestBody.class));
+        doReturn(null).when(client).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        InputStream failing = new InputStream() {
+            private int remaining = PART + 10;
+
+            @Override
+            public int read() throws IOException {
+                if (remaining-- <= 0) {
+                    throw new IOException("connection reset");
+                }
+                return 0;
+            }
+        };
+
+        assertThatThrownBy(() -> store.put("abcdef", "large.bin", failing, -1, "application/octet-stream"))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("connection reset");
+
+        verify(client).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
+    private static final class CountingStream extends ByteArrayInputStream {
+
+        private final AtomicLong position = new AtomicLong();
+
+        private CountingStream(byte[] content) {
+            super(content);
+            new Random(32).nextBytes(content);
+        }
+
+        @Override
+        public synchronized int read(byte[] buffer, int offset, int length) {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                position.addAndGet(read);
+            }
+            return read;
+        }
+    }
+}
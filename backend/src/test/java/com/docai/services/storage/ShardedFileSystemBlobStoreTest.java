@@ -0,0 +1,125 @@
+package com.docai.services.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShardedFileSystemBlobStoreTest {
+
+    private static final String CHECKSUM = "abcdef0123456789";
+    private static final byte[] CONTENT = "0123456789abcdefghij".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shardsFilesByChecksumPrefixAndReturnsAbsoluteLocators() throws Exception {
+        ShardedFileSystemBlobStore store = store(DataSize.ofBytes(0), tempDir.resolve("one"));
+
+        String locator = put(store, CHECKSUM, "report.pdf");
+
+        Path expected = tempDir.resolve("one").resolve("ab").resolve("cd").resolve("report.pdf").toAbsolutePath();
+        assertThat(Paths.get(locator)).isEqualTo(expected);
+        assertThat(Files.readAllBytes(expected)).isEqualTo(CONTENT);
+        assertThat(store.supports(locator)).isTrue();
+        assertThat(store.supports("s3://bucket/documents/ab/cd/report.pdf")).isFalse();
+        assertThat(store.localPath(locator)).contains(expected);
+        try (Stream<Path> files = Files.list(expected.getParent())) {
+            // no partial file is left beside the target
+            assertThat(files).containsExactly(expected);
+        }
+    }
+
+    @Test
+    void fallsBackToTheFilenameHashWithoutAChecksum() throws Exception {
+        ShardedFileSystemBlobStore store = store(DataSize.ofBytes(0), tempDir);
+
+        String locator = put(store, null, "scan.tiff");
+
+        assertThat(tempDir.relativize(Paths.get(locator)).toString().replace('\\', '/'))
+                .isEqualTo(BlobStore.shardPrefix(null, "scan.tiff") + "/scan.tiff");
+    }
+
+    @Test
+    void opensRangesAndStatsAndDeletes() throws Exception {
+        ShardedFileSystemBlobStore store = store(DataSize.ofBytes(0), tempDir);
+        String locator = put(store, CHECKSUM, "report.pdf");
+
+        assertThat(read(store.open(locator, 5, 5))).isEqualTo("56789");
+        assertThat(read(store.open(locator, 15, -1))).isEqualTo("fghij");
+        assertThat(read(store.open(locator))).isEqualTo(new String(CONTENT, StandardCharsets.UTF_8));
+        assertThat(store.stat(locator).size()).isEqualTo(CONTENT.length);
+
+        assertThat(store.delete(locator)).isTrue();
+        assertThat(store.delete(locator)).isFalse();
+        assertThatThrownBy(() -> store.stat(locator)).isInstanceOf(NoSuchFileException.class);
+    }
+
+    @Test
+    void spreadsWritesOverEveryVolume() throws Exception {
+        ShardedFileSystemBlobStore store = store(DataSize.ofBytes(0), tempDir.resolve("a"), tempDir.resolve("b"));
+
+        Set<Path> used = new HashSet<>();
+        for (int i = 0; i < 64; i++) {
+            used.add(tempDir.relativize(Paths.get(put(store, CHECKSUM, "file-" + i))).getName(0));
+        }
+
+        // both volumes sit on the same disk, so each is picked with probability one half
+        assertThat(used).containsExactlyInAnyOrder(Paths.get("a"), Paths.get("b"));
+        assertThat(store.volumeUsage()).hasSize(2);
+    }
+
+    @Test
+    void picksVolumesInProportionToTheirWeight() {
+        long[] weights = {0, 10, 30};
+
+        assertThat(ShardedFileSystemBlobStore.weightedIndex(weights, 0)).isEqualTo(1);
+        assertThat(ShardedFileSystemBlobStore.weightedIndex(weights, 9)).isEqualTo(1);
+        assertThat(ShardedFileSystemBlobStore.weightedIndex(weights, 10)).isEqualTo(2);
+        assertThat(ShardedFileSystemBlobStore.weightedIndex(weights, 39)).isEqualTo(2);
+    }
+
+    @Test
+    void refusesWritesWhenNoVolumeKeepsTheReserveFree() {
+        ShardedFileSystemBlobStore store = store(DataSize.ofTerabytes(1_000_000), tempDir.resolve("a"), tempDir.resolve("b"));
+
+        assertThatThrownBy(() -> put(store, CHECKSUM, "report.pdf"))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("No storage volume");
+    }
+
+    private static ShardedFileSystemBlobStore store(DataSize minFreeSpace, Path... volumes) {
+        ShardedFileSystemBlobStore store = new ShardedFileSystemBlobStore();
+        ReflectionTestUtils.setField(store, "storagePath", volumes[0].toString());
+        ReflectionTestUtils.setField(store, "volumesSetting", String.join(",", Stream.of(volumes).map(Path::toString).toList()));
+        ReflectionTestUtils.setField(store, "minFreeSpace", minFreeSpace);
+        store.initialize();
+        return store;
+    }
+
+    private static String put(BlobStore store, String checksum, String filename) throws IOException {
+        return store.put(checksum, filename, new ByteArrayInputStream(CONTENT), CONTENT.length, "application/pdf");
+    }
+
+    private static String read(InputStream stream) throws IOException {
+        try (stream) {
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
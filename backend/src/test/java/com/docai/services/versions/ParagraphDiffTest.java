@@ -0,0 +1,181 @@
+package com.docai.services.versions;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ParagraphDiffTest {
+
+    @Test
+    void splitsOnBlankLinesWithTrimmedOffsets() {
+        String text = "  First paragraph.\n\n\n Second\nparagraph. \n \n\t\nThird.";
+
+        List<ParagraphDiff.Paragraph> paragraphs = ParagraphDiff.paragraphs(text);
+
+        assertThat(paragraphs).extracting(p -> text.substring(p.start(), p.end()))
+                .containsExactly("First paragraph.", "Second\nparagraph.", "Third.");
+    }
+
+    @Test
+    void splitsOnSingleNewlinesWhenBlankLinesAreTooRare() {
+        String line = "x".repeat(100);
+        String text = String.join("\n", Collections.nCopies(30, line));
+
+        assertThat(ParagraphDiff.paragraphs(text)).hasSize(30);
+    }
+
+    @Test
+    void matchesReflowedParagraphs() {
+        ParagraphDiff diff = ParagraphDiff.compute("The quick brown\nfox jumps.\n\nOver the dog.",
+                "The quick   brown fox\tjumps.\n\nOver the\ndog.");
+
+        assertThat(diff.newToOld).containsExactly(0, 1);
+        assertThat(diff.oldToNew).containsExactly(0, 1);
+    }
+
+    @Test
+    void reportsInsertedChangedAndRemovedParagraphs() {
+        String oldText = text("a", "b", "c", "d", "e");
+        String newText = text("a", "inserted", "b", "c changed", "e");
+
+        ParagraphDiff diff = ParagraphDiff.compute(oldText, newText);
+
+        assertThat(diff.newToOld).containsExactly(0, -1, 1, -1, 4);
+        assertThat(diff.oldToNew).containsExactly(0, 2, -1, -1, 4);
+    }
+
+    @Test
+    void handlesEmptyTexts() {
+        assertThat(ParagraphDiff.compute("", "").newToOld).isEmpty();
+        assertThat(ParagraphDiff.compute("", text("a", "b")).newToOld).containsExactly(-1, -1);
+        assertThat(ParagraphDiff.compute(text("a", "b"), " \n\n ").oldToNew).containsExactly(-1, -1);
+    }
+
+    @Test
+    void findsALongestCommonSubsequenceOfParagraphs() {
+        Random random = new Random(38);
+        for (int round = 0; round < 500; round++) {
+            List<String> oldParagraphs = randomParagraphs(random, random.nextInt(12));
+            List<String> newParagraphs = edit(random, oldParagraphs);
+
+            ParagraphDiff diff = ParagraphDiff.compute(text(oldParagraphs), text(newParagraphs));
+
+            assertConsistent(diff, oldParagraphs, newParagraphs);
+            assertThat(matches(diff)).as("%s -> %s", oldParagraphs, newParagraphs)
+                    .isEqualTo(lcsLength(oldParagraphs, newParagraphs));
+        }
+    }
+
+    @Test
+    void matchesLargeRevisionsInOrderWithoutTheLcsTable() {
+        Random random = new Random(3);
+        List<String> oldParagraphs = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            oldParagraphs.add("paragraph " + i);
+        }
+        List<String> newParagraphs = new ArrayList<>(oldParagraphs);
+        // Changes at both ends leave a middle too large for the LCS table
+        newParagraphs.set(0, "new first");
+        newParagraphs.set(newParagraphs.size() - 1, "new last");
+        for (int e = 0; e < 50; e++) {
+            newParagraphs.set(1 + random.nextInt(newParagraphs.size() - 2), "edited " + e);
+        }
+
+        ParagraphDiff diff = ParagraphDiff.compute(text(oldParagraphs), text(newParagraphs));
+
+        assertConsistent(diff, oldParagraphs, newParagraphs);
+        assertThat(matches(diff)).isEqualTo(lcsLength(oldParagraphs, newParagraphs));
+    }
+
+    @Test
+    void locatesTheParagraphContainingAnOffset() {
+        String text = text("alpha", "beta", "gamma");
+        List<ParagraphDiff.Paragraph> paragraphs = ParagraphDiff.paragraphs(text);
+
+        assertThat(ParagraphDiff.paragraphAt(paragraphs, 0)).isZero();
+        assertThat(ParagraphDiff.paragraphAt(paragraphs, text.indexOf("beta") + 3)).isEqualTo(1);
+        assertThat(ParagraphDiff.paragraphAt(paragraphs, text.indexOf("gamma"))).isEqualTo(2);
+        // The blank line between paragraphs belongs to none
+        assertThat(ParagraphDiff.paragraphAt(paragraphs, text.indexOf("beta") - 1)).isEqualTo(-1);
+        assertThat(ParagraphDiff.paragraphAt(paragraphs, text.length())).isEqualTo(-1);
+    }
+
+    private static void assertConsistent(ParagraphDiff diff, List<String> oldParagraphs, List<String> newParagraphs) {
+        assertThat(diff.newToOld).hasSize(newParagraphs.size());
+        assertThat(diff.oldToNew).hasSize(oldParagraphs.size());
+        int last = -1;
+        for (int j = 0; j < diff.newToOld.length; j++) {
+            int i = diff.newToOld[j];
+            if (i < 0) {
+                continue;
+            }
+            assertThat(newParagraphs.get(j)).isEqualTo(oldParagraphs.get(i));
+            assertThat(diff.oldToNew[i]).isEqualTo(j);
+            // Matches never cross
+            assertThat(i).isGreaterThan(last);
+            last = i;
+        }
+    }
+
+    private static int matches(ParagraphDiff diff) {
+        int count = 0;
+        for (int i : diff.newToOld) {
+            if (i >= 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int lcsLength(List<String> left, List<String> right) {
+        int[] previous = new int[right.size() + 1];
+        for (int i = left.size() - 1; i >= 0; i--) {
+            int[] current = new int[right.size() + 1];
+            for (int j = right.size() - 1; j >= 0; j--) {
+                current[j] = left.get(i).equals(right.get(j))
+                        ? previous[j + 1] + 1
+                        : Math.max(previous[j], current[j + 1]);
+            }
+            previous = current;
+        }
+        return previous[0];
+    }
+
+    private static List<String> randomParagraphs(Random random, int count) {
+        List<String> paragraphs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            // A small vocabulary makes repeated paragraphs likely
+            paragraphs.add("p" + random.nextInt(6));
+        }
+        return paragraphs;
+    }
+
+    private static List<String> edit(Random random, List<String> paragraphs) {
+        List<String> edited = new ArrayList<>(paragraphs);
+        int edits = random.nextInt(5);
+        for (int e = 0; e < edits; e++) {
+            int operation = random.nextInt(3);
+            if (operation == 0 || edited.isEmpty()) {
+                edited.add(random.nextInt(edited.size() + 1), "p" + random.nextInt(8));
+            } else if (operation == 1) {
+                edited.remove(random.nextInt(edited.size()));
+            } else {
+                edited.set(random.nextInt(edited.size()), "p" + random.nextInt(8));
+            }
+        }
+        return edited;
+    }
+
+    private static String text(String... paragraphs) {
+        return text(List.of(paragraphs));
+    }
+
+    private static String text(List<String> paragraphs) {
+        return String.join("\n\n", paragraphs);
+    }
+}
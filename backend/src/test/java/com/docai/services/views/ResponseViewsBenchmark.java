@@ -0,0 +1,154 @@
+package com.docai.services.views;
+
+import com.docai.models.Document;
+import com.docai.models.Entity;
+import com.docai.services.stats.DocumentStatisticsService;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Serialization latency of a search response of 20 documents (200KB of extracted text, 50
+ * entities and 30 metadata keys each) per view and for a three-field fieldset, with and without
+ * the Blackbird module. Sample-time mode reports p50 and p99 per case; the setup prints the
+ * response size and its gzipped size, which is what Tomcat sends for the larger views.
+ * <p>
+ * After {@code mvn test-compile}, run from the backend directory with
+ * {@code java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath
+ * -Dmdep.outputFile=/dev/stdout)" org.openjdk.jmh.Main ResponseViewsBenchmark},
+ * or start {@link #main} from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseViewsBenchmark {
+
+    private static final int DOCUMENTS = 20;
+    private static final int TEXT_CHARS = 200 * 1024;
+    private static final int ENTITIES = 50;
+    private static final int METADATA_KEYS = 30;
+
+    private static final String[] WORDS = {"invoice", "payment", "contract", "supplier", "delivery", "schedule",
+            "amount", "\"net\"", "terms", "agreement", "party", "warehouse", "quarter", "revenue", "tax"};
+
+    @Param({"full", "detail", "summary", "fields"})
+    private String view;
+
+    @Param({"true", "false"})
+    private boolean blackbird;
+
+    private ResponseViews responseViews;
+    private Map<String, Object> response;
+    private String viewName;
+    private String fields;
+
+    @Setup
+    public void setUp() throws IOException {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        if (blackbird) {
+            builder.modulesToInstall(new BlackbirdModule());
+        }
+        responseViews = new ResponseViews();
+        ReflectionTestUtils.setField(responseViews, "objectMapper", builder.build());
+        ReflectionTestUtils.setField(responseViews, "statisticsService", mock(DocumentStatisticsService.class));
+        responseViews.initialize();
+
+        Random random = new Random(50);
+        List<Document> documents = new ArrayList<>(DOCUMENTS);
+        for (int i = 0; i < DOCUMENTS; i++) {
+            documents.add(document(random, i));
+        }
+        response = Map.of("documents", documents, "total", DOCUMENTS);
+        viewName = view.equals("fields") ? null : view;
+        fields = view.equals("fields") ? "id,filename,classification" : null;
+
+        byte[] bytes = serialize();
+        System.out.printf("%n%s (blackbird=%s): %d bytes, %d gzipped%n", view, blackbird, bytes.length, gzipped(bytes));
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return responseViews.write(response, Document.class, viewName, fields);
+    }
+
+    private static Document document(Random random, int index) {
+        Document document = new Document("file-" + index + ".pdf", "application/pdf", 2_000_000L, "stored/file-" + index);
+        document.setId(String.format("%024x", index));
+        document.setOriginalFilename("Quarterly report " + index + ".pdf");
+        document.setProcessed(true);
+        document.setProcessingStatus("COMPLETED");
+        document.setClassification("invoice");
+        document.setConfidenceScore(0.93);
+        document.setTags(List.of("finance", "q" + (index % 4 + 1)));
+        document.setLanguage("en");
+        document.setPageCount(40);
+        document.setCreatedAt(LocalDateTime.of(2024, 1, 1, 12, 0).plusHours(index));
+        document.setUpdatedAt(document.getCreatedAt().plusMinutes(5));
+
+        StringBuilder text = new StringBuilder(TEXT_CHARS + 32);
+        while (text.length() < TEXT_CHARS) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(20) == 0 ? ".\n" : " ");
+        }
+        document.setExtractedText(text.toString());
+
+        List<Entity> entities = new ArrayList<>(ENTITIES);
+        for (int i = 0; i < ENTITIES; i++) {
+            Entity entity = new Entity("ORGANIZATION", "Supplier " + random.nextInt(1000), random.nextDouble(),
+                    i * 100, i * 100 + 12);
+            entity.setMetadata(Map.of("source", "scanner", "page", i % 40));
+            entities.add(entity);
+        }
+        document.setEntities(entities);
+
+        Map<String, Object> metadata = new LinkedHashMap<>();
+        for (int i = 0; i < METADATA_KEYS; i++) {
+            metadata.put("key" + i, "value " + random.nextInt(100_000));
+        }
+        document.setMetadata(metadata);
+        return document;
+    }
+
+    private static int gzipped(byte[] bytes) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+            gzip.write(bytes);
+        }
+        return output.size();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ResponseViewsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
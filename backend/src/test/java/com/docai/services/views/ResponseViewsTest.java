@@ -0,0 +1,113 @@
+package com.docai.services.views;
+
+import com.docai.models.Document;
+import com.docai.models.DocumentAnalysis;
+import com.docai.models.Entity;
+import com.docai.services.stats.DocumentStatisticsService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class ResponseViewsTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+    private final ResponseViews responseViews = new ResponseViews();
+    private final Document document = new Document("report.pdf", "application/pdf", 1024L, "stored/report.pdf");
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(responseViews, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(responseViews, "statisticsService", mock(DocumentStatisticsService.class));
+        responseViews.initialize();
+
+        document.setId("doc-1");
+        document.setExtractedText("Quarterly report text");
+        document.setClassification("report");
+        document.setMetadata(Map.of("author", "finance"));
+        Entity entity = new Entity("ORGANIZATION", "Acme", 0.9);
+        entity.setMetadata(Map.of("source", "scanner"));
+        document.setEntities(List.of(entity));
+        document.setCreatedAt(LocalDateTime.of(2024, 1, 1, 12, 0));
+    }
+
+    @Test
+    void writesTheFullRecordByDefault() throws Exception {
+        JsonNode json = read(responseViews.write(document, Document.class, null, null));
+
+        assertThat(json.has("extractedText")).isTrue();
+        assertThat(json.has("metadata")).isTrue();
+        assertThat(json.at("/entities/0/metadata/source").asText()).isEqualTo("scanner");
+    }
+
+    @Test
+    void leavesTextAndMetadataOutOfTheDetailView() throws Exception {
+        JsonNode json = read(responseViews.write(document, Document.class, "detail", null));
+
+        assertThat(json.has("extractedText")).isFalse();
+        assertThat(json.has("metadata")).isFalse();
+        assertThat(json.at("/entities/0/text").asText()).isEqualTo("Acme");
+        assertThat(json.at("/entities/0").has("metadata")).isFalse();
+    }
+
+    @Test
+    void keepsOnlyListColumnsInTheSummaryView() throws Exception {
+        JsonNode json = read(responseViews.write(Map.of("documents", List.of(document)), Document.class, "SUMMARY", null));
+
+        JsonNode row = json.at("/documents/0");
+        assertThat(row.get("classification").asText()).isEqualTo("report");
+        assertThat(row.has("entities")).isFalse();
+        assertThat(row.has("extractedText")).isFalse();
+        assertThat(row.has("filePath")).isFalse();
+    }
+
+    @Test
+    void selectsFieldsAndAlwaysKeepsTheId() throws Exception {
+        JsonNode json = read(responseViews.write(document, Document.class, null, "filename, classification"));
+
+        assertThat(json.properties()).extracting(Map.Entry::getKey)
+                .containsExactlyInAnyOrder("id", "filename", "classification");
+    }
+
+    @Test
+    void narrowsAViewWithAFieldsetButCannotWidenIt() throws Exception {
+        JsonNode json = read(responseViews.write(document, Document.class, "summary", "classification"));
+        assertThat(json.properties()).extracting(Map.Entry::getKey).containsExactlyInAnyOrder("id", "classification");
+
+        assertThatThrownBy(() -> responseViews.write(document, Document.class, "summary", "extractedText"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("extractedText");
+        assertThatThrownBy(() -> responseViews.write(document, Document.class, "detail", "filename,metadata"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("metadata");
+        assertThatThrownBy(() -> responseViews.write(new DocumentAnalysis(), DocumentAnalysis.class, "detail", "analyticsData"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(read(responseViews.write(document, Document.class, "full", "extractedText")).has("extractedText")).isTrue();
+    }
+
+    @Test
+    void rejectsUnknownViewsAndFields() {
+        assertThatThrownBy(() -> responseViews.write(document, Document.class, "compact", null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> responseViews.write(document, Document.class, null, "filename,nope"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("nope");
+    }
+
+    private JsonNode read(byte[] bytes) throws Exception {
+        return objectMapper.readTree(bytes);
+    }
+}
@@ -94,6 +94,27 @@ export const analyzeDocument = async (id: string) => {
   }
 };
 
+// Streams a summary as it is generated; returns a function that stops listening
+export const streamDocumentSummary = (
+  id: string,
+  onToken: (text: string) => void,
+  onDone: (analysis: any) => void,
+  onError: (message: string) => void
+) => {
+  const source = new EventSource(`${BASE_URL}/api/documents/${id}/summary/stream`);
+  source.addEventListener('token', (event) => onToken(JSON.parse((event as MessageEvent).data).text));
+  source.addEventListener('analysis', (event) => {
+    source.close();
+    onDone(JSON.parse((event as MessageEvent).data));
+  });
+  source.addEventListener('error', (event) => {
+    source.close();
+    const data = (event as MessageEvent).data;
+    onError(data ? JSON.parse(data).error : 'Summary stream failed');
+  });
+  return () => source.close();
+};
+
 export const searchDocuments = async (query: string, filters?: any) => {
   try {
     const response = await api.post('/api/documents/search', {